@@ -0,0 +1,778 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.izforge.izpack.api.config.spi.EscapeTool;
+
+
+/**
+ * Applies keyed inserts, updates and deletes to an INI or options file in a single pass.
+ * <p/>
+ * Unlike {@link Ini} and {@link Options}, the file isn't loaded into a model and reformatted. Lines are copied
+ * through unchanged unless they hold an entry being updated or deleted, so comments, blank lines, ordering and the
+ * formatting of untouched entries are preserved. Only the sections with pending changes have their entries parsed.
+ * <p/>
+ * Patches are applied as follows:
+ * <ul>
+ * <li>an update replaces the value of every occurrence of the key in its section, keeping the existing key text
+ * and operator</li>
+ * <li>a key that isn't present is inserted after the last entry of the first occurrence of its section</li>
+ * <li>a section that isn't present is appended to the end of the file</li>
+ * <li>a delete removes every occurrence of the key, including any continuation lines</li>
+ * </ul>
+ * The parser settings (escapes, line continuation, case-folding and the global section) are taken from the
+ * {@link Config}, as for {@link Ini} and {@link Options}.
+ */
+public class ConfigPatcher
+{
+    /**
+     * Computes the new value of an entry.
+     */
+    public interface Update
+    {
+        /**
+         * Returns the new value of an entry.
+         *
+         * @param value the current value, or {@code null} if the entry doesn't exist or has been deleted
+         * @return the new value, or {@code null} to delete the entry
+         * @throws IOException if the value cannot be computed
+         */
+        String update(String value) throws IOException;
+    }
+
+    /**
+     * Deletes an entry.
+     */
+    private static final Update DELETE = new Update()
+    {
+        @Override
+        public String update(String value)
+        {
+            return null;
+        }
+    };
+
+    private static final String INI_COMMENTS = ";#";
+    private static final String OPTIONS_COMMENTS = "!#";
+    private static final String OPERATORS = ":=";
+    private static final char SECTION_BEGIN = '[';
+    private static final char SECTION_END = ']';
+    private static final char ESCAPE_CHAR = '\\';
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The configuration.
+     */
+    private final Config config;
+
+    /**
+     * Determines if the file has sections, i.e. is an INI file rather than an options file.
+     */
+    private final boolean sections;
+
+    /**
+     * The comment characters.
+     */
+    private final String comments;
+
+    /**
+     * The updates, keyed on section and key, in the order they were added.
+     */
+    private final Map<String, Map<String, List<Update>>> updates
+            = new LinkedHashMap<String, Map<String, List<Update>>>();
+
+
+    /**
+     * Constructs a <tt>ConfigPatcher</tt>.
+     *
+     * @param config   the configuration
+     * @param sections if <tt>true</tt>, patch an INI file, otherwise patch an options file
+     */
+    public ConfigPatcher(Config config, boolean sections)
+    {
+        this.config = config;
+        this.sections = sections;
+        comments = sections ? INI_COMMENTS : OPTIONS_COMMENTS;
+    }
+
+    /**
+     * Sets the value of an entry, inserting it if it doesn't exist.
+     *
+     * @param section the section. Ignored for options files
+     * @param key     the key
+     * @param value   the value
+     */
+    public void put(String section, String key, final String value)
+    {
+        put(section, key, new Update()
+        {
+            @Override
+            public String update(String current)
+            {
+                return value;
+            }
+        });
+    }
+
+    /**
+     * Updates an entry.
+     * <p/>
+     * If several updates are added for the same entry, they are applied in the order they were added, each being
+     * passed the value returned by the previous one.
+     *
+     * @param section the section. Ignored for options files
+     * @param key     the key
+     * @param update  computes the new value
+     */
+    public void put(String section, String key, Update update)
+    {
+        Map<String, List<Update>> keys = updates.get(getSectionName(section));
+        if (keys == null)
+        {
+            keys = new LinkedHashMap<String, List<Update>>();
+            updates.put(getSectionName(section), keys);
+        }
+        List<Update> list = keys.get(getKey(key));
+        if (list == null)
+        {
+            list = new ArrayList<Update>(1);
+            keys.put(getKey(key), list);
+        }
+        list.add(update);
+    }
+
+    /**
+     * Deletes an entry.
+     *
+     * @param section the section. Ignored for options files
+     * @param key     the key
+     */
+    public void remove(String section, String key)
+    {
+        put(section, key, DELETE);
+    }
+
+    /**
+     * Patches a file in place.
+     *
+     * @param file the file to patch. If it doesn't exist, it is created
+     * @throws IOException for any I/O error
+     */
+    public void patch(File file) throws IOException
+    {
+        patch(file.exists() ? file : null, file);
+    }
+
+    /**
+     * Patches a file.
+     * <p/>
+     * The result is written to a temporary file alongside the target, and renamed once complete.
+     *
+     * @param source the file to patch. If {@code null}, an empty file is patched
+     * @param target the file to write. May be the same as <tt>source</tt>
+     * @throws IOException for any I/O error
+     */
+    public void patch(File source, File target) throws IOException
+    {
+        File dir = target.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(target.getName(), ".tmp", dir);
+        try
+        {
+            Reader reader = (source != null)
+                    ? new InputStreamReader(new FileInputStream(source), config.getFileEncoding()) : null;
+            try
+            {
+                Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), config.getFileEncoding());
+                try
+                {
+                    patch(reader, writer);
+                }
+                finally
+                {
+                    writer.close();
+                }
+            }
+            finally
+            {
+                if (reader != null)
+                {
+                    reader.close();
+                }
+            }
+            if (!tmp.renameTo(target))
+            {
+                if (target.exists() && !target.delete())
+                {
+                    throw new IOException("Failed to replace " + target);
+                }
+                if (!tmp.renameTo(target))
+                {
+                    throw new IOException("Failed to rename " + tmp + " to " + target);
+                }
+            }
+        }
+        finally
+        {
+            if (tmp.exists() && !tmp.delete())
+            {
+                tmp.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Patches a stream.
+     *
+     * @param reader the content to patch. If {@code null}, empty content is patched
+     * @param writer the writer to write the patched content to. This is not closed
+     * @throws IOException for any I/O error
+     */
+    public void patch(Reader reader, Writer writer) throws IOException
+    {
+        new Pass(reader, writer).run();
+    }
+
+    /**
+     * Normalizes a section name.
+     *
+     * @param section the section name. May be {@code null}
+     * @return the normalized name
+     */
+    private String getSectionName(String section)
+    {
+        if (!sections)
+        {
+            return null;
+        }
+        return (section != null && config.isLowerCaseSection()) ? section.toLowerCase(Locale.getDefault()) : section;
+    }
+
+    /**
+     * Normalizes a key.
+     *
+     * @param key the key
+     * @return the normalized key
+     */
+    private String getKey(String key)
+    {
+        return config.isLowerCaseOption() ? key.toLowerCase(Locale.getDefault()) : key;
+    }
+
+    private String unescape(String value)
+    {
+        return config.isEscape() ? EscapeTool.getInstance().unescape(value) : value;
+    }
+
+    private String escape(String value)
+    {
+        return config.isEscape() ? EscapeTool.getInstance().escape(value) : value;
+    }
+
+    /**
+     * A single pass over the content being patched.
+     */
+    private class Pass
+    {
+        /**
+         * The line reader. May be {@code null}.
+         */
+        private final LineReader reader;
+
+        /**
+         * The writer.
+         */
+        private final Writer writer;
+
+        /**
+         * The line separator used for inserted lines. This is the first separator in the content, if any.
+         */
+        private String separator;
+
+        /**
+         * Determines if the last line written ended with a line separator.
+         */
+        private boolean terminated = true;
+
+        /**
+         * The blank and comment lines that follow the last entry of the current section. These are held back so
+         * that inserted entries follow the last entry, rather than comments that precede the next section.
+         */
+        private final List<String> pending = new ArrayList<String>();
+
+        /**
+         * The current section name.
+         */
+        private String section;
+
+        /**
+         * The updates for the current section, or {@code null} if there are none.
+         */
+        private Map<String, List<Update>> sectionUpdates;
+
+        /**
+         * The keys found in the current section.
+         */
+        private final Set<String> found = new HashSet<String>();
+
+        /**
+         * The sections that have been ended, and have had missing entries inserted.
+         */
+        private final Set<String> ended = new HashSet<String>();
+
+        public Pass(Reader reader, Writer writer)
+        {
+            this.reader = (reader != null) ? new LineReader(reader) : null;
+            this.writer = writer;
+        }
+
+        public void run() throws IOException
+        {
+            String globalSection = (sections && config.isGlobalSection()) ? config.getGlobalSectionName() : null;
+            startSection(globalSection);
+            String line;
+            while (reader != null && (line = reader.readLine()) != null)
+            {
+                if (separator == null)
+                {
+                    separator = getSeparator(line);
+                }
+                int end = line.length() - getSeparatorLength(line);
+                int start = skipWhitespace(line, 0, end);
+                if (start == end || comments.indexOf(line.charAt(start)) >= 0)
+                {
+                    pending.add(line);
+                }
+                else if (sections && line.charAt(start) == SECTION_BEGIN)
+                {
+                    endSection();
+                    flushPending();
+                    write(line);
+                    int close = line.lastIndexOf(SECTION_END, end - 1);
+                    String name = (close > start) ? line.substring(start + 1, close).trim() : "";
+                    startSection(getSectionName(unescape(name)));
+                }
+                else
+                {
+                    entry(line, start, end);
+                }
+            }
+            endSection();
+            flushPending();
+            for (Map.Entry<String, Map<String, List<Update>>> entry : updates.entrySet())
+            {
+                if (!ended.contains(entry.getKey()))
+                {
+                    appendSection(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        /**
+         * Processes an entry, including any continuation lines.
+         *
+         * @param line  the first line of the entry
+         * @param start the index of the first non-whitespace character
+         * @param end   the index of the line separator
+         * @throws IOException for any I/O error
+         */
+        private void entry(String line, int start, int end) throws IOException
+        {
+            String raw = line;
+            String logical = null;
+            if (isContinued(line, start, end))
+            {
+                StringBuilder rawLines = new StringBuilder(line);
+                StringBuilder logicalLines = new StringBuilder();
+                String next = line;
+                int nextStart = start;
+                int nextEnd = end;
+                while (isContinued(next, nextStart, nextEnd))
+                {
+                    logicalLines.append(next, nextStart, trimEnd(next, nextStart, nextEnd) - 1);
+                    next = reader.readLine();
+                    if (next == null)
+                    {
+                        break;
+                    }
+                    rawLines.append(next);
+                    nextEnd = next.length() - getSeparatorLength(next);
+                    nextStart = skipWhitespace(next, 0, nextEnd);
+                }
+                if (next != null)
+                {
+                    logicalLines.append(next, nextStart, trimEnd(next, nextStart, nextEnd));
+                }
+                raw = rawLines.toString();
+                logical = logicalLines.toString();
+            }
+
+            if (sectionUpdates == null)
+            {
+                // nothing to change in this section, so the entry needn't be parsed
+                flushPending();
+                write(raw);
+                return;
+            }
+            if (logical == null)
+            {
+                logical = line.substring(start, trimEnd(line, start, end));
+            }
+            int operator = indexOfOperator(logical);
+            String key = getKey(unescape((operator >= 0) ? logical.substring(0, operator) : logical).trim());
+            List<Update> list = sectionUpdates.get(key);
+            if (list == null)
+            {
+                flushPending();
+                write(raw);
+                return;
+            }
+
+            found.add(key);
+            String value = (operator >= 0) ? unescape(logical.substring(operator + 1)).trim() : null;
+            String newValue = apply(list, value);
+            if (newValue == null)
+            {
+                // deleted. Any preceding comments are kept
+                return;
+            }
+            flushPending();
+            if (newValue.equals(value))
+            {
+                write(raw);
+            }
+            else
+            {
+                String prefix;
+                if (operator >= 0)
+                {
+                    int valueStart = skipWhitespace(logical, operator + 1, logical.length());
+                    prefix = line.substring(0, start) + logical.substring(0, valueStart);
+                }
+                else
+                {
+                    prefix = line.substring(0, start) + logical + config.getOperator();
+                }
+                write(prefix + escape(newValue) + getSeparator(raw));
+            }
+        }
+
+        /**
+         * Starts a section.
+         *
+         * @param name the section name
+         */
+        private void startSection(String name)
+        {
+            section = name;
+            sectionUpdates = updates.get(name);
+            found.clear();
+        }
+
+        /**
+         * Ends the current section, inserting any entries not found in it.
+         * <p/>
+         * Entries are only inserted into the first occurrence of a section.
+         *
+         * @throws IOException for any I/O error
+         */
+        private void endSection() throws IOException
+        {
+            if (ended.add(section) && sectionUpdates != null)
+            {
+                insert(sectionUpdates);
+            }
+        }
+
+        /**
+         * Appends a section that wasn't present, if it has entries to insert.
+         *
+         * @param name the section name
+         * @param keys the updates for the section
+         * @throws IOException for any I/O error
+         */
+        private void appendSection(String name, Map<String, List<Update>> keys) throws IOException
+        {
+            StringBuilder entries = new StringBuilder();
+            for (Map.Entry<String, List<Update>> entry : keys.entrySet())
+            {
+                String value = apply(entry.getValue(), null);
+                if (value != null)
+                {
+                    entries.append(format(entry.getKey(), value));
+                }
+            }
+            if (entries.length() != 0)
+            {
+                if (name != null)
+                {
+                    write(SECTION_BEGIN + escape(name) + SECTION_END + getSeparator());
+                }
+                write(entries.toString());
+            }
+        }
+
+        /**
+         * Inserts the entries of the current section that weren't found.
+         *
+         * @param keys the updates for the section
+         * @throws IOException for any I/O error
+         */
+        private void insert(Map<String, List<Update>> keys) throws IOException
+        {
+            for (Map.Entry<String, List<Update>> entry : keys.entrySet())
+            {
+                if (!found.contains(entry.getKey()))
+                {
+                    String value = apply(entry.getValue(), null);
+                    if (value != null)
+                    {
+                        write(format(entry.getKey(), value));
+                    }
+                }
+            }
+        }
+
+        private String format(String key, String value)
+        {
+            return escape(key) + config.getOperator() + escape(value) + getSeparator();
+        }
+
+        private void flushPending() throws IOException
+        {
+            for (String line : pending)
+            {
+                write(line);
+            }
+            pending.clear();
+        }
+
+        private void write(String text) throws IOException
+        {
+            if (!terminated)
+            {
+                writer.write(getSeparator());
+            }
+            writer.write(text);
+            terminated = getSeparatorLength(text) != 0;
+        }
+
+        private String getSeparator()
+        {
+            return (separator != null && separator.length() != 0) ? separator : config.getLineSeparator();
+        }
+
+        /**
+         * Returns the separator of a line, or the separator used for inserted lines if the line has none.
+         *
+         * @param line the line
+         * @return the line separator
+         */
+        private String getSeparator(String line)
+        {
+            int length = getSeparatorLength(line);
+            return (length != 0) ? line.substring(line.length() - length) : getSeparator();
+        }
+
+        /**
+         * Determines if a line is continued on the next line, i.e. ends with an odd no. of escape characters.
+         */
+        private boolean isContinued(String line, int start, int end)
+        {
+            if (!config.isEscapeNewline())
+            {
+                return false;
+            }
+            int count = 0;
+            for (int i = trimEnd(line, start, end) - 1; i >= start && line.charAt(i) == ESCAPE_CHAR; --i)
+            {
+                ++count;
+            }
+            return (count & 1) != 0;
+        }
+    }
+
+    /**
+     * Applies updates to a value.
+     *
+     * @param list  the updates
+     * @param value the current value. May be {@code null}
+     * @return the new value. May be {@code null}
+     * @throws IOException if an update fails
+     */
+    private static String apply(List<Update> list, String value) throws IOException
+    {
+        String result = value;
+        for (Update update : list)
+        {
+            result = update.update(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the operator separating a key from its value, skipping a leading quoted key.
+     *
+     * @param line the line
+     * @return the operator index, or <tt>-1</tt> if there is none
+     */
+    private static int indexOfOperator(String line)
+    {
+        int start = 0;
+        if (line.length() > 0 && line.charAt(0) == '"')
+        {
+            start = 1;
+            while (start < line.length()
+                    && (line.charAt(start) != '"' || line.charAt(start - 1) == ESCAPE_CHAR))
+            {
+                ++start;
+            }
+        }
+        for (int i = start; i < line.length(); ++i)
+        {
+            if (OPERATORS.indexOf(line.charAt(i)) >= 0)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int getSeparatorLength(String line)
+    {
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\n')
+        {
+            return (length > 1 && line.charAt(length - 2) == '\r') ? 2 : 1;
+        }
+        return (length > 0 && line.charAt(length - 1) == '\r') ? 1 : 0;
+    }
+
+    private static int skipWhitespace(String line, int start, int end)
+    {
+        int i = start;
+        while (i < end && Character.isWhitespace(line.charAt(i)))
+        {
+            ++i;
+        }
+        return i;
+    }
+
+    private static int trimEnd(String line, int start, int end)
+    {
+        int i = end;
+        while (i > start && Character.isWhitespace(line.charAt(i - 1)))
+        {
+            --i;
+        }
+        return i;
+    }
+
+    /**
+     * Reads lines, including their line separators, so that they can be written back unchanged.
+     */
+    private static class LineReader
+    {
+        private final Reader reader;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+
+        public LineReader(Reader reader)
+        {
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the next line.
+         *
+         * @return the line, including its separator if it has one, or {@code null} at the end of the stream
+         * @throws IOException for any I/O error
+         */
+        public String readLine() throws IOException
+        {
+            line.setLength(0);
+            while (fill())
+            {
+                int start = position;
+                while (position < limit)
+                {
+                    char c = buffer[position++];
+                    if (c == '\n')
+                    {
+                        line.append(buffer, start, position - start);
+                        return line.toString();
+                    }
+                    if (c == '\r')
+                    {
+                        line.append(buffer, start, position - start);
+                        if (fill() && buffer[position] == '\n')
+                        {
+                            line.append('\n');
+                            ++position;
+                        }
+                        return line.toString();
+                    }
+                }
+                line.append(buffer, start, position - start);
+            }
+            return (line.length() != 0) ? line.toString() : null;
+        }
+
+        /**
+         * Ensures there are buffered characters.
+         *
+         * @return <tt>true</tt> if there are characters available, <tt>false</tt> at the end of the stream
+         * @throws IOException for any I/O error
+         */
+        private boolean fill() throws IOException
+        {
+            if (position < limit)
+            {
+                return true;
+            }
+            int read;
+            do
+            {
+                read = reader.read(buffer, 0, buffer.length);
+            }
+            while (read == 0);
+            position = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        }
+    }
+}
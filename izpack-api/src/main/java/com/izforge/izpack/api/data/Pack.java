@@ -128,6 +128,12 @@ public class Pack implements Serializable
      */
     private long fileSize;
 
+    /**
+     * The hex encoded SHA-256 digest of the jar the pack is stored in, when packs are written to separate jars for
+     * web installers.
+     */
+    private String jarDigest;
+
     /**
      * Determines if the pack should be preselected for installation.
      */
@@ -511,6 +517,26 @@ public class Pack implements Serializable
         return fileSize;
     }
 
+    /**
+     * Sets the digest of the separate jar the pack is stored in.
+     *
+     * @param digest the hex encoded SHA-256 digest. May be {@code null}
+     */
+    public void setJarDigest(String digest)
+    {
+        jarDigest = digest;
+    }
+
+    /**
+     * Returns the digest of the separate jar the pack is stored in.
+     *
+     * @return the hex encoded SHA-256 digest, or {@code null} if the pack is stored in the installer jar
+     */
+    public String getJarDigest()
+    {
+        return jarDigest;
+    }
+
     /**
      * Sets the parent pack name.
      *
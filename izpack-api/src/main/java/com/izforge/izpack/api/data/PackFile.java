@@ -136,6 +136,16 @@ public class PackFile implements Serializable
      */
     private String condition = null;
 
+    /**
+     * The Unix mode to apply to the installed file, or <tt>-1</tt> to leave the default.
+     */
+    private int unixMode = -1;
+
+    /**
+     * The hex encoded SHA-256 digest of the file content, or {@code null} if it wasn't recorded at compile time.
+     */
+    private String digest;
+
     /**
      * Constructs and initializes from a source file.
      *
@@ -175,6 +185,67 @@ public class PackFile implements Serializable
             throw new FileNotFoundException("No such file: " + src);
         }
 
+        this.packedFile = src;
+        init(src.getPath(), relativeSourcePath, target, osList, override, overrideRenameTo, blockable, additionals,
+             pack200Properties, src.lastModified(), src.isDirectory(), src.length());
+    }
+
+    /**
+     * Constructs and initializes from content that doesn't exist in the file system, such as an archive entry.
+     * <p/>
+     * The content must be supplied to the packager by a {@link PackFileSource}.
+     *
+     * @param sourcePath         a description of where the content comes from, for logging purposes
+     * @param relativeSourcePath the path relative to the compiletime's basedirectory
+     * @param target             the path to install the file to
+     * @param osList             OS constraints
+     * @param override           what to do when the file already exists
+     * @param additionals        additional attributes
+     * @param lastModified       the last-modification time of the content
+     * @param directory          determines if the content is a directory
+     * @param length             the length of the content in bytes
+     */
+    public PackFile(String sourcePath, String relativeSourcePath, String target, List<OsModel> osList,
+                    OverrideType override, String overrideRenameTo, Blockable blockable, Map additionals,
+                    Map<String, String> pack200Properties, long lastModified, boolean directory, long length)
+    {
+        instanceId = nextInstanceId.getAndIncrement();
+        init(sourcePath, relativeSourcePath, target, osList, override, overrideRenameTo, blockable, additionals,
+             pack200Properties, lastModified, directory, length);
+    }
+
+    /**
+     * Constructs a copy of another pack file.
+     * <p/>
+     * Packager specific state, such as stream offsets, back references and Pack200 settings is not copied.
+     *
+     * @param file the pack file to copy
+     */
+    protected PackFile(PackFile file)
+    {
+        instanceId = nextInstanceId.getAndIncrement();
+        packedFile = file.packedFile;
+        sourcePath = file.sourcePath;
+        relativePath = file.relativePath;
+        targetPath = file.targetPath;
+        osConstraints = file.osConstraints;
+        override = file.override;
+        overrideRenameTo = file.overrideRenameTo;
+        blockable = file.blockable;
+        additionals = file.additionals;
+        mtime = file.mtime;
+        isDirectory = file.isDirectory;
+        length = file.length;
+        size = file.length;
+        condition = file.condition;
+        unixMode = file.unixMode;
+        digest = file.digest;
+    }
+
+    private void init(String sourcePath, String relativeSourcePath, String target, List<OsModel> osList,
+                      OverrideType override, String overrideRenameTo, Blockable blockable, Map additionals,
+                      Map<String, String> pack200Properties, long lastModified, boolean directory, long length)
+    {
         if ('/' != File.separatorChar)
         {
             target = target.replace(File.separatorChar, '/');
@@ -184,8 +255,7 @@ public class PackFile implements Serializable
             target = target.substring(0, target.length() - 1);
         }
 
-        this.packedFile = src;
-        this.sourcePath = src.getPath().replace(File.separatorChar, '/');
+        this.sourcePath = sourcePath.replace(File.separatorChar, '/');
         this.relativePath = (relativeSourcePath != null) ? relativeSourcePath.replace(File.separatorChar, '/') : null;
 
         this.targetPath = target.replace(File.separatorChar, '/');
@@ -194,11 +264,11 @@ public class PackFile implements Serializable
         this.overrideRenameTo = overrideRenameTo;
         this.blockable = blockable;
 
-        this.mtime = src.lastModified();
-        this.isDirectory = src.isDirectory();
+        this.mtime = lastModified;
+        this.isDirectory = directory;
         if (!this.isDirectory())
         {
-            this.length = src.length();
+            this.length = length;
             this.size = this.length;
         }
         this.additionals = additionals;
@@ -283,7 +353,7 @@ public class PackFile implements Serializable
     }
 
     /**
-     * The packed file object
+     * The packed file object, or <tt>null</tt> if the content is supplied by a {@link PackFileSource}
      */
     public final File getFile()
     {
@@ -411,6 +481,52 @@ public class PackFile implements Serializable
         return this.condition != null;
     }
 
+    /**
+     * Returns the Unix mode to apply to the installed file.
+     *
+     * @return the Unix mode e.g. <tt>0755</tt>, or <tt>-1</tt> if none was specified
+     */
+    public int getUnixMode()
+    {
+        return unixMode;
+    }
+
+    /**
+     * Sets the Unix mode to apply to the installed file.
+     *
+     * @param unixMode the Unix mode e.g. <tt>0755</tt>, or <tt>-1</tt> to leave the default
+     */
+    public void setUnixMode(int unixMode)
+    {
+        this.unixMode = unixMode;
+    }
+
+    public boolean hasUnixMode()
+    {
+        return unixMode >= 0;
+    }
+
+    /**
+     * Returns the digest of the file content.
+     *
+     * @return the hex encoded SHA-256 digest of the file content, or {@code null} if it wasn't recorded at compile
+     *         time
+     */
+    public String getDigest()
+    {
+        return digest;
+    }
+
+    /**
+     * Sets the digest of the file content.
+     *
+     * @param digest the hex encoded SHA-256 digest of the file content. May be {@code null}
+     */
+    public void setDigest(String digest)
+    {
+        this.digest = digest;
+    }
+
     public boolean isPack200Jar()
     {
         return pack200Jar;
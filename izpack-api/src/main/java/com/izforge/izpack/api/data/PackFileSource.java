@@ -0,0 +1,48 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Supplies the content of pack files that don't exist in the file system at compile time, such as the entries of
+ * an archive being unpacked into a pack.
+ * <p/>
+ * Sources are only used by the compiler, and are closed once the packs have been written.
+ *
+ * @see PackInfo#addFile(PackFile, java.io.File, PackFileSource)
+ */
+public interface PackFileSource extends Closeable
+{
+
+    /**
+     * Opens a stream to read the content of a pack file.
+     * <p/>
+     * The returned stream must be closed before the next stream is opened.
+     *
+     * @param file the pack file
+     * @return a stream to read the file content
+     * @throws IOException if the file cannot be read
+     */
+    InputStream open(PackFile file) throws IOException;
+}
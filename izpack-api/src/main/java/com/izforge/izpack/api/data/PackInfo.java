@@ -58,6 +58,12 @@ public class PackInfo implements Serializable
      */
     private final Map<PackFile, File> files = new LinkedHashMap<PackFile, File>();
 
+    /**
+     * Sources of the files that don't exist in the file system. Only available when compiling.
+     */
+    @SuppressWarnings("TransientFieldNotInitialized")
+    private transient Map<PackFile, PackFileSource> sources;
+
     /**
      * Parsables files in this Pack.
      */
@@ -143,9 +149,10 @@ public class PackInfo implements Serializable
      * @param osList     the target operation system(s) of this pack.
      * @param override   what to do if the file already exists when installing
      * @param condition  the condition to decide whether the file should be extracted
+     * @return the added pack file
      * @throws FileNotFoundException if the file specified does not exist.
      */
-    public void addFile(File baseDir, File file, String targetfile, List<OsModel> osList, OverrideType override,
+    public PackFile addFile(File baseDir, File file, String targetfile, List<OsModel> osList, OverrideType override,
                         String overrideRenameTo, Blockable blockable, Map additionals, String condition,
                         Map<String, String> pack200Properties)
             throws IOException
@@ -160,6 +167,38 @@ public class PackInfo implements Serializable
         packFile.setLoosePackInfo(pack.isLoose());
         packFile.setCondition(condition);
         files.put(packFile, file);
+        return packFile;
+    }
+
+    /**
+     * Add a file or directory whose content is supplied by a {@link PackFileSource}, rather than read from the
+     * file system.
+     *
+     * @param packFile the pack file
+     * @param file     a unique name for the file content. This need not exist
+     * @param source   the source of the file content
+     */
+    public void addFile(PackFile packFile, File file, PackFileSource source)
+    {
+        packFile.setLoosePackInfo(pack.isLoose());
+        files.put(packFile, file);
+        if (sources == null)
+        {
+            sources = new HashMap<PackFile, PackFileSource>();
+        }
+        sources.put(packFile, source);
+    }
+
+    /**
+     * Returns the source of a file's content.
+     *
+     * @param packFile the pack file
+     * @return the source of the file's content, or <tt>null</tt> if the content should be read from
+     *         {@link #getFile(PackFile) the file}
+     */
+    public PackFileSource getSource(PackFile packFile)
+    {
+        return (sources != null) ? sources.get(packFile) : null;
     }
 
     /**
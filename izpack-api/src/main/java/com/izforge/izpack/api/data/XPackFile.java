@@ -42,6 +42,16 @@ public class XPackFile extends PackFile implements Comparable<XPackFile>
      */
     private long position;
 
+    /**
+     * The index of the volume where the file data starts, or <tt>-1</tt> if it is unknown.
+     */
+    private int volume = -1;
+
+    /**
+     * The offset of the file data within {@link #volume}.
+     */
+    private long volumeOffset;
+
     /**
      * Constructs an <tt>XPackFile</tt>.
      *
@@ -68,10 +78,8 @@ public class XPackFile extends PackFile implements Comparable<XPackFile>
      */
     public XPackFile(PackFile file) throws IOException
     {
-        super(new File(file.sourcePath), file.getRelativeSourcePath(), file.getTargetPath(), file.osConstraints(),
-              file.override(), file.overrideRenameTo(), file.blockable(), file.getAdditionals(), null);
+        super(file);
         this.position = 0;
-        this.setCondition(file.getCondition());
     }
 
     /**
@@ -94,6 +102,48 @@ public class XPackFile extends PackFile implements Comparable<XPackFile>
         this.position = position;
     }
 
+    /**
+     * Returns the index of the volume where the file data starts.
+     *
+     * @return the volume index, or <tt>-1</tt> if the file can only be reached by reading through the archive
+     */
+    public int getVolume()
+    {
+        return volume;
+    }
+
+    /**
+     * Returns the offset of the file data within its {@link #getVolume() volume}.
+     *
+     * @return the volume offset
+     */
+    public long getVolumeOffset()
+    {
+        return volumeOffset;
+    }
+
+    /**
+     * Sets the volume and offset where the file data starts.
+     *
+     * @param volume the volume index
+     * @param offset the offset within the volume
+     */
+    public void setVolumeOffset(int volume, long offset)
+    {
+        this.volume = volume;
+        this.volumeOffset = offset;
+    }
+
+    /**
+     * Determines if the file data can be reached directly via its volume and offset.
+     *
+     * @return <tt>true</tt> if the file data can be seeked to
+     */
+    public boolean isSeekable()
+    {
+        return volume >= 0;
+    }
+
     public int compareTo(XPackFile arg0)
     {
         return this.getTargetPath().compareTo(arg0.getTargetPath());
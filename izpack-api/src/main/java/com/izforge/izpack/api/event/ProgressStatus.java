@@ -0,0 +1,182 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.event;
+
+/**
+ * A snapshot of the overall progress of an action, measured in bytes and files.
+ */
+public class ProgressStatus
+{
+    /**
+     * The no. of bytes processed.
+     */
+    private final long bytes;
+
+    /**
+     * The total no. of bytes to process, or <tt>0</tt> if it is unknown.
+     */
+    private final long totalBytes;
+
+    /**
+     * The no. of files processed.
+     */
+    private final long files;
+
+    /**
+     * The time elapsed since the action started, in milliseconds.
+     */
+    private final long elapsed;
+
+
+    /**
+     * Constructs a <tt>ProgressStatus</tt>.
+     *
+     * @param bytes      the no. of bytes processed
+     * @param totalBytes the total no. of bytes to process, or <tt>0</tt> if it is unknown
+     * @param files      the no. of files processed
+     * @param elapsed    the time elapsed since the action started, in milliseconds
+     */
+    public ProgressStatus(long bytes, long totalBytes, long files, long elapsed)
+    {
+        this.bytes = bytes;
+        this.totalBytes = totalBytes;
+        this.files = files;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Returns the no. of bytes processed.
+     *
+     * @return the no. of bytes processed
+     */
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * Returns the total no. of bytes to process.
+     *
+     * @return the total no. of bytes, or <tt>0</tt> if it is unknown
+     */
+    public long getTotalBytes()
+    {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the no. of files processed.
+     *
+     * @return the no. of files processed
+     */
+    public long getFiles()
+    {
+        return files;
+    }
+
+    /**
+     * Returns the time elapsed since the action started.
+     *
+     * @return the elapsed time, in milliseconds
+     */
+    public long getElapsed()
+    {
+        return elapsed;
+    }
+
+    /**
+     * Returns the average no. of files processed per second.
+     *
+     * @return the file rate
+     */
+    public double getFilesPerSecond()
+    {
+        return (elapsed > 0) ? files * 1000.0 / elapsed : 0;
+    }
+
+    /**
+     * Returns the average no. of bytes processed per second.
+     *
+     * @return the byte rate
+     */
+    public double getBytesPerSecond()
+    {
+        return (elapsed > 0) ? bytes * 1000.0 / elapsed : 0;
+    }
+
+    /**
+     * Estimates the time remaining, based on the average byte rate so far.
+     *
+     * @return the estimated time remaining in milliseconds, or <tt>-1</tt> if it cannot be estimated
+     */
+    public long getRemaining()
+    {
+        if (totalBytes <= 0 || bytes <= 0)
+        {
+            return -1;
+        }
+        if (bytes >= totalBytes)
+        {
+            return 0;
+        }
+        return (long) ((totalBytes - bytes) * ((double) elapsed / bytes));
+    }
+
+    /**
+     * Formats a duration as <em>m:ss</em>, or <em>h:mm:ss</em> if it is an hour or more.
+     *
+     * @param millis the duration, in milliseconds
+     * @return the formatted duration
+     */
+    public static String formatTime(long millis)
+    {
+        long seconds = Math.max(0, millis) / 1000;
+        long hours = seconds / 3600;
+        long minutes = (seconds / 60) % 60;
+        seconds %= 60;
+        StringBuilder result = new StringBuilder();
+        if (hours > 0)
+        {
+            result.append(hours).append(':');
+            if (minutes < 10)
+            {
+                result.append('0');
+            }
+        }
+        result.append(minutes).append(':');
+        if (seconds < 10)
+        {
+            result.append('0');
+        }
+        return result.append(seconds).toString();
+    }
+
+    /**
+     * Returns a string representation of this.
+     *
+     * @return a string representation of this
+     */
+    @Override
+    public String toString()
+    {
+        return "ProgressStatus[bytes=" + bytes + ", totalBytes=" + totalBytes + ", files=" + files
+                + ", elapsed=" + elapsed + "]";
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.event;
+
+/**
+ * A {@link ProgressListener} that is also notified of the overall throughput of an action.
+ * <p/>
+ * Notifications are rate limited by the caller, so implementations may update a user interface directly from
+ * {@link #progress(ProgressStatus)}, without coalescing events themselves.
+ */
+public interface ProgressStatusListener extends ProgressListener
+{
+    /**
+     * Invoked to notify the overall progress of an action.
+     *
+     * @param status the progress status
+     */
+    void progress(ProgressStatus status);
+}
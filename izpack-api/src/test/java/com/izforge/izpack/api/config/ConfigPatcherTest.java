@@ -0,0 +1,324 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.api.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link ConfigPatcher}.
+ */
+public class ConfigPatcherTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that updates replace only the value, and leave other lines unchanged.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUpdate() throws Exception
+    {
+        ConfigPatcher patcher = new ConfigPatcher(new Config(), true);
+        patcher.put("db", "port", "5433");
+        patcher.put("db", "name", "izpack");
+        patcher.put("web", "name", "unchanged");
+
+        String ini = "; database settings\r\n"
+                + "[db]\r\n"
+                + "  host : localhost\r\n"
+                + "  port : 5432\r\n"
+                + "# name=other\r\n"
+                + "name=test\r\n"
+                + "\r\n"
+                + "[web]\r\n"
+                + "name   =   unchanged   \r\n"
+                + "port=80";
+        String expected = "; database settings\r\n"
+                + "[db]\r\n"
+                + "  host : localhost\r\n"
+                + "  port : 5433\r\n"
+                + "# name=other\r\n"
+                + "name=izpack\r\n"
+                + "\r\n"
+                + "[web]\r\n"
+                + "name   =   unchanged   \r\n"
+                + "port=80";
+        assertEquals(expected, patch(patcher, ini));
+    }
+
+    /**
+     * Verifies that missing entries are inserted after the last entry of their section, and missing sections are
+     * appended.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testInsert() throws Exception
+    {
+        ConfigPatcher patcher = new ConfigPatcher(new Config(), true);
+        patcher.put("db", "user", "admin");
+        patcher.put("mail", "host", "smtp");
+        patcher.put("mail", "port", "25");
+
+        String ini = "[db]\n"
+                + "host=localhost\n"
+                + "\n"
+                + "; web settings\n"
+                + "[web]\n"
+                + "port=80";
+        String expected = "[db]\n"
+                + "host=localhost\n"
+                + "user=admin\n"
+                + "\n"
+                + "; web settings\n"
+                + "[web]\n"
+                + "port=80\n"
+                + "[mail]\n"
+                + "host=smtp\n"
+                + "port=25\n";
+        assertEquals(expected, patch(patcher, ini));
+        assertEquals("[db]\nuser=admin\n[mail]\nhost=smtp\nport=25\n", patch(patcher, ""));
+    }
+
+    /**
+     * Verifies that deletes remove every occurrence of a key, including continuation lines, and keep comments.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testRemove() throws Exception
+    {
+        ConfigPatcher patcher = new ConfigPatcher(new Config(), false);
+        patcher.remove(null, "path");
+        patcher.remove(null, "missing");
+
+        String options = "! the path\n"
+                + "path = a:\\\n"
+                + "       b:\\\n"
+                + "       c\n"
+                + "[other]=1\n"
+                + "path=d\n"
+                + "# end\n";
+        String expected = "! the path\n"
+                + "[other]=1\n"
+                + "# end\n";
+        assertEquals(expected, patch(patcher, options));
+    }
+
+    /**
+     * Verifies that updates are passed the current, unescaped value, and are applied in order.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUpdateFunctions() throws Exception
+    {
+        ConfigPatcher patcher = new ConfigPatcher(new Config(), false);
+        patcher.put(null, "count", new Increment());
+        patcher.put(null, "count", new Increment());
+        patcher.put(null, "added", new Increment());
+        patcher.put(null, "path", new ConfigPatcher.Update()
+        {
+            @Override
+            public String update(String value)
+            {
+                return value + "\td";
+            }
+        });
+        patcher.remove(null, "reset");
+        patcher.put(null, "reset", "0");
+
+        String options = "count=1\n"
+                + "path=a\\tb:\\\n"
+                + "  c\n"
+                + "reset=5\n";
+        String expected = "count=3\n"
+                + "path=a\\tb:c\\td\n"
+                + "reset=0\n"
+                + "added=1\n";
+        assertEquals(expected, patch(patcher, options));
+    }
+
+    /**
+     * Verifies that a patched file reads the same as the same patches applied to an {@link Ini}.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPatchFileMatchesIni() throws Exception
+    {
+        File file = temporaryFolder.newFile("test.ini");
+        FileUtils.writeStringToFile(file, createIni(20, 10), "UTF-8");
+
+        Ini ini = new Ini(file);
+        ini.put("section5", "key5", "changed");
+        ini.put("section6", "new", "value");
+        ini.put("added", "key", "value");
+        ini.get("section7").remove("key3");
+
+        ConfigPatcher patcher = new ConfigPatcher(new Config(), true);
+        patcher.put("section5", "key5", "changed");
+        patcher.put("section6", "new", "value");
+        patcher.put("added", "key", "value");
+        patcher.remove("section7", "key3");
+        patcher.patch(file);
+
+        Ini patched = new Ini(file);
+        assertEquals(ini.keySet(), patched.keySet());
+        for (String name : ini.keySet())
+        {
+            Ini.Section section = ini.get(name);
+            assertEquals(name, section.keySet(), patched.get(name).keySet());
+            for (String key : section.keySet())
+            {
+                assertEquals(name + "." + key, section.getAll(key), patched.get(name).getAll(key));
+            }
+        }
+        assertNull(patched.get("section7", "key3"));
+    }
+
+    /**
+     * Compares patching multi-megabyte INI and options files with {@link Ini} and {@link Options}, against
+     * {@link ConfigPatcher}.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    @Ignore("Benchmark. Run manually when changing ConfigPatcher")
+    public void benchmarkLargeFiles() throws Exception
+    {
+        File iniFile = temporaryFolder.newFile("large.ini");
+        FileUtils.writeStringToFile(iniFile, createIni(2000, 100), "UTF-8");
+        File optionsFile = temporaryFolder.newFile("large.properties");
+        FileUtils.writeStringToFile(optionsFile, createOptions(200000), "UTF-8");
+        System.out.println("INI: " + iniFile.length() + " bytes, options: " + optionsFile.length() + " bytes");
+
+        for (int run = 0; run < 3; ++run)
+        {
+            long start = System.nanoTime();
+            Ini ini = new Ini(iniFile);
+            for (int i = 0; i < 2000; i += 20)
+            {
+                ini.put("section" + i, "key50", "changed" + run);
+                ini.put("section" + i, "new", "value");
+                ini.get("section" + i).remove("key10");
+            }
+            ini.store();
+            long model = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ConfigPatcher patcher = new ConfigPatcher(new Config(), true);
+            for (int i = 0; i < 2000; i += 20)
+            {
+                patcher.put("section" + i, "key50", "changed" + run);
+                patcher.put("section" + i, "new", "value");
+                patcher.remove("section" + i, "key10");
+            }
+            patcher.patch(iniFile);
+            long streaming = System.nanoTime() - start;
+            System.out.println("INI: Ini " + model / 1000000 + " ms, ConfigPatcher " + streaming / 1000000 + " ms");
+
+            start = System.nanoTime();
+            Options options = new Options(optionsFile);
+            for (int i = 0; i < 200000; i += 2000)
+            {
+                options.put("key" + i, "changed" + run);
+                options.remove("key" + (i + 1));
+            }
+            options.put("new", "value");
+            options.store();
+            model = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            patcher = new ConfigPatcher(new Config(), false);
+            for (int i = 0; i < 200000; i += 2000)
+            {
+                patcher.put(null, "key" + i, "changed" + run);
+                patcher.remove(null, "key" + (i + 1));
+            }
+            patcher.put(null, "new", "value");
+            patcher.patch(optionsFile);
+            streaming = System.nanoTime() - start;
+            System.out.println("Options: Options " + model / 1000000 + " ms, ConfigPatcher " + streaming / 1000000
+                                       + " ms");
+        }
+    }
+
+    private String patch(ConfigPatcher patcher, String content) throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        patcher.patch(new StringReader(content), writer);
+        return writer.toString();
+    }
+
+    private String createIni(int sections, int keys)
+    {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < sections; ++i)
+        {
+            result.append("; section ").append(i).append('\n');
+            result.append("[section").append(i).append("]\n");
+            for (int j = 0; j < keys; ++j)
+            {
+                result.append("key").append(j).append(" = some value for section ").append(i).append(" key ")
+                        .append(j).append('\n');
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    private String createOptions(int keys)
+    {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < keys; ++i)
+        {
+            if (i % 100 == 0)
+            {
+                result.append("# group ").append(i / 100).append('\n');
+            }
+            result.append("key").append(i).append("=some value for key ").append(i).append('\n');
+        }
+        return result.toString();
+    }
+
+    private static class Increment implements ConfigPatcher.Update
+    {
+        @Override
+        public String update(String value)
+        {
+            return Integer.toString(value == null ? 1 : Integer.parseInt(value) + 1);
+        }
+    }
+}
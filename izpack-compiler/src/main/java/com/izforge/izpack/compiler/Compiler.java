@@ -27,6 +27,7 @@ package com.izforge.izpack.compiler;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,17 +45,13 @@ import com.izforge.izpack.api.event.UninstallerListener;
 import com.izforge.izpack.api.exception.CompilerException;
 import com.izforge.izpack.api.exception.IzPackClassNotFoundException;
 import com.izforge.izpack.compiler.helper.CompilerHelper;
+import com.izforge.izpack.compiler.util.ClassVersionChecker;
 import com.izforge.izpack.compiler.util.CompilerClassLoader;
 import com.izforge.izpack.compiler.packager.IPackager;
 import com.izforge.izpack.data.CustomData;
 import com.izforge.izpack.api.data.PackInfo;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 /**
  * The IzPack compiler class. This is now a java bean style class that can be
@@ -90,6 +87,11 @@ public class Compiler extends Thread
      */
     private int expectedJavaVersion;
 
+    /**
+     * The class version checker, shared by all compilations.
+     */
+    private static ClassVersionChecker classVersionChecker;
+
     /**
      * Compiler helper.
      */
@@ -395,60 +397,62 @@ public class Compiler extends Thread
      */
     public void checkJarVersions(File file, String minimalJavaVersion) throws FileNotFoundException, IOException
     {
-        FileInputStream fis = new FileInputStream(file);
-        extractJarInternals(file.toString(), fis, minimalJavaVersion);
+        int maxMajor = getMaximumMajorVersion(minimalJavaVersion);
+        int major = getClassVersionChecker().getMajorVersion(file, maxMajor);
+        setJavaVersionCorrect(major <= maxMajor);
+        if (major != 0)
+        {
+            setJavaVersionExpected(major);
+        }
     }
-    
+
     /**
-     * Extracts contents of JAR
+     * Checks the class versions of several JARs concurrently, ahead of calls to
+     * {@link #checkJarVersions(File, String)}.
+     * <p/>
+     * The results are cached, so the subsequent per-JAR checks don't rescan the JARs.
      *
-     * @param fileStr JAR file to check as string
-     * @param is JAR file as input stream
+     * @param files JAR files to check
      * @param minimalJavaVersion minimal Java version from install.xml header or default from constants
-     * @throws IOException when file cannot be read
-     * @throws FileNotFoundException when file cannot be found
+     * @throws IOException when a file cannot be read
+     * @throws FileNotFoundException when a file cannot be found
      */
-    private void extractJarInternals(String fileStr, InputStream is, String minimalJavaVersion) throws IOException
+    public void checkJarVersions(Collection<File> files, String minimalJavaVersion)
+            throws FileNotFoundException, IOException
     {
-        ZipInputStream zis = new ZipInputStream(is);
-        ZipEntry ze;
-        setJavaVersionCorrect(true);
-        while ((ze = zis.getNextEntry()) != null) {
-            if (ze.getName().endsWith(".class"))
-            {
-                checkClassTargetVersion(fileStr + ":" + ze.getName(), zis, minimalJavaVersion);
-            }
-            else if (ze.getName().endsWith(".jar"))
-            {
-                extractJarInternals(fileStr + ":" + ze.getName(), zis, minimalJavaVersion);
-            }
-        }
+        getClassVersionChecker().getMajorVersions(files, getMaximumMajorVersion(minimalJavaVersion));
     }
-    
+
     /**
-     * Checks target version in class file
+     * Returns the highest class file major version supported by a Java version.
      *
-     * @param fileStr JAR file as string
-     * @param zis class file as input stream
-     * @param minimalJavaVersion minimal Java version from install.xml header or default from constants
-     * @throws IOException when file cannot be read
-     * @throws FileNotFoundException when file cannot be found
+     * @param minimalJavaVersion the Java version, e.g. <em>1.6</em> or <em>9</em>
+     * @return the corresponding class file major version
      */
-    private void checkClassTargetVersion(String fileStr, ZipInputStream zis, String minimalJavaVersion) throws IOException
+    private static int getMaximumMajorVersion(String minimalJavaVersion)
     {
-        DataInputStream dis = new DataInputStream(zis);
-        if (dis.readInt() != 0xCAFEBABE)
-        {
-            throw new CompilerException("Class file cannot be read: " + fileStr);
-        }
-        dis.readUnsignedShort();
-        int major = dis.readUnsignedShort();
         String[] splitMinimalVersion = minimalJavaVersion.split("\\.");
-        setJavaVersionExpected(major);
-        if (major > (44 + Integer.parseInt(splitMinimalVersion[1])))
+        String version = (splitMinimalVersion.length > 1 && "1".equals(splitMinimalVersion[0]))
+                ? splitMinimalVersion[1] : splitMinimalVersion[0];
+        return 44 + Integer.parseInt(version);
+    }
+
+    /**
+     * Returns the class version checker shared by all compilations in this JVM.
+     * <p/>
+     * Its results are persisted to {@link ClassVersionChecker#getCacheFile()}, so that unchanged JARs aren't
+     * rescanned by later builds. The cache may be relocated or disabled with the
+     * <tt>izpack.classversions.cache</tt> system property.
+     *
+     * @return the class version checker
+     */
+    private static synchronized ClassVersionChecker getClassVersionChecker()
+    {
+        if (classVersionChecker == null)
         {
-            setJavaVersionCorrect(false);
+            classVersionChecker = new ClassVersionChecker(ClassVersionChecker.getCacheFile());
         }
+        return classVersionChecker;
     }
 
     /**
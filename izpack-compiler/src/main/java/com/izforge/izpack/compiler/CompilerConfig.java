@@ -47,8 +47,9 @@ import com.izforge.izpack.compiler.listener.CompilerListener;
 import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.compiler.packager.IPackager;
 import com.izforge.izpack.compiler.resource.ResourceFinder;
-import com.izforge.izpack.compiler.util.AntPathMatcher;
+import com.izforge.izpack.compiler.util.TargetPathIndex;
 import com.izforge.izpack.compiler.util.CompilerClassLoader;
+import com.izforge.izpack.compiler.util.compress.ArchivePackFileSource;
 import com.izforge.izpack.compiler.util.compress.ArchiveStreamFactory;
 import com.izforge.izpack.compiler.xml.*;
 import com.izforge.izpack.core.data.DynamicInstallerRequirementValidatorImpl;
@@ -82,8 +83,9 @@ import com.izforge.izpack.util.FileUtil;
 import com.izforge.izpack.util.OsConstraintHelper;
 import com.izforge.izpack.util.PlatformModelMatcher;
 import com.izforge.izpack.util.file.DirectoryScanner;
+import com.izforge.izpack.util.file.FileTreeScanner;
+import com.izforge.izpack.util.file.FilePermissions;
 import com.izforge.izpack.util.helper.SpecHelper;
-import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.compressors.CompressorException;
@@ -216,6 +218,21 @@ public class CompilerConfig extends Thread
      */
     private final CompilerClassLoader classLoader;
 
+    /**
+     * The pack whose target paths are indexed by {@link #targetPathIndex}.
+     */
+    private PackInfo indexedPack;
+
+    /**
+     * The number of files in {@link #indexedPack} when it was indexed.
+     */
+    private int indexedPackFiles;
+
+    /**
+     * The target path index for {@link #indexedPack}, used to evaluate executable and parsable filesets.
+     */
+    private TargetPathIndex targetPathIndex;
+
     private static final String TEMP_DIR_ELEMENT_NAME = "tempdir";
     private static final String TEMP_DIR_PREFIX_ATTRIBUTE = "prefix";
     private static final String DEFAULT_TEMP_DIR_PREFIX = "IzPack";
@@ -575,16 +592,29 @@ public class CompilerConfig extends Thread
         notifyCompilerListener("addJars", CompilerListener.BEGIN, data);
         final String minimalJavaVersion = compilerData.getExternalInfo().getJavaVersion();
         final boolean javaVersionStrict = compilerData.getExternalInfo().getJavaVersionStrict();
-        for (IXMLElement ixmlElement : data.getChildrenNamed("jar"))
+        List<IXMLElement> jars = data.getChildrenNamed("jar");
+        List<URL> urls = new ArrayList<URL>();
+        List<File> files = new ArrayList<File>();
+        for (IXMLElement ixmlElement : jars)
         {
             String src = xmlCompilerHelper.requireAttribute(ixmlElement, "src");
+            URL url = resourceFinder.findProjectResource(src, "Jar file", ixmlElement);
+            urls.add(url);
+            files.add(new File(url.getFile()));
+        }
+
+        // check the jars concurrently up front; the per-jar checks below then use the cached results
+        compiler.checkJarVersions(files, minimalJavaVersion);
+        for (int i = 0; i < jars.size(); ++i)
+        {
+            IXMLElement ixmlElement = jars.get(i);
 
             // all external jars contents regardless of stage type are merged into the installer
             // but we keep a copy of jar entries that user want to merge into uninstaller
             // as "customData", where the installer will get them into uninstaller.jar at the end of installation
             // note if stage is empty or null, it is the same at 'install'
             String stage = ixmlElement.getAttribute("stage");
-            URL url = resourceFinder.findProjectResource(src, "Jar file", ixmlElement);
+            URL url = urls.get(i);
             boolean uninstaller = "both".equalsIgnoreCase(stage) || "uninstall".equalsIgnoreCase(stage);
             compiler.checkJarVersions(new File(url.getFile()), minimalJavaVersion);
             if (!compiler.getJavaVersionCorrect())
@@ -1025,9 +1055,10 @@ public class CompilerConfig extends Thread
 
     private void processFileSetChildren(TargetFileSet fs, File baseDir, PackInfo pack) throws Exception
     {
+        FileTreeScanner scanner = fs.getFileTreeScanner();
         String[][] includedFilesAndDirs = new String[][]{
-                fs.getDirectoryScanner().getIncludedDirectories(),
-                fs.getDirectoryScanner().getIncludedFiles()
+                scanner.getIncludedDirectories(),
+                scanner.getIncludedFiles()
         };
         for (String[] filesOrDirs : includedFilesAndDirs)
         {
@@ -1040,9 +1071,10 @@ public class CompilerConfig extends Thread
                         File file = new File(fs.getDir(), filePath);
                         String target = new File(fs.getTargetDir(), filePath).getPath();
                         logAddingFile(file.toString(), target);
-                        pack.addFile(baseDir, file, target, fs.getOsList(),
+                        PackFile packFile = pack.addFile(baseDir, file, target, fs.getOsList(),
                                      fs.getOverride(), fs.getOverrideRenameTo(),
                                      fs.getBlockable(), fs.getAdditionals(), fs.getCondition(), fs.getPack200Properties());
+                        packFile.setUnixMode(fs.getFileMode());
                     }
                 }
             }
@@ -1092,6 +1124,7 @@ public class CompilerConfig extends Thread
             Blockable blockable = getBlockableValue(singleFileNode, osList);
             Map<String, ?> additionals = getAdditionals(singleFileNode);
             String conditionId = parseConditionAttribute(singleFileNode);
+            int fileMode = getFileModeValue(singleFileNode);
             File file = new File(src);
             if (!file.isAbsolute())
             {
@@ -1115,8 +1148,9 @@ public class CompilerConfig extends Thread
             try
             {
                 logAddingFile(file.toString(), target);
-                pack.addFile(baseDir, file, target, osList, override, overrideRenameTo, blockable,
+                PackFile packFile = pack.addFile(baseDir, file, target, osList, override, overrideRenameTo, blockable,
                              additionals, conditionId, readPack200Properties(singleFileNode));
+                packFile.setUnixMode(fileMode);
             }
             catch (IOException x)
             {
@@ -1164,6 +1198,7 @@ public class CompilerConfig extends Thread
                 fs.setBlockable(getBlockableValue(fileNode, osList));
                 fs.setAdditionals(getAdditionals(fileNode));
                 fs.setCondition(parseConditionAttribute(fileNode));
+                fs.setFileMode(getFileModeValue(fileNode));
 
                 String boolval = fileNode.getAttribute("casesensitive");
                 if (boolval != null)
@@ -1186,8 +1221,9 @@ public class CompilerConfig extends Thread
                 Map<String, String> pack200Properties = readPack200Properties(fileNode);
 
                 LinkedList<String> srcfiles = new LinkedList<String>();
-                Collections.addAll(srcfiles, fs.getDirectoryScanner().getIncludedDirectories());
-                Collections.addAll(srcfiles, fs.getDirectoryScanner().getIncludedFiles());
+                FileTreeScanner scanner = fs.getFileTreeScanner();
+                Collections.addAll(srcfiles, scanner.getIncludedDirectories());
+                Collections.addAll(srcfiles, scanner.getIncludedFiles());
                 for (String filePath : srcfiles)
                 {
                     if (!filePath.isEmpty())
@@ -1205,9 +1241,10 @@ public class CompilerConfig extends Thread
                         {
                             String target = fs.getTargetDir() + "/" + filePath;
                             logAddingFile(abssrcfile.toString(), target);
-                            pack.addFile(baseDir, abssrcfile, target, fs.getOsList(),
+                            PackFile packFile = pack.addFile(baseDir, abssrcfile, target, fs.getOsList(),
                                          fs.getOverride(), fs.getOverrideRenameTo(), fs.getBlockable(),
                                          fs.getAdditionals(), fs.getCondition(), pack200Properties);
+                            packFile.setUnixMode(fs.getFileMode());
                         }
                     }
                 }
@@ -1477,45 +1514,54 @@ public class CompilerConfig extends Thread
         // local var
 
 
-        HashSet<String> matches = new HashSet<String>();
-        AntPathMatcher matcher = new AntPathMatcher();
-
         if (includes == null || includes.length == 0)
         {
             throw new CompilerException("At least one included file required in a fileset");
         }
 
         logger.fine("Fileset (targetDir=\""+targetDir+"\"");
+        List<String> patterns = new ArrayList<String>();
         for (String include : includes)
         {
             logger.fine("Processing include: \"" + include+"\"");
-            for (PackFile s:info.getPackFiles()) {
-                String targetPath = s.getTargetPath();
-                if (matcher.match(targetDir + "/" + include, targetPath, casesensitive))
-                {
-                    matches.add(targetPath);
-                }
-            }
+            patterns.add(targetDir + "/" + include);
         }
+        TargetPathIndex index = getTargetPathIndex(info);
+        Set<String> matches = new HashSet<String>(index.select(patterns, casesensitive));
 
-        if (excludes != null)
+        if (excludes != null && !matches.isEmpty())
         {
-            for (String exclude : excludes)
-            {
-                for (PackFile s : info.getPackFiles())
-                {
-                    String targetPath = s.getTargetPath();
-                    if (matcher.match(exclude, targetPath, casesensitive))
-                    {
-                        matches.remove(targetPath);
-                    }
-                }
-            }
+            matches.removeAll(index.select(Arrays.asList(excludes), casesensitive));
         }
 
         return matches;
     }
 
+    /**
+     * Returns an index of the target paths of the files in a pack.
+     * <p/>
+     * The index is built once per pack, and rebuilt if files have been added to the pack since.
+     *
+     * @param info the pack
+     * @return the target path index
+     */
+    private TargetPathIndex getTargetPathIndex(PackInfo info)
+    {
+        Set<PackFile> files = info.getPackFiles();
+        if (targetPathIndex == null || indexedPack != info || indexedPackFiles != files.size())
+        {
+            List<String> targetPaths = new ArrayList<String>(files.size());
+            for (PackFile file : files)
+            {
+                targetPaths.add(file.getTargetPath());
+            }
+            targetPathIndex = new TargetPathIndex(targetPaths);
+            indexedPack = info;
+            indexedPackFiles = files.size();
+        }
+        return targetPathIndex;
+    }
+
     private IXMLElement readRefPackData(File baseDir, String refFileName, boolean isselfcontained)
             throws CompilerException
     {
@@ -1632,73 +1678,37 @@ public class CompilerConfig extends Thread
         final boolean hasNoFileSet = (filesetNodes == null || filesetNodes.isEmpty());
 
         ArchiveInputStream archiveInputStream = null;
-        File baseTempDir = null;
         try
         {
             archiveInputStream = new ArchiveStreamFactory().createArchiveInputStream(archive, uncompressedInputStream);
 
-            // file is an archive (incl. ZIP archive) - unpack recursively
-            baseTempDir = com.izforge.izpack.util.file.FileUtils.createTempDirectory("izpack", TEMP_DIR);
+            // file is an archive (incl. ZIP archive) - its entries are streamed straight into the packs when
+            // they are written, rather than being extracted here
+            List<ArchivePackFileSource.Entry> entries = ArchivePackFileSource.readEntries(archiveInputStream);
+            ArchivePackFileSource source = new ArchivePackFileSource(archive);
 
-            while (true)
+            if (hasNoFileSet)
             {
-                ArchiveEntry entry = archiveInputStream.getNextEntry();
-                if (entry == null)
-                {
-                    break;
-                }
-                String entryName = entry.getName();
-                if (entry.isDirectory())
-                {
-                    String dName = FilenameUtils.normalizeNoEndSeparator(entryName);
-                    File tempDir = new File(baseTempDir, dName);
-                    FileUtils.forceMkdir(tempDir);
-                    if (hasNoFileSet)
-                    {
-                        String target = targetDir + "/" + dName;
-                        logAddingFile(dName + " (" + archiveName + ")", target);
-                        pack.addFile(baseTempDir, tempDir, target, osList, override, overrideRenameTo, blockable, additionals, condition, null);
-                    }
-                }
-                else
+                for (ArchivePackFileSource.Entry entry : entries)
                 {
-                    FileOutputStream tempFileStream = null;
-                    try
-                    {
-                        File tempFile = new File(baseTempDir, entryName);
-                        tempFileStream = FileUtils.openOutputStream(tempFile);
-                        IOUtils.copy(archiveInputStream, tempFileStream);
-                        tempFileStream.close();
-
-                        if (hasNoFileSet)
-                        {
-                            String target = targetDir + "/" + entryName;
-                            logAddingFile(entryName + " (" + archiveName + ")", target);
-                            pack.addFile(baseTempDir, tempFile, target, osList, override, overrideRenameTo, blockable, additionals, condition, pack200Properties);
-                        }
-                    }
-                    finally
-                    {
-                        IOUtils.closeQuietly(tempFileStream);
-                    }
+                    String target = targetDir + "/" + entry.getName();
+                    logAddingFile(entry.getName() + " (" + archiveName + ")", target);
+                    addArchiveEntry(entry, source, target, osList, override, overrideRenameTo, blockable,
+                                    additionals, condition, pack200Properties, pack);
                 }
             }
-
-            if (!hasNoFileSet)
+            else
             {
+                entries = ArchivePackFileSource.addImpliedDirectories(entries);
                 for (IXMLElement fileSetNode : filesetNodes)
                 {
-                    processFileSetChildren(readArchiveFileSet(fileSetNode, baseTempDir, targetDir), baseTempDir, pack);
+                    addArchiveFileSet(readArchiveFileSet(fileSetNode, entries, archive, targetDir), entries,
+                                      source, pack);
                 }
             }
         }
         catch (ArchiveException e)
         {
-            if (baseTempDir != null)
-            {
-                FileUtils.deleteDirectory(baseTempDir);
-            }
-
             if (uncompressedInputStream == originalInputStream)
             {
                 throw new Exception("No compression or archiving format detected for file " + archive + " marked to be unpacked");
@@ -1724,13 +1734,86 @@ public class CompilerConfig extends Thread
             IOUtils.closeQuietly(archiveInputStream);
             IOUtils.closeQuietly(uncompressedInputStream);
             IOUtils.closeQuietly(originalInputStream);
-            if (baseTempDir != null)
+        }
+    }
+
+    /**
+     * Adds the archive entries selected by an archive file set to a pack.
+     *
+     * @param fs      the file set. Its directory is the prefix of the entries it applies to
+     * @param entries the archive entries
+     * @param source  the source of the entry content
+     * @param pack    the pack to add to
+     * @throws Exception for any error
+     */
+    private void addArchiveFileSet(TargetFileSet fs, List<ArchivePackFileSource.Entry> entries,
+                                   ArchivePackFileSource source, PackInfo pack) throws Exception
+    {
+        String prefix = getArchivePrefix(fs.getDir(), source.getArchive());
+        DirectoryScanner scanner = new DirectoryScanner();
+        fs.setupDirectoryScanner(scanner);
+        for (ArchivePackFileSource.Entry entry : entries)
+        {
+            String name = entry.getName();
+            if (name.length() > prefix.length() && name.startsWith(prefix))
             {
-                FileUtils.forceDeleteOnExit(baseTempDir);
+                String path = name.substring(prefix.length());
+                if (scanner.isIncludedPath(path))
+                {
+                    String target = fs.getTargetDir() + "/" + path;
+                    logAddingFile(name + " (" + source.getArchive().getName() + ")", target);
+                    PackFile packFile = addArchiveEntry(entry, source, target, fs.getOsList(), fs.getOverride(),
+                                                        fs.getOverrideRenameTo(), fs.getBlockable(),
+                                                        fs.getAdditionals(), fs.getCondition(),
+                                                        fs.getPack200Properties(), pack);
+                    packFile.setUnixMode(fs.getFileMode());
+                }
             }
         }
     }
 
+    /**
+     * Adds an archive entry to a pack.
+     * <p/>
+     * The entry content is read from the archive when the pack is written.
+     *
+     * @return the new pack file
+     */
+    private PackFile addArchiveEntry(ArchivePackFileSource.Entry entry, ArchivePackFileSource source, String target,
+                                     List<OsModel> osList, OverrideType override, String overrideRenameTo,
+                                     Blockable blockable, Map<String, ?> additionals, String condition,
+                                     Map<String, String> pack200Properties, PackInfo pack)
+    {
+        String sourcePath = source.getArchive().getPath() + "!/" + entry.getName();
+        boolean directory = entry.isDirectory();
+        PackFile packFile = new PackFile(sourcePath, entry.getName(), target, osList, override, overrideRenameTo,
+                                         blockable, additionals, directory ? null : pack200Properties,
+                                         entry.getLastModified(), directory, entry.getSize());
+        packFile.setCondition(condition);
+        if (!directory)
+        {
+            source.addEntry(packFile, entry.getIndex());
+        }
+        pack.addFile(packFile, new File(sourcePath), source);
+        return packFile;
+    }
+
+    /**
+     * Returns the prefix of the archive entries that an archive file set applies to.
+     *
+     * @param dir     the file set directory
+     * @param archive the archive
+     * @return the entry name prefix, ending in '/', or an empty string if the file set applies to the whole archive
+     */
+    private String getArchivePrefix(File dir, File archive)
+    {
+        if (dir.equals(archive))
+        {
+            return "";
+        }
+        return dir.getPath().substring(archive.getPath().length() + 1).replace(File.separatorChar, '/') + "/";
+    }
+
     /**
      * Parse panels and their parameters, locate the panels resources and add to the Packager.
      *
@@ -3350,6 +3433,34 @@ public class CompilerConfig extends Thread
         return overrideRenameTo;
     }
 
+    /**
+     * Parses the optional octal <tt>filemode</tt> attribute, the Unix mode to apply to installed files.
+     * <p/>
+     * The setuid, setgid and sticky bits can't be applied, so modes above <tt>0777</tt> are rejected.
+     *
+     * @param f the XML element to parse
+     * @return the Unix mode, or {@link FilePermissions#UNSET} if none is specified
+     * @throws CompilerException if the mode is invalid
+     */
+    private int getFileModeValue(IXMLElement f) throws CompilerException
+    {
+        String mode = f.getAttribute("filemode");
+        if (mode == null)
+        {
+            return FilePermissions.UNSET;
+        }
+        try
+        {
+            return FilePermissions.parseMode(mode);
+        }
+        catch (NumberFormatException exception)
+        {
+            assertionHelper.parseError(f, "invalid value for attribute \"filemode\": " + mode
+                    + ". Expected an octal mode up to 0777; setuid, setgid and sticky bits are not supported");
+        }
+        return FilePermissions.UNSET;
+    }
+
     /**
      * Parses the blockable element value and adds automatically the OS constraint
      * family=windows if not already se in the given constraint list.
@@ -3726,19 +3837,34 @@ public class CompilerConfig extends Thread
         return readFileSet(fileSetNode, baseDir, targetDir);
     }
 
-    private TargetFileSet readArchiveFileSet(IXMLElement fileSetNode, File baseDir, String targetDir) throws CompilerException
+    private TargetFileSet readArchiveFileSet(IXMLElement fileSetNode, List<ArchivePackFileSource.Entry> entries,
+                                             File archive, String targetDir) throws CompilerException
     {
+        // the file set directory is the archive itself, or the archive followed by the directory within it
         String dir_attr = fileSetNode.getAttribute("dir");
-        File extractedBaseDir = baseDir;
+        File baseDir = archive;
         if (dir_attr != null)
         {
-            extractedBaseDir = new File(baseDir, variableSubstitutor.substitute(dir_attr));
-            if (!extractedBaseDir.exists()) {
+            String dir = FilenameUtils.normalizeNoEndSeparator(variableSubstitutor.substitute(dir_attr), true);
+            boolean found = (dir != null && dir.length() == 0);
+            if (dir != null && !found)
+            {
+                for (ArchivePackFileSource.Entry entry : entries)
+                {
+                    if (entry.isDirectory() && entry.getName().equals(dir))
+                    {
+                        found = true;
+                        break;
+                    }
+                }
+                baseDir = new File(archive, dir);
+            }
+            if (!found) {
                 assertionHelper.parseError(fileSetNode, "Archive does not contain a base directory " + dir_attr);
             }
         }
 
-        return readFileSet(fileSetNode, extractedBaseDir, targetDir);
+        return readFileSet(fileSetNode, baseDir, targetDir);
     }
 
 
@@ -3753,6 +3879,7 @@ public class CompilerConfig extends Thread
         fs.setOverrideRenameTo(getOverrideRenameToValue(fileSetNode));
         fs.setBlockable(getBlockableValue(fileSetNode, osList));
         fs.setAdditionals(getAdditionals(fileSetNode));
+        fs.setFileMode(getFileModeValue(fileSetNode));
         String conditionId = parseConditionAttribute(fileSetNode);
         if (conditionId != null)
         {
@@ -38,6 +38,7 @@ public class TargetFileSet extends FileSet
     private Map<String, ?> additionals;
     private String condition;
     private Map<String, String> pack200Properties;
+    private int fileMode = -1;
 
     public String getTargetDir()
     {
@@ -118,4 +119,14 @@ public class TargetFileSet extends FileSet
     {
         return pack200Properties;
     }
+
+    public int getFileMode()
+    {
+        return fileMode;
+    }
+
+    public void setFileMode(int fileMode)
+    {
+        this.fileMode = fileMode;
+    }
 }
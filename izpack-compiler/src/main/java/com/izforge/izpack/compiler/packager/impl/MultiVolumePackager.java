@@ -23,6 +23,7 @@ package com.izforge.izpack.compiler.packager.impl;
 
 import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackCompression;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.XPackFile;
 import com.izforge.izpack.api.rules.RulesEngine;
@@ -33,13 +34,17 @@ import com.izforge.izpack.core.io.FileSpanningOutputStream;
 import com.izforge.izpack.api.data.PackInfo;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
+import com.izforge.izpack.util.file.FileDigest;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.*;
 import java.util.jar.JarOutputStream;
 import java.util.logging.Logger;
@@ -67,6 +72,11 @@ import java.util.zip.ZipEntry;
  * </packaging>
  * }
  * </pre>
+ * <p/>
+ * Each file is written as a separate entry in the volumes, so that the unpacker can seek directly to it. If the
+ * installation specifies a {@link PackCompression compression format}, each file is compressed with that format and
+ * stored, otherwise it is gzipped. Files with identical content are only written once; subsequent copies refer to the
+ * entry of the first.
  *
  * @author Dennis Reil, <Dennis.Reil@reddot.de>
  * @author Tim Anderson
@@ -84,6 +94,17 @@ public class MultiVolumePackager extends PackagerBase
      */
     private long maxVolumeSize = FileSpanningOutputStream.DEFAULT_VOLUME_SIZE;
 
+    /**
+     * The sizes of the files written to the volumes. A file is only digested prior to writing if a file of the same
+     * size has already been written.
+     */
+    private final Set<Long> writtenSizes = new HashSet<Long>();
+
+    /**
+     * The files written to the volumes, keyed on content digest.
+     */
+    private final Map<String, XPackFile> writtenFiles = new HashMap<String, XPackFile>();
+
     /**
      * The configuration attribute to specify the volume size.
      */
@@ -224,10 +245,14 @@ public class MultiVolumePackager extends PackagerBase
             throw new IOException("Cannot determine parent directory of " + volume);
         }
 
+        writtenSizes.clear();
+        writtenFiles.clear();
         for (PackInfo packInfo : packs)
         {
             writePack(packInfo, volumes, targetDir);
         }
+        writtenSizes.clear();
+        writtenFiles.clear();
 
         volumes.flush();
         volumes.close();
@@ -292,7 +317,14 @@ public class MultiVolumePackager extends PackagerBase
             {
                 if (!pack.isLoose())
                 {
-                    writePackFile(file, volumes, pf);
+                    writePackFile(packInfo, packfile, volumes, pf);
+                }
+                else if (packInfo.getSource(packfile) != null)
+                {
+                    // copy the content to the target directory
+                    File target = new File(targetDir, pf.getRelativeSourcePath());
+                    FileUtils.copyInputStreamToFile(openPackFile(packInfo, packfile), target);
+                    target.setLastModified(pf.lastModified());
                 }
                 else
                 {
@@ -320,46 +352,157 @@ public class MultiVolumePackager extends PackagerBase
 
     /**
      * Writes a pack file to the volumes.
+     * <p/>
+     * If a file with the same content has already been written, the pack file refers to its entry instead.
      *
-     * @param file     the file to write
+     * @param packInfo the pack containing the file
+     * @param file     the pack file to write
      * @param volumes  the volumes
-     * @param packFile the pack file
+     * @param packFile the pack file to update with the location of the file in the volumes
      * @throws IOException for any I/O error
      */
-    private void writePackFile(File file, FileSpanningOutputStream volumes, XPackFile packFile) throws IOException
+    private void writePackFile(PackInfo packInfo, PackFile file, FileSpanningOutputStream volumes,
+                               XPackFile packFile) throws IOException
     {
-        long beforePosition = volumes.getFilePointer();
-        packFile.setArchiveFilePosition(beforePosition);
-
-        // write the file to the volumes
-        int volumeCount = volumes.getVolumes();
-
-        FileInputStream in = FileUtils.openInputStream(file);
+        File spooled = null;
         try
         {
-            long bytesWritten = IOUtils.copyLarge(in, volumes);
-            long afterPosition = volumes.getFilePointer();
-            logger.fine("File (" + packFile.sourcePath + ") " + beforePosition + " <-> " + afterPosition);
+            if (writtenSizes.contains(packFile.length()))
+            {
+                File content = packInfo.getFile(file);
+                if (packInfo.getSource(file) != null)
+                {
+                    // the content can't be re-read cheaply, so spool it to digest it and then write it
+                    spooled = File.createTempFile("izpack-spool", null, FileUtils.getTempDirectory());
+                    FileUtils.copyInputStreamToFile(openPackFile(packInfo, file), spooled);
+                    content = spooled;
+                }
+                XPackFile original = writtenFiles.get(FileDigest.getDigest(content));
+                if (original != null && original.length() == packFile.length())
+                {
+                    packFile.setArchiveFilePosition(original.getArchiveFilePosition());
+                    packFile.setVolumeOffset(original.getVolume(), original.getVolumeOffset());
+                    packFile.setSize(original.size());
+                    packFile.setDigest(original.getDigest());
+                    logger.fine("File (" + packFile.sourcePath + ") is a duplicate of (" + original.sourcePath + ")");
+                    return;
+                }
+            }
 
-            if (volumes.getFilePointer() != (beforePosition + bytesWritten))
+            MessageDigest digest = FileDigest.createDigest();
+            InputStream content = (spooled != null) ? FileUtils.openInputStream(spooled)
+                                                    : openPackFile(packInfo, file);
+            InputStream in = new DigestInputStream(content, digest);
+            try
             {
-                logger.fine("file: " + file.getName());
-                logger.fine("(Filepos/BytesWritten/ExpectedNewFilePos/NewFilePointer) ("
-                        + beforePosition + "/" + bytesWritten + "/" + (beforePosition + bytesWritten)
-                        + "/" + volumes.getFilePointer() + ")");
-                logger.fine("Volumes (before/after) (" + volumeCount + "/" + volumes.getVolumes() + ")");
-                throw new IOException("Error new file pointer is illegal");
+                PackCompression format = getInfo().getCompressionFormat();
+                if (format == PackCompression.DEFAULT)
+                {
+                    writeEntry(in, packFile.length(), volumes, packFile, true);
+                }
+                else
+                {
+                    writeCompressedEntry(in, volumes, packFile, format);
+                }
+            }
+            finally
+            {
+                IOUtils.closeQuietly(in);
             }
 
-            if (bytesWritten != packFile.length())
+            String hex = FileDigest.toHex(digest.digest());
+            packFile.setDigest(hex);
+            writtenSizes.add(packFile.length());
+            writtenFiles.put(hex, packFile);
+        }
+        finally
+        {
+            FileUtils.deleteQuietly(spooled);
+        }
+    }
+
+    /**
+     * Compresses a file with the specified format, and stores the result as an entry in the volumes.
+     * <p/>
+     * The file is compressed to a temporary file first, so that the pack file can record its compressed size.
+     *
+     * @param in       the stream to read the file from
+     * @param volumes  the volumes
+     * @param packFile the pack file
+     * @param format   the compression format
+     * @throws IOException for any I/O error
+     */
+    private void writeCompressedEntry(InputStream in, FileSpanningOutputStream volumes, XPackFile packFile,
+                                      PackCompression format) throws IOException
+    {
+        File tmpfile = File.createTempFile("izpack-compress", null, FileUtils.getTempDirectory());
+        OutputStream out = null;
+        InputStream compressed = null;
+        try
+        {
+            out = createCompressorOutputStream(format, IOUtils.buffer(FileUtils.openOutputStream(tmpfile)));
+            long bytesRead = IOUtils.copyLarge(in, out);
+            out.close();
+            if (bytesRead != packFile.length())
             {
-                throw new IOException("File size mismatch when reading " + file);
+                throw new IOException("File size mismatch when reading " + packFile.sourcePath);
             }
+
+            // already compressed, so store the entry as is
+            compressed = FileUtils.openInputStream(tmpfile);
+            writeEntry(compressed, tmpfile.length(), volumes, packFile, false);
+            packFile.setSize(tmpfile.length());
+            logger.fine("File " + packFile.getTargetPath() + " added compressed as " + format.toName()
+                                + " (" + packFile.length() + " -> " + packFile.size() + " bytes)");
         }
         finally
         {
-            IOUtils.closeQuietly(in);
+            IOUtils.closeQuietly(out);
+            IOUtils.closeQuietly(compressed);
+            FileUtils.deleteQuietly(tmpfile);
+        }
+    }
+
+    /**
+     * Writes a new entry to the volumes.
+     *
+     * @param in       the stream to read the entry data from
+     * @param length   the expected length of the entry data
+     * @param volumes  the volumes
+     * @param packFile the pack file
+     * @param compress if <tt>true</tt>, gzip the entry, otherwise store it
+     * @throws IOException for any I/O error
+     */
+    private void writeEntry(InputStream in, long length, FileSpanningOutputStream volumes, XPackFile packFile,
+                            boolean compress) throws IOException
+    {
+        // start a new entry so the unpacker can seek straight to the file
+        volumes.startEntry(compress);
+        long beforePosition = volumes.getFilePointer();
+        packFile.setArchiveFilePosition(beforePosition);
+        packFile.setVolumeOffset(volumes.getEntryVolume(), volumes.getEntryOffset());
+
+        // write the file to the volumes
+        int volumeCount = volumes.getVolumes();
+
+        long bytesWritten = IOUtils.copyLarge(in, volumes);
+        long afterPosition = volumes.getFilePointer();
+        logger.fine("File (" + packFile.sourcePath + ") " + beforePosition + " <-> " + afterPosition);
+
+        if (volumes.getFilePointer() != (beforePosition + bytesWritten))
+        {
+            logger.fine("file: " + packFile.sourcePath);
+            logger.fine("(Filepos/BytesWritten/ExpectedNewFilePos/NewFilePointer) ("
+                    + beforePosition + "/" + bytesWritten + "/" + (beforePosition + bytesWritten)
+                    + "/" + volumes.getFilePointer() + ")");
+            logger.fine("Volumes (before/after) (" + volumeCount + "/" + volumes.getVolumes() + ")");
+            throw new IOException("Error new file pointer is illegal");
+        }
+
+        if (bytesWritten != length)
+        {
+            throw new IOException("File size mismatch when reading " + packFile.sourcePath);
         }
     }
 
-}
\ No newline at end of file
+}
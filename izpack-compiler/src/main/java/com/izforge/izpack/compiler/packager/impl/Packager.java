@@ -33,15 +33,10 @@ import com.izforge.izpack.compiler.merge.CompilerPathResolver;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
 import com.izforge.izpack.util.NoCloseOutputStream;
-import org.apache.commons.compress.compressors.CompressorException;
-import org.apache.commons.compress.compressors.CompressorStreamFactory;
-import org.apache.commons.compress.compressors.deflate.DeflateCompressorOutputStream;
-import org.apache.commons.compress.compressors.deflate.DeflateParameters;
+import com.izforge.izpack.util.file.FileDigest;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.CountingOutputStream;
-import org.tukaani.xz.LZMA2Options;
-import org.tukaani.xz.LZMAOutputStream;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -49,12 +44,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Pack200;
 import java.util.logging.Logger;
@@ -132,7 +128,7 @@ public class Packager extends PackagerBase
         // Map to remember pack number and bytes offsets of back references
         Map<File, PackFile> storedFiles = new HashMap<File, PackFile>();
 
-        List<PackFile> pack200Files = new ArrayList<PackFile>();
+        Map<PackFile, PackInfo> pack200Files = new LinkedHashMap<PackFile, PackInfo>();
 
         // Force UTF-8 encoding in order to have proper ZipEntry names.
         JarOutputStream installerJar = getInstallerJar();
@@ -150,11 +146,12 @@ public class Packager extends PackagerBase
             ZipEntry entry;
             String streamResourceName = "packs/pack-" + pack.getName();
             JarOutputStream packJar = installerJar;
+            File jarFile = null;
             if (packSeparateJars())
             {
                 // TODO REFACTOR : Use a mergeManager for each packages that will be added to the main merger
-                String jarFile = getInfo().getInstallerBase() + ".pack-" + pack.getName() + ".jar";
-                packJar = getJarOutputStream(new File(jarFile));
+                jarFile = new File(getInfo().getInstallerBase() + ".pack-" + pack.getName() + ".jar");
+                packJar = getJarOutputStream(jarFile);
                 entry = new ZipEntry(streamResourceName);
             } else
             {
@@ -184,6 +181,7 @@ public class Packager extends PackagerBase
                         // Save backreference link
                         logger.fine("File " + packFile.getTargetPath() + " is a backreference, linked to " + linkedPackFile.getTargetPath());
                         packFile.setLinkedPackFile(linkedPackFile);
+                        packFile.setDigest(linkedPackFile.getDigest());
                         addFile = false;
                     }
 
@@ -201,7 +199,7 @@ public class Packager extends PackagerBase
                              */
                             packFile.setStreamResourceName("packs/pack200-" + packFile.getId());
                             packFile.setStreamOffset(0);
-                            pack200Files.add(packFile);
+                            pack200Files.put(packFile, packInfo);
                         } else
                         {
                             packFile.setStreamResourceName(streamResourceName);
@@ -219,31 +217,9 @@ public class Packager extends PackagerBase
                                     CountingOutputStream proxyOutputStream = new CountingOutputStream(FileUtils.openOutputStream(tmpfile));
                                     OutputStream bufferedStream = IOUtils.buffer(proxyOutputStream);
 
-                                    switch (comprFormat)
-                                    {
-                                        case LZMA:
-                                            // LZMA as output stream supported from commons-compress 1.13 (requires JDK 1.7)
-                                            // for now create it from the Tukaani Project (tukaani.org)
-                                            finalStream = new LZMAOutputStream(bufferedStream, new LZMA2Options(), -1);
-                                            break;
-                                        case DEFLATE:
-                                            DeflateParameters deflateParameters = new DeflateParameters();
-                                            deflateParameters.setCompressionLevel(Deflater.BEST_COMPRESSION);
-                                            new DeflateCompressorOutputStream(bufferedStream, deflateParameters);
-                                        default:
-                                            try
-                                            {
-                                                finalStream = new CompressorStreamFactory().createCompressorOutputStream(
-                                                        comprFormat.toName(),
-                                                        bufferedStream);
-                                            }
-                                            catch (CompressorException e)
-                                            {
-                                                throw new IOException(e);
-                                            }
-                                    }
+                                    finalStream = createCompressorOutputStream(comprFormat, bufferedStream);
 
-                                    long bytesWritten = FileUtils.copyFile(file, finalStream);
+                                    long bytesWritten = copyPackFile(packInfo, packFile, finalStream);
                                     try
                                     {
                                         finalStream.flush();
@@ -272,7 +248,7 @@ public class Packager extends PackagerBase
                                 }
                             } else
                             {
-                                long bytesWritten = FileUtils.copyFile(file, packOutputStream);
+                                long bytesWritten = copyPackFile(packInfo, packFile, packOutputStream);
                                 if (bytesWritten != packFile.length())
                                 {
                                     throw new IOException("File size mismatch when reading " + file);
@@ -308,6 +284,11 @@ public class Packager extends PackagerBase
                     packJar.close();
                 }
             }
+            if (jarFile != null)
+            {
+                // lets web installers verify the downloaded jar
+                pack.setJarDigest(FileDigest.getDigest(jarFile));
+            }
 
             IXMLElement child = new XMLElementImpl("pack", root);
             child.setAttribute("name", pack.getName());
@@ -329,10 +310,13 @@ public class Packager extends PackagerBase
         out.flush();
         installerJar.closeEntry();
 
-        for (PackFile pack200PackFile : pack200Files)
+        for (Map.Entry<PackFile, PackInfo> pack200Entry : pack200Files.entrySet())
         {
+            PackFile pack200PackFile = pack200Entry.getKey();
+            PackInfo packInfo = pack200Entry.getValue();
             File tmpfile = null;
             JarFile jar = null;
+            JarInputStream jarStream = null;
 
             try
             {
@@ -343,8 +327,16 @@ public class Packager extends PackagerBase
                 OutputStream bufferedStream = IOUtils.buffer(proxyOutputStream);
 
                 Pack200.Packer packer = createPack200Packer(pack200PackFile);
-                jar = new JarFile(pack200PackFile.getFile());
-                packer.pack(jar, bufferedStream);
+                if (packInfo.getSource(pack200PackFile) != null)
+                {
+                    jarStream = new JarInputStream(openPackFile(packInfo, pack200PackFile));
+                    packer.pack(jarStream, bufferedStream);
+                }
+                else
+                {
+                    jar = new JarFile(pack200PackFile.getFile());
+                    packer.pack(jar, bufferedStream);
+                }
 
                 bufferedStream.flush();
                 pack200PackFile.setSize(proxyOutputStream.getByteCount());
@@ -360,6 +352,7 @@ public class Packager extends PackagerBase
                 {
                     jar.close();
                 }
+                IOUtils.closeQuietly(jarStream);
                 installerJar.closeEntry();
                 installerJar.flush();
                 FileUtils.deleteQuietly(tmpfile);
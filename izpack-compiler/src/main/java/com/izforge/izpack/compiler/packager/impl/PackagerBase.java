@@ -36,14 +36,24 @@ import com.izforge.izpack.data.CustomData;
 import com.izforge.izpack.merge.MergeManager;
 import com.izforge.izpack.merge.resolve.MergeableResolver;
 import com.izforge.izpack.util.FileUtil;
+import com.izforge.izpack.util.file.FileDigest;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.compress.compressors.deflate.DeflateCompressorOutputStream;
+import org.apache.commons.compress.compressors.deflate.DeflateParameters;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.LZMAOutputStream;
 
 import java.io.*;
 import java.net.URL;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.*;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 
 /**
@@ -165,6 +175,11 @@ public abstract class PackagerBase implements IPackager
     private final List<DynamicInstallerRequirementValidator> dynamicInstallerRequirements =
             new ArrayList<DynamicInstallerRequirementValidator>();
 
+    /**
+     * The sources that pack file content has been read from. These are closed once the packs are written.
+     */
+    private final Set<PackFileSource> openSources = new HashSet<PackFileSource>();
+
     /**
      * Constructs a <tt>PackagerBase</tt>.
      *
@@ -421,7 +436,18 @@ public abstract class PackagerBase implements IPackager
         writeInstallerResources();
 
         // Pack File Data may be written to separate jars
-        writePacks();
+        try
+        {
+            writePacks();
+        }
+        finally
+        {
+            for (PackFileSource source : openSources)
+            {
+                IOUtils.closeQuietly(source);
+            }
+            openSources.clear();
+        }
     }
 
     /**
@@ -556,6 +582,85 @@ public abstract class PackagerBase implements IPackager
      */
     protected abstract void writePacks() throws IOException;
 
+    /**
+     * Opens a stream to read the content of a pack file.
+     * <p/>
+     * The content is read from the pack file's {@link PackFileSource source} if it has one, otherwise from the
+     * file system.
+     *
+     * @param packInfo the pack containing the file
+     * @param packFile the pack file
+     * @return a stream to read the content. The caller must close it
+     * @throws IOException for any I/O error
+     */
+    protected InputStream openPackFile(PackInfo packInfo, PackFile packFile) throws IOException
+    {
+        PackFileSource source = packInfo.getSource(packFile);
+        if (source != null)
+        {
+            openSources.add(source);
+            return source.open(packFile);
+        }
+        return FileUtils.openInputStream(packInfo.getFile(packFile));
+    }
+
+    /**
+     * Copies the content of a pack file to a stream, recording the digest of the content in the pack file.
+     *
+     * @param packInfo the pack containing the file
+     * @param packFile the pack file
+     * @param out      the stream to write to
+     * @return the number of bytes copied
+     * @throws IOException for any I/O error
+     */
+    protected long copyPackFile(PackInfo packInfo, PackFile packFile, OutputStream out) throws IOException
+    {
+        MessageDigest digest = FileDigest.createDigest();
+        InputStream in = new DigestInputStream(openPackFile(packInfo, packFile), digest);
+        try
+        {
+            long result = IOUtils.copyLarge(in, out);
+            packFile.setDigest(FileDigest.toHex(digest.digest()));
+            return result;
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Creates a stream to compress pack file data.
+     *
+     * @param format the compression format. Must not be {@link PackCompression#DEFAULT}
+     * @param out    the stream to write compressed data to
+     * @return a new compressor stream
+     * @throws IOException if the compressor cannot be created
+     */
+    protected OutputStream createCompressorOutputStream(PackCompression format, OutputStream out) throws IOException
+    {
+        switch (format)
+        {
+            case LZMA:
+                // LZMA as output stream supported from commons-compress 1.13 (requires JDK 1.7)
+                // for now create it from the Tukaani Project (tukaani.org)
+                return new LZMAOutputStream(out, new LZMA2Options(), -1);
+            case DEFLATE:
+                DeflateParameters deflateParameters = new DeflateParameters();
+                deflateParameters.setCompressionLevel(Deflater.BEST_COMPRESSION);
+                return new DeflateCompressorOutputStream(out, deflateParameters);
+            default:
+                try
+                {
+                    return new CompressorStreamFactory().createCompressorOutputStream(format.toName(), out);
+                }
+                catch (CompressorException e)
+                {
+                    throw new IOException(e);
+                }
+        }
+    }
+
     /**
      * Returns the installer jar stream.
      *
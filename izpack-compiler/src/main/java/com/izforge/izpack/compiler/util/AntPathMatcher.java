@@ -33,7 +33,88 @@ public class AntPathMatcher {
      * <code>false</code> if it didn't
      */
     public boolean match(String pattern, String path, boolean caseSensitive) {
+        return compile(pattern, caseSensitive).matcher(normalizePath(path)).matches();
+    }
+
+    /**
+     * Compiles an Ant-style pattern to a regular expression, so that it can be matched against many paths.
+     * <p/>
+     * Paths must be passed through {@link #normalizePath(String)} before being matched against the result.
+     *
+     * @param pattern the pattern to compile
+     * @param caseSensitive whether matching should be case-sensitive
+     * @return the compiled pattern
+     */
+    public Pattern compile(String pattern, boolean caseSensitive) {
+        int flags = 0;
+        if (!caseSensitive)
+        {
+            flags |= Pattern.CASE_INSENSITIVE;
+        }
+        return Pattern.compile(toRegex(pattern), flags);
+    }
+
+    /**
+     * Normalizes a path so that it can be matched against a pattern returned by {@link #compile(String, boolean)}.
+     *
+     * @param path the path
+     * @return the normalized path
+     */
+    public String normalizePath(String path) {
+        return unifyVarReferences(path);
+    }
+
+    /**
+     * Returns the literal text that every normalized path matching a pattern must start with.
+     * <p/>
+     * This can be used to narrow down the paths that need to be tested against a pattern.
+     *
+     * @param pattern the Ant-style pattern
+     * @return the literal prefix. May be empty
+     */
+    public String getLiteralPrefix(String pattern) {
+        String regex = toRegex(pattern);
+        if (regex.indexOf('|') != -1)
+        {
+            // alternatives may start with anything
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        for (int i = 0; i < regex.length(); ++i)
+        {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length() && (regex.charAt(i + 1) == '.' || regex.charAt(i + 1) == '$'))
+            {
+                prefix.append(regex.charAt(++i));
+            }
+            else if ("\\.[]()^$|".indexOf(c) != -1)
+            {
+                break;
+            }
+            else if ("*?+{".indexOf(c) != -1)
+            {
+                // a quantifier makes the preceding character optional
+                if (prefix.length() > 0)
+                {
+                    prefix.setLength(prefix.length() - 1);
+                }
+                break;
+            }
+            else
+            {
+                prefix.append(c);
+            }
+        }
+        return prefix.toString();
+    }
 
+    /**
+     * Converts an Ant-style pattern to a regular expression.
+     *
+     * @param pattern the pattern
+     * @return the corresponding regular expression
+     */
+    private String toRegex(String pattern) {
         pattern = pattern.replaceAll("\\\\", "/");
         pattern = pattern.replaceAll("\\.", "\\\\.");
         pattern = pattern.replaceAll("\\*", "[^/]*");
@@ -41,17 +122,7 @@ public class AntPathMatcher {
         pattern = pattern.replaceAll("/\\.\\*", "(/.*)*");
         pattern = unifyVarReferences(pattern);
         pattern = pattern.replaceAll("\\$", "\\\\\\$");
-
-        path = unifyVarReferences(path);
-
-        int flags = 0;
-        if (!caseSensitive)
-        {
-            flags |= Pattern.CASE_INSENSITIVE;
-        }
-        Pattern p = Pattern.compile(pattern, flags);
-
-        return p.matcher(path).matches();
+        return pattern;
     }
 
     /**
@@ -0,0 +1,602 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.util;
+
+import com.izforge.izpack.api.exception.CompilerException;
+import com.izforge.izpack.util.file.FilePermissions;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+
+/**
+ * Determines the class file major version of the classes in jars, including those in nested jars.
+ * <p/>
+ * Each jar is scanned until a class exceeding the maximum permitted version is found, or every class has been read.
+ * Several jars are scanned concurrently.
+ * <p/>
+ * Results are cached by absolute jar path, size and modification time. If a cache file is supplied, the cache is
+ * read from it on first use and written back after each check, so unchanged jars aren't rescanned by later builds.
+ * <p/>
+ * The compiler persists the cache to the file returned by {@link #getCacheFile()}. This may be relocated or
+ * disabled with the <tt>izpack.classversions.cache</tt> system property.
+ */
+public class ClassVersionChecker
+{
+    /**
+     * The default no. of threads used to scan jars.
+     */
+    public static final int DEFAULT_THREADS = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The system property naming the file the compiler persists results to. An empty value, or <tt>none</tt>,
+     * disables persistence.
+     */
+    public static final String CACHE_FILE_PROPERTY = "izpack.classversions.cache";
+
+    /**
+     * The cache file. May be {@code null}.
+     */
+    private final File cacheFile;
+
+    /**
+     * The maximum no. of threads used to scan jars.
+     */
+    private final int threads;
+
+    /**
+     * The cached results, keyed on absolute jar path.
+     */
+    private final Map<String, Result> results = new HashMap<String, Result>();
+
+    /**
+     * Determines if the cache file has been read.
+     */
+    private boolean loaded;
+
+    /**
+     * Determines if the cache has changed since it was last written.
+     */
+    private boolean modified;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(ClassVersionChecker.class.getName());
+
+
+    /**
+     * Constructs a <tt>ClassVersionChecker</tt>.
+     *
+     * @param cacheFile the file to persist results to. May be {@code null}
+     */
+    public ClassVersionChecker(File cacheFile)
+    {
+        this(cacheFile, DEFAULT_THREADS);
+    }
+
+    /**
+     * Constructs a <tt>ClassVersionChecker</tt>.
+     *
+     * @param cacheFile the file to persist results to. May be {@code null}
+     * @param threads   the maximum no. of threads used to scan jars
+     */
+    public ClassVersionChecker(File cacheFile, int threads)
+    {
+        this.cacheFile = cacheFile;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Returns the file that the compiler persists results to.
+     * <p/>
+     * This is the file named by the {@link #CACHE_FILE_PROPERTY} system property, if it is set. Otherwise, it is
+     * <tt>class-versions.properties</tt> in the <tt>.izpack</tt> directory of the user's home. Unlike the shared
+     * temporary directory, other users can't write there.
+     *
+     * @return the cache file, or {@code null} if persistence is disabled
+     */
+    public static File getCacheFile()
+    {
+        String path = System.getProperty(CACHE_FILE_PROPERTY);
+        if (path == null)
+        {
+            return new File(new File(System.getProperty("user.home"), ".izpack"), "class-versions.properties");
+        }
+        path = path.trim();
+        if (path.length() == 0 || "none".equalsIgnoreCase(path))
+        {
+            return null;
+        }
+        return new File(path);
+    }
+
+    /**
+     * Returns the class file major version of a jar.
+     *
+     * @param jar      the jar
+     * @param maxMajor the maximum permitted major version
+     * @return the highest major version of the jar's classes if none exceeds <tt>maxMajor</tt>, otherwise the
+     *         version of the first class found to exceed it. Returns <tt>0</tt> if the jar contains no classes
+     * @throws FileNotFoundException if the jar doesn't exist
+     * @throws IOException           if the jar cannot be read
+     * @throws CompilerException     if the jar contains an invalid class file
+     */
+    public int getMajorVersion(File jar, int maxMajor) throws IOException
+    {
+        return getMajorVersions(Collections.singletonList(jar), maxMajor).get(jar);
+    }
+
+    /**
+     * Returns the class file major versions of several jars.
+     * <p/>
+     * Jars without a valid cached result are scanned concurrently.
+     *
+     * @param jars     the jars
+     * @param maxMajor the maximum permitted major version
+     * @return the major version of each jar, as returned by {@link #getMajorVersion(File, int)}, in the order of
+     *         <tt>jars</tt>
+     * @throws FileNotFoundException if a jar doesn't exist
+     * @throws IOException           if a jar cannot be read
+     * @throws CompilerException     if a jar contains an invalid class file
+     */
+    public synchronized Map<File, Integer> getMajorVersions(Collection<File> jars, int maxMajor) throws IOException
+    {
+        load();
+        Map<File, Integer> versions = new LinkedHashMap<File, Integer>();
+        List<File> scan = new ArrayList<File>();
+        for (File jar : jars)
+        {
+            if (!jar.isFile())
+            {
+                throw new FileNotFoundException("File not found: " + jar);
+            }
+            Result result = results.get(jar.getAbsolutePath());
+            if (result != null && result.isValid(jar, maxMajor))
+            {
+                versions.put(jar, result.major);
+            }
+            else if (!scan.contains(jar))
+            {
+                scan.add(jar);
+            }
+        }
+
+        if (!scan.isEmpty())
+        {
+            for (Map.Entry<File, Result> entry : scan(scan, maxMajor).entrySet())
+            {
+                File jar = entry.getKey();
+                results.put(jar.getAbsolutePath(), entry.getValue());
+                versions.put(jar, entry.getValue().major);
+            }
+            modified = true;
+            save();
+        }
+
+        // restore the requested order
+        Map<File, Integer> ordered = new LinkedHashMap<File, Integer>();
+        for (File jar : jars)
+        {
+            ordered.put(jar, versions.get(jar));
+        }
+        return ordered;
+    }
+
+    /**
+     * Scans jars, concurrently if there is more than one.
+     *
+     * @param jars     the jars to scan
+     * @param maxMajor the maximum permitted major version
+     * @return the results, keyed on jar
+     * @throws IOException if a jar cannot be read
+     */
+    private Map<File, Result> scan(List<File> jars, final int maxMajor) throws IOException
+    {
+        Map<File, Result> result = new LinkedHashMap<File, Result>();
+        int count = Math.min(threads, jars.size());
+        if (count == 1)
+        {
+            for (File jar : jars)
+            {
+                result.put(jar, scan(jar, maxMajor));
+            }
+            return result;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(count, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "IzPack class version check");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try
+        {
+            Map<File, Future<Result>> futures = new LinkedHashMap<File, Future<Result>>();
+            for (final File jar : jars)
+            {
+                futures.put(jar, executor.submit(new Callable<Result>()
+                {
+                    @Override
+                    public Result call() throws IOException
+                    {
+                        return scan(jar, maxMajor);
+                    }
+                }));
+            }
+            for (Map.Entry<File, Future<Result>> entry : futures.entrySet())
+            {
+                result.put(entry.getKey(), get(entry.getValue()));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * Scans a jar.
+     *
+     * @param jar      the jar
+     * @param maxMajor the maximum permitted major version
+     * @return the result
+     * @throws IOException if the jar cannot be read
+     */
+    private static Result scan(File jar, int maxMajor) throws IOException
+    {
+        // the size and time are read first, so that a jar modified during the scan isn't cached as unchanged
+        long length = jar.length();
+        long lastModified = jar.lastModified();
+        int major = 0;
+        ZipFile zip = new ZipFile(jar);
+        try
+        {
+            // ZipFile only inflates the entries, and the parts of entries, that are read
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (major <= maxMajor && entries.hasMoreElements())
+            {
+                ZipEntry entry = entries.nextElement();
+                if (isScanned(entry))
+                {
+                    InputStream in = zip.getInputStream(entry);
+                    try
+                    {
+                        major = Math.max(major, scan(jar + ":" + entry.getName(), entry, in, maxMajor));
+                    }
+                    finally
+                    {
+                        IOUtils.closeQuietly(in);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+        return new Result(length, lastModified, major, major <= maxMajor);
+    }
+
+    /**
+     * Scans a class or nested jar entry.
+     *
+     * @param path     the path of the entry, for error reporting
+     * @param entry    the entry
+     * @param in       the entry content
+     * @param maxMajor the maximum permitted major version
+     * @return the major version
+     * @throws IOException if the entry cannot be read
+     */
+    private static int scan(String path, ZipEntry entry, InputStream in, int maxMajor) throws IOException
+    {
+        if (entry.getName().endsWith(".class"))
+        {
+            return getMajorVersion(path, in);
+        }
+        int major = 0;
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry nested;
+        while (major <= maxMajor && (nested = zip.getNextEntry()) != null)
+        {
+            if (isScanned(nested))
+            {
+                major = Math.max(major, scan(path + ":" + nested.getName(), nested, zip, maxMajor));
+            }
+        }
+        return major;
+    }
+
+    /**
+     * Reads the major version from a class file header.
+     *
+     * @param path the path of the class, for error reporting
+     * @param in   the class content
+     * @return the major version
+     * @throws IOException       if the class cannot be read
+     * @throws CompilerException if the content isn't a class file
+     */
+    private static int getMajorVersion(String path, InputStream in) throws IOException
+    {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != 0xCAFEBABE)
+        {
+            throw new CompilerException("Class file cannot be read: " + path);
+        }
+        data.readUnsignedShort(); // minor version
+        return data.readUnsignedShort();
+    }
+
+    private static boolean isScanned(ZipEntry entry)
+    {
+        String name = entry.getName();
+        return !entry.isDirectory() && (name.endsWith(".class") || name.endsWith(".jar"));
+    }
+
+    /**
+     * Waits for a scan to complete.
+     *
+     * @param future the scan
+     * @return the result of the scan
+     * @throws IOException if the jar cannot be read
+     */
+    private static Result get(Future<Result> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while checking class versions");
+        }
+        catch (ExecutionException exception)
+        {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            else if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Reads the cache file, if it hasn't already been read.
+     * <p/>
+     * Unreadable caches, caches owned by another user, and invalid entries are ignored.
+     */
+    private void load()
+    {
+        if (loaded)
+        {
+            return;
+        }
+        loaded = true;
+        if (cacheFile == null || !cacheFile.isFile())
+        {
+            return;
+        }
+        String owner = FilePermissions.getOwner(cacheFile);
+        if (owner != null && !owner.equals(System.getProperty("user.name")))
+        {
+            // another user could have poisoned it
+            logger.warning("Ignoring class version cache " + cacheFile + " owned by " + owner);
+            return;
+        }
+        Properties properties = new Properties();
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream(cacheFile);
+            properties.load(in);
+        }
+        catch (IOException exception)
+        {
+            logger.log(Level.FINE, "Failed to read class version cache " + cacheFile, exception);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+        }
+        for (String path : properties.stringPropertyNames())
+        {
+            Result result = Result.parse(properties.getProperty(path));
+            if (result != null)
+            {
+                results.put(path, result);
+            }
+        }
+    }
+
+    /**
+     * Writes the cache file, if the cache has changed.
+     * <p/>
+     * Results for jars that no longer exist are discarded. Failure to write the cache is logged but otherwise
+     * ignored.
+     */
+    private void save()
+    {
+        if (cacheFile == null || !modified)
+        {
+            return;
+        }
+        modified = false;
+        Properties properties = new Properties();
+        Iterator<Map.Entry<String, Result>> iterator = results.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry<String, Result> entry = iterator.next();
+            if (new File(entry.getKey()).isFile())
+            {
+                properties.setProperty(entry.getKey(), entry.getValue().toString());
+            }
+            else
+            {
+                iterator.remove();
+            }
+        }
+
+        // write to a temporary file and rename it, so that concurrent builds never read a partial cache
+        File tmp = null;
+        OutputStream out = null;
+        try
+        {
+            File dir = cacheFile.getAbsoluteFile().getParentFile();
+            FileUtils.forceMkdir(dir);
+            tmp = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+            out = new FileOutputStream(tmp);
+            properties.store(out, "IzPack class version cache");
+            out.close();
+            out = null;
+            if (!tmp.renameTo(cacheFile))
+            {
+                FileUtils.deleteQuietly(cacheFile);
+                FileUtils.moveFile(tmp, cacheFile);
+            }
+            tmp = null;
+        }
+        catch (IOException exception)
+        {
+            logger.log(Level.FINE, "Failed to write class version cache " + cacheFile, exception);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * The result of scanning a jar.
+     */
+    private static class Result
+    {
+        /**
+         * The jar size.
+         */
+        private final long length;
+
+        /**
+         * The jar modification time.
+         */
+        private final long lastModified;
+
+        /**
+         * The highest major version found.
+         */
+        private final int major;
+
+        /**
+         * Determines if every class was read, or the scan stopped at a class exceeding the maximum version.
+         */
+        private final boolean complete;
+
+        public Result(long length, long lastModified, int major, boolean complete)
+        {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.major = major;
+            this.complete = complete;
+        }
+
+        /**
+         * Determines if this result applies to a jar.
+         *
+         * @param jar      the jar
+         * @param maxMajor the maximum permitted major version
+         * @return <tt>true</tt> if the jar is unchanged, and the result was either complete, or already exceeds
+         *         <tt>maxMajor</tt>
+         */
+        public boolean isValid(File jar, int maxMajor)
+        {
+            return length == jar.length() && lastModified == jar.lastModified() && (complete || major > maxMajor);
+        }
+
+        /**
+         * Parses a result written by {@link #toString()}.
+         *
+         * @param value the value to parse
+         * @return the result, or {@code null} if the value is invalid
+         */
+        public static Result parse(String value)
+        {
+            String[] parts = value.split(",");
+            if (parts.length == 4)
+            {
+                try
+                {
+                    return new Result(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]),
+                                      Boolean.parseBoolean(parts[3]));
+                }
+                catch (NumberFormatException ignore)
+                {
+                    // fall through
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString()
+        {
+            return length + "," + lastModified + "," + major + "," + complete;
+        }
+    }
+}
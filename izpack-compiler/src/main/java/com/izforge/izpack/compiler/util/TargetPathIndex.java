@@ -0,0 +1,213 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+
+/**
+ * A sorted index of target paths, used to select the paths matching Ant-style patterns.
+ * <p/>
+ * Patterns are grouped by their literal prefix, i.e. the text preceding their first wildcard. Each group is only
+ * matched against the range of paths starting with that prefix, rather than against every path.
+ * <p/>
+ * The index is built once and can then be queried any number of times. It does not reflect changes to the
+ * collection it was built from.
+ *
+ * @see AntPathMatcher
+ */
+public class TargetPathIndex
+{
+    /**
+     * The target paths, keyed on their normalized form.
+     */
+    private final TreeMap<String, List<String>> paths = new TreeMap<String, List<String>>();
+
+    /**
+     * The target paths keyed on their normalized form with ASCII letters in lower case, for case-insensitive
+     * matching. Built on first use.
+     */
+    private TreeMap<String, List<String>> lowerCasePaths;
+
+    /**
+     * The matcher.
+     */
+    private final AntPathMatcher matcher = new AntPathMatcher();
+
+
+    /**
+     * Constructs a <tt>TargetPathIndex</tt>.
+     *
+     * @param targetPaths the target paths to index
+     */
+    public TargetPathIndex(Collection<String> targetPaths)
+    {
+        for (String path : targetPaths)
+        {
+            add(paths, matcher.normalizePath(path), path);
+        }
+    }
+
+    /**
+     * Returns the target paths that match at least one of the specified patterns.
+     *
+     * @param patterns      the Ant-style patterns
+     * @param caseSensitive whether matching should be case-sensitive
+     * @return the matching target paths
+     */
+    public Set<String> select(Collection<String> patterns, boolean caseSensitive)
+    {
+        TreeMap<String, List<Pattern>> groups = new TreeMap<String, List<Pattern>>();
+        for (String pattern : patterns)
+        {
+            String prefix = matcher.getLiteralPrefix(pattern);
+            if (!caseSensitive)
+            {
+                prefix = toLowerCase(prefix);
+            }
+            List<Pattern> group = groups.get(prefix);
+            if (group == null)
+            {
+                group = new ArrayList<Pattern>();
+                groups.put(prefix, group);
+            }
+            group.add(matcher.compile(pattern, caseSensitive));
+        }
+
+        TreeMap<String, List<String>> index = caseSensitive ? paths : getLowerCasePaths();
+        Set<String> result = new LinkedHashSet<String>();
+        String rangePrefix = null;
+        List<Pattern> rangePatterns = new ArrayList<Pattern>();
+        for (Map.Entry<String, List<Pattern>> entry : groups.entrySet())
+        {
+            // prefixes are sorted, so a group whose prefix extends the current one falls inside its range
+            if (rangePrefix != null && entry.getKey().startsWith(rangePrefix))
+            {
+                rangePatterns.addAll(entry.getValue());
+            }
+            else
+            {
+                if (rangePrefix != null)
+                {
+                    select(index, rangePrefix, rangePatterns, result);
+                }
+                rangePrefix = entry.getKey();
+                rangePatterns = new ArrayList<Pattern>(entry.getValue());
+            }
+        }
+        if (rangePrefix != null)
+        {
+            select(index, rangePrefix, rangePatterns, result);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the target paths starting with a prefix that match any of a list of patterns.
+     *
+     * @param index    the index to search
+     * @param prefix   the prefix
+     * @param patterns the patterns
+     * @param result   the set to add matching target paths to
+     */
+    private void select(TreeMap<String, List<String>> index, String prefix, List<Pattern> patterns,
+                        Set<String> result)
+    {
+        for (Map.Entry<String, List<String>> entry : index.tailMap(prefix, true).entrySet())
+        {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix))
+            {
+                break;
+            }
+            // the patterns are matched against the normalized path with its original case
+            String path = matcher.normalizePath(entry.getValue().get(0));
+            for (Pattern pattern : patterns)
+            {
+                if (pattern.matcher(path).matches())
+                {
+                    result.addAll(entry.getValue());
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the case-insensitive index, building it if required.
+     *
+     * @return the case-insensitive index
+     */
+    private TreeMap<String, List<String>> getLowerCasePaths()
+    {
+        if (lowerCasePaths == null)
+        {
+            lowerCasePaths = new TreeMap<String, List<String>>();
+            for (List<String> list : paths.values())
+            {
+                for (String path : list)
+                {
+                    add(lowerCasePaths, toLowerCase(matcher.normalizePath(path)), path);
+                }
+            }
+        }
+        return lowerCasePaths;
+    }
+
+    /**
+     * Converts ASCII letters to lower case, mirroring the case folding of {@link Pattern#CASE_INSENSITIVE}.
+     *
+     * @param value the value to convert
+     * @return the converted value
+     */
+    private static String toLowerCase(String value)
+    {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; ++i)
+        {
+            if (chars[i] >= 'A' && chars[i] <= 'Z')
+            {
+                chars[i] += 'a' - 'A';
+            }
+        }
+        return new String(chars);
+    }
+
+    private static void add(TreeMap<String, List<String>> index, String key, String path)
+    {
+        List<String> list = index.get(key);
+        if (list == null)
+        {
+            list = new ArrayList<String>(1);
+            index.put(key, list);
+        }
+        if (!list.contains(path))
+        {
+            list.add(path);
+        }
+    }
+}
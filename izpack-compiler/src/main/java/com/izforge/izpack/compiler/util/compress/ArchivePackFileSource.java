@@ -0,0 +1,327 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.util.compress;
+
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.data.PackFileSource;
+import com.izforge.izpack.util.NoCloseInputStream;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+
+/**
+ * A {@link PackFileSource} that streams pack files straight from the entries of an archive, optionally wrapped in
+ * a single compressed file (e.g. <em>.tar.gz</em>).
+ * <p/>
+ * Archives can only be read forwards, so entries are best opened in the order they appear in the archive. If an
+ * entry preceding the current one is requested, the archive is re-opened.
+ */
+public class ArchivePackFileSource implements PackFileSource
+{
+    /**
+     * The archive.
+     */
+    private final File archive;
+
+    /**
+     * The index of each pack file's entry in the archive.
+     */
+    private final Map<PackFile, Integer> entries = new HashMap<PackFile, Integer>();
+
+    /**
+     * The stream the archive is read from.
+     */
+    private InputStream archiveInputStream;
+
+    /**
+     * The archive entry stream, or <tt>null</tt> if the archive isn't open.
+     */
+    private ArchiveInputStream entryInputStream;
+
+    /**
+     * The index of the entry that {@link #entryInputStream} is positioned at.
+     */
+    private int index = -1;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(ArchivePackFileSource.class.getName());
+
+
+    /**
+     * Constructs an <tt>ArchivePackFileSource</tt>.
+     *
+     * @param archive the archive
+     */
+    public ArchivePackFileSource(File archive)
+    {
+        this.archive = archive;
+    }
+
+    /**
+     * Returns the archive.
+     *
+     * @return the archive
+     */
+    public File getArchive()
+    {
+        return archive;
+    }
+
+    /**
+     * Registers the archive entry that supplies a pack file.
+     *
+     * @param file  the pack file
+     * @param index the index of the entry in the archive, counting from <tt>0</tt>
+     */
+    public void addEntry(PackFile file, int index)
+    {
+        entries.put(file, index);
+    }
+
+    /**
+     * Opens a stream to read the content of a pack file.
+     *
+     * @param file the pack file
+     * @return a stream to read the file content
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public InputStream open(PackFile file) throws IOException
+    {
+        Integer entry = entries.get(file);
+        if (entry == null)
+        {
+            throw new IOException("File " + file.sourcePath + " is not an entry of " + archive);
+        }
+        if (entryInputStream == null || entry <= index)
+        {
+            // the entry has already been read, so start again
+            logger.fine("Opening archive: " + archive);
+            close();
+            openArchive();
+        }
+        while (index < entry)
+        {
+            if (entryInputStream.getNextEntry() == null)
+            {
+                throw new IOException("File " + file.sourcePath + " not found in " + archive);
+            }
+            ++index;
+        }
+        return new NoCloseInputStream(entryInputStream);
+    }
+
+    /**
+     * Reads the entries of an archive, without extracting them.
+     * <p/>
+     * Directory names are returned without a trailing separator. The content of entries whose size isn't recorded
+     * in the archive is read to determine it.
+     *
+     * @param in the archive stream
+     * @return the entries, in archive order
+     * @throws IOException for any I/O error
+     */
+    public static List<Entry> readEntries(ArchiveInputStream in) throws IOException
+    {
+        List<Entry> result = new ArrayList<Entry>();
+        int index = 0;
+        ArchiveEntry entry;
+        while ((entry = in.getNextEntry()) != null)
+        {
+            boolean directory = entry.isDirectory();
+            String name = FilenameUtils.normalizeNoEndSeparator(entry.getName(), true);
+            if (name == null)
+            {
+                throw new IOException("Invalid archive entry name: " + entry.getName());
+            }
+            long size = 0;
+            if (!directory)
+            {
+                size = entry.getSize();
+                if (size == ArchiveEntry.SIZE_UNKNOWN)
+                {
+                    size = IOUtils.skip(in, Long.MAX_VALUE);
+                }
+            }
+            Date modified = entry.getLastModifiedDate();
+            result.add(new Entry(name, index++, directory, size, (modified != null) ? modified.getTime() : 0));
+        }
+        return result;
+    }
+
+    /**
+     * Adds directories that are implied by the paths of entries, but have no entry of their own.
+     *
+     * @param entries the archive entries
+     * @return the entries, with each implied directory preceding the first entry that implies it
+     */
+    public static List<Entry> addImpliedDirectories(List<Entry> entries)
+    {
+        Set<String> directories = new LinkedHashSet<String>();
+        for (Entry entry : entries)
+        {
+            if (entry.isDirectory())
+            {
+                directories.add(entry.getName());
+            }
+        }
+        List<Entry> result = new ArrayList<Entry>();
+        for (Entry entry : entries)
+        {
+            List<Entry> parents = new ArrayList<Entry>();
+            String parent = FilenameUtils.getPathNoEndSeparator(entry.getName());
+            while (parent.length() != 0 && directories.add(parent))
+            {
+                parents.add(0, new Entry(parent, -1, true, 0, entry.getLastModified()));
+                parent = FilenameUtils.getPathNoEndSeparator(parent);
+            }
+            result.addAll(parents);
+            result.add(entry);
+        }
+        return result;
+    }
+
+    /**
+     * Closes the archive.
+     */
+    @Override
+    public void close()
+    {
+        IOUtils.closeQuietly(entryInputStream);
+        IOUtils.closeQuietly(archiveInputStream);
+        entryInputStream = null;
+        archiveInputStream = null;
+        index = -1;
+    }
+
+    /**
+     * Opens the archive, decompressing it first if it is a compressed file.
+     *
+     * @throws IOException if the archive cannot be opened
+     */
+    private void openArchive() throws IOException
+    {
+        archiveInputStream = IOUtils.buffer(FileUtils.openInputStream(archive));
+        InputStream in;
+        try
+        {
+            in = IOUtils.buffer(new CompressorStreamFactory().createCompressorInputStream(archiveInputStream));
+        }
+        catch (CompressorException e)
+        {
+            // not a compressed file, may be an uncompressed archive
+            in = archiveInputStream;
+        }
+        try
+        {
+            entryInputStream = new ArchiveStreamFactory().createArchiveInputStream(archive, in);
+        }
+        catch (ArchiveException e)
+        {
+            close();
+            throw new IOException("Failed to open archive " + archive, e);
+        }
+    }
+
+    /**
+     * An archive entry.
+     */
+    public static class Entry
+    {
+        /**
+         * The entry name, using '/' as separator.
+         */
+        private final String name;
+
+        /**
+         * The index of the entry in the archive, or <tt>-1</tt> if it is an implied directory.
+         */
+        private final int index;
+
+        /**
+         * Determines if the entry is a directory.
+         */
+        private final boolean directory;
+
+        /**
+         * The uncompressed size of the entry.
+         */
+        private final long size;
+
+        /**
+         * The last modification time of the entry.
+         */
+        private final long lastModified;
+
+        public Entry(String name, int index, boolean directory, long size, long lastModified)
+        {
+            this.name = name;
+            this.index = index;
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public int getIndex()
+        {
+            return index;
+        }
+
+        public boolean isDirectory()
+        {
+            return directory;
+        }
+
+        public long getSize()
+        {
+            return size;
+        }
+
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+    }
+}
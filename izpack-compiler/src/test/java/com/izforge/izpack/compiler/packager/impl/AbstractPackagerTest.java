@@ -23,8 +23,10 @@ package com.izforge.izpack.compiler.packager.impl;
 import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.OverrideType;
 import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.PackInfo;
 import com.izforge.izpack.merge.MergeManager;
+import com.izforge.izpack.util.file.FileDigest;
 import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Before;
@@ -122,6 +124,40 @@ public abstract class AbstractPackagerTest
         assertTrue(file.delete());
     }
 
+    /**
+     * Verifies that the digest of each file is recorded in the pack files, for use when skipping identical files
+     * at install time.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testDigest() throws Exception
+    {
+        File file = createTextFile("This is a test");
+        File jar = File.createTempFile("installer", ".jar");
+
+        JarOutputStream output = new JarOutputStream(new FileOutputStream(jar));
+        PackagerBase packager = createPackager(output, mergeManager);
+
+        PackInfo packInfo = new PackInfo("Core", "Core", null, true, false, null, true, 0);
+        packInfo.addFile(file.getParentFile(), file, "$INSTALL_PATH/" + file.getName(), null,
+                         OverrideType.OVERRIDE_TRUE, null, Blockable.BLOCKABLE_NONE, null, null, null);
+        packager.addPack(packInfo);
+        packager.createInstaller();
+
+        InputStream jarEntry = getJarEntry("resources/packs.info", jar);
+        ObjectInputStream packStream = new ObjectInputStream(jarEntry);
+        List<PackInfo> packsInfo = (List<PackInfo>) packStream.readObject();
+        assertEquals(1, packsInfo.size());
+        PackFile packFile = packsInfo.get(0).getPackFiles().iterator().next();
+        assertEquals(FileDigest.getDigest(file), packFile.getDigest());
+
+        IOUtils.closeQuietly(jarEntry);
+        IOUtils.closeQuietly(packStream);
+        assertTrue(jar.delete());
+        assertTrue(file.delete());
+    }
+
     /**
      * Helper to create a packager that writes to the provided jar.
      *
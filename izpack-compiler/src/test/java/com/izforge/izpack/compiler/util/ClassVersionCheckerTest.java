@@ -0,0 +1,221 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.exception.CompilerException;
+
+/**
+ * Tests {@link ClassVersionChecker}.
+ */
+public class ClassVersionCheckerTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that the highest version is returned, including classes in nested jars.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testMajorVersion() throws Exception
+    {
+        ClassVersionChecker checker = new ClassVersionChecker(null);
+        File jar = createJar("a.jar", new byte[][]{createClass(49), createClass(50),
+                createJar(new byte[][]{createClass(51)})});
+        assertEquals(51, checker.getMajorVersion(jar, 52));
+        assertEquals(0, checker.getMajorVersion(createJar("empty.jar", new byte[0][]), 50));
+    }
+
+    /**
+     * Verifies that a jar stops being read once a class exceeds the maximum version.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testStopAtFirstTooHighClass() throws Exception
+    {
+        ClassVersionChecker checker = new ClassVersionChecker(null);
+        File jar = createJar("a.jar", new byte[][]{createClass(50), createClass(52), "invalid".getBytes("UTF-8")});
+        assertEquals(52, checker.getMajorVersion(jar, 50));
+
+        // with a higher maximum, the whole jar is read, and the invalid class is detected
+        try
+        {
+            checker.getMajorVersion(jar, 52);
+            fail("Expected CompilerException");
+        }
+        catch (CompilerException expected)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Verifies that results are persisted, and only reused while the jar size and modification time are unchanged.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCache() throws Exception
+    {
+        File cache = new File(temporaryFolder.getRoot(), "cache/versions.properties");
+        File jar = createJar("a.jar", new byte[][]{createClass(50)});
+        long lastModified = jar.lastModified();
+        assertEquals(50, new ClassVersionChecker(cache).getMajorVersion(jar, 50));
+        assertTrue(cache.isFile());
+
+        // replace the content, keeping the size and time. A new checker uses the persisted result
+        createJar("a.jar", new byte[][]{createClass(51)});
+        assertTrue(jar.setLastModified(lastModified));
+        assertEquals(50, new ClassVersionChecker(cache).getMajorVersion(jar, 50));
+
+        // a changed time causes a rescan
+        assertTrue(jar.setLastModified(lastModified - 10000));
+        ClassVersionChecker checker = new ClassVersionChecker(cache);
+        assertEquals(51, checker.getMajorVersion(jar, 50));
+
+        // an incomplete result is reused for a lower maximum, but not a higher one
+        createJar("a.jar", new byte[][]{createClass(52)});
+        assertTrue(jar.setLastModified(lastModified - 10000));
+        assertEquals(51, checker.getMajorVersion(jar, 49));
+        assertEquals(52, checker.getMajorVersion(jar, 52));
+    }
+
+    /**
+     * Verifies that the cache file defaults to the user's home, and may be relocated or disabled with the
+     * {@link ClassVersionChecker#CACHE_FILE_PROPERTY} system property.
+     */
+    @Test
+    public void testCacheFile()
+    {
+        String previous = System.getProperty(ClassVersionChecker.CACHE_FILE_PROPERTY);
+        try
+        {
+            System.clearProperty(ClassVersionChecker.CACHE_FILE_PROPERTY);
+            File home = new File(System.getProperty("user.home"));
+            assertEquals(new File(new File(home, ".izpack"), "class-versions.properties"),
+                         ClassVersionChecker.getCacheFile());
+
+            File cache = new File(temporaryFolder.getRoot(), "versions.properties");
+            System.setProperty(ClassVersionChecker.CACHE_FILE_PROPERTY, cache.getPath());
+            assertEquals(cache, ClassVersionChecker.getCacheFile());
+
+            System.setProperty(ClassVersionChecker.CACHE_FILE_PROPERTY, "none");
+            assertNull(ClassVersionChecker.getCacheFile());
+            System.setProperty(ClassVersionChecker.CACHE_FILE_PROPERTY, "");
+            assertNull(ClassVersionChecker.getCacheFile());
+        }
+        finally
+        {
+            if (previous != null)
+            {
+                System.setProperty(ClassVersionChecker.CACHE_FILE_PROPERTY, previous);
+            }
+            else
+            {
+                System.clearProperty(ClassVersionChecker.CACHE_FILE_PROPERTY);
+            }
+        }
+    }
+
+    /**
+     * Verifies that several jars are checked concurrently, and their results returned in order.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testMajorVersions() throws Exception
+    {
+        List<File> jars = new ArrayList<File>();
+        for (int i = 0; i < 10; ++i)
+        {
+            jars.add(createJar(i + ".jar", new byte[][]{createClass(45 + i)}));
+        }
+        ClassVersionChecker checker = new ClassVersionChecker(null, 4);
+        Map<File, Integer> versions = checker.getMajorVersions(jars, 50);
+        assertEquals(jars, new ArrayList<File>(versions.keySet()));
+        for (int i = 0; i < 10; ++i)
+        {
+            assertEquals(45 + i, (int) versions.get(jars.get(i)));
+        }
+        assertEquals(Arrays.asList(49, 45), new ArrayList<Integer>(
+                checker.getMajorVersions(Arrays.asList(jars.get(4), jars.get(0)), 50).values()));
+    }
+
+    private File createJar(String name, byte[][] entries) throws IOException
+    {
+        File file = new File(temporaryFolder.getRoot(), name);
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(createJar(entries));
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+        }
+        return file;
+    }
+
+    private byte[] createJar(byte[][] entries) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream(bytes);
+        for (int i = 0; i < entries.length; ++i)
+        {
+            byte[] entry = entries[i];
+            boolean isJar = entry.length > 4 && entry[0] == 'P' && entry[1] == 'K';
+            zip.putNextEntry(new ZipEntry("pkg/Entry" + i + (isJar ? ".jar" : ".class")));
+            zip.write(entry);
+            zip.closeEntry();
+        }
+        zip.close();
+        return bytes.toByteArray();
+    }
+
+    private byte[] createClass(int major)
+    {
+        return new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, (byte) (major >> 8),
+                (byte) major};
+    }
+}
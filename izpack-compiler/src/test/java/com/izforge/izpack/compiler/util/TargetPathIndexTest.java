@@ -0,0 +1,96 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link TargetPathIndex}.
+ */
+public class TargetPathIndexTest
+{
+    private static final List<String> PATHS = Arrays.asList(
+            "$INSTALL_PATH/bin/run.sh", "$INSTALL_PATH/bin/RUN.SH", "$INSTALL_PATH/Bin/setup.sh",
+            "${INSTALL_PATH}/lib/a.jar", "$INSTALL_PATH/lib/ext/b.jar", "$INSTALL_PATH/conf/test.properties",
+            "$INSTALL_PATH/conf/tast.properties", "$INSTALL_PATH/README");
+
+    private static final String[] PATTERNS = {
+            "$INSTALL_PATH/bin/*.sh", "${INSTALL_PATH}/**/*.jar", "$INSTALL_PATH/**", "$INSTALL_PATH/conf/t?st.*",
+            "$INSTALL_PATH\\lib\\*", "**/*.sh", "$INSTALL_PATH/README", "$INSTALL_PATH/readme"};
+
+    /**
+     * Verifies that each pattern selects the same paths as {@link AntPathMatcher#match(String, String, boolean)}.
+     */
+    @Test
+    public void testSelectMatchesAntPathMatcher()
+    {
+        TargetPathIndex index = new TargetPathIndex(PATHS);
+        for (String pattern : PATTERNS)
+        {
+            for (boolean caseSensitive : new boolean[]{true, false})
+            {
+                assertEquals(pattern, match(Collections.singletonList(pattern), caseSensitive),
+                             index.select(Collections.singletonList(pattern), caseSensitive));
+            }
+        }
+    }
+
+    /**
+     * Verifies that patterns sharing a prefix select the union of their matches.
+     */
+    @Test
+    public void testSelectMultiplePatterns()
+    {
+        TargetPathIndex index = new TargetPathIndex(PATHS);
+        List<String> patterns = Arrays.asList(PATTERNS);
+        assertEquals(match(patterns, true), index.select(patterns, true));
+        assertEquals(match(patterns, false), index.select(patterns, false));
+
+        Set<String> expected = new HashSet<String>(Arrays.asList("$INSTALL_PATH/bin/run.sh",
+                                                                 "$INSTALL_PATH/bin/RUN.SH"));
+        assertEquals(expected, index.select(Arrays.asList("$INSTALL_PATH/bin/*.sh", "$INSTALL_PATH/bin/R*"),
+                                            true));
+    }
+
+    private Set<String> match(List<String> patterns, boolean caseSensitive)
+    {
+        AntPathMatcher matcher = new AntPathMatcher();
+        Set<String> result = new HashSet<String>();
+        for (String path : PATHS)
+        {
+            for (String pattern : patterns)
+            {
+                if (matcher.match(pattern, path, caseSensitive))
+                {
+                    result.add(path);
+                }
+            }
+        }
+        return result;
+    }
+}
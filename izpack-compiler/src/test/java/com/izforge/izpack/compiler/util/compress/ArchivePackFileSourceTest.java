@@ -0,0 +1,133 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.compiler.util.compress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackFile;
+
+/**
+ * Tests the {@link ArchivePackFileSource}.
+ */
+public class ArchivePackFileSourceTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that entries are listed without being extracted, and that their content can be read in any order.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testReadEntries() throws IOException
+    {
+        File archive = temporaryFolder.newFile("test.zip");
+        ZipOutputStream out = new ZipOutputStream(FileUtils.openOutputStream(archive));
+        out.putNextEntry(new ZipEntry("a/"));
+        for (String name : new String[]{"a/1.txt", "a/2.txt", "b/c/3.txt"})
+        {
+            out.putNextEntry(new ZipEntry(name));
+            out.write(name.getBytes("UTF-8"));
+        }
+        out.close();
+
+        List<ArchivePackFileSource.Entry> entries;
+        ArchiveInputStream in = new ZipArchiveInputStream(FileUtils.openInputStream(archive));
+        try
+        {
+            entries = ArchivePackFileSource.readEntries(in);
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+        }
+        assertEquals(4, entries.size());
+        assertEquals("a", entries.get(0).getName());
+        assertTrue(entries.get(0).isDirectory());
+        assertEquals("b/c/3.txt", entries.get(3).getName());
+        assertEquals(9, entries.get(3).getSize());
+
+        List<ArchivePackFileSource.Entry> implied = ArchivePackFileSource.addImpliedDirectories(entries);
+        assertEquals(6, implied.size());
+        assertEquals("b", implied.get(3).getName());
+        assertEquals("b/c", implied.get(4).getName());
+        assertTrue(implied.get(4).isDirectory());
+
+        ArchivePackFileSource source = new ArchivePackFileSource(archive);
+        PackFile file1 = createPackFile(entries.get(1), source);
+        PackFile file2 = createPackFile(entries.get(2), source);
+        PackFile file3 = createPackFile(entries.get(3), source);
+        try
+        {
+            checkContent("a/1.txt", source, file1);
+            checkContent("b/c/3.txt", source, file3);
+            // requires the archive to be re-opened
+            checkContent("a/2.txt", source, file2);
+            checkContent("a/2.txt", source, file2);
+        }
+        finally
+        {
+            source.close();
+        }
+    }
+
+    private PackFile createPackFile(ArchivePackFileSource.Entry entry, ArchivePackFileSource source)
+    {
+        PackFile result = new PackFile(entry.getName(), entry.getName(), entry.getName(), null,
+                                       OverrideType.OVERRIDE_TRUE, null, Blockable.BLOCKABLE_NONE, null, null,
+                                       entry.getLastModified(), entry.isDirectory(), entry.getSize());
+        assertFalse(result.isDirectory());
+        source.addEntry(result, entry.getIndex());
+        return result;
+    }
+
+    private void checkContent(String expected, ArchivePackFileSource source, PackFile file) throws IOException
+    {
+        InputStream in = source.open(file);
+        try
+        {
+            assertEquals(expected, IOUtils.toString(in, "UTF-8"));
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
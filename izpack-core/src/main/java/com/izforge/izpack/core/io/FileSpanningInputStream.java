@@ -18,6 +18,7 @@
 
 package com.izforge.izpack.core.io;
 
+import com.izforge.izpack.util.NoCloseInputStream;
 import org.apache.commons.io.IOUtils;
 
 import java.io.File;
@@ -32,6 +33,10 @@ import java.util.zip.GZIPInputStream;
 
 /**
  * An <tt>InputStream</tt> which transparently spans over multiple volumes.
+ * <p/>
+ * If the volumes were written with {@link FileSpanningOutputStream#startEntry(boolean) entries}, the stream can
+ * be positioned directly at the start of an entry using {@link #seek(int, long, long, boolean)}, rather than
+ * decompressing all of the data that precedes it.
  *
  * @author Dennis Reil, <Dennis.Reil@reddot.de>
  * @author Tim Anderson
@@ -45,9 +50,9 @@ public class FileSpanningInputStream extends InputStream
     private final SpanningInputStream spanningInputStream;
 
     /**
-     * The sip stream.
+     * The stream to read the current entry from. This decompresses gzipped entries.
      */
-    private GZIPInputStream zippedInputStream;
+    private InputStream zippedInputStream;
 
     /**
      * The absolute offset into the volumes.
@@ -72,7 +77,7 @@ public class FileSpanningInputStream extends InputStream
     public FileSpanningInputStream(File volume, int volumes) throws IOException
     {
         spanningInputStream = new SpanningInputStream(volume, volumes);
-        zippedInputStream = new GZIPInputStream(spanningInputStream);
+        zippedInputStream = new GZIPInputStream(new NoCloseInputStream(spanningInputStream));
     }
 
     /**
@@ -180,6 +185,47 @@ public class FileSpanningInputStream extends InputStream
         return count;
     }
 
+    /**
+     * Positions the stream at the start of a compressed entry.
+     *
+     * @param volume   the index of the volume containing the entry
+     * @param offset   the offset of the entry in the volume
+     * @param position the absolute offset of the entry into the volumes
+     * @throws IOException for any I/O error
+     * @see #seek(int, long, long, boolean)
+     */
+    public void seek(int volume, long offset, long position) throws IOException
+    {
+        seek(volume, offset, position, true);
+    }
+
+    /**
+     * Positions the stream at the start of an entry.
+     * <p/>
+     * The target volume is opened if required, and the file channel positioned at the entry offset, so none of the
+     * intervening data is read.
+     *
+     * @param volume     the index of the volume containing the entry, as returned by
+     *                   {@link FileSpanningOutputStream#getEntryVolume()}
+     * @param offset     the offset of the entry in the volume, as returned by
+     *                   {@link FileSpanningOutputStream#getEntryOffset()}
+     * @param position   the absolute offset of the entry into the volumes. This becomes the new
+     *                   {@link #getFilePointer() file pointer}
+     * @param compressed if <tt>true</tt> the entry is gzipped, otherwise it is stored
+     * @throws CorruptVolumeException  if the magic no. of the volume does not match that expected
+     * @throws VolumeNotFoundException if the volume was not found
+     * @throws IOException             for any other I/O error
+     */
+    public void seek(int volume, long offset, long position, boolean compressed) throws IOException
+    {
+        spanningInputStream.seek(volume, offset);
+        // discard the current decompressor; the new position is the start of an independent entry
+        zippedInputStream.close();
+        InputStream stream = new NoCloseInputStream(spanningInputStream);
+        zippedInputStream = (compressed) ? new GZIPInputStream(stream) : stream;
+        filePointer = position;
+    }
+
     /**
      * Returns the volume being read.
      *
@@ -207,7 +253,7 @@ public class FileSpanningInputStream extends InputStream
         /**
          * The current volume stream.
          */
-        private InputStream stream;
+        private FileInputStream stream;
 
         /**
          * The base path to each volume.
@@ -341,6 +387,30 @@ public class FileSpanningInputStream extends InputStream
             return current;
         }
 
+        /**
+         * Positions the stream at an offset within a volume.
+         *
+         * @param volume the volume index
+         * @param offset the offset within the volume, including the magic number
+         * @throws IOException for any I/O error
+         */
+        public void seek(int volume, long offset) throws IOException
+        {
+            if (volume < 0 || volume >= volumes)
+            {
+                throw new IOException("Invalid volume: " + volume + ". Volumes: " + volumes);
+            }
+            if (offset < FileSpanningOutputStream.MAGIC_NUMBER_LENGTH)
+            {
+                throw new IOException("Invalid offset: " + offset + " for volume: " + volume);
+            }
+            if (volume != index)
+            {
+                openVolume(volume);
+            }
+            stream.getChannel().position(offset);
+        }
+
         /**
          * Closes this input stream and releases any system resources associated
          * with the stream.
@@ -370,50 +440,62 @@ public class FileSpanningInputStream extends InputStream
             }
             else
             {
-                // the next volume name
-                String volumePath = basePath + "." + (index + 1);
-                File volume = new File(volumePath);
-                boolean found = false;
-                while (!found)
+                openVolume(index + 1);
+                result = true;
+            }
+            return result;
+        }
+
+        /**
+         * Opens a volume, positioned after its magic number.
+         *
+         * @param volumeIndex the volume index
+         * @throws CorruptVolumeException  if the magic no. of the volume does not match that expected
+         * @throws VolumeNotFoundException if the volume was not found
+         */
+        private void openVolume(int volumeIndex) throws IOException
+        {
+            // the volume name
+            String volumePath = (volumeIndex == 0) ? basePath : basePath + "." + volumeIndex;
+            File volume = new File(volumePath);
+            boolean found = false;
+            while (!found)
+            {
+                if (volume.exists())
                 {
-                    if (volume.exists())
+                    try
                     {
-                        try
+                        // try to open new stream to the volume
+                        IOUtils.closeQuietly(stream);
+                        stream = new FileInputStream(volume);
+                        current = volume;
+                        checkMagicNumber();
+                        found = true;
+                    }
+                    catch (CorruptVolumeException exception)
+                    {
+                        if (locator == null)
                         {
-                            // try to open new stream to next volume
-                            IOUtils.closeQuietly(stream);
-                            stream = new FileInputStream(volume);
-                            current = volume;
-                            checkMagicNumber();
-                            found = true;
+                            throw exception;
                         }
-                        catch (CorruptVolumeException exception)
+                        else
                         {
-                            if (locator == null)
-                            {
-                                throw exception;
-                            }
-                            else
-                            {
-                                volume = locator.getVolume(volume.getAbsolutePath(), true);
-                            }
+                            volume = locator.getVolume(volume.getAbsolutePath(), true);
                         }
                     }
-                    else if (locator != null)
-                    {
-                        volume = locator.getVolume(volume.getAbsolutePath(), false);
-                    }
-                    else
-                    {
-                        throw new VolumeNotFoundException("Volume not found: " + volume.getAbsolutePath(),
-                                                          volume.getAbsolutePath());
-                    }
                 }
-
-                ++index;
-                result = true;
+                else if (locator != null)
+                {
+                    volume = locator.getVolume(volume.getAbsolutePath(), false);
+                }
+                else
+                {
+                    throw new VolumeNotFoundException("Volume not found: " + volume.getAbsolutePath(),
+                                                      volume.getAbsolutePath());
+                }
             }
-            return result;
+
+            index = volumeIndex;
         }
 
         /**
@@ -30,6 +30,11 @@ import java.util.zip.GZIPOutputStream;
 /**
  * An <tt>OutputStream</tt> which transparently spans over multiple volumes. The size of the volumes and an
  * additional space for the first volume can be specified.
+ * <p/>
+ * Data is written as a sequence of entries, each of which is either a gzip member or stored as is. Each call to
+ * {@link #startEntry(boolean)} begins a new entry, whose location is given by {@link #getEntryVolume()} and
+ * {@link #getEntryOffset()}. A reader can use these to
+ * {@link FileSpanningInputStream#seek(int, long, long, boolean) seek} straight to the entry.
  *
  * @author Dennis Reil, <Dennis.Reil@reddot.de>
  * @author Tim Anderson
@@ -68,7 +73,7 @@ public class FileSpanningOutputStream extends OutputStream
     private SpanningOutputStream spanningOutputStream;
 
     /**
-     * The stream that .
+     * The stream that compresses the current entry, or <tt>null</tt> if the entry is stored uncompressed.
      */
     private GZIPOutputStream gzipOutputStream;
 
@@ -77,6 +82,21 @@ public class FileSpanningOutputStream extends OutputStream
      */
     private long filePointer;
 
+    /**
+     * The offset in the (uncompressed) output stream at which the current gzip member started.
+     */
+    private long entryFilePointer;
+
+    /**
+     * The index of the volume where the current gzip member starts.
+     */
+    private int entryVolume;
+
+    /**
+     * The offset into {@link #entryVolume} where the current gzip member starts.
+     */
+    private long entryOffset;
+
     /**
      * The logger.
      */
@@ -127,9 +147,72 @@ public class FileSpanningOutputStream extends OutputStream
     public FileSpanningOutputStream(File volume, long maxFirstVolumeSize, long maxVolumeSize) throws IOException
     {
         spanningOutputStream = new SpanningOutputStream(volume, maxFirstVolumeSize, maxVolumeSize);
+        entryVolume = 0;
+        entryOffset = spanningOutputStream.getByteCount();
         gzipOutputStream = new GZIPOutputStream(spanningOutputStream);
     }
 
+    /**
+     * Starts a new compressed entry.
+     *
+     * @throws IOException for any I/O error
+     * @see #startEntry(boolean)
+     */
+    public void startEntry() throws IOException
+    {
+        startEntry(true);
+    }
+
+    /**
+     * Starts a new entry.
+     * <p/>
+     * This finishes the current gzip member, if any, and begins a new entry so that it can be read without reading
+     * any preceding data. If nothing has been written since the last entry was started, and it has the same
+     * compression, the current entry is reused.
+     *
+     * @param compress if <tt>true</tt>, gzip the entry, otherwise store it as is. Data that is already compressed
+     *                 should be stored
+     * @throws IOException for any I/O error
+     */
+    public void startEntry(boolean compress) throws IOException
+    {
+        boolean compressed = gzipOutputStream != null;
+        if (filePointer != entryFilePointer || compress != compressed)
+        {
+            if (compressed)
+            {
+                gzipOutputStream.finish();
+            }
+            entryFilePointer = filePointer;
+            entryVolume = spanningOutputStream.getVolumes() - 1;
+            entryOffset = spanningOutputStream.getByteCount();
+            gzipOutputStream = (compress) ? new GZIPOutputStream(spanningOutputStream) : null;
+        }
+    }
+
+    /**
+     * Returns the index of the volume where the current entry starts.
+     *
+     * @return the volume index, where <tt>0</tt> is the first volume
+     */
+    public int getEntryVolume()
+    {
+        return entryVolume;
+    }
+
+    /**
+     * Returns the offset of the current entry within its volume.
+     * <p/>
+     * This is the raw offset in the volume file, including the magic number. It may be equal to the size of the
+     * volume, in which case the entry data starts at the next volume.
+     *
+     * @return the offset of the current entry
+     */
+    public long getEntryOffset()
+    {
+        return entryOffset;
+    }
+
     /**
      * @see java.io.OutputStream#close()
      */
@@ -137,7 +220,7 @@ public class FileSpanningOutputStream extends OutputStream
     public void close() throws IOException
     {
         flush();
-        gzipOutputStream.close();
+        getEntryStream().close();
     }
 
     /**
@@ -146,7 +229,7 @@ public class FileSpanningOutputStream extends OutputStream
     @Override
     public void write(byte[] b, int off, int len) throws IOException
     {
-        gzipOutputStream.write(b, off, len);
+        getEntryStream().write(b, off, len);
         // increase filePointer by written bytes
         filePointer += len;
     }
@@ -170,7 +253,7 @@ public class FileSpanningOutputStream extends OutputStream
     @Override
     public void write(int b) throws IOException
     {
-        gzipOutputStream.write(b);
+        getEntryStream().write(b);
         // increase filePointer by written byte
         filePointer++;
     }
@@ -183,7 +266,7 @@ public class FileSpanningOutputStream extends OutputStream
     @Override
     public void flush() throws IOException
     {
-        gzipOutputStream.flush();
+        getEntryStream().flush();
     }
 
     /**
@@ -206,6 +289,16 @@ public class FileSpanningOutputStream extends OutputStream
         return filePointer;
     }
 
+    /**
+     * Returns the stream to write the current entry to.
+     *
+     * @return the gzip stream if the entry is compressed, otherwise the volume stream
+     */
+    private OutputStream getEntryStream()
+    {
+        return (gzipOutputStream != null) ? gzipOutputStream : spanningOutputStream;
+    }
+
     /**
      * Helper to format the volume magic number.
      *
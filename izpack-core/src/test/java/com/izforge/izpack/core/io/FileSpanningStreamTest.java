@@ -161,6 +161,56 @@ public class FileSpanningStreamTest
         spanningInputStream.close();
     }
 
+    /**
+     * Tests the {@link FileSpanningInputStream#seek(int, long, long, boolean)} method, for a mix of compressed and
+     * stored entries written with {@link FileSpanningOutputStream#startEntry(boolean)}.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testSeek() throws IOException
+    {
+        File volume = new File(temporaryFolder.getRoot(), "volume");
+        FileSpanningOutputStream spanningOutputStream = new FileSpanningOutputStream(volume, 1024);
+
+        // write 20 entries of random data, recording where each starts
+        Random random = new Random();
+        int count = 20;
+        byte[][] written = new byte[count][];
+        int[] volumeIndexes = new int[count];
+        long[] offsets = new long[count];
+        long[] positions = new long[count];
+        boolean[] compressed = new boolean[count];
+        for (int i = 0; i < count; ++i)
+        {
+            compressed[i] = (i % 3) != 0;
+            spanningOutputStream.startEntry(compressed[i]);
+            volumeIndexes[i] = spanningOutputStream.getEntryVolume();
+            offsets[i] = spanningOutputStream.getEntryOffset();
+            positions[i] = spanningOutputStream.getFilePointer();
+            written[i] = new byte[1000 + random.nextInt(2000)];
+            random.nextBytes(written[i]);
+            spanningOutputStream.write(written[i]);
+        }
+        spanningOutputStream.close();
+
+        int volumes = spanningOutputStream.getVolumes();
+        assertTrue(volumeIndexes[count - 1] > 1);
+        FileSpanningInputStream spanningInputStream = new FileSpanningInputStream(volume, volumes);
+
+        // read the entries back in reverse order, which would be impossible by skipping
+        for (int i = count - 1; i >= 0; --i)
+        {
+            spanningInputStream.seek(volumeIndexes[i], offsets[i], positions[i], compressed[i]);
+            assertEquals(positions[i], spanningInputStream.getFilePointer());
+            byte[] read = new byte[written[i].length];
+            assertEquals(read.length, spanningInputStream.read(read));
+            assertArrayEquals(written[i], read);
+            assertEquals(positions[i] + read.length, spanningInputStream.getFilePointer());
+        }
+        spanningInputStream.close();
+    }
+
     /**
      * Writes 10GB of random data and verifies it can be read back in.
      *
@@ -21,10 +21,15 @@
 
 package com.izforge.izpack.event;
 
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import com.izforge.izpack.api.rules.RulesEngine;
+import com.izforge.izpack.util.config.ConfigFileTask;
 import com.izforge.izpack.util.config.ConfigurableTask;
+import com.izforge.izpack.util.config.SingleXmlFileMergeTask;
 
 
 public class ConfigurationActionTask
@@ -63,6 +68,34 @@ public class ConfigurationActionTask
         this.condition = condition;
     }
 
+    /**
+     * Returns the files the task reads, writes or deletes.
+     * <p/>
+     * Tasks with disjoint files may be executed concurrently.
+     *
+     * @return the absolute files, or {@code null} if they cannot be determined
+     */
+    public Set<File> getFiles()
+    {
+        Set<File> files = new LinkedHashSet<File>();
+        if (task instanceof ConfigFileTask)
+        {
+            ConfigFileTask fileTask = (ConfigFileTask) task;
+            addFile(files, fileTask.getOldFile());
+            addFile(files, fileTask.getNewFile());
+            addFile(files, fileTask.getToFile());
+        }
+        else if (task instanceof SingleXmlFileMergeTask && ((SingleXmlFileMergeTask) task).getFileSets().isEmpty())
+        {
+            SingleXmlFileMergeTask mergeTask = (SingleXmlFileMergeTask) task;
+            addFile(files, mergeTask.getOriginalFile());
+            addFile(files, mergeTask.getPatchFile());
+            addFile(files, mergeTask.getToFile());
+            addFile(files, mergeTask.getConfigFile());
+        }
+        return files.isEmpty() ? null : files;
+    }
+
     public void execute() throws Exception
     {
         if (condition == null || condition.trim().length() == 0 || rules.isConditionTrue(condition))
@@ -75,4 +108,12 @@ public class ConfigurationActionTask
             logger.fine("Condition " + condition + " not met - skipping configuration task class " + task.getClass().getName());
         }
     }
+
+    private static void addFile(Set<File> files, File file)
+    {
+        if (file != null)
+        {
+            files.add(file.getAbsoluteFile());
+        }
+    }
 }
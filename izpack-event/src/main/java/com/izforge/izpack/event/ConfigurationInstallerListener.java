@@ -74,6 +74,7 @@ public class ConfigurationInstallerListener extends AbstractProgressInstallerLis
     public static final String CONFIGURABLESET_ATTR = "configurableset";
     public static final String CONFIGURABLE_ATTR = "configurable";
     public static final String CONDITION_ATTR = "condition";
+    public static final String PARALLEL_ATTR = "parallel";
 
     /**
      * The configuration actions.
@@ -81,6 +82,11 @@ public class ConfigurationInstallerListener extends AbstractProgressInstallerLis
     private final Map<String, Map<Object, List<ConfigurationAction>>> actions
             = new HashMap<String, Map<Object, List<ConfigurationAction>>>();
 
+    /**
+     * The names of the packs whose configuration tasks may be executed concurrently.
+     */
+    private final Set<String> parallelPacks = new HashSet<String>();
+
     /**
      * The resources.
      */
@@ -170,6 +176,11 @@ public class ConfigurationInstallerListener extends AbstractProgressInstallerLis
             }
 
             logger.fine("Found configuration action descriptor for pack " + p.getName());
+            boolean parallel = Boolean.parseBoolean(pack.getAttribute(PARALLEL_ATTR));
+            if (parallel)
+            {
+                parallelPacks.add(p.getName());
+            }
             // Prepare the action cache
             Map<Object, List<ConfigurationAction>> packActions = new HashMap<Object, List<ConfigurationAction>>();
             packActions.put(ActionBase.BEFOREPACK, new ArrayList<ConfigurationAction>());
@@ -189,6 +200,17 @@ public class ConfigurationInstallerListener extends AbstractProgressInstallerLis
                         ConfigurationAction act = readConfigAction(configActionEntry);
                         if (act != null)
                         {
+                            if (parallel)
+                            {
+                                for (ConfigurationActionTask task : act.getActionTasks())
+                                {
+                                    if (task.getConfigurableTask() instanceof ConfigurableFileCopyTask)
+                                    {
+                                        ((ConfigurableFileCopyTask) task.getConfigurableTask()).setThreads(
+                                                ConfigurationTaskRunner.DEFAULT_THREADS);
+                                    }
+                                }
+                            }
                             logger.fine("Adding " + act.getOrder() + "configuration action with "
                                     + act.getActionTasks().size() + " tasks");
                             (packActions.get(act.getOrder())).add(act);
@@ -314,6 +336,18 @@ public class ConfigurationInstallerListener extends AbstractProgressInstallerLis
         }
 
         logger.fine("Executing all " + order + " configuration actions for " + packName + " ...");
+        if (parallelPacks.contains(packName) && !(notifyProgress() && order.equals(ActionBase.AFTERPACKS)))
+        {
+            try
+            {
+                new ConfigurationTaskRunner(ConfigurationTaskRunner.DEFAULT_THREADS).run(actList);
+            }
+            catch (Exception e)
+            {
+                throw new InstallerException(e);
+            }
+            return;
+        }
         for (ConfigurationAction act : actList)
         {
             // Inform progress bar if needed. Works only on AFTER_PACKS
@@ -566,6 +600,11 @@ public class ConfigurationInstallerListener extends AbstractProgressInstallerLis
         {
             task.setCleanup(Boolean.parseBoolean(boolattr));
         }
+        boolattr = getAttribute(el, "streaming");
+        if (boolattr != null)
+        {
+            task.setStreaming(Boolean.parseBoolean(boolattr));
+        }
     }
 
     protected List<ConfigurationActionTask> readConfigurables(IXMLElement parent) throws InstallerException
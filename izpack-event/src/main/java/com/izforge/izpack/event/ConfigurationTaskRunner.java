@@ -0,0 +1,304 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.event;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+
+/**
+ * Executes the tasks of configuration actions, running tasks that work on different files concurrently.
+ * <p/>
+ * Tasks are partitioned into lanes, in declared order. A task joins the lane whose files it shares, so tasks on the
+ * same file always execute in declared order. A task that shares files with more than one lane, or whose files
+ * cannot be determined (e.g. registry tasks and configurable sets), acts as a barrier: the lanes before it complete
+ * before it executes, and lanes after it start once it has completed.
+ * <p/>
+ * If a task fails, no further tasks are started, and the failure of the earliest declared task is thrown once the
+ * running tasks complete.
+ */
+public class ConfigurationTaskRunner
+{
+    /**
+     * The default maximum no. of concurrent tasks.
+     */
+    public static final int DEFAULT_THREADS = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The maximum no. of concurrent tasks.
+     */
+    private final int threads;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(ConfigurationTaskRunner.class.getName());
+
+
+    /**
+     * Constructs a <tt>ConfigurationTaskRunner</tt>.
+     *
+     * @param threads the maximum no. of concurrent tasks
+     */
+    public ConfigurationTaskRunner(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Executes the tasks of the supplied actions.
+     *
+     * @param actions the actions
+     * @throws Exception the failure of the earliest declared task that failed
+     */
+    public void run(List<ConfigurationAction> actions) throws Exception
+    {
+        List<ConfigurationActionTask> tasks = new ArrayList<ConfigurationActionTask>();
+        for (ConfigurationAction action : actions)
+        {
+            if (action.getActionTasks() != null)
+            {
+                tasks.addAll(action.getActionTasks());
+            }
+        }
+        logger.fine("Found " + tasks.size() + " configuration tasks");
+
+        List<Lane> lanes = new ArrayList<Lane>();
+        for (int i = 0; i < tasks.size(); ++i)
+        {
+            ConfigurationActionTask task = tasks.get(i);
+            Set<File> files = task.getFiles();
+            Lane lane = null;
+            boolean barrier = (files == null);
+            if (!barrier)
+            {
+                for (Lane existing : lanes)
+                {
+                    if (existing.shares(files))
+                    {
+                        if (lane != null)
+                        {
+                            barrier = true;
+                            break;
+                        }
+                        lane = existing;
+                    }
+                }
+            }
+            if (barrier)
+            {
+                runLanes(lanes);
+                lanes.clear();
+                if (files == null)
+                {
+                    task.execute();
+                    continue;
+                }
+                lane = null;
+            }
+            if (lane == null)
+            {
+                lane = new Lane();
+                lanes.add(lane);
+            }
+            lane.add(i, task, files);
+        }
+        runLanes(lanes);
+    }
+
+    /**
+     * Runs lanes to completion.
+     *
+     * @param lanes the lanes
+     * @throws Exception the failure of the earliest declared task that failed
+     */
+    private void runLanes(List<Lane> lanes) throws Exception
+    {
+        if (lanes.isEmpty())
+        {
+            return;
+        }
+        if (lanes.size() == 1 || threads == 1)
+        {
+            for (Lane lane : lanes)
+            {
+                lane.run(null);
+            }
+            return;
+        }
+
+        logger.fine("Executing " + lanes.size() + " independent configuration task sequences");
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, lanes.size()), new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "IzPack configuration action");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final AtomicBoolean failed = new AtomicBoolean();
+        final Map<Integer, Exception> failures = new TreeMap<Integer, Exception>();
+        try
+        {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (final Lane lane : lanes)
+            {
+                futures.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        try
+                        {
+                            lane.run(failed);
+                        }
+                        catch (LaneException exception)
+                        {
+                            failed.set(true);
+                            synchronized (failures)
+                            {
+                                failures.put(exception.index, exception.cause);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures)
+            {
+                try
+                {
+                    future.get();
+                }
+                catch (ExecutionException exception)
+                {
+                    // task failures are recorded by the lane, so this only reports errors
+                    Throwable cause = exception.getCause();
+                    if (cause instanceof Error)
+                    {
+                        throw (Error) cause;
+                    }
+                    throw exception;
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        if (!failures.isEmpty())
+        {
+            throw failures.values().iterator().next();
+        }
+    }
+
+    /**
+     * A sequence of tasks that share files, in declared order.
+     */
+    private static class Lane
+    {
+        private final List<Integer> indexes = new ArrayList<Integer>();
+
+        private final List<ConfigurationActionTask> tasks = new ArrayList<ConfigurationActionTask>();
+
+        private final Set<File> files = new HashSet<File>();
+
+        public boolean shares(Set<File> others)
+        {
+            for (File file : others)
+            {
+                if (files.contains(file))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void add(int index, ConfigurationActionTask task, Set<File> taskFiles)
+        {
+            indexes.add(index);
+            tasks.add(task);
+            files.addAll(taskFiles);
+        }
+
+        /**
+         * Executes the tasks in order.
+         *
+         * @param failed if non-null, indicates if another lane has failed, in which case no more tasks are started
+         * @throws Exception the task failure. If <tt>failed</tt> is non-null, this is wrapped in a
+         *                   {@link LaneException}
+         */
+        public void run(AtomicBoolean failed) throws Exception
+        {
+            for (int i = 0; i < tasks.size(); ++i)
+            {
+                if (failed != null && failed.get())
+                {
+                    return;
+                }
+                try
+                {
+                    tasks.get(i).execute();
+                }
+                catch (Exception exception)
+                {
+                    if (failed == null)
+                    {
+                        throw exception;
+                    }
+                    throw new LaneException(indexes.get(i), exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Associates a task failure with the declared index of the task.
+     */
+    private static class LaneException extends Exception
+    {
+        private final int index;
+
+        private final Exception cause;
+
+        public LaneException(int index, Exception cause)
+        {
+            super(cause);
+            this.index = index;
+            this.cause = cause;
+        }
+    }
+}
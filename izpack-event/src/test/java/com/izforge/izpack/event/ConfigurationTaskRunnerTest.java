@@ -0,0 +1,199 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.izforge.izpack.util.config.ConfigurableTask;
+import com.izforge.izpack.util.config.SingleXmlFileMergeTask;
+
+
+/**
+ * Tests the {@link ConfigurationTaskRunner}.
+ */
+public class ConfigurationTaskRunnerTest
+{
+    /**
+     * The names of the executed tasks, in order of execution.
+     */
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * Verifies that tasks on different files are executed concurrently.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testConcurrent() throws Exception
+    {
+        final CountDownLatch latch = new CountDownLatch(2);
+        ConfigurationActionTask a = createTask("a", "a.xml", latch, null);
+        ConfigurationActionTask b = createTask("b", "b.xml", latch, null);
+
+        new ConfigurationTaskRunner(2).run(createActions(a, b));
+        assertEquals(2, executed.size());
+    }
+
+    /**
+     * Verifies that tasks on the same file are executed in declared order.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSameFileOrder() throws Exception
+    {
+        List<ConfigurationActionTask> tasks = new ArrayList<ConfigurationActionTask>();
+        for (int i = 0; i < 20; ++i)
+        {
+            tasks.add(createTask("a" + i, "a.xml", null, null));
+            tasks.add(createTask("b" + i, "b.xml", null, null));
+        }
+
+        new ConfigurationTaskRunner(4).run(createActions(tasks.toArray(new ConfigurationActionTask[tasks.size()])));
+        List<String> a = new ArrayList<String>();
+        for (String name : executed)
+        {
+            if (name.startsWith("a"))
+            {
+                a.add(name);
+            }
+        }
+        assertEquals(20, a.size());
+        for (int i = 0; i < a.size(); ++i)
+        {
+            assertEquals("a" + i, a.get(i));
+        }
+    }
+
+    /**
+     * Verifies that a task whose files cannot be determined waits for the preceding tasks, and is completed before
+     * the following tasks start.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testBarrier() throws Exception
+    {
+        ConfigurationActionTask a = createTask("a", "a.xml", null, null);
+        ConfigurationActionTask b = createTask("b", "b.xml", null, null);
+        ConfigurationActionTask barrier = new ConfigurationActionTask(new ConfigurableTask()
+        {
+            @Override
+            public void execute() throws Exception
+            {
+                executed.add("barrier");
+            }
+        }, null, null);
+        ConfigurationActionTask c = createTask("c", "c.xml", null, null);
+        ConfigurationActionTask d = createTask("d", "d.xml", null, null);
+
+        new ConfigurationTaskRunner(4).run(createActions(a, b, barrier, c, d));
+        assertEquals(5, executed.size());
+        assertEquals("barrier", executed.get(2));
+        assertTrue(executed.subList(0, 2).containsAll(Arrays.asList("a", "b")));
+        assertTrue(executed.subList(3, 5).containsAll(Arrays.asList("c", "d")));
+    }
+
+    /**
+     * Verifies that when tasks fail, the failure of the earliest declared task is thrown, and no further tasks are
+     * started.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testFailure() throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(2);
+        Exception first = new Exception("first");
+        Exception second = new Exception("second");
+        ConfigurationActionTask a = createTask("a", "a.xml", latch, first);
+        ConfigurationActionTask b = createTask("b", "b.xml", latch, second);
+        ConfigurationActionTask a2 = createTask("a2", "a.xml", null, null);
+        ConfigurationActionTask c = createTask("c", "c.xml", null, null);
+
+        try
+        {
+            new ConfigurationTaskRunner(2).run(createActions(a, b, a2, c));
+            fail("Expected run to fail");
+        }
+        catch (Exception expected)
+        {
+            assertSame(first, expected);
+        }
+        assertTrue(executed.containsAll(Arrays.asList("a", "b")));
+        assertTrue(!executed.contains("a2"));
+    }
+
+    /**
+     * Creates a task that merges into a file.
+     *
+     * @param name    the task name, recorded when the task executes
+     * @param file    the target file
+     * @param latch   if non-null, the task counts down the latch and waits for it to reach zero
+     * @param failure if non-null, the exception to throw
+     * @return a new task
+     */
+    private ConfigurationActionTask createTask(final String name, String file, final CountDownLatch latch,
+                                               final Exception failure)
+    {
+        SingleXmlFileMergeTask task = new SingleXmlFileMergeTask()
+        {
+            @Override
+            public void execute() throws Exception
+            {
+                executed.add(name);
+                if (latch != null)
+                {
+                    latch.countDown();
+                    if (!latch.await(10, TimeUnit.SECONDS))
+                    {
+                        throw new Exception("Tasks " + name + " not executed concurrently");
+                    }
+                }
+                if (failure != null)
+                {
+                    throw failure;
+                }
+            }
+        };
+        task.setToFile(new File(file));
+        return new ConfigurationActionTask(task, null, null);
+    }
+
+    private List<ConfigurationAction> createActions(ConfigurationActionTask... tasks)
+    {
+        ConfigurationAction action = new ConfigurationAction();
+        action.setActionTasks(new ArrayList<ConfigurationActionTask>(Arrays.asList(tasks)));
+        return Collections.singletonList(action);
+    }
+}
@@ -13,9 +13,12 @@ import com.izforge.izpack.gui.log.Log;
 import com.izforge.izpack.installer.container.provider.GUIInstallDataProvider;
 import com.izforge.izpack.installer.container.provider.IconsProvider;
 import com.izforge.izpack.installer.container.provider.IzPanelsProvider;
+import com.izforge.izpack.installer.data.GUIInstallData;
 import com.izforge.izpack.installer.gui.DefaultNavigator;
 import com.izforge.izpack.installer.gui.InstallerController;
 import com.izforge.izpack.installer.gui.InstallerFrame;
+import com.izforge.izpack.installer.gui.IzPanels;
+import com.izforge.izpack.installer.gui.PackPrefetchListener;
 import com.izforge.izpack.installer.gui.SplashScreen;
 import com.izforge.izpack.installer.language.LanguageDialog;
 import com.izforge.izpack.installer.multiunpacker.MultiVolumeUnpackerHelper;
@@ -97,6 +100,15 @@ public class GUIInstallerContainer extends InstallerContainer
                     InstallerFrame frame = pico.getComponent(InstallerFrame.class);
                     IUnpacker unpacker = pico.getComponent(IUnpacker.class);
                     frame.setUnpacker(unpacker);
+
+                    GUIInstallData installData = pico.getComponent(GUIInstallData.class);
+                    if (installData.getInfo().getWebDirURL() != null)
+                    {
+                        // download packs in the background once they have been selected
+                        frame.addGuiListener(new PackPrefetchListener(pico.getComponent(IzPanels.class),
+                                                                      installData,
+                                                                      pico.getComponent(GUIPackResources.class)));
+                    }
                 }
             });
         }
@@ -30,6 +30,7 @@ import com.izforge.izpack.api.data.GUIPrefs;
 import com.izforge.izpack.api.data.Variables;
 import com.izforge.izpack.api.resource.Messages;
 import com.izforge.izpack.installer.gui.IzPanel;
+import com.izforge.izpack.installer.gui.IzPanels;
 import com.izforge.izpack.util.Platform;
 
 /**
@@ -86,4 +87,31 @@ public class GUIInstallData extends InstallData implements Serializable
     {
         return panels;
     }
+
+    /**
+     * Returns the panels that have been constructed, without constructing any others.
+     * <p/>
+     * Panels are constructed on demand by {@link #getPanels()}. As they are Swing components, callers not on the
+     * event dispatch thread that only need visited panels should use this method instead.
+     *
+     * @return the constructed panels
+     */
+    public List<IzPanel> getConstructedPanels()
+    {
+        if (panels instanceof IzPanels.ViewList)
+        {
+            return ((IzPanels.ViewList) panels).getConstructed();
+        }
+        return panels;
+    }
+
+    /**
+     * Sets the panels.
+     *
+     * @param panels the panels
+     */
+    public void setPanels(List<IzPanel> panels)
+    {
+        this.panels = panels;
+    }
 }
@@ -6,6 +6,7 @@ import com.izforge.izpack.api.rules.RulesEngine;
 import com.izforge.izpack.data.CustomData;
 import com.izforge.izpack.api.data.ExecutableFile;
 import com.izforge.izpack.merge.resolve.PathResolver;
+import com.izforge.izpack.util.CompactInstallLog;
 import com.izforge.izpack.util.IoHelper;
 import org.apache.commons.io.IOUtils;
 
@@ -266,38 +267,25 @@ public class UninstallDataWriter
         BufferedWriter logWriter = new BufferedWriter(new OutputStreamWriter(jar));
         logWriter.write(installData.getInstallPath());
         logWriter.newLine();
-        Iterator<String> iter = files.iterator();
+        // written pre-sorted for deletion, to avoid sorting in the uninstaller
+        CompactInstallLog.write(files, logWriter);
+        logWriter.flush();
+
         if (extLogWriter != null)
         {
-            // Write intern (in uninstaller.jar) and extern log file.
+            // the external log file is for users, so is written one path per line
+            Iterator<String> iter = files.iterator();
             while (iter.hasNext())
             {
-                String txt = iter.next();
-                logWriter.write(txt);
-                extLogWriter.write(txt);
+                extLogWriter.write(iter.next());
                 if (iter.hasNext())
                 {
-                    logWriter.newLine();
                     extLogWriter.newLine();
                 }
             }
-            logWriter.flush();
             extLogWriter.flush();
             extLogWriter.close();
         }
-        else
-        {
-            while (iter.hasNext())
-            {
-                String txt = iter.next();
-                logWriter.write(txt);
-                if (iter.hasNext())
-                {
-                    logWriter.newLine();
-                }
-            }
-            logWriter.flush();
-        }
         jar.closeEntry();
     }
 
@@ -149,6 +149,11 @@ public class InstallerFrame extends JFrame implements InstallerBase, InstallerVi
      */
     private static final int MAX_INTERRUPT = 3;
 
+    /**
+     * The default no. of panels following the current panel to construct in advance.
+     */
+    private static final int DEFAULT_PRELOAD_PANELS = 1;
+
     /**
      * conditions
      */
@@ -499,6 +504,49 @@ public class InstallerFrame extends JFrame implements InstallerBase, InstallerVi
         }
     }
 
+    /**
+     * Schedules construction of the panels following the current panel, once pending events have been processed.
+     * <p/>
+     * The no. of panels is determined by the <em>preloadPanels</em> GUI preference modifier, and defaults to
+     * {@link #DEFAULT_PRELOAD_PANELS}. A value of <tt>0</tt> disables preloading.
+     */
+    private void preloadPanels()
+    {
+        int count = DEFAULT_PRELOAD_PANELS;
+        String value = installdata.guiPrefs.modifier.get("preloadPanels");
+        if (value != null)
+        {
+            try
+            {
+                count = Integer.parseInt(value.trim());
+            }
+            catch (NumberFormatException exception)
+            {
+                logger.warning("Invalid preloadPanels modifier: " + value);
+            }
+        }
+        if (count > 0)
+        {
+            final int preload = count;
+            SwingUtilities.invokeLater(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        panels.preload(preload);
+                    }
+                    catch (Exception exception)
+                    {
+                        // the panel will be constructed again when navigated to, reporting the error then
+                        logger.log(Level.FINE, "Failed to preload panels", exception);
+                    }
+                }
+            });
+        }
+    }
+
     /**
      * Switches the current panel.
      *
@@ -596,6 +644,7 @@ public class InstallerFrame extends JFrame implements InstallerBase, InstallerVi
                 }
             }
             callGUIListener(GUIListener.PANEL_SWITCHED);
+            preloadPanels();
             log.addDebugMessage("InstallerFrame.switchPanel: switched", null, Log.PANEL_TRACE, null);
         }
         catch (Exception e)
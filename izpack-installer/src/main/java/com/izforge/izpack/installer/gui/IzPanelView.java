@@ -22,6 +22,7 @@
 package com.izforge.izpack.installer.gui;
 
 import com.izforge.izpack.api.adaptator.IXMLElement;
+import com.izforge.izpack.api.container.Container;
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Panel;
 import com.izforge.izpack.api.factory.ObjectFactory;
@@ -37,6 +38,11 @@ import java.awt.*;
  */
 public class IzPanelView extends AbstractPanelView<IzPanel>
 {
+    /**
+     * The container to register the view with once it is created. May be {@code null}
+     */
+    private Container container;
+
     /**
      * Constructs a {@code IzPanelView}.
      *
@@ -49,6 +55,18 @@ public class IzPanelView extends AbstractPanelView<IzPanel>
         super(panel, IzPanel.class, factory, installData);
     }
 
+    /**
+     * Sets the container to register the view with when it is created.
+     * <p/>
+     * The view is registered using the panel identifier, or its class name if the panel has no identifier.
+     *
+     * @param container the container. May be {@code null}
+     */
+    public void setContainer(Container container)
+    {
+        this.container = container;
+    }
+
     /**
      * Determines if the panel is valid.
      *
@@ -90,8 +108,16 @@ public class IzPanelView extends AbstractPanelView<IzPanel>
     @Override
     protected void initialise(IzPanel view, Panel panel, InstallData installData)
     {
-        setVisible(true);
         view.setHelpUrl(panel.getHelpUrl(installData.getLocaleISO3()));
+        if (container != null)
+        {
+            String panelId = getPanelId();
+            if (panelId == null)
+            {
+                panelId = view.getClass().getName();
+            }
+            container.addComponent(panelId, view);
+        }
     }
 
     /**
@@ -25,6 +25,8 @@ import com.izforge.izpack.api.container.Container;
 import com.izforge.izpack.installer.data.GUIInstallData;
 import com.izforge.izpack.installer.panel.AbstractPanels;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -71,20 +73,41 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
 
     /**
      * Initialises the {@link IzPanel} instances.
+     * <p/>
+     * The {@link IzPanel}s are not constructed here. Each is constructed and registered with the container the first
+     * time it is required, typically when it is first navigated to. The {@link GUIInstallData#getPanels() panels}
+     * list of the installation data reflects all panels, constructing them on access.
      */
     public void initialise()
     {
+        // need to defer creation of the IzPanel until after the InstallerFrame is constructed
         for (IzPanelView panel : getPanelViews())
         {
-            // need to defer creation of the IzPanel until after the InstallerFrame is constructed
-            IzPanel view = panel.getView();
-            installData.getPanels().add(view);
-            String panelId = panel.getPanelId();
-            if (panelId == null)
+            panel.setContainer(container);
+        }
+        installData.setPanels(new ViewList(getPanelViews()));
+    }
+
+    /**
+     * Constructs the {@link IzPanel}s following the current panel, if they haven't already been constructed.
+     * <p/>
+     * This can be used to prepare panels while the user is interacting with the current one, so that navigating to
+     * them doesn't incur their construction. As the panels are Swing components, this must be invoked on the event
+     * dispatch thread.
+     *
+     * @param count the maximum no. of panels to construct
+     */
+    public void preload(int count)
+    {
+        List<IzPanelView> views = getPanelViews();
+        int end = Math.min(getIndex() + 1 + count, views.size());
+        for (int i = Math.max(getIndex() + 1, 0); i < end; ++i)
+        {
+            IzPanelView view = views.get(i);
+            if (!view.hasView())
             {
-                panelId = view.getClass().getName();
+                view.getView();
             }
-            container.addComponent(panelId, view);
         }
     }
 
@@ -136,4 +159,98 @@ public class IzPanels extends AbstractPanels<IzPanelView, IzPanel>
         return result;
     }
 
+    /**
+     * A list of the {@link IzPanel}s of a list of {@link IzPanelView}s, that constructs each panel on access.
+     * <p/>
+     * Searches only consider constructed panels, so that panels determining their own position don't cause others
+     * to be constructed.
+     */
+    public static class ViewList extends AbstractList<IzPanel>
+    {
+        /**
+         * The panel views.
+         */
+        private final List<IzPanelView> views;
+
+        /**
+         * Constructs a {@code ViewList}.
+         *
+         * @param views the panel views
+         */
+        public ViewList(List<IzPanelView> views)
+        {
+            this.views = views;
+        }
+
+        /**
+         * Returns the panels that have been constructed, without constructing any others.
+         *
+         * @return the constructed panels, in order
+         */
+        public List<IzPanel> getConstructed()
+        {
+            List<IzPanel> result = new ArrayList<IzPanel>();
+            for (IzPanelView view : views)
+            {
+                if (view.hasView())
+                {
+                    result.add(view.getView());
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public IzPanel get(int index)
+        {
+            return views.get(index).getView();
+        }
+
+        @Override
+        public int size()
+        {
+            return views.size();
+        }
+
+        @Override
+        public int indexOf(Object object)
+        {
+            for (int i = 0; i < views.size(); ++i)
+            {
+                IzPanelView view = views.get(i);
+                if (view.hasView() && view.getView() == object)
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object object)
+        {
+            return indexOf(object);
+        }
+
+        @Override
+        public boolean contains(Object object)
+        {
+            return indexOf(object) != -1;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder result = new StringBuilder("[");
+            for (int i = 0; i < views.size(); ++i)
+            {
+                if (i > 0)
+                {
+                    result.append(", ");
+                }
+                result.append(views.get(i).getPanel().getClassName());
+            }
+            return result.append("]").toString();
+        }
+    }
 }
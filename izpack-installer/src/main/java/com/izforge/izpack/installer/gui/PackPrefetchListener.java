@@ -0,0 +1,108 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.gui;
+
+import com.izforge.izpack.api.data.InstallData;
+import com.izforge.izpack.api.data.Panel;
+import com.izforge.izpack.installer.unpacker.AbstractPackResources;
+
+import java.util.List;
+
+
+/**
+ * A {@link GUIListener} that starts downloading the selected packs of a web installer once the user has moved past
+ * the packs panel, so that the packs download while the remaining panels are completed.
+ * <p/>
+ * If the installer has no packs panel, the selection is fixed and downloads start on the first panel switch.
+ */
+public class PackPrefetchListener implements GUIListener
+{
+    /**
+     * The panels.
+     */
+    private final IzPanels panels;
+
+    /**
+     * The installation data.
+     */
+    private final InstallData installData;
+
+    /**
+     * The pack resources.
+     */
+    private final AbstractPackResources resources;
+
+    /**
+     * The index of the last panel that selects packs, or <tt>-1</tt> if there is none.
+     */
+    private final int packsPanelIndex;
+
+
+    /**
+     * Constructs a <tt>PackPrefetchListener</tt>.
+     *
+     * @param panels      the panels
+     * @param installData the installation data
+     * @param resources   the pack resources
+     */
+    public PackPrefetchListener(IzPanels panels, InstallData installData, AbstractPackResources resources)
+    {
+        this.panels = panels;
+        this.installData = installData;
+        this.resources = resources;
+        packsPanelIndex = getPacksPanelIndex(panels.getPanels());
+    }
+
+    /**
+     * Invoked by the installer frame.
+     *
+     * @param what  identifier for the calling method
+     * @param param the navigation panel for {@link #GUI_BUILDED}, otherwise {@code null}
+     */
+    @Override
+    public void guiActionPerformed(int what, Object param)
+    {
+        if (what == PANEL_SWITCHED && panels.getIndex() > packsPanelIndex)
+        {
+            resources.prefetch(installData.getSelectedPacks());
+        }
+    }
+
+    /**
+     * Returns the index of the last panel that selects packs.
+     *
+     * @param list the panels
+     * @return the panel index, or <tt>-1</tt> if no panel selects packs
+     */
+    private static int getPacksPanelIndex(List<Panel> list)
+    {
+        int result = -1;
+        for (int i = 0; i < list.size(); ++i)
+        {
+            // matches PacksPanel, ImgPacksPanel and TreePacksPanel
+            String className = list.get(i).getClassName();
+            if (className != null && className.endsWith("PacksPanel"))
+            {
+                result = i;
+            }
+        }
+        return result;
+    }
+}
@@ -21,13 +21,17 @@
 
 package com.izforge.izpack.installer.multiunpacker;
 
+import com.izforge.izpack.api.data.PackCompression;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.XPackFile;
 import com.izforge.izpack.api.exception.InstallerException;
 import com.izforge.izpack.core.io.FileSpanningInputStream;
 import com.izforge.izpack.installer.unpacker.Cancellable;
+import com.izforge.izpack.installer.unpacker.CompressedFileUnpacker;
 import com.izforge.izpack.installer.unpacker.FileUnpacker;
 import com.izforge.izpack.util.os.FileQueue;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 
 import java.io.File;
 import java.io.IOException;
@@ -48,6 +52,12 @@ public class MultiVolumeFileUnpacker extends FileUnpacker
      */
     private final FileSpanningInputStream volumes;
 
+    /**
+     * The format that files are compressed with. If {@link PackCompression#DEFAULT}, each file is stored as a gzip
+     * entry, otherwise each file is compressed with this format and stored as is.
+     */
+    private final PackCompression compressionFormat;
+
     /**
      * The logger.
      */
@@ -61,9 +71,24 @@ public class MultiVolumeFileUnpacker extends FileUnpacker
      * @param queue       the file queue. May be {@code null}
      */
     public MultiVolumeFileUnpacker(FileSpanningInputStream volumes, Cancellable cancellable, FileQueue queue)
+    {
+        this(volumes, PackCompression.DEFAULT, cancellable, queue);
+    }
+
+    /**
+     * Constructs a <tt>MultiVolumeFileUnpacker</tt>.
+     *
+     * @param volumes           the input stream
+     * @param compressionFormat the format that files are compressed with
+     * @param cancellable       determines if unpacking should be cancelled
+     * @param queue             the file queue. May be {@code null}
+     */
+    public MultiVolumeFileUnpacker(FileSpanningInputStream volumes, PackCompression compressionFormat,
+                                   Cancellable cancellable, FileQueue queue)
     {
         super(cancellable, queue);
         this.volumes = volumes;
+        this.compressionFormat = compressionFormat;
     }
 
     /**
@@ -81,10 +106,19 @@ public class MultiVolumeFileUnpacker extends FileUnpacker
             throws IOException, InstallerException
     {
         // read in the position of this file
-        long position = ((XPackFile) packFile).getArchiveFilePosition();
+        XPackFile file = (XPackFile) packFile;
+        long position = file.getArchiveFilePosition();
 
         long filePointer = volumes.getFilePointer();
-        if (filePointer < position)
+        if (file.isSeekable())
+        {
+            // each file starts a new compressed entry, so jump straight to it without reading the intervening data
+            logger.fine("Seeking to file " + target.getName() + " (volume: " + file.getVolume() + ", offset: "
+                                + file.getVolumeOffset() + ")");
+            volumes.seek(file.getVolume(), file.getVolumeOffset(), position,
+                         compressionFormat == PackCompression.DEFAULT);
+        }
+        else if (filePointer < position)
         {
             // need to skip to the correct position
             logger.fine("Skipping bytes to get to file " + target.getName()
@@ -93,12 +127,30 @@ public class MultiVolumeFileUnpacker extends FileUnpacker
             skip(position - filePointer);
         }
 
-        if (volumes.getFilePointer() > position)
+        if (volumes.getFilePointer() != position)
         {
             throw new IOException("Error, can't access file in pack.");
         }
 
-        copy(packFile, volumes, target);
+        if (compressionFormat == PackCompression.DEFAULT)
+        {
+            copy(packFile, volumes, target);
+        }
+        else
+        {
+            // limit the decompressor to the stored entry, and leave the volumes open for the next file
+            BoundedInputStream entry = new BoundedInputStream(volumes, packFile.size());
+            entry.setPropagateClose(false);
+            InputStream in = CompressedFileUnpacker.createInputStream(compressionFormat, IOUtils.buffer(entry));
+            try
+            {
+                copy(packFile, in, target);
+            }
+            finally
+            {
+                IOUtils.closeQuietly(in);
+            }
+        }
     }
 
     /**
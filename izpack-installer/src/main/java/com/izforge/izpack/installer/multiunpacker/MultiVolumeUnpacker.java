@@ -24,6 +24,7 @@ package com.izforge.izpack.installer.multiunpacker;
 
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackCompression;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.event.InstallerListener;
 import com.izforge.izpack.api.event.ProgressListener;
@@ -177,7 +178,8 @@ public class MultiVolumeUnpacker extends UnpackerBase
         }
         else
         {
-            unpacker = new MultiVolumeFileUnpacker(volumes, cancellable, queue);
+            PackCompression compressionFormat = getInstallData().getInfo().getCompressionFormat();
+            unpacker = new MultiVolumeFileUnpacker(volumes, compressionFormat, cancellable, queue);
         }
         return unpacker;
     }
@@ -201,6 +201,17 @@ public abstract class AbstractPanelView<T> implements PanelView<T>
         return view;
     }
 
+    /**
+     * Determines if the view has been created.
+     *
+     * @return {@code true} if the view has been created, {@code false} if it will be created by the next call to
+     *         {@link #getView()}
+     */
+    public boolean hasView()
+    {
+        return view != null;
+    }
+
     /**
      * Sets the visibility of the panel.
      *
@@ -22,12 +22,20 @@
 package com.izforge.izpack.installer.unpacker;
 
 import com.izforge.izpack.api.data.InstallData;
+import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.exception.ResourceException;
 import com.izforge.izpack.api.exception.ResourceInterruptedException;
 import com.izforge.izpack.api.exception.ResourceNotFoundException;
 import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.installer.web.WebPackDownloader;
+import com.izforge.izpack.util.IoHelper;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.logging.Logger;
 
 
 /**
@@ -52,6 +60,16 @@ public abstract class AbstractPackResources implements PackResources
      */
     private final InstallData installData;
 
+    /**
+     * The web pack downloader. Created on first use.
+     */
+    private WebPackDownloader downloader;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(AbstractPackResources.class.getName());
+
     /**
      * Constructs an {@code AbstractPackResources}.
      *
@@ -128,6 +146,89 @@ public abstract class AbstractPackResources implements PackResources
      */
     protected abstract InputStream getWebPackStream(String name, String webDirURL);
 
+    /**
+     * Starts downloading the specified packs in the background, for web installers.
+     * <p/>
+     * Packs that are available locally are skipped. This is a no-op if the installer is not a web installer.
+     *
+     * @param packs the packs to download
+     */
+    public void prefetch(List<Pack> packs)
+    {
+        String webDirURL = installData.getInfo().getWebDirURL();
+        if (webDirURL != null)
+        {
+            for (Pack pack : packs)
+            {
+                String name = pack.getName();
+                if (getLocalPackJar(name) == null)
+                {
+                    getDownloader().prefetch(getWebPackURL(name, webDirURL), getWebPackTarget(name),
+                                             pack.getJarDigest());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the jar containing a web-based pack, downloading it if it isn't available locally.
+     * <p/>
+     * The installer directory is searched first. If the pack isn't present, it is downloaded from the web
+     * directory, or taken from a prior {@link #prefetch}.
+     *
+     * @param name      the pack name
+     * @param webDirURL the web URL to load the pack from
+     * @return the pack jar
+     * @throws IOException if the pack cannot be downloaded
+     */
+    protected File getWebPackJar(String name, String webDirURL) throws IOException
+    {
+        File result = getLocalPackJar(name);
+        if (result != null)
+        {
+            logger.info("Found local pack " + result.getAbsolutePath());
+        }
+        else
+        {
+            String packURL = getWebPackURL(name, webDirURL);
+            logger.info("Downloading remote pack " + packURL);
+            result = getDownloader().download(packURL, getWebPackTarget(name), getJarDigest(name));
+        }
+        return result;
+    }
+
+    /**
+     * Opens a pack stream from a pack jar.
+     *
+     * @param name the pack name
+     * @param jar  the pack jar
+     * @return the pack stream
+     * @throws ResourceException if the pack cannot be read
+     */
+    protected InputStream getPackStream(String name, File jar)
+    {
+        try
+        {
+            URL url = new URL("jar:" + jar.toURI().toURL() + "!/packs/pack-" + name);
+            return url.openStream();
+        }
+        catch (IOException exception)
+        {
+            throw new ResourceException("Failed to read pack", exception);
+        }
+    }
+
+    /**
+     * Returns the directory that web packs are downloaded to.
+     *
+     * @return the download directory
+     */
+    protected String getWebTempFolder()
+    {
+        return IoHelper.translatePath(installData.getInfo().getUninstallerPath() + WEB_TEMP_SUB_PATH,
+                                      installData.getVariables());
+    }
+
     /**
      * Returns the installation data.
      *
@@ -138,4 +239,93 @@ public abstract class AbstractPackResources implements PackResources
         return installData;
     }
 
+    /**
+     * Returns the pack jar from the installer directory.
+     *
+     * @param name the pack name
+     * @return the pack jar, or {@code null} if it isn't present
+     */
+    private File getLocalPackJar(String name)
+    {
+        File installerDir = new File(installData.getInfo().getInstallerBase()).getParentFile();
+        File result = new File(installerDir, getPackJarName(name));
+        return (result.exists() && result.canRead()) ? result : null;
+    }
+
+    /**
+     * Returns the URL of a pack jar.
+     *
+     * @param name      the pack name
+     * @param webDirURL the web URL to load the pack from
+     * @return the pack jar URL
+     */
+    private String getWebPackURL(String name, String webDirURL)
+    {
+        return webDirURL + "/" + getPackJarName(name).replace(" ", "%20");
+    }
+
+    /**
+     * Returns the file that a pack jar is downloaded to.
+     *
+     * @param name the pack name
+     * @return the download target
+     */
+    private File getWebPackTarget(String name)
+    {
+        return new File(getWebTempFolder(), getPackJarName(name));
+    }
+
+    /**
+     * Returns the name of a pack jar.
+     *
+     * @param name the pack name
+     * @return the pack jar name
+     */
+    private String getPackJarName(String name)
+    {
+        String baseName = installData.getInfo().getInstallerBase();
+        baseName = baseName.substring(baseName.lastIndexOf('/') + 1);
+        return baseName + ".pack-" + name + ".jar";
+    }
+
+    /**
+     * Returns the digest of a pack jar recorded when the installer was compiled.
+     *
+     * @param name the pack name
+     * @return the hex encoded digest, or {@code null} if none was recorded
+     */
+    private String getJarDigest(String name)
+    {
+        for (Pack pack : installData.getAllPacks())
+        {
+            if (pack.getName().equals(name))
+            {
+                return pack.getJarDigest();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cancels any pending background downloads and releases the download threads.
+     */
+    @Override
+    public synchronized void cleanup()
+    {
+        if (downloader != null)
+        {
+            downloader.shutdown();
+            downloader = null;
+        }
+    }
+
+    private synchronized WebPackDownloader getDownloader()
+    {
+        if (downloader == null)
+        {
+            downloader = new WebPackDownloader(WebPackDownloader.DEFAULT_CONNECTIONS);
+        }
+        return downloader;
+    }
+
 }
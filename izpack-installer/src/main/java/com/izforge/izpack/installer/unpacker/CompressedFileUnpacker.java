@@ -83,24 +83,10 @@ public class CompressedFileUnpacker extends FileUnpacker
             fo.close();
 
             InputStream in = IOUtils.buffer(FileUtils.openInputStream(tmpfile));
-
-            if (compressionFormat == PackCompression.DEFLATE)
-            {
-                DeflateParameters deflateParameters = new DeflateParameters();
-                deflateParameters.setCompressionLevel(Deflater.BEST_COMPRESSION);
-                finalStream = new DeflateCompressorInputStream(in, deflateParameters);
-            }
-            else
-            {
-                finalStream = new CompressorStreamFactory().createCompressorInputStream(compressionFormat.toName(), in);
-            }
+            finalStream = createInputStream(compressionFormat, in);
 
             copy(file, finalStream, target);
         }
-        catch (CompressorException e)
-        {
-            throw new IOException(e);
-        }
         finally
         {
             IOUtils.closeQuietly(fo);
@@ -108,4 +94,30 @@ public class CompressedFileUnpacker extends FileUnpacker
             FileUtils.deleteQuietly(tmpfile);
         }
     }
+
+    /**
+     * Creates a stream to decompress pack file data.
+     *
+     * @param format the compression format. Must not be {@link PackCompression#DEFAULT}
+     * @param in     the stream to read compressed data from
+     * @return a new decompressor stream
+     * @throws IOException if the decompressor cannot be created
+     */
+    public static InputStream createInputStream(PackCompression format, InputStream in) throws IOException
+    {
+        if (format == PackCompression.DEFLATE)
+        {
+            DeflateParameters deflateParameters = new DeflateParameters();
+            deflateParameters.setCompressionLevel(Deflater.BEST_COMPRESSION);
+            return new DeflateCompressorInputStream(in, deflateParameters);
+        }
+        try
+        {
+            return new CompressorStreamFactory().createCompressorInputStream(format.toName(), in);
+        }
+        catch (CompressorException e)
+        {
+            throw new IOException(e);
+        }
+    }
 }
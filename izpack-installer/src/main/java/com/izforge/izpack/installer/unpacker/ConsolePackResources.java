@@ -23,12 +23,13 @@ package com.izforge.izpack.installer.unpacker;
 
 import com.izforge.izpack.api.data.InstallData;
 import com.izforge.izpack.api.exception.ResourceException;
+import com.izforge.izpack.api.exception.ResourceInterruptedException;
 import com.izforge.izpack.api.resource.Resources;
-import com.izforge.izpack.util.IoHelper;
 
-import java.io.*;
-import java.net.URL;
-import java.util.logging.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 
 /**
  * Console-based implementation of the {@link PackResources} interface.
@@ -37,11 +38,6 @@ import java.util.logging.Logger;
  */
 public class ConsolePackResources extends AbstractPackResources
 {
-    /**
-     * The logger.
-     */
-    private static final Logger logger = Logger.getLogger(ConsolePackResources.class.getName());
-
     /**
      * Constructs a {@code DefaultPackResources}.
      *
@@ -55,66 +51,19 @@ public class ConsolePackResources extends AbstractPackResources
     @Override
     protected InputStream getWebPackStream(String name, String webDirURL)
     {
-        InputStream result;
-
-        InstallData installData = getInstallData();
-        String baseName = installData.getInfo().getInstallerBase();
-        File installerDir = new File(baseName).getParentFile();
-
-        if (baseName.contains("/"))
-            baseName = baseName.substring(baseName.lastIndexOf('/'));
-
-        String packFileName = baseName + ".pack-" + name + ".jar";
-
-        // Look first in same directory as primary jar, then download it if not found
-        File packLocalFile = new File(installerDir, packFileName);
-        if (packLocalFile.exists() && packLocalFile.canRead())
-        {
-            logger.info("Found local pack " + packLocalFile.getAbsolutePath());
-        }
-        else
+        File packLocalFile;
+        try
         {
-            String packURL = webDirURL + "/" + packFileName.replace(" ", "%20");
-            String tempFolder = IoHelper.translatePath(installData.getInfo().getUninstallerPath()
-                    + WEB_TEMP_SUB_PATH, installData.getVariables());
-            File tempDir = new File(tempFolder);
-            tempDir.mkdirs();
-
-            try
-            {
-                logger.info("Downloading remote pack " + packURL);
-                packLocalFile = File.createTempFile("izpacktempfile", "jar", new File(tempFolder));
-                InputStream webStream = new URL(packURL).openStream();
-                write(webStream, packLocalFile);
-            }
-            catch (IOException exception)
-            {
-                throw new ResourceException("Failed to read pack", exception);
-            }
+            packLocalFile = getWebPackJar(name, webDirURL);
         }
-
-        try
+        catch (InterruptedIOException exception)
         {
-            URL url = new URL("jar:" + packLocalFile.toURI().toURL() + "!/packs/pack-" + name);
-            result = url.openStream();
+            throw new ResourceInterruptedException("Retrieval of " + webDirURL + " interrupted", exception);
         }
         catch (IOException exception)
         {
             throw new ResourceException("Failed to read pack", exception);
         }
-        return result;
-    }
-
-    private static void write(InputStream input, File file) throws IOException
-    {
-        OutputStream output = new FileOutputStream(file);
-        int letter = 0;
-        byte[] buffer = new byte[1024];
-        while ((letter = input.read(buffer)) != -1)
-        {
-            output.write(buffer, 0, letter);
-        }
-        output.flush();
-        output.close();
+        return getPackStream(name, packLocalFile);
     }
 }
@@ -24,12 +24,17 @@ package com.izforge.izpack.installer.unpacker;
 import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.exception.InstallerException;
+import com.izforge.izpack.util.Instrumentation;
+import com.izforge.izpack.util.Instrumentation.Phase;
+import com.izforge.izpack.util.OsVersion;
+import com.izforge.izpack.util.file.FilePermissions;
 import com.izforge.izpack.util.os.FileQueue;
 import com.izforge.izpack.util.os.FileQueueMove;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
@@ -68,6 +73,11 @@ public abstract class FileUnpacker
      */
     private boolean queued;
 
+    /**
+     * The instrumentation.
+     */
+    private static final Instrumentation instrumentation = Instrumentation.getInstance();
+
     /**
      * The logger.
      */
@@ -126,7 +136,10 @@ public abstract class FileUnpacker
         byte[] buffer = new byte[5120];
         long bytesCopied = 0;
         long bytesToCopy = (file.isBackReference() ? file.getLinkedPackFile().length() : file.length());
-        logger.fine("|- Copying to file system (size: " + bytesToCopy + " bytes)");
+        if (logger.isLoggable(Level.FINE))
+        {
+            logger.fine("|- Copying to file system (size: " + bytesToCopy + " bytes)");
+        }
         try
         {
             while (bytesCopied < bytesToCopy)
@@ -150,13 +163,16 @@ public abstract class FileUnpacker
     }
 
     /**
-     * Invoked after copying is complete to set the last modified timestamp, and queue blockable files.
+     * Invoked after copying is complete to set the last modified timestamp and Unix mode, and queue blockable files.
      *
      * @param file the pack file meta-data
      */
     protected void postCopy(PackFile file)
     {
+        long start = instrumentation.start();
         setLastModified(file);
+        setUnixMode(file);
+        instrumentation.stop(Phase.IO, start);
 
         if (isBlockable(file))
         {
@@ -179,17 +195,31 @@ public abstract class FileUnpacker
             throws IOException
     {
         int maxBytes = (int) Math.min(file.length() - bytesCopied, buffer.length);
+        long start = instrumentation.start();
         int read = read(buffer, in, maxBytes);
+        instrumentation.stop(Phase.DECOMPRESSION, start);
         if (read == -1)
         {
             throw new IOException("Unexpected end of stream (installer corrupted?)");
         }
+        start = instrumentation.start();
         out.write(buffer, 0, read);
+        instrumentation.stop(Phase.IO, start);
         bytesCopied += read;
 
         return bytesCopied;
     }
 
+    /**
+     * Returns the instrumentation.
+     *
+     * @return the instrumentation
+     */
+    protected Instrumentation getInstrumentation()
+    {
+        return instrumentation;
+    }
+
     /**
      * Reads up to <tt>maxBytes</tt> bytes to the specified buffer.
      *
@@ -250,6 +280,23 @@ public abstract class FileUnpacker
         }
     }
 
+    /**
+     * Sets the Unix mode of a file from the pack-file meta-data, if one was specified at compile time.
+     *
+     * @param file the pack file meta-data
+     */
+    protected void setUnixMode(PackFile file)
+    {
+        if (file.hasUnixMode() && !OsVersion.IS_WINDOWS)
+        {
+            File f = (tmpTarget != null) ? tmpTarget : target;
+            if (!FilePermissions.setMode(f, file.getUnixMode()))
+            {
+                logger.warning("Failed to set mode " + Integer.toOctalString(file.getUnixMode()) + " for: " + target);
+            }
+        }
+    }
+
     /**
      * Determines if a pack file is blockable.
      * <p/>
@@ -272,8 +319,11 @@ public abstract class FileUnpacker
         move.setForceInUse(true);
         move.setOverwrite(true);
         queue.add(move);
-        logger.fine(tmpTarget.getAbsolutePath() + " -> " + target.getAbsolutePath()
-                            + " added to file queue for being copied after reboot");
+        if (logger.isLoggable(Level.FINE))
+        {
+            logger.fine(tmpTarget.getAbsolutePath() + " -> " + target.getAbsolutePath()
+                                + " added to file queue for being copied after reboot");
+        }
         // The temporary file must not be deleted until the file queue will be committed
         tmpTarget.deleteOnExit();
         queued = true;
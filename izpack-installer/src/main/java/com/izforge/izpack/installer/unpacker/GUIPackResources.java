@@ -5,13 +5,12 @@ import com.izforge.izpack.api.exception.ResourceException;
 import com.izforge.izpack.api.exception.ResourceInterruptedException;
 import com.izforge.izpack.api.resource.Resources;
 import com.izforge.izpack.installer.web.WebRepositoryAccessor;
-import com.izforge.izpack.util.IoHelper;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
-import java.net.URL;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -40,55 +39,37 @@ public class GUIPackResources extends AbstractPackResources
     @Override
     protected InputStream getWebPackStream(String name, String webDirURL)
     {
-        InputStream result;
-
-        InstallData installData = getInstallData();
-        String baseName = installData.getInfo().getInstallerBase();
-        File installerDir = new File(baseName).getParentFile();
-
-        if (baseName.contains("/"))
-            baseName = baseName.substring(baseName.lastIndexOf('/'));
-
-        String packFileName = baseName + ".pack-" + name + ".jar";
-
-        // Look first in same directory as primary jar, then download it if not found
-        File packLocalFile = new File(installerDir, packFileName);
-        if (packLocalFile.exists() && packLocalFile.canRead())
+        File packLocalFile;
+        try
+        {
+            packLocalFile = getWebPackJar(name, webDirURL);
+        }
+        catch (InterruptedIOException exception)
         {
-            logger.info("Found local pack " + packLocalFile.getAbsolutePath());
+            throw new ResourceInterruptedException("Retrieval of " + webDirURL + " interrupted", exception);
         }
-        else
+        catch (IOException exception)
         {
-            String packURL = webDirURL + "/" + baseName + ".pack-" + name.replace(" ", "%20") + ".jar";
-            logger.info("Downloading remote pack " + packURL);
-            String tempFolder = IoHelper.translatePath(installData.getInfo().getUninstallerPath()
-                    + WEB_TEMP_SUB_PATH, installData.getVariables());
-            String tempFile;
+            // fall back to the interactive accessor, which can prompt for proxy and authentication details
+            logger.log(Level.WARNING, "Failed to download pack " + name + ", retrying", exception);
+            String packURL = webDirURL + "/" + new File(getInstallData().getInfo().getInstallerBase()).getName()
+                    + ".pack-" + name.replace(" ", "%20") + ".jar";
             try
             {
-                tempFile = WebRepositoryAccessor.getCachedUrl(packURL, tempFolder);
-                packLocalFile = new File(tempFile);
+                // the accessor returns the absolute path of the downloaded file, prefixed with file:///
+                String path = WebRepositoryAccessor.getCachedUrl(packURL, getWebTempFolder());
+                packLocalFile = new File(path.substring("file:///".length()));
             }
-            catch (InterruptedIOException exception)
+            catch (InterruptedIOException nested)
             {
-                throw new ResourceInterruptedException("Retrieval of " + webDirURL + " interrupted", exception);
+                throw new ResourceInterruptedException("Retrieval of " + webDirURL + " interrupted", nested);
             }
-            catch (IOException exception)
+            catch (IOException nested)
             {
-                throw new ResourceException("Failed to read " + webDirURL, exception);
+                throw new ResourceException("Failed to read " + webDirURL, nested);
             }
         }
-
-        try
-        {
-            URL url = new URL("jar:" + packLocalFile.toURI().toURL() + "!/packs/pack-" + name);
-            result = url.openStream();
-        }
-        catch (IOException exception)
-        {
-            throw new ResourceException("Failed to read pack", exception);
-        }
-        return result;
+        return getPackStream(name, packLocalFile);
     }
 
 }
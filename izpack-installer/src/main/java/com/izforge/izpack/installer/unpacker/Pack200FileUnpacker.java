@@ -23,6 +23,7 @@ package com.izforge.izpack.installer.unpacker;
 
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.exception.InstallerException;
+import com.izforge.izpack.util.Instrumentation;
 import com.izforge.izpack.util.os.FileQueue;
 import org.apache.commons.io.IOUtils;
 
@@ -74,7 +75,9 @@ class Pack200FileUnpacker extends FileUnpacker
         {
             jarOut = new JarOutputStream(getTarget(packFile, target));
             Pack200.Unpacker unpacker = createPack200Unpacker(packFile);
+            long start = getInstrumentation().start();
             unpacker.unpack(in, jarOut);
+            getInstrumentation().stop(Instrumentation.Phase.DECOMPRESSION, start);
         }
         finally
         {
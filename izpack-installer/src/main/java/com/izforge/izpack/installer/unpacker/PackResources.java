@@ -57,4 +57,11 @@ public interface PackResources
      * @throws ResourceException            for any other resource error
      */
     InputStream getInputStream(String name);
-}
\ No newline at end of file
+
+    /**
+     * Releases any resources acquired to retrieve packs, such as background downloads.
+     * <p/>
+     * This is invoked once unpacking completes.
+     */
+    void cleanup();
+}
@@ -43,9 +43,12 @@ import com.izforge.izpack.installer.data.UninstallData;
 import com.izforge.izpack.installer.event.InstallerListeners;
 import com.izforge.izpack.installer.util.PackHelper;
 import com.izforge.izpack.util.*;
-import com.izforge.izpack.util.file.DirectoryScanner;
+import com.izforge.izpack.util.Instrumentation.Counter;
+import com.izforge.izpack.util.Instrumentation.Phase;
+import com.izforge.izpack.util.file.FileDigest;
+import com.izforge.izpack.util.file.FileLinks;
+import com.izforge.izpack.util.file.FilePermissions;
 import com.izforge.izpack.util.file.GlobPatternMapper;
-import com.izforge.izpack.util.file.types.FileSet;
 import com.izforge.izpack.util.os.FileQueue;
 import org.apache.commons.io.IOUtils;
 
@@ -75,6 +78,22 @@ public abstract class UnpackerBase implements IUnpacker
      */
     private static Logger logger = Logger.getLogger(UnpackerBase.class.getName());
 
+    /**
+     * Installer variable that, if <tt>true</tt>, skips writing files that are identical to the existing target.
+     * <p/>
+     * Files are identical if they have the same size and the same digest as recorded at compile time.
+     */
+    public static final String SKIP_IDENTICAL = "Unpacker.skipIdentical";
+
+    /**
+     * Installer variable that, if <tt>true</tt>, materializes back-referenced duplicate files from the first
+     * installed copy, as hard links where safe, otherwise as copies, rather than extracting them again.
+     * <p/>
+     * Parsable and executable files are never hard linked. Installers whose listeners or actions modify other
+     * duplicated files in place shouldn't enable this.
+     */
+    public static final String LINK_DUPLICATES = "Unpacker.linkDuplicates";
+
     /**
      * Path to resources in jar
      */
@@ -133,9 +152,9 @@ public abstract class UnpackerBase implements IUnpacker
     private final InstallerListeners listeners;
 
     /**
-     * The installer listener.
+     * The progress listener, wrapped to coalesce per-file progress.
      */
-    private ProgressListener listener;
+    private ProgressAggregator listener;
 
     /**
      * The prompt.
@@ -180,6 +199,37 @@ public abstract class UnpackerBase implements IUnpacker
      */
     private Messages packMessages;
 
+    /**
+     * The instrumentation.
+     */
+    private final Instrumentation instrumentation = Instrumentation.getInstance();
+
+    /**
+     * The update checker, created on first use.
+     */
+    private UpdateChecker updateChecker;
+
+    /**
+     * Determines if files identical to the existing target are skipped.
+     */
+    private boolean skipIdentical;
+
+    /**
+     * The installed copies of pack files, keyed on pack file identifier, or {@code null} if duplicates are always
+     * extracted.
+     */
+    private Map<Integer, InstalledFile> installed;
+
+    /**
+     * The paths of files that may be modified after they are unpacked, and therefore must not be hard linked.
+     */
+    private final Set<String> modifiedPaths = new HashSet<String>();
+
+    /**
+     * The files that share content through a hard link.
+     */
+    private final Set<File> linkedFiles = new HashSet<File>();
+
     /**
      * Constructs an <tt>UnpackerBase</tt>.
      *
@@ -229,7 +279,7 @@ public abstract class UnpackerBase implements IUnpacker
     @Override
     public void setProgressListener(ProgressListener listener)
     {
-        this.listener = listener;
+        this.listener = new ProgressAggregator(listener);
     }
 
     /**
@@ -277,12 +327,42 @@ public abstract class UnpackerBase implements IUnpacker
         logger.info(messages.get("installer.finished"));
     }
 
+    /**
+     * Logs the timing report, and writes the event trace, if instrumentation is enabled.
+     */
+    private void logInstrumentation()
+    {
+        if (instrumentation.isEnabled())
+        {
+            logger.info(instrumentation.getReport());
+            String path = System.getProperty(Instrumentation.TRACE);
+            if (path != null && instrumentation.isTracing())
+            {
+                OutputStream out = null;
+                try
+                {
+                    out = new BufferedOutputStream(new FileOutputStream(path));
+                    instrumentation.writeTrace(out);
+                }
+                catch (IOException exception)
+                {
+                    logger.log(Level.WARNING, "Failed to write instrumentation trace to " + path, exception);
+                }
+                finally
+                {
+                    IOUtils.closeQuietly(out);
+                }
+            }
+        }
+    }
+
     /**
      * Unpacks the installation files.
      */
     public void unpack()
     {
         logIntro();
+        instrumentation.reset();
 
         state = State.UNPACKING;
         ObjectInputStream objIn = null;
@@ -296,6 +376,8 @@ public abstract class UnpackerBase implements IUnpacker
             objIn.close();
 
             selectedPacks = installData.getSelectedPacks();
+            skipIdentical = variables.getBoolean(SKIP_IDENTICAL, false);
+            installed = variables.getBoolean(LINK_DUPLICATES, false) ? new HashMap<Integer, InstalledFile>() : null;
 
             preUnpack(selectedPacks);
             unpack(packsInfo, queue);
@@ -355,6 +437,7 @@ public abstract class UnpackerBase implements IUnpacker
         finally
         {
             cleanup();
+            logInstrumentation();
             logEpilog();
             IOUtils.closeQuietly(objIn);
         }
@@ -448,7 +531,15 @@ public abstract class UnpackerBase implements IUnpacker
     {
         logger.fine("Unpacker starting");
         listener.startAction("Unpacking", packs.size());
+        long totalBytes = 0;
+        for (Pack pack : packs)
+        {
+            totalBytes += pack.getFileSize();
+        }
+        listener.setTotalBytes(totalBytes);
+        long start = instrumentation.start();
         listeners.beforePacks(packs, listener);
+        instrumentation.stop(Phase.LISTENERS, start);
     }
 
     /**
@@ -461,6 +552,20 @@ public abstract class UnpackerBase implements IUnpacker
      */
     protected void unpack(List<PackInfo> packs, FileQueue queue) throws InstallerException
     {
+        if (installed != null)
+        {
+            for (PackInfo packInfo : packs)
+            {
+                for (ParsableFile parsable : packInfo.getParsables())
+                {
+                    modifiedPaths.add(IoHelper.translatePath(parsable.getPath(), variables));
+                }
+                for (ExecutableFile executable : packInfo.getExecutables())
+                {
+                    modifiedPaths.add(IoHelper.translatePath(executable.path, variables));
+                }
+            }
+        }
         int count = packs.size();
         for (int i = 0; i < count; i++)
         {
@@ -473,23 +578,33 @@ public abstract class UnpackerBase implements IUnpacker
                 List<ExecutableFile> executables = new ArrayList<ExecutableFile>();
                 List<UpdateCheck> updateChecks = new ArrayList<UpdateCheck>();
 
+                long start = instrumentation.start();
                 listeners.beforePack(pack, i);
+                instrumentation.stop(Phase.LISTENERS, start);
                 unpack(packInfo, i, queue, parsables, executables, updateChecks);
                 checkInterrupt();
 
                 logger.fine("Found " + parsables.size() + " parsable files");
+                start = instrumentation.start();
                 parseFiles(parsables);
+                instrumentation.stop(Phase.SUBSTITUTION, start);
                 checkInterrupt();
 
                 logger.fine("Found " + executables.size() + " executable files");
+                start = instrumentation.start();
                 executeFiles(executables);
+                instrumentation.stop(Phase.EXECUTION, start);
                 checkInterrupt();
 
                 // update checks should be done _after_ uninstaller was put, so we don't delete it. TODO
+                start = instrumentation.start();
                 performUpdateChecks(updateChecks);
+                instrumentation.stop(Phase.CLEANUP, start);
                 checkInterrupt();
 
+                start = instrumentation.start();
                 listeners.afterPack(pack);
+                instrumentation.stop(Phase.LISTENERS, start);
             }
         }
     }
@@ -522,9 +637,15 @@ public abstract class UnpackerBase implements IUnpacker
             {
                 PackFile packFile = packFiles[i];
                 final boolean isDirectory = packFile.isDirectory();
-                logger.fine("Unpacking " + (isDirectory?"directory":"file") + " " + packFile.getTargetPath()
-                        + " (backreference: " + packFile.isBackReference() + ")");
-                if (shouldUnpack(packFile))
+                if (logger.isLoggable(Level.FINE))
+                {
+                    logger.fine("Unpacking " + (isDirectory ? "directory" : "file") + " " + packFile.getTargetPath()
+                                        + " (backreference: " + packFile.isBackReference() + ")");
+                }
+                long start = instrumentation.start();
+                boolean unpack = shouldUnpack(packFile);
+                instrumentation.stop(Phase.CONDITIONS, start);
+                if (unpack)
                 {
                     // unpack the file
                     unpack(packFile, in, i + 1, pack, queue);
@@ -535,7 +656,9 @@ public abstract class UnpackerBase implements IUnpacker
                         // condition is not fulfilled, so skip it in main stream
                         skip(packFile, pack, in);
                     }
+                    instrumentation.increment(Counter.SKIPPED);
                 }
+                listener.addBytes(packFile.length());
             }
             readParsableFiles(packInfo, parsables);
             readExecutableFiles(packInfo, executables);
@@ -592,7 +715,9 @@ public abstract class UnpackerBase implements IUnpacker
         String targetPath = packFile.getTargetPath();
 
         // translate & build the path
+        long start = instrumentation.start();
         String path = IoHelper.translatePath(targetPath, variables);
+        instrumentation.stop(Phase.SUBSTITUTION, start);
         File target = new File(path);
         File dir = target;
         if (!packFile.isDirectory())
@@ -607,10 +732,13 @@ public abstract class UnpackerBase implements IUnpacker
 
         if (packFile.isDirectory())
         {
+            instrumentation.increment(Counter.DIRECTORIES);
             return;
         }
 
+        start = instrumentation.start();
         listeners.beforeFile(target, packFile, pack);
+        instrumentation.stop(Phase.LISTENERS, start);
 
         listener.progress(fileNo, path);
 
@@ -620,9 +748,25 @@ public abstract class UnpackerBase implements IUnpacker
             if (!packFile.isBackReference() && !pack.isLoose() && !packFile.isPack200Jar())
             {
                 long size = packFile.size();
-                logger.fine("|- No overwrite - skipping pack stream by " + size + " bytes");
+                if (logger.isLoggable(Level.FINE))
+                {
+                    logger.fine("|- No overwrite - skipping pack stream by " + size + " bytes");
+                }
                 skip(packInputStream, size);
             }
+            instrumentation.increment(Counter.SKIPPED);
+        } else if (skipIdentical && isIdentical(packFile, target))
+        {
+            if (!packFile.isBackReference() && !pack.isLoose() && !packFile.isPack200Jar())
+            {
+                skip(packInputStream, packFile.size());
+            }
+            updateAttributes(packFile, target);
+            instrumentation.increment(Counter.SKIPPED);
+
+            start = instrumentation.start();
+            listeners.afterFile(target, packFile, pack);
+            instrumentation.stop(Phase.LISTENERS, start);
         } else
         {
             handleOverrideRename(packFile, target);
@@ -630,6 +774,62 @@ public abstract class UnpackerBase implements IUnpacker
         }
     }
 
+    /**
+     * Determines if an existing file is identical to a pack file.
+     *
+     * @param packFile the pack file
+     * @param target   the existing file
+     * @return {@code true} if the file has the same size and digest as the pack file
+     */
+    protected boolean isIdentical(PackFile packFile, File target)
+    {
+        boolean result = false;
+        if (packFile.getDigest() != null && target.isFile() && target.length() == packFile.length())
+        {
+            long start = instrumentation.start();
+            try
+            {
+                result = packFile.getDigest().equals(FileDigest.getDigest(target));
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.FINE, "Failed to determine digest of " + target, exception);
+            }
+            instrumentation.stop(Phase.IO, start);
+        }
+        if (result && logger.isLoggable(Level.FINE))
+        {
+            logger.fine("|- Identical to existing file - skipping");
+        }
+        return result;
+    }
+
+    /**
+     * Updates the last modified timestamp and Unix mode of an existing file that wasn't rewritten, so that it matches
+     * the pack file.
+     *
+     * @param packFile the pack file
+     * @param target   the existing file
+     */
+    private void updateAttributes(PackFile packFile, File target)
+    {
+        if (packFile.lastModified() >= 0 && target.lastModified() != packFile.lastModified())
+        {
+            if (!target.setLastModified(packFile.lastModified()))
+            {
+                logger.warning("Failed to set last modified timestamp for: " + target);
+            }
+        }
+        if (packFile.hasUnixMode() && !OsVersion.IS_WINDOWS)
+        {
+            if (!FilePermissions.setMode(target, packFile.getUnixMode()))
+            {
+                logger.warning("Failed to set mode " + Integer.toOctalString(packFile.getUnixMode()) + " for: "
+                                       + target);
+            }
+        }
+    }
+
     /**
      * Extracts a pack file.
      *
@@ -645,6 +845,20 @@ public abstract class UnpackerBase implements IUnpacker
     protected void extract(PackFile packFile, File target, InputStream packInputStream, Pack pack, FileQueue queue)
             throws IOException
     {
+        if (installed != null && packFile.isBackReference() && !pack.isLoose() && materialize(packFile, target))
+        {
+            instrumentation.increment(Counter.FILES);
+            instrumentation.add(Counter.BYTES, packFile.length());
+            checkInterrupt();
+
+            long start = instrumentation.start();
+            listeners.afterFile(target, packFile, pack);
+            instrumentation.stop(Phase.LISTENERS, start);
+            return;
+        }
+
+        unlink(target);
+
         InputStream packStream = null;
         try
         {
@@ -659,7 +873,10 @@ public abstract class UnpackerBase implements IUnpacker
                     // Non-Pack200 files are saved in main pack stream
                     // Offset is always 0 for Pack200 resources, because each file has its own stream resource
                     long size = linkedPackFile.getStreamOffset();
-                    logger.fine("|- Backreference to pack stream (offset: " + size + " bytes");
+                    if (logger.isLoggable(Level.FINE))
+                    {
+                        logger.fine("|- Backreference to pack stream (offset: " + size + " bytes");
+                    }
                     skip(packStream, size);
                 }
             } else if (packFile.isPack200Jar())
@@ -671,13 +888,24 @@ public abstract class UnpackerBase implements IUnpacker
             }
 
             unpacker = createFileUnpacker(packFile, pack, queue, cancellable);
-            logger.fine("|- Extracting file using " + unpacker.getClass().getName() + ")");
+            if (logger.isLoggable(Level.FINE))
+            {
+                logger.fine("|- Extracting file using " + unpacker.getClass().getName() + ")");
+            }
             unpacker.unpack(packFile, packStream, target);
+            instrumentation.increment(Counter.FILES);
+            instrumentation.add(Counter.BYTES, packFile.length());
             checkInterrupt();
 
             if (!unpacker.isQueued())
             {
+                if (installed != null && !packFile.isBackReference())
+                {
+                    installed.put(packFile.getId(), new InstalledFile(target));
+                }
+                long start = instrumentation.start();
                 listeners.afterFile(target, packFile, pack);
+                instrumentation.stop(Phase.LISTENERS, start);
             }
         }
         finally
@@ -689,6 +917,75 @@ public abstract class UnpackerBase implements IUnpacker
         }
     }
 
+    /**
+     * Materializes a back-referenced pack file from the installed copy of the file it refers to.
+     * <p/>
+     * A hard link is used if the files have the same timestamp and mode, and neither is modified after unpacking,
+     * as a link shares these with the installed copy. Otherwise, or if the files are on different file systems, the
+     * installed copy is copied.
+     *
+     * @param packFile the back-referenced pack file
+     * @param target   the file to write to
+     * @return {@code true} if the file was materialized, {@code false} if it must be extracted
+     */
+    private boolean materialize(PackFile packFile, File target)
+    {
+        PackFile original = packFile.getLinkedPackFile();
+        InstalledFile source = installed.get(original.getId());
+        if (source == null || !source.isUnchanged() || packFile.blockable() != Blockable.BLOCKABLE_NONE
+                || source.file.equals(target.getAbsoluteFile()))
+        {
+            return false;
+        }
+        long start = instrumentation.start();
+        boolean result = true;
+        unlink(target);
+        if (original.lastModified() == packFile.lastModified() && original.getUnixMode() == packFile.getUnixMode()
+                && !modifiedPaths.contains(source.file.getPath()) && !modifiedPaths.contains(target.getPath())
+                && FileLinks.link(source.file, target))
+        {
+            linkedFiles.add(source.file);
+            linkedFiles.add(target.getAbsoluteFile());
+            if (logger.isLoggable(Level.FINE))
+            {
+                logger.fine("|- Linked to " + source.file);
+            }
+        }
+        else
+        {
+            try
+            {
+                FileLinks.copy(source.file, target);
+                updateAttributes(packFile, target);
+                if (logger.isLoggable(Level.FINE))
+                {
+                    logger.fine("|- Copied from " + source.file);
+                }
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.FINE, "Failed to copy " + source.file + " to " + target, exception);
+                result = false;
+            }
+        }
+        instrumentation.stop(Phase.IO, start);
+        return result;
+    }
+
+    /**
+     * Deletes a file that shares its content through a hard link, so that writing it doesn't change the other
+     * files.
+     *
+     * @param file the file
+     */
+    private void unlink(File file)
+    {
+        if (!linkedFiles.isEmpty() && linkedFiles.remove(file.getAbsoluteFile()) && file.exists() && !file.delete())
+        {
+            logger.warning("Failed to delete hard link: " + file);
+        }
+    }
+
     /**
      * Skips a pack file.
      *
@@ -702,8 +999,12 @@ public abstract class UnpackerBase implements IUnpacker
         if (!pack.isLoose() && !packFile.isBackReference() && !packFile.isPack200Jar())
         {
             long size = packFile.size();
-            logger.fine("|- Condition not fulfilled - skipping pack stream " + packFile.getTargetPath() + " by " + size + " bytes ");
-            skip(packInputStream, packFile.size());
+            if (logger.isLoggable(Level.FINE))
+            {
+                logger.fine("|- Condition not fulfilled - skipping pack stream " + packFile.getTargetPath() + " by "
+                                    + size + " bytes ");
+            }
+            skip(packInputStream, size);
         }
     }
 
@@ -758,7 +1059,9 @@ public abstract class UnpackerBase implements IUnpacker
         }
         checkInterrupt();
 
+        long start = instrumentation.start();
         listeners.afterPacks(packs, listener);
+        instrumentation.stop(Phase.LISTENERS, start);
         checkInterrupt();
 
         // write installation information
@@ -774,6 +1077,7 @@ public abstract class UnpackerBase implements IUnpacker
     protected void cleanup()
     {
         state = State.READY;
+        resources.cleanup();
     }
 
     /**
@@ -834,7 +1138,11 @@ public abstract class UnpackerBase implements IUnpacker
      */
     protected boolean shouldUnpack(Pack pack)
     {
-        return selectedPacks.contains(pack) && (!pack.hasCondition() || rules.isConditionTrue(pack.getCondition()));
+        long start = instrumentation.start();
+        boolean result = selectedPacks.contains(pack)
+                && (!pack.hasCondition() || rules.isConditionTrue(pack.getCondition()));
+        instrumentation.stop(Phase.CONDITIONS, start);
+        return result;
     }
 
     /**
@@ -907,12 +1215,16 @@ public abstract class UnpackerBase implements IUnpacker
                 {
                     createDirectory(parent, file, pack);
                 }
+                long start = instrumentation.start();
                 listeners.beforeDir(dir, file, pack);
+                instrumentation.stop(Phase.LISTENERS, start);
                 if (!dir.mkdir())
                 {
                     throw new IzPackException("Could not create directory: " + dir.getPath());
                 }
+                start = instrumentation.start();
                 listeners.afterDir(dir, file, pack);
+                instrumentation.stop(Phase.LISTENERS, start);
             }
         }
     }
@@ -1012,126 +1324,12 @@ public abstract class UnpackerBase implements IUnpacker
         {
             logger.info("Cleaning up the target folder ...");
 
-            File absoluteInstallPath = new File(installData.getInstallPath()).getAbsoluteFile();
-            FileSet fileset = new FileSet();
-            List<File> filesToDelete = new ArrayList<File>();
-            List<File> dirsToDelete = new ArrayList<File>();
-
-            try
-            {
-                fileset.setDir(absoluteInstallPath);
-
-                for (UpdateCheck check : checks)
-                {
-                    if (check.includesList != null)
-                    {
-                        for (String include : check.includesList)
-                        {
-                            fileset.createInclude().setName(variableSubstitutor.substitute(include));
-                        }
-                    }
-
-                    if (check.excludesList != null)
-                    {
-                        for (String exclude : check.excludesList)
-                        {
-                            fileset.createExclude().setName(variableSubstitutor.substitute(exclude));
-                        }
-                    }
-                }
-                DirectoryScanner scanner = fileset.getDirectoryScanner();
-                scanner.scan();
-                String[] srcFiles = scanner.getIncludedFiles();
-                String[] srcDirs = scanner.getIncludedDirectories();
-
-                Set<File> installedFiles = new TreeSet<File>();
-
-                for (String name : uninstallData.getInstalledFilesList())
-                {
-                    File file = new File(name);
-
-                    if (!file.isAbsolute())
-                    {
-                        file = new File(absoluteInstallPath, name);
-                    }
-
-                    installedFiles.add(file);
-                }
-                for (String srcFile : srcFiles)
-                {
-                    File newFile = new File(scanner.getBasedir(), srcFile);
-
-                    // skip files we just installed
-                    if (!installedFiles.contains(newFile))
-                    {
-                        filesToDelete.add(newFile);
-                    }
-                }
-                for (String srcDir : srcDirs)
-                {
-                    // All directories except INSTALL_PATH
-                    if (!srcDir.isEmpty())
-                    {
-                        File newDir = new File(scanner.getBasedir(), srcDir);
-
-                        // skip directories we just installed
-                        if (!installedFiles.contains(newDir))
-                        {
-                            dirsToDelete.add(newDir);
-                        }
-                    }
-                }
-            }
-            catch (IzPackException exception)
-            {
-                throw exception;
-            }
-            catch (Exception exception)
-            {
-                throw new IzPackException(exception);
-            }
-
-            for (File f : filesToDelete)
+            if (updateChecker == null)
             {
-                if (!f.delete())
-                {
-                    logger.warning("Cleanup: Unable to delete file " + f);
-                } else
-                {
-                    logger.fine("Cleanup: Deleted file " + f);
-                }
-            }
-
-            // Sort directories, deepest path first to be able to
-            // delete recursively
-            Collections.sort(dirsToDelete);
-            Collections.reverse(dirsToDelete);
-
-            for (File d : dirsToDelete)
-            {
-                if (!d.exists())
-                {
-                    break;
-                }
-
-                // Don't try to delete non-empty directories, because they
-                // probably must have been implicitly created as parents
-                // of regular installation files
-                File[] files = d.listFiles();
-                if (files != null && files.length != 0)
-                {
-                    break;
-                }
-
-                // Only empty directories will be deleted
-                if (!d.delete())
-                {
-                    logger.warning("Cleanup: Unable to delete directory " + d);
-                } else
-                {
-                    logger.fine("Cleanup: Deleted directory " + d);
-                }
+                updateChecker = new UpdateChecker(uninstallData, variableSubstitutor);
             }
+            File absoluteInstallPath = new File(installData.getInstallPath()).getAbsoluteFile();
+            updateChecker.check(absoluteInstallPath, checks);
         }
     }
 
@@ -1334,7 +1532,10 @@ public abstract class UnpackerBase implements IUnpacker
     {
         for (ParsableFile parsableFile : packInfo.getParsables())
         {
-            logger.fine("Unpacked parsable: " + parsableFile.toString());
+            if (logger.isLoggable(Level.FINE))
+            {
+                logger.fine("Unpacked parsable: " + parsableFile.toString());
+            }
             if (!parsableFile.hasCondition() || isConditionTrue(parsableFile.getCondition()))
             {
                 String path = IoHelper.translatePath(parsableFile.getPath(), variables);
@@ -1354,7 +1555,10 @@ public abstract class UnpackerBase implements IUnpacker
     {
         for (ExecutableFile executableFile : packInfo.getExecutables())
         {
-            logger.fine("Unpacked executable: " + executableFile.toString());
+            if (logger.isLoggable(Level.FINE))
+            {
+                logger.fine("Unpacked executable: " + executableFile.toString());
+            }
             if (!executableFile.hasCondition() || isConditionTrue(executableFile.getCondition()))
             {
                 executableFile.path = IoHelper.translatePath(executableFile.path, variables);
@@ -1400,5 +1604,28 @@ public abstract class UnpackerBase implements IUnpacker
 
         logger = Logger.getLogger(UnpackerBase.class.getName());
     }
-}
 
+    /**
+     * An installed file, used to determine if it has changed since it was unpacked.
+     */
+    private static class InstalledFile
+    {
+        private final File file;
+
+        private final long length;
+
+        private final long lastModified;
+
+        public InstalledFile(File file)
+        {
+            this.file = file.getAbsoluteFile();
+            length = file.length();
+            lastModified = file.lastModified();
+        }
+
+        public boolean isUnchanged()
+        {
+            return file.length() == length && file.lastModified() == lastModified;
+        }
+    }
+}
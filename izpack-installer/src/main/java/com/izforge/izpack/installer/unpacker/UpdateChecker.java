@@ -0,0 +1,335 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import com.izforge.izpack.api.data.UpdateCheck;
+import com.izforge.izpack.api.exception.IzPackException;
+import com.izforge.izpack.api.substitutor.VariableSubstitutor;
+import com.izforge.izpack.installer.data.UninstallData;
+import com.izforge.izpack.util.file.FileTreeScanner;
+import com.izforge.izpack.util.file.types.FileSet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Performs {@link UpdateCheck update checks}, removing files and directories from the installation directory that
+ * match the update check patterns but weren't installed.
+ * <p/>
+ * Installed files are looked up in a hashed index of the {@link UninstallData} installed files. The index is
+ * maintained incrementally, so that checks performed after each pack only index the files added since the previous
+ * check.
+ * <p/>
+ * The installation directory is scanned once per check. Subtrees that no include pattern can match are not
+ * descended into. Files are deleted in parallel batches; directories are then deleted deepest first, if empty.
+ */
+public class UpdateChecker
+{
+    /**
+     * The default no. of threads used to delete files.
+     */
+    public static final int DEFAULT_THREADS = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The no. of files deleted by each task.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * The uninstallation data.
+     */
+    private final UninstallData uninstallData;
+
+    /**
+     * The variable substitutor, used to expand patterns.
+     */
+    private final VariableSubstitutor substitutor;
+
+    /**
+     * The no. of threads used to delete files.
+     */
+    private final int threads;
+
+    /**
+     * The installed files.
+     */
+    private final Set<File> installed = new HashSet<File>();
+
+    /**
+     * The no. of installed files indexed.
+     */
+    private int indexed;
+
+    /**
+     * The installation directory that relative installed paths were resolved against.
+     */
+    private File indexDir;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(UpdateChecker.class.getName());
+
+
+    /**
+     * Constructs an <tt>UpdateChecker</tt>.
+     *
+     * @param uninstallData the uninstallation data
+     * @param substitutor   the variable substitutor
+     */
+    public UpdateChecker(UninstallData uninstallData, VariableSubstitutor substitutor)
+    {
+        this(uninstallData, substitutor, DEFAULT_THREADS);
+    }
+
+    /**
+     * Constructs an <tt>UpdateChecker</tt>.
+     *
+     * @param uninstallData the uninstallation data
+     * @param substitutor   the variable substitutor
+     * @param threads       the no. of threads used to delete files
+     */
+    public UpdateChecker(UninstallData uninstallData, VariableSubstitutor substitutor, int threads)
+    {
+        this.uninstallData = uninstallData;
+        this.substitutor = substitutor;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Performs update checks.
+     *
+     * @param installDir the absolute installation directory
+     * @param checks     the update checks
+     * @throws IzPackException for any error
+     */
+    public void check(File installDir, List<UpdateCheck> checks)
+    {
+        List<File> files = new ArrayList<File>();
+        List<File> dirs = new ArrayList<File>();
+        try
+        {
+            FileSet fileset = new FileSet();
+            fileset.setDir(installDir);
+            for (UpdateCheck check : checks)
+            {
+                if (check.includesList != null)
+                {
+                    for (String include : check.includesList)
+                    {
+                        fileset.createInclude().setName(substitutor.substitute(include));
+                    }
+                }
+                if (check.excludesList != null)
+                {
+                    for (String exclude : check.excludesList)
+                    {
+                        fileset.createExclude().setName(substitutor.substitute(exclude));
+                    }
+                }
+            }
+
+            // the scanner has already scanned the directory
+            FileTreeScanner scanner = fileset.getFileTreeScanner();
+            File baseDir = scanner.getBasedir();
+            Set<File> installed = getInstalled(installDir);
+            for (String name : scanner.getIncludedFiles())
+            {
+                File file = new File(baseDir, name);
+                if (!installed.contains(file))
+                {
+                    files.add(file);
+                }
+            }
+            for (String name : scanner.getIncludedDirectories())
+            {
+                // all directories except the installation directory
+                if (name.length() != 0)
+                {
+                    File dir = new File(baseDir, name);
+                    if (!installed.contains(dir))
+                    {
+                        dirs.add(dir);
+                    }
+                }
+            }
+        }
+        catch (IzPackException exception)
+        {
+            throw exception;
+        }
+        catch (Exception exception)
+        {
+            throw new IzPackException(exception);
+        }
+
+        deleteFiles(files);
+        deleteDirectories(dirs);
+    }
+
+    /**
+     * Returns the installed files, indexing any added since the last call.
+     *
+     * @param installDir the absolute installation directory, used to resolve relative paths
+     * @return the installed files
+     */
+    private Set<File> getInstalled(File installDir)
+    {
+        if (!installDir.equals(indexDir))
+        {
+            installed.clear();
+            indexed = 0;
+            indexDir = installDir;
+        }
+        synchronized (uninstallData)
+        {
+            List<String> paths = uninstallData.getInstalledFilesList();
+            for (int i = indexed; i < paths.size(); ++i)
+            {
+                String path = paths.get(i);
+                File file = new File(path);
+                installed.add(file.isAbsolute() ? file : new File(installDir, path));
+            }
+            indexed = paths.size();
+        }
+        return installed;
+    }
+
+    /**
+     * Deletes files, in parallel batches if there are enough of them.
+     *
+     * @param files the files to delete
+     */
+    private void deleteFiles(List<File> files)
+    {
+        if (threads == 1 || files.size() <= BATCH_SIZE)
+        {
+            delete(files);
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "IzPack update check");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try
+        {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < files.size(); i += BATCH_SIZE)
+            {
+                final List<File> batch = files.subList(i, Math.min(files.size(), i + BATCH_SIZE));
+                futures.add(executor.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call()
+                    {
+                        delete(batch);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new IzPackException("Interrupted while cleaning up the installation directory", exception);
+        }
+        catch (ExecutionException exception)
+        {
+            throw new IzPackException(exception.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Deletes files.
+     *
+     * @param files the files to delete
+     */
+    private void delete(List<File> files)
+    {
+        for (File file : files)
+        {
+            if (!file.delete())
+            {
+                logger.warning("Cleanup: Unable to delete file " + file);
+            }
+            else if (logger.isLoggable(Level.FINE))
+            {
+                logger.fine("Cleanup: Deleted file " + file);
+            }
+        }
+    }
+
+    /**
+     * Deletes empty directories, deepest first.
+     * <p/>
+     * Non-empty directories are skipped, as they probably have been implicitly created as parents of installed
+     * files.
+     *
+     * @param dirs the directories to delete
+     */
+    private void deleteDirectories(List<File> dirs)
+    {
+        Collections.sort(dirs, Collections.reverseOrder());
+        for (File dir : dirs)
+        {
+            String[] children = dir.list();
+            if (children == null || children.length != 0)
+            {
+                // the directory doesn't exist, or isn't empty
+                continue;
+            }
+            if (!dir.delete())
+            {
+                logger.warning("Cleanup: Unable to delete directory " + dir);
+            }
+            else if (logger.isLoggable(Level.FINE))
+            {
+                logger.fine("Cleanup: Deleted directory " + dir);
+            }
+        }
+    }
+}
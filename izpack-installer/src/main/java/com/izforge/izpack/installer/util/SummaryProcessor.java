@@ -65,6 +65,10 @@ public class SummaryProcessor
      * the methods * {@link com.izforge.izpack.api.installer.ISummarisable#getSummaryCaption} and {@link com.izforge.izpack.api.installer.ISummarisable#getSummaryBody()} of all
      * panels are called.
      *
+     * <p/>
+     * Only panels that have been constructed are considered, as a panel can't have been visited otherwise. This
+     * means that no panels are constructed by this method, so it may be invoked off the event dispatch thread.
+     *
      * @param idata AutomatedInstallData which contains the panel references
      * @return a HTML formated string with the summary of all panels
      */
@@ -72,7 +76,7 @@ public class SummaryProcessor
     {
         StringBuilder buffer = new StringBuilder(2048);
         buffer.append(HTML_HEADER);
-        for (ISummarisable panel : idata.getPanels())
+        for (ISummarisable panel : idata.getConstructedPanels())
         {
             if (((IzPanel) panel).getMetadata().isVisited())
             {
@@ -0,0 +1,402 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.web;
+
+import com.izforge.izpack.util.file.FileDigest;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Downloads web installer packs, optionally ahead of the time they are needed.
+ * <p/>
+ * Packs queued with {@link #prefetch} are downloaded in the background, using at most a fixed number of concurrent
+ * connections. {@link #download} returns the downloaded file, waiting for a pending prefetch if there is one.
+ * <p/>
+ * Files are first written to a <em>.part</em> file alongside the target. If a transfer fails, it is retried,
+ * resuming from the end of the partial file where the server supports HTTP range requests. Once complete, the file
+ * is checked against its expected digest, if any, before being renamed to the target.
+ * <p/>
+ * The ETag or Last-Modified validator of the file is kept in a <em>.part.validator</em> file, and sent in an
+ * <tt>If-Range</tt> header when resuming, so that a file changed on the server is downloaded again rather than
+ * appended to the old content. A partial file without a validator is only resumed if the digest is known, as the
+ * digest check detects a mismatch. Otherwise it is discarded.
+ */
+public class WebPackDownloader
+{
+    /**
+     * The default maximum no. of concurrent downloads.
+     */
+    public static final int DEFAULT_CONNECTIONS = 3;
+
+    /**
+     * The no. of attempts made to transfer a file.
+     */
+    private static final int ATTEMPTS = 3;
+
+    /**
+     * Connect and read timeout, in milliseconds.
+     */
+    private static final int TIMEOUT = 30000;
+
+    /**
+     * The buffer size used to transfer files.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The executor used for background downloads.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The downloads, keyed on target file.
+     */
+    private final Map<File, Future<File>> downloads = new HashMap<File, Future<File>>();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(WebPackDownloader.class.getName());
+
+
+    /**
+     * Constructs a <tt>WebPackDownloader</tt>.
+     *
+     * @param connections the maximum no. of concurrent background downloads
+     */
+    public WebPackDownloader(int connections)
+    {
+        executor = Executors.newFixedThreadPool(Math.max(1, connections), new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "IzPack web pack download");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queues a file to be downloaded in the background.
+     * <p/>
+     * This is a no-op if the file is already queued or has been downloaded.
+     *
+     * @param url    the URL to download from
+     * @param target the file to download to
+     * @param digest the expected hex encoded SHA-256 digest of the file. May be {@code null}
+     */
+    public synchronized void prefetch(final String url, final File target, final String digest)
+    {
+        if (!downloads.containsKey(target))
+        {
+            logger.fine("Queueing download of " + url);
+            downloads.put(target, executor.submit(new Callable<File>()
+            {
+                @Override
+                public File call() throws IOException
+                {
+                    return transfer(url, target, digest);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Downloads a file.
+     * <p/>
+     * If the file has been queued by {@link #prefetch}, this waits for the queued download to complete. If that
+     * failed, the download is retried in the calling thread.
+     *
+     * @param url    the URL to download from
+     * @param target the file to download to
+     * @param digest the expected hex encoded SHA-256 digest of the file. May be {@code null}
+     * @return the downloaded file
+     * @throws InterruptedIOException if the download is interrupted
+     * @throws IOException            if the file cannot be downloaded
+     */
+    public File download(String url, File target, String digest) throws IOException
+    {
+        Future<File> future;
+        synchronized (this)
+        {
+            future = downloads.get(target);
+        }
+        if (future != null)
+        {
+            try
+            {
+                return future.get();
+            }
+            catch (InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Download of " + url + " interrupted");
+            }
+            catch (ExecutionException exception)
+            {
+                logger.log(Level.WARNING, "Background download of " + url + " failed, retrying",
+                           exception.getCause());
+            }
+            catch (CancellationException exception)
+            {
+                logger.fine("Background download of " + url + " cancelled, retrying");
+            }
+        }
+        File result = transfer(url, target, digest);
+        synchronized (this)
+        {
+            downloads.remove(target);
+        }
+        return result;
+    }
+
+    /**
+     * Cancels pending downloads and releases the download threads.
+     */
+    public synchronized void shutdown()
+    {
+        for (Future<File> future : downloads.values())
+        {
+            future.cancel(true);
+        }
+        downloads.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Transfers a file, resuming a partial transfer where possible.
+     *
+     * @param url    the URL to download from
+     * @param target the file to download to
+     * @param digest the expected hex encoded SHA-256 digest of the file. May be {@code null}
+     * @return the target file
+     * @throws IOException if the file cannot be downloaded, or doesn't match the digest
+     */
+    protected File transfer(String url, File target, String digest) throws IOException
+    {
+        if (target.exists() && digest != null && digest.equals(FileDigest.getDigest(target)))
+        {
+            logger.fine("Using previously downloaded " + target);
+            return target;
+        }
+        File part = new File(target.getPath() + ".part");
+        File parent = part.getParentFile();
+        if (parent != null)
+        {
+            FileUtils.forceMkdir(parent);
+        }
+        for (int attempt = 1; ; ++attempt)
+        {
+            try
+            {
+                transferPart(new URL(url), part, digest != null);
+                break;
+            }
+            catch (InterruptedIOException exception)
+            {
+                throw exception;
+            }
+            catch (IOException exception)
+            {
+                if (attempt == ATTEMPTS)
+                {
+                    throw exception;
+                }
+                logger.log(Level.INFO, "Download of " + url + " failed, retrying (attempt " + attempt + ")",
+                           exception);
+            }
+        }
+
+        if (digest != null)
+        {
+            String actual = FileDigest.getDigest(part);
+            if (!digest.equals(actual))
+            {
+                FileUtils.deleteQuietly(part);
+                FileUtils.deleteQuietly(getValidatorFile(part));
+                throw new IOException("Digest of " + url + " is " + actual + ", expected " + digest);
+            }
+        }
+        FileUtils.deleteQuietly(target);
+        if (!part.renameTo(target))
+        {
+            FileUtils.moveFile(part, target);
+        }
+        FileUtils.deleteQuietly(getValidatorFile(part));
+        logger.fine("Downloaded " + url + " to " + target);
+        return target;
+    }
+
+    /**
+     * Transfers the remainder of a file, appending to any content already downloaded.
+     *
+     * @param url       the URL to download from
+     * @param part      the partially downloaded file
+     * @param hasDigest if {@code true}, the file will be checked against its digest once downloaded
+     * @throws IOException if the transfer fails
+     */
+    private void transferPart(URL url, File part, boolean hasDigest) throws IOException
+    {
+        File validatorFile = getValidatorFile(part);
+        String validator = validatorFile.exists() ? FileUtils.readFileToString(validatorFile, "UTF-8") : null;
+        if (part.length() > 0 && validator == null && !hasDigest)
+        {
+            // nothing would detect if the file changed on the server since the partial file was written
+            logger.fine("Discarding " + part + ", which has no validator");
+            FileUtils.deleteQuietly(part);
+        }
+        long offset = part.length();
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        HttpURLConnection http = (connection instanceof HttpURLConnection) ? (HttpURLConnection) connection : null;
+        if (http != null && offset > 0)
+        {
+            http.setRequestProperty("Range", "bytes=" + offset + "-");
+            if (validator != null)
+            {
+                http.setRequestProperty("If-Range", validator);
+            }
+        }
+        boolean append = false;
+        if (http != null)
+        {
+            int code = http.getResponseCode();
+            if (code == HttpURLConnection.HTTP_PARTIAL && offset > 0)
+            {
+                String range = http.getHeaderField("Content-Range");
+                append = range != null && range.startsWith("bytes " + offset + "-");
+                if (!append)
+                {
+                    http.disconnect();
+                    FileUtils.deleteQuietly(part);
+                    throw new IOException("Unexpected Content-Range " + range + " for " + url);
+                }
+            }
+            else if (code == 416)
+            {
+                // range not satisfiable; the partial file is stale
+                http.disconnect();
+                FileUtils.deleteQuietly(part);
+                throw new IOException("Failed to resume download of " + url);
+            }
+            else if (code != HttpURLConnection.HTTP_OK)
+            {
+                http.disconnect();
+                throw new IOException("Failed to download " + url + ": HTTP " + code);
+            }
+            if (!append)
+            {
+                // the whole file is being downloaded, so record what identifies this version of it
+                validator = getValidator(http);
+                if (validator != null)
+                {
+                    FileUtils.writeStringToFile(validatorFile, validator, "UTF-8");
+                }
+                else
+                {
+                    FileUtils.deleteQuietly(validatorFile);
+                }
+            }
+        }
+        if (append)
+        {
+            logger.fine("Resuming download of " + url + " at " + offset + " bytes");
+        }
+
+        InputStream in = null;
+        OutputStream out = null;
+        try
+        {
+            in = connection.getInputStream();
+            out = new FileOutputStream(part, append);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                if (Thread.currentThread().isInterrupted())
+                {
+                    throw new InterruptedIOException("Download of " + url + " interrupted");
+                }
+                out.write(buffer, 0, read);
+            }
+            out.close();
+            out = null;
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Returns the validator to send in an <tt>If-Range</tt> header to resume a download.
+     * <p/>
+     * Weak ETags can't be used with <tt>If-Range</tt>, so the Last-Modified date is used instead, if present.
+     *
+     * @param connection the connection
+     * @return the strong ETag, else the Last-Modified date, or {@code null} if the response has neither
+     */
+    private static String getValidator(HttpURLConnection connection)
+    {
+        String etag = connection.getHeaderField("ETag");
+        if (etag != null && !etag.startsWith("W/"))
+        {
+            return etag;
+        }
+        return connection.getHeaderField("Last-Modified");
+    }
+
+    /**
+     * Returns the file holding the validator of a partially downloaded file.
+     *
+     * @param part the partially downloaded file
+     * @return the validator file
+     */
+    private static File getValidatorFile(File part)
+    {
+        return new File(part.getPath() + ".validator");
+    }
+}
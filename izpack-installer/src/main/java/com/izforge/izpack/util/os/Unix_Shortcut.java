@@ -57,6 +57,7 @@ import com.izforge.izpack.api.exception.ResourceNotFoundException;
 import com.izforge.izpack.api.resource.Resources;
 import com.izforge.izpack.util.FileExecutor;
 import com.izforge.izpack.util.StringTool;
+import com.izforge.izpack.util.file.FilePermissions;
 import com.izforge.izpack.util.unix.ShellScript;
 import com.izforge.izpack.util.unix.UnixHelper;
 import com.izforge.izpack.util.unix.UnixUser;
@@ -529,14 +530,23 @@ public class Unix_Shortcut extends Shortcut
             // If I'm root and this Desktop.ShortCut should be for all other users
             if (rootUser4All && create4All)
             {
-                if (cmd != null)
+                List<UnixUser> users = getUsers();
+                if (isRoot())
                 {
-                    installDesktopFileToAllUsersDesktop(writtenDesktopFile);
+                    users = deployDesktopFileToAllUsersDesktop(writtenDesktopFile, users);
+                }
+                if (users.isEmpty())
+                {
+                    logger.fine("Desktop file deployed to all users");
+                }
+                else if (cmd != null)
+                {
+                    installDesktopFileToAllUsersDesktop(writtenDesktopFile, users);
                 }
                 else
                 // OLD ( Backward-Compatible/hardwired-"Desktop"-Foldername Styled Mechanic )
                 {
-                    copyDesktopFileToAllUsersDesktop(writtenDesktopFile);
+                    copyDesktopFileToAllUsersDesktop(writtenDesktopFile, users);
                 }
             }
         }
@@ -664,15 +674,64 @@ public class Unix_Shortcut extends Shortcut
     }
 
 
+    /**
+     * Copies a desktop file directly into the XDG desktop folder of every other user.
+     * <p/>
+     * This requires root privileges. Rather than starting <tt>su</tt> for each user, each file is written and
+     * transferred to its user in-process, by {@link FilePermissions#copyToUser}. That refuses folders that aren't
+     * owned by the user, and doesn't follow symbolic links. The uninstaller removes the files as their user, via
+     * <tt>su</tt>, so that root never deletes inside a folder a user controls.
+     *
+     * @param writtenDesktopFile An applications desktop file, which should be installed.
+     * @param users              the users to deploy the desktop file to
+     * @return the users that the desktop file couldn't be deployed to, excluding the current user
+     */
+    private List<UnixUser> deployDesktopFileToAllUsersDesktop(File writtenDesktopFile, List<UnixUser> users)
+    {
+        List<UnixUser> result = new ArrayList<UnixUser>();
+        String rm = UnixHelper.getRmCommand();
+        for (UnixUser user : users)
+        {
+            if (user.getHome().equals(myHome))
+            {
+                logger.info("Skipping self-copy: " + user.getHome() + " == " + myHome);
+                continue;
+            }
+            File dest = FilePermissions.copyToUser(writtenDesktopFile, new File(user.getXdgDesktopfolder()),
+                                                   user.getName(), 0744);
+            if (dest == null)
+            {
+                logger.info("Could not copy " + writtenDesktopFile + " to the desktop of " + user.getName()
+                                    + " as root, using " + getSuCommand());
+                result.add(user);
+                continue;
+            }
+            uninstallScript.append(new String[]{getSuCommand(), user.getName(), "-c"});
+            uninstallScript.appendln(new String[]{"\"" + rm, StringTool.escapeSpaces(dest.toString()) + "\""});
+        }
+        return result;
+    }
+
+    /**
+     * Determines if the installer is running as root.
+     *
+     * @return <tt>true</tt> if the installer is running as root
+     */
+    private static boolean isRoot()
+    {
+        return "root".equals(System.getProperty("user.name"));
+    }
+
     /**
      * Calls and creates the Install/Uninstall Script which installs Desktop Icons using
      * xdgDesktopIconCmd un-/install
      *
      * @param writtenDesktopFile An applications desktop file, which should be installed.
+     * @param users              the users to install the desktop file for
      */
-    private void installDesktopFileToAllUsersDesktop(File writtenDesktopFile)
+    private void installDesktopFileToAllUsersDesktop(File writtenDesktopFile, List<UnixUser> users)
     {
-        for (UnixUser user : getUsers())
+        for (UnixUser user : users)
         {
             if (user.getHome().equals(myHome))
             {
@@ -734,9 +793,10 @@ public class Unix_Shortcut extends Shortcut
 
     /**
      * @param writtenDesktopFile User desktop file
+     * @param users              the users to copy the desktop file to
      * @throws IOException I/O error occured
      */
-    private void copyDesktopFileToAllUsersDesktop(File writtenDesktopFile) throws IOException
+    private void copyDesktopFileToAllUsersDesktop(File writtenDesktopFile, List<UnixUser> users) throws IOException
     {
         String chmod = UnixHelper.getCustomCommand("chmod");
         String chown = UnixHelper.getCustomCommand("chown");
@@ -759,7 +819,7 @@ public class Unix_Shortcut extends Shortcut
         // su marc.eppelmann -c "/bin/cp /home/marc.eppelmann/backup.job.out.txt
         // /home/marc.eppelmann/backup.job.out2.txt"
 
-        for (UnixUser user : getUsers())
+        for (UnixUser user : users)
         {
             if (user.getHome().equals(myHome))
             {
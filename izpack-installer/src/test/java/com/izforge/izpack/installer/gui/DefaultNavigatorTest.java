@@ -104,6 +104,39 @@ public class DefaultNavigatorTest
     }
 
 
+    /**
+     * Verifies that panels are constructed on demand, and registered with the container when they are.
+     */
+    @Test
+    public void testLazyPanelConstruction()
+    {
+        IzPanels panels = createPanels(3);
+        List<IzPanelView> views = panels.getPanelViews();
+        assertEquals(3, installData.getPanels().size());
+        for (IzPanelView view : views)
+        {
+            assertFalse(view.hasView());
+        }
+
+        Navigator navigator = createNavigator(panels);
+        assertTrue(navigator.next());
+        IzPanel first = panels.getView();
+        assertTrue(views.get(0).hasView());
+        assertEquals(0, installData.getPanels().indexOf(first));
+        assertSame(first, container.getComponent(views.get(0).getPanelId()));
+        assertFalse(views.get(2).hasView());
+
+        panels.preload(1);
+        assertTrue(views.get(1).hasView());
+        assertFalse(views.get(2).hasView());
+
+        // accessing the panel list constructs the panel
+        IzPanel last = installData.getPanels().get(2);
+        assertTrue(views.get(2).hasView());
+        assertSame(last, views.get(2).getView());
+        assertEquals(2, installData.getPanels().indexOf(last));
+    }
+
     /**
      * Tests panel navigation.
      */
@@ -24,6 +24,7 @@ package com.izforge.izpack.installer.multiunpacker;
 
 import com.izforge.izpack.api.data.Blockable;
 import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.PackCompression;
 import com.izforge.izpack.api.data.PackFile;
 import com.izforge.izpack.api.data.XPackFile;
 import com.izforge.izpack.api.exception.InstallerException;
@@ -35,6 +36,8 @@ import com.izforge.izpack.installer.unpacker.FileQueueFactory;
 import com.izforge.izpack.installer.unpacker.FileUnpacker;
 import com.izforge.izpack.util.Platforms;
 import com.izforge.izpack.util.os.FileQueue;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
@@ -110,6 +113,52 @@ public class MultiVolumeFileUnpackerTest extends AbstractFileUnpackerTest
         checkTarget(source, target);
     }
 
+    /**
+     * Verifies that a file compressed with a {@link PackCompression} format and stored in the volumes can be
+     * unpacked, and that the entry that follows it can still be read.
+     *
+     * @throws IOException        for any I/O error
+     * @throws InstallerException for any installer error
+     */
+    @Test
+    public void testUnpackCompressedEntry() throws IOException, InstallerException
+    {
+        File baseDir = temporaryFolder.getRoot();
+        File source = createSourceFile(baseDir);
+        File target1 = new File(baseDir, "target1.txt");
+        File target2 = new File(baseDir, "target2.txt");
+
+        // write the source twice, each as a bzip2 compressed, stored entry
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream compressor = new BZip2CompressorOutputStream(bytes);
+        FileUtils.copyFile(source, compressor);
+        compressor.close();
+        byte[] compressed = bytes.toByteArray();
+
+        File volume = new File(baseDir, "compressed");
+        FileSpanningOutputStream out = new FileSpanningOutputStream(volume, 8192);
+        XPackFile file1 = (XPackFile) createPackFile(baseDir, source, target1, Blockable.BLOCKABLE_NONE);
+        XPackFile file2 = (XPackFile) createPackFile(baseDir, source, target2, Blockable.BLOCKABLE_NONE);
+        for (XPackFile file : new XPackFile[]{file1, file2})
+        {
+            out.startEntry(false);
+            file.setArchiveFilePosition(out.getFilePointer());
+            file.setVolumeOffset(out.getEntryVolume(), out.getEntryOffset());
+            file.setSize(compressed.length);
+            out.write(compressed);
+        }
+        out.close();
+
+        FileSpanningInputStream stream = new FileSpanningInputStream(volume, out.getVolumes());
+        FileUnpacker unpacker = new MultiVolumeFileUnpacker(stream, PackCompression.BZIP2, getCancellable(), null);
+        unpacker.unpack(file1, null, target1);
+        unpacker.unpack(file2, null, target2);
+        stream.close();
+
+        checkTarget(source, target1);
+        checkTarget(source, target2);
+    }
+
     /**
      * Creates a new source file.
      *
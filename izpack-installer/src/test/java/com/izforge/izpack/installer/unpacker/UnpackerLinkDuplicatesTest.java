@@ -0,0 +1,464 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.izforge.izpack.api.data.Blockable;
+import com.izforge.izpack.api.data.ExecutableFile;
+import com.izforge.izpack.api.data.Info;
+import com.izforge.izpack.api.data.LocaleDatabase;
+import com.izforge.izpack.api.data.OverrideType;
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.data.PackFile;
+import com.izforge.izpack.api.data.PackInfo;
+import com.izforge.izpack.api.data.ParsableFile;
+import com.izforge.izpack.api.event.ProgressListener;
+import com.izforge.izpack.api.exception.ResourceNotFoundException;
+import com.izforge.izpack.api.handler.Prompt;
+import com.izforge.izpack.api.resource.Locales;
+import com.izforge.izpack.api.rules.RulesEngine;
+import com.izforge.izpack.api.substitutor.SubstitutionType;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.core.resource.ResourceManager;
+import com.izforge.izpack.core.substitutor.VariableSubstitutorImpl;
+import com.izforge.izpack.installer.data.InstallData;
+import com.izforge.izpack.installer.data.UninstallData;
+import com.izforge.izpack.installer.event.InstallerListeners;
+import com.izforge.izpack.util.Housekeeper;
+import com.izforge.izpack.util.Librarian;
+import com.izforge.izpack.util.PlatformModelMatcher;
+import com.izforge.izpack.util.Platforms;
+import com.izforge.izpack.util.file.FileLinks;
+import com.izforge.izpack.util.os.FileQueue;
+
+/**
+ * Tests materialization of back-referenced duplicate files by {@link UnpackerBase}, when
+ * {@link UnpackerBase#LINK_DUPLICATES} is set.
+ */
+public class UnpackerLinkDuplicatesTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The pack file timestamp. Whole seconds, as not all file systems support finer resolution.
+     */
+    private static final long LAST_MODIFIED = 1300000000000L;
+
+    /**
+     * The installation directory.
+     */
+    private File installDir;
+
+    /**
+     * The installation data.
+     */
+    private InstallData installData;
+
+    /**
+     * The packs to install.
+     */
+    private final List<PackInfo> packs = new ArrayList<PackInfo>();
+
+    /**
+     * The pack streams, keyed on stream resource name.
+     */
+    private final Map<String, ByteArrayOutputStream> streams = new HashMap<String, ByteArrayOutputStream>();
+
+
+    @Before
+    public void setUp()
+    {
+        installDir = new File(temporaryFolder.getRoot(), "install");
+        installData = new InstallData(new DefaultVariables(), Platforms.LINUX);
+        installData.setInstallPath(installDir.getPath());
+        installData.setInfo(new Info());
+        InputStream langPack = getClass().getResourceAsStream("/com/izforge/izpack/bin/langpacks/installer/eng.xml");
+        assertNotNull(langPack);
+        installData.setMessages(new LocaleDatabase(langPack, Mockito.mock(Locales.class)));
+        installData.setVariable(UnpackerBase.LINK_DUPLICATES, "true");
+    }
+
+    /**
+     * Verifies that a duplicate with the same timestamp and mode as the first installed copy is hard linked to it.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testLink() throws Exception
+    {
+        assumeTrue(FileLinks.isLinkSupported());
+        PackInfo pack = createPack("base");
+        PackFile original = addFile(pack, "a.txt", "content", LAST_MODIFIED);
+        addDuplicate(pack, "b.txt", original, LAST_MODIFIED);
+
+        TestUnpacker unpacker = unpack(null);
+
+        File a = new File(installDir, "a.txt");
+        File b = new File(installDir, "b.txt");
+        assertEquals("content", FileUtils.readFileToString(b, "UTF-8"));
+        assertTrue(unpacker.isLinked(b));
+        assertTrue(isLinked(a, b));
+    }
+
+    /**
+     * Verifies that a duplicate with a different timestamp to the first installed copy is copied, and given its own
+     * timestamp.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCopyDifferentTimestamp() throws Exception
+    {
+        PackInfo pack = createPack("base");
+        PackFile original = addFile(pack, "a.txt", "content", LAST_MODIFIED);
+        addDuplicate(pack, "b.txt", original, LAST_MODIFIED + 60000);
+
+        unpack(null);
+
+        File a = new File(installDir, "a.txt");
+        File b = new File(installDir, "b.txt");
+        assertEquals("content", FileUtils.readFileToString(b, "UTF-8"));
+        assertEquals(LAST_MODIFIED, a.lastModified());
+        assertEquals(LAST_MODIFIED + 60000, b.lastModified());
+        assertFalse(isLinked(a, b));
+    }
+
+    /**
+     * Verifies that a parsable duplicate is copied rather than linked, so that parsing it doesn't change the first
+     * installed copy.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCopyParsable() throws Exception
+    {
+        PackInfo pack = createPack("base");
+        PackFile original = addFile(pack, "a.txt", "path=${INSTALL_PATH}", LAST_MODIFIED);
+        addDuplicate(pack, "b.txt", original, LAST_MODIFIED);
+        File b = new File(installDir, "b.txt");
+        pack.addParsable(new ParsableFile(b.getPath(), SubstitutionType.TYPE_PLAIN, null, null));
+
+        TestUnpacker unpacker = unpack(null);
+
+        File a = new File(installDir, "a.txt");
+        assertEquals("path=${INSTALL_PATH}", FileUtils.readFileToString(a, "UTF-8"));
+        assertEquals("path=" + installDir.getPath(), FileUtils.readFileToString(b, "UTF-8"));
+        assertFalse(unpacker.isLinked(b));
+    }
+
+    /**
+     * Verifies that an executable duplicate is copied rather than linked, so that making it executable doesn't
+     * change the first installed copy.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCopyExecutable() throws Exception
+    {
+        PackInfo pack = createPack("base");
+        PackFile original = addFile(pack, "a.sh", "#!/bin/sh", LAST_MODIFIED);
+        addDuplicate(pack, "b.sh", original, LAST_MODIFIED);
+        File b = new File(installDir, "b.sh");
+        pack.addExecutable(new ExecutableFile(b.getPath(), ExecutableFile.NEVER, ExecutableFile.WARN, null, true));
+
+        TestUnpacker unpacker = unpack(null);
+
+        assertEquals("#!/bin/sh", FileUtils.readFileToString(b, "UTF-8"));
+        assertFalse(unpacker.isLinked(b));
+    }
+
+    /**
+     * Verifies that a linked file is unlinked before a later pack writes to it, so that the first installed copy
+     * is unchanged.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testUnlinkBeforeWrite() throws Exception
+    {
+        assumeTrue(FileLinks.isLinkSupported());
+        PackInfo base = createPack("base");
+        PackFile original = addFile(base, "a.txt", "content", LAST_MODIFIED);
+        addDuplicate(base, "b.txt", original, LAST_MODIFIED);
+        PackInfo update = createPack("update");
+        addFile(update, "b.txt", "updated", LAST_MODIFIED);
+
+        unpack(null);
+
+        assertEquals("content", FileUtils.readFileToString(new File(installDir, "a.txt"), "UTF-8"));
+        assertEquals("updated", FileUtils.readFileToString(new File(installDir, "b.txt"), "UTF-8"));
+    }
+
+    /**
+     * Verifies that a duplicate is extracted from the pack if the first installed copy has changed since it was
+     * unpacked.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testExtractIfChanged() throws Exception
+    {
+        PackInfo pack = createPack("base");
+        PackFile original = addFile(pack, "a.txt", "content", LAST_MODIFIED);
+        addDuplicate(pack, "b.txt", original, LAST_MODIFIED);
+        File a = new File(installDir, "a.txt");
+
+        unpack(a);
+
+        File b = new File(installDir, "b.txt");
+        assertEquals("changed after unpacking", FileUtils.readFileToString(a, "UTF-8"));
+        assertEquals("content", FileUtils.readFileToString(b, "UTF-8"));
+        assertFalse(isLinked(a, b));
+    }
+
+    /**
+     * Creates a pack, and adds it to the packs to install.
+     *
+     * @param name the pack name
+     * @return a new pack
+     */
+    private PackInfo createPack(String name)
+    {
+        PackInfo pack = new PackInfo(name, name, null, true, false, null, true, 0);
+        packs.add(pack);
+        streams.put(getStreamResourceName(pack), new ByteArrayOutputStream());
+        return pack;
+    }
+
+    /**
+     * Adds a file to a pack, writing its content to the pack stream.
+     *
+     * @param pack         the pack
+     * @param name         the file name, relative to the installation directory
+     * @param content      the file content
+     * @param lastModified the file timestamp
+     * @return the pack file
+     * @throws IOException for any I/O error
+     */
+    private PackFile addFile(PackInfo pack, String name, String content, long lastModified) throws IOException
+    {
+        byte[] data = content.getBytes("UTF-8");
+        PackFile file = createPackFile(name, lastModified, data.length);
+        ByteArrayOutputStream stream = streams.get(getStreamResourceName(pack));
+        file.setStreamResourceName(getStreamResourceName(pack));
+        file.setStreamOffset(stream.size());
+        stream.write(data);
+        pack.addFile(file, null, null);
+        return file;
+    }
+
+    /**
+     * Adds a back reference to a file installed by an earlier pack file.
+     *
+     * @param pack         the pack
+     * @param name         the file name, relative to the installation directory
+     * @param original     the pack file that holds the content
+     * @param lastModified the file timestamp
+     */
+    private void addDuplicate(PackInfo pack, String name, PackFile original, long lastModified)
+    {
+        PackFile file = createPackFile(name, lastModified, original.length());
+        file.setLinkedPackFile(original);
+        pack.addFile(file, null, null);
+    }
+
+    private PackFile createPackFile(String name, long lastModified, long length)
+    {
+        PackFile file = new PackFile(name, name, new File(installDir, name).getPath(), null,
+                                     OverrideType.OVERRIDE_TRUE, null, Blockable.BLOCKABLE_NONE, null, null,
+                                     lastModified, false, length);
+        file.setUnixMode(0644);
+        return file;
+    }
+
+    private static String getStreamResourceName(PackInfo pack)
+    {
+        return "packs/pack-" + pack.getPack().getName();
+    }
+
+    /**
+     * Unpacks the packs.
+     *
+     * @param modify if non-null, a file to change after it is unpacked
+     * @return the unpacker
+     * @throws IOException for any I/O error
+     */
+    private TestUnpacker unpack(File modify) throws IOException
+    {
+        List<Pack> selected = new ArrayList<Pack>();
+        for (PackInfo pack : packs)
+        {
+            selected.add(pack.getPack());
+        }
+        installData.setAvailablePacks(selected);
+        installData.setSelectedPacks(selected);
+
+        Prompt prompt = Mockito.mock(Prompt.class);
+        PlatformModelMatcher matcher = new PlatformModelMatcher(new Platforms(), Platforms.LINUX);
+        TestUnpacker unpacker = new TestUnpacker(installData, new TestPackResources(),
+                                                 Mockito.mock(RulesEngine.class),
+                                                 new VariableSubstitutorImpl(installData.getVariables()),
+                                                 new UninstallData(),
+                                                 new FileQueueFactory(Platforms.LINUX,
+                                                                      Mockito.mock(Librarian.class)),
+                                                 Mockito.mock(Housekeeper.class),
+                                                 new InstallerListeners(installData, prompt), prompt, matcher,
+                                                 modify);
+        unpacker.setProgressListener(Mockito.mock(ProgressListener.class));
+        unpacker.unpack();
+        assertTrue(unpacker.getResult());
+        return unpacker;
+    }
+
+    /**
+     * Determines if two files are hard links to the same content, by changing the timestamp of one.
+     *
+     * @param file1 the first file
+     * @param file2 the second file
+     * @return {@code true} if the files are linked
+     */
+    private static boolean isLinked(File file1, File file2)
+    {
+        long lastModified = file1.lastModified();
+        assertTrue(file1.setLastModified(lastModified - 1000));
+        boolean result = file2.lastModified() == file1.lastModified();
+        assertTrue(file1.setLastModified(lastModified));
+        return result;
+    }
+
+    /**
+     * Serves the packs and their streams from memory.
+     */
+    private class TestPackResources implements PackResources
+    {
+        @Override
+        public InputStream getPackStream(String name)
+        {
+            return getInputStream(ResourceManager.RESOURCE_BASEPATH_DEFAULT + "packs/pack-" + name);
+        }
+
+        @Override
+        public InputStream getInputStream(String name)
+        {
+            if ("packs.info".equals(name))
+            {
+                try
+                {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    ObjectOutputStream out = new ObjectOutputStream(bytes);
+                    out.writeObject(packs);
+                    out.close();
+                    return new ByteArrayInputStream(bytes.toByteArray());
+                }
+                catch (IOException exception)
+                {
+                    throw new IllegalStateException(exception);
+                }
+            }
+            ByteArrayOutputStream stream = streams.get(name.substring(
+                    ResourceManager.RESOURCE_BASEPATH_DEFAULT.length()));
+            if (stream == null)
+            {
+                throw new ResourceNotFoundException("Resource not found: " + name);
+            }
+            return new ByteArrayInputStream(stream.toByteArray());
+        }
+
+        @Override
+        public void cleanup()
+        {
+        }
+    }
+
+    /**
+     * An unpacker that records if back-referenced files are linked when they are unpacked, and that can change a
+     * file after unpacking it, to simulate it being changed during installation.
+     */
+    private static class TestUnpacker extends Unpacker
+    {
+        private final File modify;
+
+        private final Map<File, Boolean> linked = new HashMap<File, Boolean>();
+
+        public TestUnpacker(InstallData installData, PackResources resources, RulesEngine rules,
+                            VariableSubstitutorImpl substitutor, UninstallData uninstallData,
+                            FileQueueFactory factory, Housekeeper housekeeper, InstallerListeners listeners,
+                            Prompt prompt, PlatformModelMatcher matcher, File modify)
+        {
+            super(installData, resources, rules, substitutor, uninstallData, factory, housekeeper, listeners, prompt,
+                  matcher);
+            this.modify = modify;
+        }
+
+        @Override
+        protected void extract(PackFile packFile, File target, InputStream packInputStream, Pack pack,
+                               FileQueue queue) throws IOException
+        {
+            super.extract(packFile, target, packInputStream, pack, queue);
+            if (packFile.isBackReference())
+            {
+                File source = new File(packFile.getLinkedPackFile().getTargetPath());
+                linked.put(target.getAbsoluteFile(), UnpackerLinkDuplicatesTest.isLinked(source, target));
+            }
+            if (target.equals(modify))
+            {
+                FileUtils.writeStringToFile(target, "changed after unpacking", "UTF-8");
+            }
+        }
+
+        /**
+         * Determines if a back-referenced file was linked to the first installed copy when it was unpacked, i.e.
+         * before any parsing or execution.
+         *
+         * @param file the file
+         * @return {@code true} if the file was linked
+         */
+        public boolean isLinked(File file)
+        {
+            Boolean result = linked.get(file.getAbsoluteFile());
+            assertNotNull(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.unpacker;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.api.data.UpdateCheck;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.core.substitutor.VariableSubstitutorImpl;
+import com.izforge.izpack.installer.data.UninstallData;
+
+/**
+ * Tests {@link UpdateChecker}.
+ */
+public class UpdateCheckerTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The installation directory.
+     */
+    private File installDir;
+
+    /**
+     * The uninstallation data.
+     */
+    private UninstallData uninstallData;
+
+
+    @Before
+    public void setUp()
+    {
+        installDir = temporaryFolder.getRoot().getAbsoluteFile();
+        uninstallData = new UninstallData();
+    }
+
+    /**
+     * Verifies that files and empty directories matching the patterns are removed, unless they were installed
+     * or excluded.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCheck() throws Exception
+    {
+        File installed = create("lib/a.jar", true);
+        File stale = create("lib/old.jar", false);
+        File excluded = create("conf/user.properties", false);
+        File emptyDir = mkdir("a");
+        File nonEmptyDir = create("z/b.txt", true).getParentFile();
+
+        UpdateChecker checker = new UpdateChecker(uninstallData, createSubstitutor());
+        checker.check(installDir, Collections.singletonList(createCheck("**", "conf/**")));
+
+        assertTrue(installed.exists());
+        assertFalse(stale.exists());
+        assertTrue(excluded.exists());
+        assertTrue(nonEmptyDir.exists());
+
+        // directories sorted after a non-empty directory must still be removed
+        assertFalse(emptyDir.exists());
+    }
+
+    /**
+     * Verifies that files installed after a check are indexed by subsequent checks.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testIncrementalIndex() throws Exception
+    {
+        UpdateChecker checker = new UpdateChecker(uninstallData, createSubstitutor());
+        File first = create("bin/first.sh", true);
+        checker.check(installDir, Collections.singletonList(createCheck("bin/*", null)));
+        assertTrue(first.exists());
+
+        File second = create("bin/second.sh", true);
+        File stale = create("bin/stale.sh", false);
+        checker.check(installDir, Collections.singletonList(createCheck("bin/*", null)));
+        assertTrue(first.exists());
+        assertTrue(second.exists());
+        assertFalse(stale.exists());
+    }
+
+    /**
+     * Verifies that large numbers of files are deleted when deletion is performed in parallel.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testParallelDelete() throws Exception
+    {
+        File[] stale = new File[1000];
+        for (int i = 0; i < stale.length; ++i)
+        {
+            stale[i] = create("data/" + (i % 10) + "/file" + i + ".dat", false);
+        }
+        File installed = create("data/0/keep.dat", true);
+
+        UpdateChecker checker = new UpdateChecker(uninstallData, createSubstitutor(), 4);
+        checker.check(installDir, Collections.singletonList(createCheck("data/**", null)));
+
+        for (File file : stale)
+        {
+            assertFalse(file.getPath(), file.exists());
+        }
+        assertTrue(installed.exists());
+        assertFalse(new File(installDir, "data/1").exists());
+    }
+
+    private File create(String path, boolean install) throws IOException
+    {
+        File file = new File(installDir, path);
+        FileUtils.writeStringToFile(file, path);
+        if (install)
+        {
+            uninstallData.addFile(file.getPath(), true);
+        }
+        return file;
+    }
+
+    private File mkdir(String path) throws IOException
+    {
+        File dir = new File(installDir, path);
+        FileUtils.forceMkdir(dir);
+        return dir;
+    }
+
+    private UpdateCheck createCheck(String include, String exclude)
+    {
+        ArrayList<String> excludes = null;
+        if (exclude != null)
+        {
+            excludes = new ArrayList<String>(Arrays.asList(exclude));
+        }
+        return new UpdateCheck(new ArrayList<String>(Arrays.asList(include)), excludes);
+    }
+
+    private VariableSubstitutorImpl createSubstitutor()
+    {
+        return new VariableSubstitutorImpl(new DefaultVariables(new Properties()));
+    }
+}
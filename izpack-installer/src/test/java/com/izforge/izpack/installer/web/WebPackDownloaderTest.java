@@ -0,0 +1,321 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.installer.web;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.util.file.FileDigest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests {@link WebPackDownloader} against a local HTTP server that supports range and If-Range requests.
+ */
+public class WebPackDownloaderTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The content served.
+     */
+    private byte[] content;
+
+    /**
+     * The Range headers received by the server.
+     */
+    private final List<String> ranges = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * The If-Range headers received by the server.
+     */
+    private final List<String> ifRanges = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * The ETag of the served content.
+     */
+    private static final String ETAG = "\"v2\"";
+
+    /**
+     * The server.
+     */
+    private HttpServer server;
+
+    /**
+     * The URL of the served content.
+     */
+    private String url;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        content = new byte[200000];
+        new Random(42).nextBytes(content);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+                ranges.add(range);
+                ifRanges.add(ifRange);
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                int offset = 0;
+                if (range != null && (ifRange == null || ifRange.equals(ETAG)))
+                {
+                    offset = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+                    exchange.getResponseHeaders().add("Content-Range", "bytes " + offset + "-"
+                            + (content.length - 1) + "/" + content.length);
+                    exchange.sendResponseHeaders(206, content.length - offset);
+                }
+                else
+                {
+                    exchange.sendResponseHeaders(200, content.length);
+                }
+                OutputStream out = exchange.getResponseBody();
+                out.write(content, offset, content.length - offset);
+                out.close();
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/install.pack-core.jar";
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    /**
+     * Verifies that a prefetched file is returned by {@link WebPackDownloader#download}.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testPrefetch() throws Exception
+    {
+        File target = new File(temporaryFolder.getRoot(), "packs/install.pack-core.jar");
+        WebPackDownloader downloader = new WebPackDownloader(2);
+        try
+        {
+            downloader.prefetch(url, target, getDigest());
+            assertEquals(target, downloader.download(url, target, getDigest()));
+            assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+            assertEquals(1, ranges.size());
+
+            // a second download uses the existing file
+            assertEquals(target, downloader.download(url, target, getDigest()));
+            assertEquals(1, ranges.size());
+        }
+        finally
+        {
+            downloader.shutdown();
+        }
+    }
+
+    /**
+     * Verifies that a partial download is resumed with a range request.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testResume() throws Exception
+    {
+        File target = new File(temporaryFolder.getRoot(), "install.pack-core.jar");
+        File part = new File(target.getPath() + ".part");
+        byte[] partial = new byte[75000];
+        System.arraycopy(content, 0, partial, 0, partial.length);
+        FileUtils.writeByteArrayToFile(part, partial);
+
+        WebPackDownloader downloader = new WebPackDownloader(1);
+        try
+        {
+            downloader.download(url, target, getDigest());
+            assertEquals("bytes=75000-", ranges.get(0));
+            assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+            assertFalse(part.exists());
+        }
+        finally
+        {
+            downloader.shutdown();
+        }
+    }
+
+    /**
+     * Verifies that a partial download is resumed with its validator in an If-Range header, and that the
+     * validator is removed once the download completes.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testResumeUnchanged() throws Exception
+    {
+        File target = new File(temporaryFolder.getRoot(), "install.pack-core.jar");
+        File part = createPart(target, content, ETAG);
+
+        WebPackDownloader downloader = new WebPackDownloader(1);
+        try
+        {
+            downloader.download(url, target, null);
+            assertEquals("bytes=75000-", ranges.get(0));
+            assertEquals(ETAG, ifRanges.get(0));
+            assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+            assertFalse(part.exists());
+            assertFalse(new File(part.getPath() + ".validator").exists());
+        }
+        finally
+        {
+            downloader.shutdown();
+        }
+    }
+
+    /**
+     * Verifies that a partial download of a file that has since changed on the server is replaced, rather than
+     * having the new content appended to it.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testResumeChanged() throws Exception
+    {
+        File target = new File(temporaryFolder.getRoot(), "install.pack-core.jar");
+        byte[] old = new byte[content.length];
+        new Random(7).nextBytes(old);
+        createPart(target, old, "\"v1\"");
+
+        WebPackDownloader downloader = new WebPackDownloader(1);
+        try
+        {
+            downloader.download(url, target, null);
+            assertEquals("\"v1\"", ifRanges.get(0));
+            assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+        }
+        finally
+        {
+            downloader.shutdown();
+        }
+    }
+
+    /**
+     * Verifies that a partial download without a validator is discarded if there is no digest to check it against.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testDiscardPartWithoutValidator() throws Exception
+    {
+        File target = new File(temporaryFolder.getRoot(), "install.pack-core.jar");
+        byte[] old = new byte[content.length];
+        new Random(7).nextBytes(old);
+        createPart(target, old, null);
+
+        WebPackDownloader downloader = new WebPackDownloader(1);
+        try
+        {
+            downloader.download(url, target, null);
+            assertNull(ranges.get(0));
+            assertArrayEquals(content, FileUtils.readFileToByteArray(target));
+        }
+        finally
+        {
+            downloader.shutdown();
+        }
+    }
+
+    /**
+     * Verifies that a download that doesn't match its digest is rejected.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testDigestMismatch() throws Exception
+    {
+        File target = new File(temporaryFolder.getRoot(), "install.pack-core.jar");
+        WebPackDownloader downloader = new WebPackDownloader(1);
+        try
+        {
+            downloader.download(url, target, "00");
+            fail("Expected download to fail");
+        }
+        catch (IOException expected)
+        {
+            // expected
+        }
+        finally
+        {
+            downloader.shutdown();
+        }
+        assertFalse(target.exists());
+    }
+
+    /**
+     * Creates a partial download of the first 75000 bytes of some content.
+     *
+     * @param target    the download target
+     * @param content   the content
+     * @param validator the validator of the content. May be {@code null}
+     * @return the partial download
+     * @throws IOException for any I/O error
+     */
+    private File createPart(File target, byte[] content, String validator) throws IOException
+    {
+        File part = new File(target.getPath() + ".part");
+        byte[] partial = new byte[75000];
+        System.arraycopy(content, 0, partial, 0, partial.length);
+        FileUtils.writeByteArrayToFile(part, partial);
+        if (validator != null)
+        {
+            FileUtils.writeStringToFile(new File(part.getPath() + ".validator"), validator, "UTF-8");
+        }
+        return part;
+    }
+
+    private String getDigest()
+    {
+        MessageDigest digest = FileDigest.createDigest();
+        return FileDigest.toHex(digest.digest(content));
+    }
+}
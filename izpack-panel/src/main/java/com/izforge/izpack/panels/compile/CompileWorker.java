@@ -29,6 +29,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.StringWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -36,10 +37,22 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
 import com.izforge.izpack.api.adaptator.IXMLElement;
 import com.izforge.izpack.api.adaptator.IXMLParser;
 import com.izforge.izpack.api.adaptator.impl.XMLParser;
@@ -63,6 +76,11 @@ import com.izforge.izpack.util.PlatformModelMatcher;
  * <li>collecting and creating all jobs
  * <li>doing the actual compilation
  * </ul>
+ * <p/>
+ * If the selected compiler is <tt>javac</tt> and the installer is running on a JDK, jobs are compiled in-process
+ * using {@link JavaCompiler}. Jobs are then compiled in parallel, except where a job's class path refers to the
+ * sources of an earlier job, in which case it waits for that job to complete. Setting the
+ * <tt>izpack.compile.fork</tt> system property to <tt>true</tt> forces the compiler to be run in separate processes.
  *
  * @author Tino Schwarze
  */
@@ -84,6 +102,21 @@ public class CompileWorker implements Runnable
 
     private static final String ECLIPSE_COMPILER_CLASS = "org.eclipse.jdt.internal.compiler.batch.Main";
 
+    /**
+     * System property to force the compiler to be run in separate processes.
+     */
+    public static final String FORK_PROPERTY = "izpack.compile.fork";
+
+    /**
+     * The name of the compiler that may be run in-process.
+     */
+    private static final String JAVAC = "javac";
+
+    /**
+     * The maximum no. of jobs compiled concurrently by the in-process compiler.
+     */
+    private static final int THREADS = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors()));
+
     private VariableSubstitutor vs;
 
     private IXMLElement spec;
@@ -106,6 +139,11 @@ public class CompileWorker implements Runnable
 
     private CompileResult result = null;
 
+    /**
+     * Determines if the compiler must be run in separate processes.
+     */
+    private boolean fork = Boolean.getBoolean(FORK_PROPERTY);
+
     private final Resources resources;
 
     /**
@@ -201,6 +239,26 @@ public class CompileWorker implements Runnable
         return this.compilerArgumentsToUse;
     }
 
+    /**
+     * Determines if the compiler must be run in separate processes, even if it could be run in-process.
+     *
+     * @param fork if <tt>true</tt>, run the compiler in separate processes
+     */
+    public void setFork(boolean fork)
+    {
+        this.fork = fork;
+    }
+
+    /**
+     * Determines if the compiler must be run in separate processes.
+     *
+     * @return <tt>true</tt> if the compiler must be run in separate processes
+     */
+    public boolean isFork()
+    {
+        return fork;
+    }
+
     /**
      * Get the result of the compilation.
      *
@@ -426,6 +484,12 @@ public class CompileWorker implements Runnable
 
         this.handler.startAction("Compilation", this.jobs.size());
 
+        JavaCompiler javac = fork ? null : getInProcessCompiler(this.compilerToUse);
+        if (javac != null)
+        {
+            return compileJobsInProcess(javac, args);
+        }
+
         // check whether compiler is valid (but only if there are jobs)
         if (job_it.hasNext())
         {
@@ -459,6 +523,180 @@ public class CompileWorker implements Runnable
         return new CompileResult();
     }
 
+    /**
+     * Compiles the jobs using an in-process compiler.
+     * <p/>
+     * Jobs that don't depend on other jobs are submitted immediately. A job that depends on others is only submitted
+     * once the results of those it depends on have been handled, so it isn't compiled against a failed job unless
+     * the handler elects to continue. Results are reported to the handler in job order, from the calling thread.
+     * <p/>
+     * If a failure aborts compilation, no further jobs are submitted, and any still running are allowed to finish
+     * before returning.
+     *
+     * @param javac the compiler
+     * @param args  the compiler arguments
+     * @return the result
+     */
+    private CompileResult compileJobsInProcess(JavaCompiler javac, List<String> args)
+    {
+        logger.fine("Compiling " + jobs.size() + " jobs in-process");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "compilation thread");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        List<Future<CompileResult>> futures = new ArrayList<Future<CompileResult>>();
+        try
+        {
+            // the index of the last job each job depends on, or -1 if it doesn't depend on any
+            int[] last = new int[jobs.size()];
+            for (int i = 0; i < jobs.size(); ++i)
+            {
+                CompilationJob job = jobs.get(i);
+                last[i] = -1;
+                for (int j = 0; j < i; ++j)
+                {
+                    if (job.dependsOn(jobs.get(j)))
+                    {
+                        last[i] = j;
+                    }
+                }
+                futures.add((last[i] == -1) ? submit(executor, job, javac, args) : null);
+            }
+
+            for (int i = 0; i < jobs.size(); ++i)
+            {
+                CompilationJob job = jobs.get(i);
+                this.handler.nextStep(job.getName(), job.getSize(), i);
+
+                CompileResult jobResult;
+                try
+                {
+                    jobResult = futures.get(i).get();
+                }
+                catch (ExecutionException exception)
+                {
+                    Throwable cause = exception.getCause();
+                    jobResult = new CompileResult((cause instanceof Exception) ? (Exception) cause : exception);
+                }
+                this.handler.progress(job.getSize(), job.getName());
+
+                if (!jobResult.isSuccess())
+                {
+                    this.handler.handleCompileError(jobResult);
+                    if (!jobResult.isContinue())
+                    {
+                        return jobResult;
+                    }
+                }
+
+                // all jobs up to this one have been handled, so submit those whose last dependency this is
+                for (int j = i + 1; j < jobs.size(); ++j)
+                {
+                    if (last[j] == i)
+                    {
+                        futures.set(j, submit(executor, jobs.get(j), javac, args));
+                    }
+                }
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            return new CompileResult(exception);
+        }
+        finally
+        {
+            shutdown(executor, futures);
+        }
+
+        logger.fine("Compilation finished");
+        return new CompileResult();
+    }
+
+    /**
+     * Submits a job for in-process compilation.
+     *
+     * @param executor the executor
+     * @param job      the job
+     * @param javac    the compiler
+     * @param args     the compiler arguments
+     * @return the job's future result
+     */
+    private static Future<CompileResult> submit(ExecutorService executor, final CompilationJob job,
+                                                final JavaCompiler javac, final List<String> args)
+    {
+        return executor.submit(new Callable<CompileResult>()
+        {
+            @Override
+            public CompileResult call() throws Exception
+            {
+                return job.compile(javac, args);
+            }
+        });
+    }
+
+    /**
+     * Shuts down the compilation executor, cancelling jobs that haven't started.
+     * <p/>
+     * Running jobs aren't interrupted, as an interrupted compiler may leave partially written classes. Instead, this
+     * waits for them to finish, so that none are still writing classes after compilation returns.
+     *
+     * @param executor the executor
+     * @param futures  the submitted jobs. May contain {@code null} for jobs that weren't submitted
+     */
+    private static void shutdown(ExecutorService executor, List<Future<CompileResult>> futures)
+    {
+        for (Future<CompileResult> future : futures)
+        {
+            if (future != null)
+            {
+                future.cancel(false);
+            }
+        }
+        executor.shutdown();
+        try
+        {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+            {
+                logger.fine("Waiting for running compilation jobs to finish");
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the in-process compiler, if the specified compiler may be run in-process.
+     *
+     * @param compiler the selected compiler
+     * @return the in-process compiler, or {@code null} if it is not supported or not available
+     */
+    private static JavaCompiler getInProcessCompiler(String compiler)
+    {
+        JavaCompiler result = null;
+        if (JAVAC.equals(compiler))
+        {
+            try
+            {
+                // returns null if the installer isn't running on a JDK
+                result = ToolProvider.getSystemJavaCompiler();
+            }
+            catch (Throwable exception)
+            {
+                logger.log(Level.FINE, "In-process compiler not available", exception);
+            }
+        }
+        return result;
+    }
+
     private CompilationJob collectJobsRecursive(IXMLElement node, List<String> classpath)
             throws Exception
     {
@@ -693,6 +931,119 @@ public class CompileWorker implements Runnable
             return this.files.size();
         }
 
+        /**
+         * Determines if this job must be compiled after another, i.e. if an entry of this job's class path contains
+         * any of the other job's files.
+         * <p/>
+         * As no output directory is specified, classes are written alongside their sources, so the other job's
+         * classes would be on this job's class path.
+         *
+         * @param other the other job
+         * @return <tt>true</tt> if this job depends on the other
+         */
+        public boolean dependsOn(CompilationJob other)
+        {
+            List<String> entries = this.classpath;
+            if (entries.isEmpty())
+            {
+                // the compiler defaults the class path to the current directory
+                entries = new ArrayList<String>();
+                entries.add(System.getProperty("user.dir"));
+            }
+            for (String entry : entries)
+            {
+                String prefix = new File(entry).getAbsolutePath();
+                if (!prefix.endsWith(File.separator))
+                {
+                    prefix += File.separator;
+                }
+                for (File file : other.files)
+                {
+                    if (file.getAbsolutePath().startsWith(prefix))
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Compiles this job using an in-process compiler.
+         * <p/>
+         * All files are compiled in a single invocation. The listener is not notified, so this may be invoked from
+         * any thread.
+         *
+         * @param compiler  the compiler
+         * @param arguments the compiler arguments
+         * @return the result
+         * @throws IOException if the compiler's file manager cannot be closed
+         */
+        public CompileResult compile(JavaCompiler compiler, List<String> arguments) throws IOException
+        {
+            logger.fine("starting in-process job " + this.name);
+            List<String> options = new ArrayList<String>(arguments);
+            StringBuilder classpath_sb = new StringBuilder();
+            for (String cp : this.classpath)
+            {
+                if (classpath_sb.length() > 0)
+                {
+                    classpath_sb.append(File.pathSeparatorChar);
+                }
+                classpath_sb.append(new File(cp).getAbsolutePath());
+            }
+            if (classpath_sb.length() > 0)
+            {
+                options.add("-classpath");
+                options.add(classpath_sb.toString());
+            }
+
+            // the equivalent command line, for error reporting
+            List<String> cmdline = new ArrayList<String>();
+            cmdline.add(JAVAC);
+            cmdline.addAll(options);
+            for (File file : this.files)
+            {
+                cmdline.add(file.getAbsolutePath());
+            }
+
+            StringWriter output = new StringWriter();
+            StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+            boolean success;
+            try
+            {
+                Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(this.files);
+                success = compiler.getTask(output, fileManager, null, options, null, units).call();
+            }
+            catch (IllegalArgumentException exception)
+            {
+                return new CompileResult(messages.get("CompilePanel.error.invalidarguments"), cmdline, "",
+                                         exception.getMessage());
+            }
+            finally
+            {
+                fileManager.close();
+            }
+
+            if (!success)
+            {
+                return new CompileResult(messages.get("CompilePanel.error"), cmdline, "", output.toString());
+            }
+            for (File file : this.files)
+            {
+                String basename = file.getName();
+                basename = basename.substring(0, basename.lastIndexOf('.')) + ".class";
+                if (!new File(file.getParentFile(), basename).exists())
+                {
+                    return new CompileResult(messages.get("CompilePanel.error.noclassfile") + file.getAbsolutePath(),
+                                             cmdline, "", output.toString());
+                }
+            }
+
+            logger.fine("Job " + this.name + " done (" + this.files.size() + " files compiled)");
+            return new CompileResult();
+        }
+
         /**
          * Perform this job - start compilation.
          *
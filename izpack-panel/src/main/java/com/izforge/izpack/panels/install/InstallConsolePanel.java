@@ -24,7 +24,9 @@ package com.izforge.izpack.panels.install;
 import java.util.Properties;
 
 import com.izforge.izpack.api.data.InstallData;
-import com.izforge.izpack.api.event.ProgressListener;
+import com.izforge.izpack.api.data.Pack;
+import com.izforge.izpack.api.event.ProgressStatus;
+import com.izforge.izpack.api.event.ProgressStatusListener;
 import com.izforge.izpack.installer.console.AbstractConsolePanel;
 import com.izforge.izpack.installer.console.ConsolePanel;
 import com.izforge.izpack.installer.panel.PanelView;
@@ -36,7 +38,7 @@ import com.izforge.izpack.util.Console;
  *
  * @author Mounir el hajj
  */
-public class InstallConsolePanel extends AbstractConsolePanel implements ProgressListener
+public class InstallConsolePanel extends AbstractConsolePanel implements ProgressStatusListener
 {
     /**
      * The unpacker.
@@ -45,6 +47,16 @@ public class InstallConsolePanel extends AbstractConsolePanel implements Progres
 
     private int noOfPacks = 0;
 
+    /**
+     * The minimum interval between progress status lines, in milliseconds.
+     */
+    private static final long STATUS_INTERVAL = 5000;
+
+    /**
+     * The time the last progress status line was printed.
+     */
+    private long lastStatus;
+
     public InstallConsolePanel(IUnpacker unpacker, PanelView<ConsolePanel> panel)
     {
         super(panel);
@@ -90,6 +102,34 @@ public class InstallConsolePanel extends AbstractConsolePanel implements Progres
 
     }
 
+    /**
+     * Prints the amount of data unpacked and the estimated time remaining, at most every few seconds.
+     *
+     * @param status the progress status
+     */
+    @Override
+    public void progress(ProgressStatus status)
+    {
+        long now = System.currentTimeMillis();
+        if (now - lastStatus >= STATUS_INTERVAL && status.getElapsed() >= STATUS_INTERVAL)
+        {
+            lastStatus = now;
+            StringBuilder text = new StringBuilder("[ ");
+            text.append(Pack.toByteUnitsString(status.getBytes()));
+            if (status.getTotalBytes() > 0)
+            {
+                text.append(" of ").append(Pack.toByteUnitsString(status.getTotalBytes()));
+            }
+            text.append(", ").append(Math.round(status.getFilesPerSecond())).append(" files/s");
+            long remaining = status.getRemaining();
+            if (remaining > 0)
+            {
+                text.append(", ").append(ProgressStatus.formatTime(remaining)).append(" remaining");
+            }
+            System.out.println(text.append(" ]"));
+        }
+    }
+
     @Override
     public void nextStep(String packName, int stepno, int stepsize)
     {
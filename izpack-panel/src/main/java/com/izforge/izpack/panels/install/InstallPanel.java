@@ -25,8 +25,10 @@ import javax.swing.JLabel;
 import javax.swing.JProgressBar;
 import javax.swing.SwingUtilities;
 
+import com.izforge.izpack.api.data.Pack;
 import com.izforge.izpack.api.data.Panel;
-import com.izforge.izpack.api.event.ProgressListener;
+import com.izforge.izpack.api.event.ProgressStatus;
+import com.izforge.izpack.api.event.ProgressStatusListener;
 import com.izforge.izpack.api.resource.Resources;
 import com.izforge.izpack.gui.IzPanelLayout;
 import com.izforge.izpack.gui.LabelFactory;
@@ -40,7 +42,7 @@ import com.izforge.izpack.installer.gui.IzPanel;
  *
  * @author Julien Ponge
  */
-public class InstallPanel extends IzPanel implements ProgressListener
+public class InstallPanel extends IzPanel implements ProgressStatusListener
 {
 
     private static final long serialVersionUID = 3257282547959410992L;
@@ -90,6 +92,11 @@ public class InstallPanel extends IzPanel implements ProgressListener
      */
     private int currentStep = 0;
 
+    /**
+     * The overall progress text, excluding the progress status.
+     */
+    private String overallText = "";
+
     /**
      * Constructs an <tt>InstallPanel</tt>.
      *
@@ -160,7 +167,8 @@ public class InstallPanel extends IzPanel implements ProgressListener
                 {
                     overallProgressBar.setIndeterminate(true);
                 }
-                overallProgressBar.setString("0 / " + Integer.toString(noOfPacks));
+                overallText = "0 / " + Integer.toString(noOfPacks);
+                overallProgressBar.setString(overallText);
             }
         });
     }
@@ -242,6 +250,40 @@ public class InstallPanel extends IzPanel implements ProgressListener
         });
     }
 
+    /**
+     * Shows the amount of data unpacked and the estimated time remaining.
+     *
+     * @param status the progress status
+     */
+    @Override
+    public void progress(final ProgressStatus status)
+    {
+        SwingUtilities.invokeLater(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (!overallProgressBar.isEnabled())
+                {
+                    // finished
+                    return;
+                }
+                StringBuilder text = new StringBuilder(overallText);
+                text.append(" - ").append(Pack.toByteUnitsString(status.getBytes()));
+                if (status.getTotalBytes() > 0)
+                {
+                    text.append(" / ").append(Pack.toByteUnitsString(status.getTotalBytes()));
+                }
+                long remaining = status.getRemaining();
+                if (remaining > 0)
+                {
+                    text.append(" - ").append(ProgressStatus.formatTime(remaining));
+                }
+                overallProgressBar.setString(text.toString());
+            }
+        });
+    }
+
     /**
      * Pack changing.
      *
@@ -263,8 +305,8 @@ public class InstallPanel extends IzPanel implements ProgressListener
                 packProgressBar.setMaximum(max);
                 packProgressBar.setString(packName);
                 overallProgressBar.setValue(stepno - 1);
-                overallProgressBar.setString(Integer.toString(stepno) + " / "
-                                                     + Integer.toString(noOfPacks));
+                overallText = Integer.toString(stepno) + " / " + Integer.toString(noOfPacks);
+                overallProgressBar.setString(overallText);
             }
         });
     }
@@ -21,6 +21,15 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,6 +41,17 @@ import java.util.logging.Logger;
  * <li>parsing the process spec XML file
  * <li>performing the actions described therein
  * </ul>
+ * <p/>
+ * Jobs run in the order they are declared, unless a job has a <em>group</em> or <em>depends</em> attribute:
+ * <ul>
+ * <li>jobs sharing a <em>group</em> may run concurrently with each other, once all earlier jobs outside the group
+ * have completed
+ * <li><em>depends</em> lists the names of the earlier jobs or groups that must complete before the job can start
+ * </ul>
+ * Independent jobs run on at most <em>parallelJobs</em> threads, and their output is prefixed with the job name.
+ * The progress and output of each such job is passed to the handler as one block when the job finishes, so that
+ * concurrent jobs don't interleave their calls on it.
+ * No new job starts once a job has failed.
  *
  * @author Tino Schwarze
  */
@@ -43,6 +63,11 @@ public class ProcessPanelWorker implements Runnable
      */
     public static final String SPEC_RESOURCE_NAME = "ProcessPanel.Spec.xml";
 
+    /**
+     * The default maximum no. of jobs to run concurrently.
+     */
+    private static final int PARALLEL_JOBS = Math.min(4, Math.max(1, Runtime.getRuntime().availableProcessors()));
+
     private AbstractUIProcessHandler handler;
 
     /**
@@ -66,6 +91,11 @@ public class ProcessPanelWorker implements Runnable
 
     private String logfiledir = null;
 
+    /**
+     * The maximum no. of jobs to run concurrently.
+     */
+    private int parallelJobs = PARALLEL_JOBS;
+
     private final InstallData idata;
 
     private final Map<Boolean, List<ButtonConfig>> buttonConfigs = new HashMap<Boolean, List<ButtonConfig>>();
@@ -146,8 +176,47 @@ public class ProcessPanelWorker implements Runnable
             logfiledir = logFileDirElement.getContent();
         }
 
+        IXMLElement parallelJobsElement = spec.getFirstChildNamed("parallelJobs");
+        if (parallelJobsElement != null)
+        {
+            try
+            {
+                parallelJobs = Math.max(1, Integer.parseInt(parallelJobsElement.getContent().trim()));
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warning("Invalid parallelJobs: " + parallelJobsElement.getContent());
+            }
+        }
+
+        // the names and groups of the jobs read so far, including those that are skipped
+        Set<String> declared = new HashSet<String>();
+
         for (IXMLElement job_el : spec.getChildrenNamed("job"))
         {
+            // a job may only depend on earlier jobs. The dependency is ignored if the earlier job is skipped
+            if (job_el.hasAttribute("depends"))
+            {
+                for (String name : job_el.getAttribute("depends").split(","))
+                {
+                    if (name.trim().length() > 0 && !declared.contains(name.trim()))
+                    {
+                        logger.severe("Job '" + job_el.getAttribute("name", "") + "' depends on '" + name.trim()
+                                              + "', which is not the name or group of an earlier job");
+                        return false;
+                    }
+                }
+            }
+            if (!Boolean.parseBoolean(job_el.getAttribute("catch")) && !Boolean.parseBoolean(
+                    job_el.getAttribute("final")))
+            {
+                declared.add(job_el.getAttribute("name", ""));
+                if (job_el.hasAttribute("group"))
+                {
+                    declared.add(job_el.getAttribute("group"));
+                }
+            }
+
             // normally use condition attribute, but also read conditionid to not break older versions.
             String conditionid = job_el.hasAttribute("condition") ? job_el.getAttribute(
                     "condition") : job_el.hasAttribute("conditionid") ? job_el.getAttribute("conditionid") : null;
@@ -179,6 +248,19 @@ public class ProcessPanelWorker implements Runnable
                 List<ProcessPanelWorker.Processable> ef_list = new ArrayList<ProcessPanelWorker.Processable>();
 
                 String job_name = job_el.getAttribute("name", "");
+                String group = job_el.getAttribute("group");
+                List<String> depends = null;
+                if (job_el.hasAttribute("depends"))
+                {
+                    depends = new ArrayList<String>();
+                    for (String name : job_el.getAttribute("depends").split(","))
+                    {
+                        if (name.trim().length() > 0)
+                        {
+                            depends.add(name.trim());
+                        }
+                    }
+                }
 
                 for (IXMLElement executeFileElement : job_el.getChildrenNamed("executefile"))
                 {
@@ -247,7 +329,7 @@ public class ProcessPanelWorker implements Runnable
                     } else if (isFinal) {
                         this.finalJobs.add(new ProcessingJob(job_name, ef_list));
                     } else {
-                        this.jobs.add(new ProcessingJob(job_name, ef_list));
+                        this.jobs.add(new ProcessingJob(job_name, ef_list, group, depends));
                     }
                 }
             }
@@ -294,15 +376,19 @@ public class ProcessPanelWorker implements Runnable
         try
         {
             jobs.clear();
+            catchJobs.clear();
+            finalJobs.clear();
             if (!readSpec())
             {
                 System.err.println("Error parsing XML specification for processing.");
+                this.result = false;
                 return;
             }
         }
         catch (IOException ioe)
         {
             System.err.println(ioe.toString());
+            this.result = false;
             return;
         }
 
@@ -345,20 +431,16 @@ public class ProcessPanelWorker implements Runnable
         /**
          * Process panel jobs.
          */
-        for (ProcessPanelWorker.ProcessingJob processingJob : this.jobs)
-        {
-            this.result = runJob(processingJob);
+        this.result = isConcurrent() ? runConcurrently() : runSequentially();
 
-            if (!this.result)
+        if (!this.result)
+        {
+            /**
+             * Jobs run in event of failure.
+             */
+            for (ProcessPanelWorker.ProcessingJob catchJob : this.catchJobs)
             {
-                /**
-                 * Jobs run in event of failure.
-                 */
-                for (ProcessPanelWorker.ProcessingJob catchJob : this.catchJobs)
-                {
-                    runJob(catchJob);
-                }
-                break;
+                runJob(catchJob);
             }
         }
 
@@ -407,18 +489,215 @@ public class ProcessPanelWorker implements Runnable
      * @return the job's return value.
      */
     private boolean runJob(ProcessPanelWorker.ProcessingJob job)
+    {
+        return runJob(job, this.handler);
+    }
+
+    /**
+     * Runs the specified process panel job.
+     *
+     * @param job     a ProcessPanelWorker job.
+     * @param handler the handler to send output to
+     * @return the job's return value.
+     */
+    private boolean runJob(ProcessPanelWorker.ProcessingJob job, AbstractUIProcessHandler handler)
     {
         Boolean val;
 
-        this.handler.startProcess(job.name);
+        handler.startProcess(job.name);
 
-        val = job.run(this.handler, idata.getVariables());
+        val = job.run(handler, idata.getVariables());
 
-        this.handler.finishProcess();
+        handler.finishProcess();
 
         return val;
     }
 
+    /**
+     * Determines if any job declares a group or dependencies, and may therefore run concurrently with others.
+     *
+     * @return <tt>true</tt> if jobs may run concurrently
+     */
+    private boolean isConcurrent()
+    {
+        for (ProcessingJob job : jobs)
+        {
+            if (job.group != null || job.depends != null)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the jobs one after the other, stopping at the first failure.
+     *
+     * @return <tt>true</tt> if all jobs succeeded
+     */
+    private boolean runSequentially()
+    {
+        for (ProcessPanelWorker.ProcessingJob processingJob : this.jobs)
+        {
+            if (!runJob(processingJob))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the jobs, starting each as soon as the jobs it depends on have succeeded.
+     * <p/>
+     * Once a job fails, no further jobs are started, but those already running are allowed to complete.
+     *
+     * @return <tt>true</tt> if all jobs succeeded
+     */
+    private boolean runConcurrently()
+    {
+        Map<ProcessingJob, Set<ProcessingJob>> dependencies = getDependencies();
+        final AtomicBoolean failed = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelJobs, jobs.size()),
+                                                                new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "processing job");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        CompletionService<Boolean> service = new ExecutorCompletionService<Boolean>(executor);
+        Map<Future<Boolean>, ProcessingJob> running = new HashMap<Future<Boolean>, ProcessingJob>();
+        Set<ProcessingJob> pending = new LinkedHashSet<ProcessingJob>(jobs);
+        Set<ProcessingJob> completed = new HashSet<ProcessingJob>();
+        try
+        {
+            while (true)
+            {
+                if (!failed.get())
+                {
+                    for (Iterator<ProcessingJob> iterator = pending.iterator(); iterator.hasNext(); )
+                    {
+                        final ProcessingJob job = iterator.next();
+                        if (completed.containsAll(dependencies.get(job)))
+                        {
+                            iterator.remove();
+                            running.put(service.submit(new Callable<Boolean>()
+                            {
+                                @Override
+                                public Boolean call()
+                                {
+                                    // a queued job doesn't start if another has since failed
+                                    if (failed.get())
+                                    {
+                                        return false;
+                                    }
+                                    return runJob(job, new JobProcessHandler(handler, job.name));
+                                }
+                            }), job);
+                        }
+                    }
+                }
+                if (running.isEmpty())
+                {
+                    break;
+                }
+                Future<Boolean> future = service.take();
+                ProcessingJob job = running.remove(future);
+                boolean success;
+                try
+                {
+                    success = future.get();
+                }
+                catch (ExecutionException exception)
+                {
+                    logger.log(Level.SEVERE, "Job " + job.name + " failed: " + exception.getCause().getMessage(),
+                               exception.getCause());
+                    synchronized (handler)
+                    {
+                        handler.emitError("Process failed", "Job " + job.name + " failed: " + exception.getCause());
+                    }
+                    success = false;
+                }
+                if (success)
+                {
+                    completed.add(job);
+                }
+                else
+                {
+                    failed.set(true);
+                }
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            failed.set(true);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return !failed.get() && pending.isEmpty();
+    }
+
+    /**
+     * Returns the jobs that each job depends on.
+     * <p/>
+     * A job with a <em>depends</em> attribute depends on the earlier jobs with the listed names or groups. Otherwise,
+     * it depends on all earlier jobs, excluding those in its own group.
+     *
+     * @return the dependencies, keyed on job
+     */
+    private Map<ProcessingJob, Set<ProcessingJob>> getDependencies()
+    {
+        Map<ProcessingJob, Set<ProcessingJob>> result = new HashMap<ProcessingJob, Set<ProcessingJob>>();
+        for (int i = 0; i < jobs.size(); ++i)
+        {
+            ProcessingJob job = jobs.get(i);
+            Set<ProcessingJob> dependencies = new HashSet<ProcessingJob>();
+            for (int j = 0; j < i; ++j)
+            {
+                ProcessingJob previous = jobs.get(j);
+                if (job.depends != null)
+                {
+                    if (job.depends.contains(previous.name)
+                            || (previous.group != null && job.depends.contains(previous.group)))
+                    {
+                        dependencies.add(previous);
+                    }
+                }
+                else if (job.group == null || !job.group.equals(previous.group))
+                {
+                    dependencies.add(previous);
+                }
+            }
+            result.put(job, dependencies);
+        }
+        return result;
+    }
+
+    /**
+     * Writes a line of process output to the log file, if one is being used.
+     *
+     * @param handler the handler the output was sent to
+     * @param line    the line to write
+     */
+    private void logToFile(AbstractUIProcessHandler handler, String line)
+    {
+        if (logfile != null)
+        {
+            if (handler instanceof JobProcessHandler)
+            {
+                line = ((JobProcessHandler) handler).prefix(line);
+            }
+            logfile.println(line);
+        }
+    }
+
     /**
      * Start the compilation in a separate thread.
      */
@@ -455,12 +734,30 @@ public class ProcessPanelWorker implements Runnable
 
         public String name;
 
+        /**
+         * The group that the job may run concurrently with. May be {@code null}
+         */
+        private final String group;
+
+        /**
+         * The names of the jobs or groups that must complete before this job starts. May be {@code null}
+         */
+        private final List<String> depends;
+
         private List<ProcessPanelWorker.Processable> processables;
 
         public ProcessingJob(String name, List<ProcessPanelWorker.Processable> processables)
+        {
+            this(name, processables, null, null);
+        }
+
+        public ProcessingJob(String name, List<ProcessPanelWorker.Processable> processables, String group,
+                             List<String> depends)
         {
             this.name = name;
             this.processables = processables;
+            this.group = group;
+            this.depends = depends;
         }
 
         @Override
@@ -662,11 +959,7 @@ public class ProcessPanelWorker implements Runnable
                         this.handler.logOutput(line, stderr);
 
                         // log output also to file given in ProcessPanelSpec
-
-                        if (logfile != null)
-                        {
-                            logfile.println(line);
-                        }
+                        logToFile(this.handler, line);
 
                         synchronized (this.stop)
                         {
@@ -682,12 +975,7 @@ public class ProcessPanelWorker implements Runnable
                     this.handler.logOutput(ioe.toString(), true);
 
                     // log errors also to file given in ProcessPanelSpec
-
-                    if (logfile != null)
-                    {
-                        logfile.println(ioe.toString());
-                    }
-
+                    logToFile(this.handler, ioe.toString());
                 }
 
             }
@@ -885,6 +1173,124 @@ public class ProcessPanelWorker implements Runnable
         return (false);
     }
 
+    /**
+     * Handler for a job that runs concurrently with others.
+     * <p/>
+     * Calls are passed on to the underlying handler as they are made, with output and messages prefixed with the job
+     * name so that the interleaved output of concurrent jobs can be told apart. The underlying handler isn't designed
+     * for concurrent calls, so each call is made holding its lock.
+     */
+    private static class JobProcessHandler implements AbstractUIProcessHandler
+    {
+        private final AbstractUIProcessHandler handler;
+
+        private final String name;
+
+        public JobProcessHandler(AbstractUIProcessHandler handler, String name)
+        {
+            this.handler = handler;
+            this.name = name;
+        }
+
+        public String prefix(String message)
+        {
+            return "[" + name + "] " + message;
+        }
+
+        @Override
+        public void logOutput(String message, boolean stderr)
+        {
+            synchronized (handler)
+            {
+                handler.logOutput(prefix(message), stderr);
+            }
+        }
+
+        @Override
+        public void startProcessing(int no_of_processes)
+        {
+            // processing is started and finished by the worker
+        }
+
+        @Override
+        public void startProcess(String name)
+        {
+            synchronized (handler)
+            {
+                handler.startProcess(name);
+            }
+        }
+
+        @Override
+        public void finishProcess()
+        {
+            synchronized (handler)
+            {
+                handler.finishProcess();
+            }
+        }
+
+        @Override
+        public void finishProcessing(boolean unlockPrev, boolean unlockNext)
+        {
+            // processing is started and finished by the worker
+        }
+
+        @Override
+        public void emitNotification(String message)
+        {
+            synchronized (handler)
+            {
+                handler.emitNotification(prefix(message));
+            }
+        }
+
+        @Override
+        public boolean emitWarning(String title, String message)
+        {
+            synchronized (handler)
+            {
+                return handler.emitWarning(title, prefix(message));
+            }
+        }
+
+        @Override
+        public void emitError(String title, String message)
+        {
+            synchronized (handler)
+            {
+                handler.emitError(title, prefix(message));
+            }
+        }
+
+        @Override
+        public int askQuestion(String title, String question, int choices)
+        {
+            synchronized (handler)
+            {
+                return handler.askQuestion(title, prefix(question), choices);
+            }
+        }
+
+        @Override
+        public int askQuestion(String title, String question, int choices, int default_choice)
+        {
+            synchronized (handler)
+            {
+                return handler.askQuestion(title, prefix(question), choices, default_choice);
+            }
+        }
+
+        @Override
+        public int askWarningQuestion(String title, String question, int choices, int default_choice)
+        {
+            synchronized (handler)
+            {
+                return handler.askWarningQuestion(title, prefix(question), choices, default_choice);
+            }
+        }
+    }
+
     private static class QuestionErrorDisplayer implements Runnable
     {
         private AbstractUIProcessHandler uiHandler;
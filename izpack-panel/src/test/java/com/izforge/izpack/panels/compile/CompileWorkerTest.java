@@ -0,0 +1,296 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.compile;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.izforge.izpack.api.data.AutomatedInstallData;
+import com.izforge.izpack.api.data.Variables;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.core.resource.ResourceManager;
+import com.izforge.izpack.core.substitutor.VariableSubstitutorImpl;
+import com.izforge.izpack.util.PlatformModelMatcher;
+import com.izforge.izpack.util.Platforms;
+
+/**
+ * Tests {@link CompileWorker}.
+ */
+public class CompileWorkerTest
+{
+    private static final Logger logger = Logger.getLogger(CompileWorkerTest.class.getName());
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The no. of independent jobs generated.
+     */
+    private static final int JOBS = 4;
+
+    /**
+     * The no. of sources generated per job.
+     */
+    private static final int SOURCES = 40;
+
+    /**
+     * The source root.
+     */
+    private File src;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        src = temporaryFolder.newFolder("src");
+        generateSources();
+    }
+
+    /**
+     * Verifies that the generated source tree compiles in-process, including a job that depends on another.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testInProcess() throws Exception
+    {
+        assumeTrue(ToolProvider.getSystemJavaCompiler() != null);
+
+        CompileResult result = compile("javac", false);
+        assertTrue(result.getMessage() + result.getStderr(), result.isSuccess());
+        checkClasses(true);
+    }
+
+    /**
+     * Verifies that when a job fails and compilation is aborted, jobs depending on it aren't compiled.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testAbortSkipsDependents() throws Exception
+    {
+        assumeTrue(ToolProvider.getSystemJavaCompiler() != null);
+
+        FileUtils.writeStringToFile(new File(src, "job0/job0/Broken.java"), "package job0;\npublic class Broken {");
+
+        CompileResult result = compile("javac", false);
+        assertFalse(result.isSuccess());
+        assertTrue(result.isAbort());
+        assertTrue(FileUtils.listFiles(new File(src, "dependent"), new String[]{"class"}, true).isEmpty());
+    }
+
+    /**
+     * Compiles the generated source tree in-process and with a forked compiler, logging the wall-clock time taken
+     * by each.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    @Ignore("Benchmark. Run manually when changing CompileWorker")
+    public void benchmarkCompareModes() throws Exception
+    {
+        assumeTrue(ToolProvider.getSystemJavaCompiler() != null);
+        File javac = getJavac();
+        assumeTrue(javac != null);
+
+        long start = System.currentTimeMillis();
+        CompileResult result = compile("javac", false);
+        long inProcess = System.currentTimeMillis() - start;
+        assertTrue(result.getMessage() + result.getStderr(), result.isSuccess());
+        checkClasses(true);
+
+        deleteClasses();
+        checkClasses(false);
+
+        start = System.currentTimeMillis();
+        result = compile(javac.getPath(), true);
+        long forked = System.currentTimeMillis() - start;
+        assertTrue(result.getMessage() + result.getStderr(), result.isSuccess());
+        checkClasses(true);
+
+        logger.info("Compiled " + (JOBS + 1) * SOURCES + " sources in-process in " + inProcess + "ms, forked in "
+                            + forked + "ms");
+    }
+
+    /**
+     * Compiles the generated sources.
+     *
+     * @param compiler the compiler to use
+     * @param fork     if <tt>true</tt>, run the compiler in separate processes
+     * @return the compilation result
+     * @throws Exception for any error
+     */
+    private CompileResult compile(String compiler, boolean fork) throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty("SRC", src.getAbsolutePath());
+        Variables variables = new DefaultVariables(properties);
+        AutomatedInstallData installData = new AutomatedInstallData(variables, Platforms.LINUX);
+        installData.setInstallPath(temporaryFolder.getRoot().getAbsolutePath());
+
+        final String spec = createSpec();
+        ResourceManager resources = new ResourceManager()
+        {
+            @Override
+            public InputStream getInputStream(String resource)
+            {
+                return new ByteArrayInputStream(spec.getBytes());
+            }
+        };
+        Platforms platforms = new Platforms();
+        CompileHandler handler = Mockito.mock(CompileHandler.class);
+        CompileWorker worker = new CompileWorker(installData, handler, new VariableSubstitutorImpl(variables),
+                                                 resources,
+                                                 new PlatformModelMatcher(platforms, platforms.getCurrentPlatform()));
+        worker.setCompiler(compiler);
+        worker.setCompilerArguments("-g");
+        worker.setFork(fork);
+        worker.run();
+        return worker.getResult();
+    }
+
+    /**
+     * Creates the compilation spec.
+     * <p/>
+     * Each independent job compiles a chain of classes in its own directory. The final job depends on the classes
+     * of the first.
+     *
+     * @return the spec
+     */
+    private String createSpec()
+    {
+        StringBuilder result = new StringBuilder("<compilation><jobs>");
+        for (int i = 0; i < JOBS; ++i)
+        {
+            result.append("<job name=\"job").append(i).append("\">");
+            result.append("<classpath add=\"$SRC/job").append(i).append("\"/>");
+            result.append("<directory name=\"$SRC/job").append(i).append("\"/>");
+            result.append("</job>");
+        }
+        result.append("<job name=\"dependent\">");
+        result.append("<classpath add=\"$SRC/job0\"/>");
+        result.append("<classpath add=\"$SRC/dependent\"/>");
+        result.append("<directory name=\"$SRC/dependent\"/>");
+        result.append("</job>");
+        result.append("</jobs></compilation>");
+        return result.toString();
+    }
+
+    /**
+     * Generates the sources.
+     *
+     * @throws IOException for any I/O error
+     */
+    private void generateSources() throws IOException
+    {
+        for (int i = 0; i < JOBS; ++i)
+        {
+            generateSources("job" + i, "job" + i, null);
+        }
+        generateSources("dependent", "dependent", "job0.C" + (SOURCES - 1));
+    }
+
+    /**
+     * Generates a chain of classes, each of which refers to the previous.
+     *
+     * @param dir         the directory, relative to the source root
+     * @param packageName the package name
+     * @param first       the class the first class refers to. May be {@code null}
+     * @throws IOException for any I/O error
+     */
+    private void generateSources(String dir, String packageName, String first) throws IOException
+    {
+        for (int i = 0; i < SOURCES; ++i)
+        {
+            String previous = (i == 0) ? first : "C" + (i - 1);
+            String value = (previous != null) ? previous + ".value() + 1" : "0";
+            String source = "package " + packageName + ";\n"
+                    + "public class C" + i + "\n{\n"
+                    + "    public static int value()\n    {\n        return " + value + ";\n    }\n"
+                    + "}\n";
+            FileUtils.writeStringToFile(new File(src, dir + "/" + packageName + "/C" + i + ".java"), source);
+        }
+    }
+
+    /**
+     * Verifies that class files exist for each source, or none do.
+     *
+     * @param exist if <tt>true</tt>, the class files must exist, otherwise they must not
+     */
+    private void checkClasses(boolean exist)
+    {
+        Collection<File> sources = FileUtils.listFiles(src, new String[]{"java"}, true);
+        assertTrue(sources.size() == (JOBS + 1) * SOURCES);
+        for (File source : sources)
+        {
+            File classFile = new File(source.getPath().replace(".java", ".class"));
+            assertTrue(classFile.getPath(), classFile.exists() == exist);
+        }
+    }
+
+    /**
+     * Deletes the compiled classes.
+     */
+    private void deleteClasses()
+    {
+        for (File classFile : FileUtils.listFiles(src, new String[]{"class"}, true))
+        {
+            assertTrue(classFile.delete());
+        }
+    }
+
+    /**
+     * Returns the javac executable of the JDK running the test.
+     *
+     * @return the javac executable, or {@code null} if it can't be found
+     */
+    private File getJavac()
+    {
+        String name = File.separatorChar == '\\' ? "javac.exe" : "javac";
+        File home = new File(System.getProperty("java.home"));
+        File[] candidates = {new File(home, "bin/" + name), new File(home.getParentFile(), "bin/" + name)};
+        for (File candidate : candidates)
+        {
+            if (candidate.exists())
+            {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.panels.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.izforge.izpack.api.data.AutomatedInstallData;
+import com.izforge.izpack.api.rules.RulesEngine;
+import com.izforge.izpack.core.data.DefaultVariables;
+import com.izforge.izpack.core.resource.ResourceManager;
+import com.izforge.izpack.util.PlatformModelMatcher;
+import com.izforge.izpack.util.Platforms;
+
+/**
+ * Tests concurrent job execution by {@link ProcessPanelWorker}.
+ */
+public class ProcessPanelWorkerTest
+{
+    /**
+     * The names of the jobs run, in the order they completed.
+     */
+    private static final List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * The barrier that jobs in the same group meet at.
+     */
+    private static CyclicBarrier barrier;
+
+    /**
+     * The handler.
+     */
+    private final TestHandler handler = new TestHandler();
+
+    @Before
+    public void setUp()
+    {
+        completed.clear();
+        barrier = new CyclicBarrier(2);
+    }
+
+    /**
+     * Verifies that jobs in the same group run concurrently, and that a job depending on the group runs after them.
+     */
+    @Test
+    public void testGroup()
+    {
+        String spec = "<processing><parallelJobs>2</parallelJobs>"
+                + job("a", "group=\"index\"", Barrier.class, "a")
+                + job("b", "group=\"index\"", Barrier.class, "b")
+                + job("c", "depends=\"index\"", Record.class, "c")
+                + "</processing>";
+        ProcessPanelWorker worker = createWorker(spec);
+        worker.run();
+        assertTrue(worker.getResult());
+
+        assertEquals(3, completed.size());
+        assertTrue(completed.indexOf("a") < 2);
+        assertTrue(completed.indexOf("b") < 2);
+        assertEquals("c", completed.get(2));
+
+        // output is prefixed with the job name
+        assertTrue(handler.output.contains("[a] a"));
+        assertTrue(handler.output.contains("[b] b"));
+        assertTrue(handler.output.contains("[c] c"));
+        assertEquals(3, handler.started);
+
+        // output is passed to the handler as it is produced: a and b both log before waiting for each other
+        List<String> events = handler.events;
+        int finish = events.indexOf("finish");
+        assertTrue(events.indexOf("[a] a waiting") < finish);
+        assertTrue(events.indexOf("[b] b waiting") < finish);
+        assertEquals(3, Collections.frequency(events, "finish"));
+    }
+
+    /**
+     * Verifies that a spec is rejected if a job depends on a name that isn't the name or group of an earlier job.
+     */
+    @Test
+    public void testUnknownDependency()
+    {
+        String spec = "<processing>"
+                + job("a", "group=\"init\"", Record.class, "a")
+                + job("b", "depends=\"a, inti\"", Record.class, "b")
+                + "</processing>";
+        ProcessPanelWorker worker = createWorker(spec);
+        worker.run();
+        assertFalse(worker.getResult());
+        assertTrue(completed.isEmpty());
+    }
+
+    /**
+     * Verifies that a spec is rejected if a job depends on a later job.
+     */
+    @Test
+    public void testDependsOnLaterJob()
+    {
+        String spec = "<processing>"
+                + job("a", "depends=\"b\"", Record.class, "a")
+                + job("b", null, Record.class, "b")
+                + "</processing>";
+        ProcessPanelWorker worker = createWorker(spec);
+        worker.run();
+        assertFalse(worker.getResult());
+        assertTrue(completed.isEmpty());
+    }
+
+    /**
+     * Verifies that a job may depend on an earlier job that is skipped.
+     */
+    @Test
+    public void testDependsOnSkippedJob()
+    {
+        String spec = "<processing>"
+                + "<job name=\"a\"><executeForPack name=\"unselected\"/>"
+                + "<executeclass name=\"" + Record.class.getName() + "\"><arg>a</arg></executeclass></job>"
+                + job("b", "depends=\"a\"", Record.class, "b")
+                + "</processing>";
+        ProcessPanelWorker worker = createWorker(spec);
+        worker.run();
+        assertTrue(worker.getResult());
+        assertEquals(Collections.singletonList("b"), completed);
+    }
+
+    /**
+     * Verifies that no job starts once a job fails, and that catch and final jobs still run.
+     */
+    @Test
+    public void testFailure()
+    {
+        String spec = "<processing>"
+                + job("a", "group=\"init\"", Fail.class, "a")
+                + job("b", "depends=\"a\"", Record.class, "b")
+                + job("c", null, Record.class, "c")
+                + "<job name=\"catch\" catch=\"true\">"
+                + "<executeclass name=\"" + Record.class.getName() + "\"><arg>catch</arg></executeclass></job>"
+                + "<job name=\"final\" final=\"true\">"
+                + "<executeclass name=\"" + Record.class.getName() + "\"><arg>final</arg></executeclass></job>"
+                + "</processing>";
+        ProcessPanelWorker worker = createWorker(spec);
+        worker.run();
+        assertFalse(worker.getResult());
+        assertEquals(3, completed.size());
+        assertEquals("a", completed.get(0));
+        assertEquals("catch", completed.get(1));
+        assertEquals("final", completed.get(2));
+    }
+
+    /**
+     * Verifies that jobs without groups or dependencies run in sequence, with their output unchanged.
+     */
+    @Test
+    public void testSequential()
+    {
+        String spec = "<processing>"
+                + job("a", null, Record.class, "a")
+                + job("b", null, Record.class, "b")
+                + "</processing>";
+        ProcessPanelWorker worker = createWorker(spec);
+        worker.run();
+        assertTrue(worker.getResult());
+        assertEquals(2, completed.size());
+        assertEquals("a", completed.get(0));
+        assertEquals("b", completed.get(1));
+        assertTrue(handler.output.contains("a"));
+    }
+
+    /**
+     * Creates a job element.
+     *
+     * @param name       the job name
+     * @param attributes additional job attributes. May be {@code null}
+     * @param type       the class to execute
+     * @param arg        the argument to pass to the class
+     * @return the job element
+     */
+    private String job(String name, String attributes, Class type, String arg)
+    {
+        return "<job name=\"" + name + "\"" + (attributes != null ? " " + attributes : "") + ">"
+                + "<executeclass name=\"" + type.getName() + "\"><arg>" + arg + "</arg></executeclass></job>";
+    }
+
+    /**
+     * Creates a worker for the specified spec.
+     *
+     * @param spec the process spec
+     * @return a new worker
+     */
+    private ProcessPanelWorker createWorker(final String spec)
+    {
+        AutomatedInstallData installData = new AutomatedInstallData(new DefaultVariables(), Platforms.LINUX);
+        ResourceManager resources = new ResourceManager()
+        {
+            @Override
+            public InputStream getInputStream(String resource)
+            {
+                return new ByteArrayInputStream(spec.getBytes());
+            }
+        };
+        Platforms platforms = new Platforms();
+        ProcessPanelWorker worker = new ProcessPanelWorker(installData, Mockito.mock(RulesEngine.class), resources,
+                                                           new PlatformModelMatcher(platforms,
+                                                                                    platforms.getCurrentPlatform()));
+        worker.setHandler(handler);
+        return worker;
+    }
+
+    /**
+     * Logs its argument and records it as completed.
+     */
+    public static class Record
+    {
+        public boolean run(AbstractUIProcessHandler handler, String[] args)
+        {
+            handler.logOutput(args[0], false);
+            completed.add(args[0]);
+            return true;
+        }
+    }
+
+    /**
+     * Waits for another job to reach the barrier before completing, so can only succeed if run concurrently.
+     */
+    public static class Barrier extends Record
+    {
+        @Override
+        public boolean run(AbstractUIProcessHandler handler, String[] args)
+        {
+            handler.logOutput(args[0] + " waiting", false);
+            try
+            {
+                barrier.await(10, TimeUnit.SECONDS);
+            }
+            catch (Exception exception)
+            {
+                return false;
+            }
+            return super.run(handler, args);
+        }
+    }
+
+    /**
+     * Records its argument and fails.
+     */
+    public static class Fail extends Record
+    {
+        @Override
+        public boolean run(AbstractUIProcessHandler handler, String[] args)
+        {
+            super.run(handler, args);
+            return false;
+        }
+    }
+
+    /**
+     * Handler that collects output.
+     */
+    private static class TestHandler implements AbstractUIProcessHandler
+    {
+        private final List<String> output = Collections.synchronizedList(new ArrayList<String>());
+
+        private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+        private int started;
+
+        @Override
+        public void logOutput(String message, boolean stderr)
+        {
+            output.add(message);
+            events.add(message);
+        }
+
+        @Override
+        public void startProcessing(int no_of_processes)
+        {
+        }
+
+        @Override
+        public synchronized void startProcess(String name)
+        {
+            ++started;
+            events.add("start " + name);
+        }
+
+        @Override
+        public void finishProcess()
+        {
+            events.add("finish");
+        }
+
+        @Override
+        public void finishProcessing(boolean unlockPrev, boolean unlockNext)
+        {
+        }
+
+        @Override
+        public void emitNotification(String message)
+        {
+        }
+
+        @Override
+        public boolean emitWarning(String title, String message)
+        {
+            return true;
+        }
+
+        @Override
+        public void emitError(String title, String message)
+        {
+        }
+
+        @Override
+        public int askQuestion(String title, String question, int choices)
+        {
+            return ANSWER_NO;
+        }
+
+        @Override
+        public int askQuestion(String title, String question, int choices, int default_choice)
+        {
+            return ANSWER_NO;
+        }
+
+        @Override
+        public int askWarningQuestion(String title, String question, int choices, int default_choice)
+        {
+            return ANSWER_NO;
+        }
+    }
+}
@@ -35,6 +35,10 @@ import com.izforge.izpack.uninstaller.event.UninstallerListeners;
 import com.izforge.izpack.uninstaller.resource.Executables;
 import com.izforge.izpack.uninstaller.resource.InstallLog;
 import com.izforge.izpack.uninstaller.resource.RootScripts;
+import com.izforge.izpack.util.Instrumentation;
+import com.izforge.izpack.util.Instrumentation.Counter;
+import com.izforge.izpack.util.Instrumentation.Phase;
+import com.izforge.izpack.util.ProgressAggregator;
 
 
 /**
@@ -74,7 +78,7 @@ public class Destroyer implements Runnable
     /**
      * The progress listener. May be {@code null}.
      */
-    private ProgressListener listener;
+    private ProgressAggregator listener;
 
     /**
      * True if the destroyer must force recursive deletion.
@@ -86,6 +90,11 @@ public class Destroyer implements Runnable
      */
     private List<File> failed = new ArrayList<File>();
 
+    /**
+     * The instrumentation.
+     */
+    private final Instrumentation instrumentation = Instrumentation.getInstance();
+
     /**
      * The logger.
      */
@@ -125,7 +134,8 @@ public class Destroyer implements Runnable
      */
     public void setProgressListener(ProgressListener listener)
     {
-        this.listener = listener;
+        // coalesce progress, as files may be deleted faster than they can be displayed
+        this.listener = (listener != null) ? new ProgressAggregator(listener) : null;
     }
 
     /**
@@ -187,43 +197,82 @@ public class Destroyer implements Runnable
      */
     private void destroy() throws Exception
     {
+        instrumentation.reset();
         List<File> files = log.getInstalled();
         int size = files.size();
+        long start = instrumentation.start();
         listeners.beforeDeletion(files, listener);
+        instrumentation.stop(Phase.LISTENERS, start);
         if (listener != null)
         {
             listener.startAction("destroy", size);
         }
 
-        for (int i = 0; i < size; i++)
+        List<File> notDeleted;
+        if (listeners.isFileListener())
         {
-            File file = files.get(i);
-            listeners.beforeDelete(file, listener);
+            // listeners need to be notified of each file in turn
+            notDeleted = new ArrayList<File>();
+            for (int i = 0; i < size; i++)
+            {
+                File file = files.get(i);
+                start = instrumentation.start();
+                listeners.beforeDelete(file, listener);
+                instrumentation.stop(Phase.LISTENERS, start);
 
-            delete(file);
+                start = instrumentation.start();
+                if (!ParallelDeleter.delete(file))
+                {
+                    notDeleted.add(file);
+                }
+                instrumentation.stop(Phase.IO, start);
 
-            listeners.afterDelete(file, listener);
-            if (listener != null)
-            {
-                listener.progress(i, file.getAbsolutePath());
+                start = instrumentation.start();
+                listeners.afterDelete(file, listener);
+                instrumentation.stop(Phase.LISTENERS, start);
+                if (listener != null)
+                {
+                    listener.progress(i, file.getAbsolutePath());
+                }
             }
         }
+        else
+        {
+            start = instrumentation.start();
+            notDeleted = new ParallelDeleter(ParallelDeleter.DEFAULT_THREADS).delete(files, listener);
+            instrumentation.stop(Phase.IO, start);
+        }
+        instrumentation.add(Counter.FILES, size);
 
+        start = instrumentation.start();
         listeners.afterDeletion(files, listener);
+        instrumentation.stop(Phase.LISTENERS, start);
 
+        start = instrumentation.start();
         rootScripts.run();
+        instrumentation.stop(Phase.EXECUTION, start);
 
         // We make a complementary cleanup
         if (listener != null)
         {
-            listener.progress(log.getInstalled().size(), "[ cleanups ]");
+            listener.progress(size, "[ cleanups ]");
         }
 
         File installPath = new File(log.getInstallPath());
-        cleanup(installPath);
+        if (installPath.exists())
+        {
+            start = instrumentation.start();
+            cleanup(installPath);
+            instrumentation.stop(Phase.CLEANUP, start);
+        }
 
         // verify that the files no longer exist. Check this here, as the root scripts may have performed cleanup.
-        checkDeletion(files, installPath);
+        checkDeletion(notDeleted, installPath);
+
+        if (instrumentation.isEnabled())
+        {
+            logger.info(instrumentation.getReport());
+        }
 
         if (listener != null)
         {
@@ -233,8 +282,10 @@ public class Destroyer implements Runnable
 
     /**
      * Verifies that the installed files have been deleted.
+     * <p/>
+     * Only those files that couldn't be deleted need to be checked.
      *
-     * @param files       the files to check
+     * @param files       the files that couldn't be deleted
      * @param installPath the installation path
      */
     private void checkDeletion(List<File> files, File installPath)
@@ -247,7 +298,7 @@ public class Destroyer implements Runnable
                 failed.add(f);
             }
         }
-        if (installPath.exists())
+        if (installPath.exists() && !failed.contains(installPath))
         {
             failed.add(installPath);
         }
@@ -270,24 +321,11 @@ public class Destroyer implements Runnable
                     cleanup(child);
                 }
             }
-            delete(file);
+            ParallelDeleter.delete(file);
         }
         else if (forceDelete)
         {
-            delete(file);
-        }
-    }
-
-    /**
-     * Deletes a file.
-     *
-     * @param file the file to delete
-     */
-    private void delete(File file)
-    {
-        if (file.exists() && !file.delete())
-        {
-            logger.info("Failed to delete: " + file);
+            ParallelDeleter.delete(file);
         }
     }
 
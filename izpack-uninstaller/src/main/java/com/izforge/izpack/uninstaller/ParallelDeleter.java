@@ -0,0 +1,265 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.uninstaller;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import com.izforge.izpack.api.event.ProgressListener;
+import com.izforge.izpack.api.exception.IzPackException;
+
+
+/**
+ * Deletes installed files using a pool of threads.
+ * <p/>
+ * Files are deleted in batches, each made up of the entries of one or more directories, so that the entries of a
+ * directory are deleted by the same thread. Entries that are the parents of other entries are directories; these are
+ * removed once the files have been deleted, children before parents, so that each is empty when it is removed.
+ * <p/>
+ * Only entries that fail to delete are checked for existence afterwards.
+ * <p/>
+ * Progress may be reported from any of the deletion threads, so the listener must be thread-safe.
+ */
+public class ParallelDeleter
+{
+    /**
+     * The default no. of deletion threads.
+     */
+    public static final int DEFAULT_THREADS = Math.min(8, Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The minimum no. of files in a batch.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * The no. of deletion threads.
+     */
+    private final int threads;
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(ParallelDeleter.class.getName());
+
+
+    /**
+     * Constructs a <tt>ParallelDeleter</tt>.
+     *
+     * @param threads the no. of deletion threads
+     */
+    public ParallelDeleter(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Deletes files.
+     *
+     * @param files    the files and directories to delete
+     * @param listener the listener to notify of progress. May be {@code null}
+     * @return the files that could not be deleted
+     * @throws IzPackException if deletion is interrupted
+     */
+    public List<File> delete(List<File> files, ProgressListener listener)
+    {
+        // any entry that is an ancestor of another is a directory, even if the entries in between aren't logged
+        Set<File> parents = new HashSet<File>();
+        for (File file : files)
+        {
+            File parent = file.getParentFile();
+            while (parent != null && parents.add(parent))
+            {
+                parent = parent.getParentFile();
+            }
+        }
+
+        // group the files by directory, preserving their order
+        Map<File, List<File>> byParent = new LinkedHashMap<File, List<File>>();
+        List<File> directories = new ArrayList<File>();
+        for (File file : files)
+        {
+            if (parents.contains(file))
+            {
+                directories.add(file);
+            }
+            else
+            {
+                File parent = file.getParentFile();
+                List<File> list = byParent.get(parent);
+                if (list == null)
+                {
+                    list = new ArrayList<File>();
+                    byParent.put(parent, list);
+                }
+                list.add(file);
+            }
+        }
+
+        List<List<File>> batches = new ArrayList<List<File>>();
+        List<File> batch = new ArrayList<File>();
+        for (List<File> list : byParent.values())
+        {
+            batch.addAll(list);
+            if (batch.size() >= BATCH_SIZE)
+            {
+                batches.add(batch);
+                batch = new ArrayList<File>();
+            }
+        }
+        if (!batch.isEmpty())
+        {
+            batches.add(batch);
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        List<File> failed = Collections.synchronizedList(new ArrayList<File>());
+        if (batches.size() > 1 && threads > 1)
+        {
+            deleteBatches(batches, count, failed, listener);
+        }
+        else
+        {
+            for (List<File> list : batches)
+            {
+                delete(list, count, failed, listener);
+            }
+        }
+
+        // remove directories bottom-up. Sorting in reverse order places children before their parents
+        Collections.sort(directories, Collections.reverseOrder());
+        delete(directories, count, failed, listener);
+        return new ArrayList<File>(failed);
+    }
+
+    /**
+     * Deletes batches of files in parallel.
+     *
+     * @param batches  the batches of files to delete
+     * @param count    the no. of entries processed
+     * @param failed   collects the files that couldn't be deleted
+     * @param listener the progress listener. May be {@code null}
+     * @throws IzPackException if deletion is interrupted or fails unexpectedly
+     */
+    private void deleteBatches(List<List<File>> batches, final AtomicInteger count, final List<File> failed,
+                               final ProgressListener listener)
+    {
+        ThreadFactory factory = new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "IzPack uninstaller");
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, batches.size()), factory);
+        try
+        {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (final List<File> batch : batches)
+            {
+                futures.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                    {
+                        delete(batch, count, failed, listener);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures)
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new IzPackException("Interrupted while deleting files", exception);
+        }
+        catch (ExecutionException exception)
+        {
+            throw new IzPackException(exception.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Deletes files in order.
+     *
+     * @param files    the files to delete
+     * @param count    the no. of entries processed
+     * @param failed   collects the files that couldn't be deleted
+     * @param listener the progress listener. May be {@code null}
+     */
+    private void delete(List<File> files, AtomicInteger count, List<File> failed, ProgressListener listener)
+    {
+        for (File file : files)
+        {
+            if (!delete(file))
+            {
+                failed.add(file);
+            }
+            int processed = count.getAndIncrement();
+            if (listener != null)
+            {
+                listener.progress(processed, file.getPath());
+            }
+        }
+    }
+
+    /**
+     * Deletes a file.
+     * <p/>
+     * The file is only checked for existence if it cannot be deleted.
+     *
+     * @param file the file to delete
+     * @return {@code true} if the file was deleted or didn't exist, {@code false} if it still exists
+     */
+    public static boolean delete(File file)
+    {
+        if (!file.delete() && file.exists())
+        {
+            logger.info("Failed to delete: " + file);
+            return false;
+        }
+        return true;
+    }
+}
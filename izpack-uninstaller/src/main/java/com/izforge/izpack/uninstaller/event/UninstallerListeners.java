@@ -80,6 +80,16 @@ public class UninstallerListeners
         }
     }
 
+    /**
+     * Determines if any of the listeners should be notified of file and directory events.
+     *
+     * @return <tt>true</tt> if {@link #beforeDelete} and {@link #afterDelete} need to be invoked for each file
+     */
+    public boolean isFileListener()
+    {
+        return fileListener;
+    }
+
     /**
      * Initialises the listeners.
      *
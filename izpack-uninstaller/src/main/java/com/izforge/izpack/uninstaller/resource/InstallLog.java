@@ -23,6 +23,7 @@ package com.izforge.izpack.uninstaller.resource;
 
 import com.izforge.izpack.api.exception.IzPackException;
 import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.util.CompactInstallLog;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
@@ -72,7 +73,7 @@ public class InstallLog
         {
             in = resources.getInputStream(INSTALL_LOG);
             inReader = new InputStreamReader(in);
-            BufferedReader reader = new BufferedReader(inReader);
+            BufferedReader reader = new BufferedReader(inReader, 64 * 1024);
 
             installPath = getInstallPath(reader);
             files = getFiles(reader);
@@ -157,6 +158,9 @@ public class InstallLog
 
     /**
      * Returns the installed files, in leaf first order.
+     * <p/>
+     * Files in the {@link CompactInstallLog compact} format are already in leaf first order, and are read as is.
+     * Logs written by earlier versions are sorted.
      *
      * @param reader the <em>install.log</em> reader
      * @return the installed files
@@ -164,8 +168,19 @@ public class InstallLog
      */
     private List<File> getFiles(BufferedReader reader) throws IOException
     {
-        TreeSet<File> files = new TreeSet<File>(Collections.reverseOrder());
         String read = reader.readLine();
+        if (CompactInstallLog.HEADER.equals(read))
+        {
+            List<File> files = new ArrayList<File>();
+            CompactInstallLog.Decoder decoder = new CompactInstallLog.Decoder();
+            while ((read = reader.readLine()) != null)
+            {
+                files.add(new File(decoder.decode(read)));
+            }
+            return files;
+        }
+
+        TreeSet<File> files = new TreeSet<File>(Collections.reverseOrder());
         while (read != null)
         {
             files.add(new File(read));
@@ -176,5 +191,4 @@ public class InstallLog
         return new ArrayList<File>(files);
     }
 
-
 }
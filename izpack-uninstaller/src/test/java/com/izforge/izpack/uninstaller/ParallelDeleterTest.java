@@ -0,0 +1,171 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.uninstaller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.uninstaller.event.DestroyerListener;
+
+/**
+ * Tests the {@link ParallelDeleter}.
+ */
+public class ParallelDeleterTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that files are deleted before their directories, and that directories containing files not being
+     * deleted are reported as failures.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testDelete() throws IOException
+    {
+        File root = temporaryFolder.newFolder("myapp");
+        List<File> files = new ArrayList<File>();
+        files.add(root);
+        for (int i = 0; i < 10; ++i)
+        {
+            File dir = new File(root, "dir" + i + "/sub");
+            assertTrue(dir.mkdirs());
+            files.add(dir.getParentFile());
+            files.add(dir);
+            for (int j = 0; j < 100; ++j)
+            {
+                File file = new File(dir, "file" + j);
+                assertTrue(file.createNewFile());
+                files.add(file);
+            }
+        }
+        File extra = new File(root, "dir3/extra.txt");
+        assertTrue(extra.createNewFile());
+        File missing = new File(root, "missing.txt");
+        files.add(missing);
+
+        // the same order as the install log
+        Collections.sort(files, Collections.reverseOrder());
+
+        final AtomicInteger progress = new AtomicInteger();
+        DestroyerListener listener = new DestroyerListener()
+        {
+            @Override
+            public void startAction(String name, int steps)
+            {
+            }
+
+            @Override
+            public void progress(int subStep, String message)
+            {
+                progress.incrementAndGet();
+            }
+
+            @Override
+            public void stopAction()
+            {
+            }
+        };
+
+        List<File> failed = new ParallelDeleter(4).delete(files, listener);
+        assertEquals(files.size(), progress.get());
+
+        List<File> expected = new ArrayList<File>();
+        expected.add(new File(root, "dir3"));
+        expected.add(root);
+        assertEquals(expected, failed);
+        assertTrue(extra.exists());
+        for (File file : files)
+        {
+            if (!expected.contains(file))
+            {
+                assertFalse(file.getPath(), file.exists());
+            }
+        }
+    }
+
+    /**
+     * Verifies that an entry is treated as a directory, and removed after the entries below it, even if the
+     * directories in between aren't logged.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testUnloggedIntermediateDirectories() throws IOException
+    {
+        File root = temporaryFolder.newFolder("myapp");
+        File dir = new File(root, "a/b/c");
+        assertTrue(dir.mkdirs());
+        File file = new File(dir, "file.txt");
+        assertTrue(file.createNewFile());
+
+        List<File> files = new ArrayList<File>();
+        files.add(root);
+        files.add(dir);
+        files.add(file);
+        Collections.sort(files, Collections.reverseOrder());
+
+        final List<String> order = new ArrayList<String>();
+        DestroyerListener listener = new DestroyerListener()
+        {
+            @Override
+            public void startAction(String name, int steps)
+            {
+            }
+
+            @Override
+            public void progress(int subStep, String message)
+            {
+                order.add(message);
+            }
+
+            @Override
+            public void stopAction()
+            {
+            }
+        };
+
+        List<File> failed = new ParallelDeleter(4).delete(files, listener);
+
+        List<String> expectedOrder = new ArrayList<String>();
+        expectedOrder.add(file.getPath());
+        expectedOrder.add(dir.getPath());
+        expectedOrder.add(root.getPath());
+        assertEquals(expectedOrder, order);
+
+        // a/b isn't logged, so it and the root remain
+        assertEquals(Collections.singletonList(root), failed);
+        assertFalse(dir.exists());
+        assertTrue(new File(root, "a/b").exists());
+    }
+}
@@ -25,9 +25,12 @@ package com.izforge.izpack.uninstaller.resource;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.when;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.io.input.ReaderInputStream;
@@ -36,6 +39,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.izforge.izpack.api.resource.Resources;
+import com.izforge.izpack.util.CompactInstallLog;
 
 /**
  * Tests the {@link InstallLog} class.
@@ -104,4 +108,31 @@ public class InstallLogTest
         assertEquals(new File("myapp/dir1"), installed.get(3));
     }
 
+    /**
+     * Verifies that a log written in the compact format is read in leaf first order.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testCompactInstalled() throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        BufferedWriter buffer = new BufferedWriter(writer);
+        buffer.write("myapp");
+        buffer.newLine();
+        CompactInstallLog.write(Arrays.asList("myapp/dir2/dir3", "myapp/dir2/dir3/file2", "myapp/dir2/file1",
+                                              "myapp/dir1", "myapp/dir2/file1"), buffer);
+        buffer.close();
+        when(resources.getInputStream("install.log")).thenReturn(
+                new ReaderInputStream(new StringReader(writer.toString())));
+
+        InstallLog log = new InstallLog(resources);
+        assertEquals("myapp", log.getInstallPath());
+        List<File> installed = log.getInstalled();
+        assertEquals(4, installed.size());
+        assertEquals(new File("myapp/dir2/file1"), installed.get(0));
+        assertEquals(new File("myapp/dir2/dir3/file2"), installed.get(1));
+        assertEquals(new File("myapp/dir2/dir3"), installed.get(2));
+        assertEquals(new File("myapp/dir1"), installed.get(3));
+    }
 }
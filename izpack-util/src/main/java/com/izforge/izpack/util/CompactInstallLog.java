@@ -0,0 +1,125 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeSet;
+
+
+/**
+ * Encodes and decodes the installed file list of the <em>install.log</em> in a compact form.
+ * <p/>
+ * The list is preceded by the {@link #HEADER} line, and is written in the order the uninstaller deletes files, i.e.
+ * in descending {@link File} order, so that files precede the directories that contain them. This enables the
+ * uninstaller to read it without sorting it.
+ * <p/>
+ * Each path is prefix-compressed against the path before it, and written as:
+ * <pre>
+ * &lt;no. of leading characters shared with the previous path&gt;:&lt;remaining characters&gt;
+ * </pre>
+ * Logs that don't start with the header contain one path per line, in no particular order.
+ */
+public class CompactInstallLog
+{
+    /**
+     * The line that identifies a compact file list.
+     */
+    public static final String HEADER = "#izpack-install-log:compact:1";
+
+    /**
+     * Writes files in compact form.
+     * <p/>
+     * Duplicate files are written once.
+     *
+     * @param files  the file paths
+     * @param writer the writer to write to
+     * @throws IOException for any I/O error
+     */
+    public static void write(Collection<String> files, BufferedWriter writer) throws IOException
+    {
+        TreeSet<File> sorted = new TreeSet<File>(Collections.reverseOrder());
+        for (String file : files)
+        {
+            sorted.add(new File(file));
+        }
+
+        writer.write(HEADER);
+        String previous = "";
+        for (File file : sorted)
+        {
+            String path = file.getPath();
+            int max = Math.min(previous.length(), path.length());
+            int shared = 0;
+            while (shared < max && previous.charAt(shared) == path.charAt(shared))
+            {
+                ++shared;
+            }
+            writer.newLine();
+            writer.write(Integer.toString(shared));
+            writer.write(':');
+            writer.write(path, shared, path.length() - shared);
+            previous = path;
+        }
+    }
+
+    /**
+     * Decodes the lines of a compact file list.
+     * <p/>
+     * Lines must be supplied in the order they were written, excluding the header.
+     */
+    public static class Decoder
+    {
+        /**
+         * The previously decoded path.
+         */
+        private String previous = "";
+
+        /**
+         * Decodes a line.
+         *
+         * @param line the line to decode
+         * @return the decoded path
+         * @throws IOException if the line is invalid
+         */
+        public String decode(String line) throws IOException
+        {
+            int index = line.indexOf(':');
+            int shared;
+            try
+            {
+                shared = (index > 0) ? Integer.parseInt(line.substring(0, index)) : -1;
+            }
+            catch (NumberFormatException exception)
+            {
+                shared = -1;
+            }
+            if (shared < 0 || shared > previous.length())
+            {
+                throw new IOException("Invalid install log entry: " + line);
+            }
+            previous = previous.substring(0, shared) + line.substring(index + 1);
+            return previous;
+        }
+    }
+}
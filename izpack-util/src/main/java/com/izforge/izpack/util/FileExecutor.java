@@ -37,6 +37,7 @@ import java.util.logging.Logger;
 
 import com.izforge.izpack.api.handler.AbstractUIHandler;
 import com.izforge.izpack.api.data.ExecutableFile;
+import com.izforge.izpack.util.file.FilePermissions;
 
 /**
  * Executes a bunch of files. This class is intended to do a system dependent installation
@@ -328,9 +329,10 @@ public class FileExecutor
                 continue;
             }
 
-            if (ExecutableFile.BIN == efile.type && currentStage != ExecutableFile.UNINSTALL && isUnix)
+            if (ExecutableFile.BIN == efile.type && currentStage != ExecutableFile.UNINSTALL && isUnix
+                    && !FilePermissions.makeExecutable(file))
             {
-                // fix executable permission for unix systems
+                // fix executable permission for unix systems, if it couldn't be set in-process
                 logger.fine("Making file executable (setting executable flag)");
                 String[] params = {"/bin/chmod", permissions, file.toString()};
                 exitStatus = executeCommand(params, output);
@@ -0,0 +1,376 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Collects counters and per-phase timings for the install and uninstall hot paths.
+ * <p/>
+ * Instrumentation is enabled by setting the <tt>izpack.instrumentation</tt> system property to <tt>true</tt>.
+ * Setting <tt>izpack.instrumentation.trace</tt> to a file path additionally records each timed operation in a
+ * fixed size buffer, written to that file in binary form by {@link #writeTrace}.
+ * <p/>
+ * When disabled, {@link #start()} returns without reading the clock, and the remaining methods return immediately,
+ * so callers can leave the calls in place on hot paths. None of the recording methods allocate.
+ * <p/>
+ * Usage:
+ * <pre>
+ * long start = instrumentation.start();
+ * ... timed operation ...
+ * instrumentation.stop(Phase.IO, start);
+ * </pre>
+ */
+public class Instrumentation
+{
+    /**
+     * The timed phases.
+     */
+    public enum Phase
+    {
+        LISTENERS, CONDITIONS, IO, DECOMPRESSION, SUBSTITUTION, EXECUTION, CLEANUP
+    }
+
+    /**
+     * The counters.
+     */
+    public enum Counter
+    {
+        FILES, DIRECTORIES, SKIPPED, BYTES
+    }
+
+    /**
+     * System property to enable instrumentation.
+     */
+    public static final String INSTRUMENTATION = "izpack.instrumentation";
+
+    /**
+     * System property naming the file to write the event trace to.
+     */
+    public static final String TRACE = "izpack.instrumentation.trace";
+
+    /**
+     * The magic number identifying trace files.
+     */
+    public static final int TRACE_MAGIC = 0x495a5452;
+
+    /**
+     * The default maximum no. of events recorded in the trace.
+     */
+    public static final int DEFAULT_TRACE_EVENTS = 65536;
+
+    /**
+     * The no. of longs recorded per trace event: phase, start and duration.
+     */
+    private static final int EVENT_SIZE = 3;
+
+    /**
+     * The shared instance, configured from system properties.
+     */
+    private static final Instrumentation INSTANCE = new Instrumentation(
+            Boolean.getBoolean(INSTRUMENTATION) || System.getProperty(TRACE) != null,
+            System.getProperty(TRACE) != null ? DEFAULT_TRACE_EVENTS : 0);
+
+    /**
+     * Determines if instrumentation is enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * The total time spent in each phase, in nanoseconds.
+     */
+    private final AtomicLongArray times = new AtomicLongArray(Phase.values().length);
+
+    /**
+     * The no. of operations timed in each phase.
+     */
+    private final AtomicLongArray calls = new AtomicLongArray(Phase.values().length);
+
+    /**
+     * The counters.
+     */
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+
+    /**
+     * The trace buffer, or {@code null} if tracing is disabled.
+     */
+    private final long[] trace;
+
+    /**
+     * The next trace event slot.
+     */
+    private final AtomicInteger events = new AtomicInteger();
+
+    /**
+     * The time that collection started, in nanoseconds.
+     */
+    private volatile long started;
+
+
+    /**
+     * Constructs an <tt>Instrumentation</tt>.
+     *
+     * @param enabled     determines if instrumentation is enabled
+     * @param traceEvents the maximum no. of events to trace, or <tt>0</tt> to disable tracing
+     */
+    public Instrumentation(boolean enabled, int traceEvents)
+    {
+        this.enabled = enabled;
+        trace = (enabled && traceEvents > 0) ? new long[traceEvents * EVENT_SIZE] : null;
+        started = enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Returns the shared instance.
+     *
+     * @return the shared instance
+     */
+    public static Instrumentation getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Determines if instrumentation is enabled.
+     *
+     * @return <tt>true</tt> if instrumentation is enabled
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Determines if events are being traced.
+     *
+     * @return <tt>true</tt> if events are being traced
+     */
+    public boolean isTracing()
+    {
+        return trace != null;
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return the start time to pass to {@link #stop}, or <tt>0</tt> if instrumentation is disabled
+     */
+    public long start()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Stops timing an operation, attributing the elapsed time to a phase.
+     *
+     * @param phase the phase
+     * @param start the value returned by {@link #start}
+     */
+    public void stop(Phase phase, long start)
+    {
+        if (enabled)
+        {
+            long elapsed = System.nanoTime() - start;
+            int index = phase.ordinal();
+            times.addAndGet(index, elapsed);
+            calls.incrementAndGet(index);
+            if (trace != null)
+            {
+                int event = events.getAndIncrement();
+                if (event < trace.length / EVENT_SIZE)
+                {
+                    int offset = event * EVENT_SIZE;
+                    trace[offset] = index;
+                    trace[offset + 1] = start - started;
+                    trace[offset + 2] = elapsed;
+                }
+            }
+        }
+    }
+
+    /**
+     * Increments a counter.
+     *
+     * @param counter the counter
+     */
+    public void increment(Counter counter)
+    {
+        if (enabled)
+        {
+            counters.incrementAndGet(counter.ordinal());
+        }
+    }
+
+    /**
+     * Adds to a counter.
+     *
+     * @param counter the counter
+     * @param value   the value to add
+     */
+    public void add(Counter counter, long value)
+    {
+        if (enabled)
+        {
+            counters.addAndGet(counter.ordinal(), value);
+        }
+    }
+
+    /**
+     * Returns the total time spent in a phase.
+     *
+     * @param phase the phase
+     * @return the time, in nanoseconds
+     */
+    public long getTime(Phase phase)
+    {
+        return times.get(phase.ordinal());
+    }
+
+    /**
+     * Returns the no. of operations timed in a phase.
+     *
+     * @param phase the phase
+     * @return the no. of operations
+     */
+    public long getCalls(Phase phase)
+    {
+        return calls.get(phase.ordinal());
+    }
+
+    /**
+     * Returns the value of a counter.
+     *
+     * @param counter the counter
+     * @return the counter value
+     */
+    public long getCount(Counter counter)
+    {
+        return counters.get(counter.ordinal());
+    }
+
+    /**
+     * Returns the no. of events traced. This excludes any events dropped because the trace buffer was full.
+     *
+     * @return the no. of events traced
+     */
+    public int getTraceEvents()
+    {
+        return (trace != null) ? Math.min(events.get(), trace.length / EVENT_SIZE) : 0;
+    }
+
+    /**
+     * Resets the counters, timings and trace.
+     */
+    public void reset()
+    {
+        if (enabled)
+        {
+            for (int i = 0; i < times.length(); ++i)
+            {
+                times.set(i, 0);
+                calls.set(i, 0);
+            }
+            for (int i = 0; i < counters.length(); ++i)
+            {
+                counters.set(i, 0);
+            }
+            events.set(0);
+            started = System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns a report of the counters and the time spent in each phase since collection started.
+     *
+     * @return the report
+     */
+    public String getReport()
+    {
+        long elapsed = enabled ? System.nanoTime() - started : 0;
+        StringBuilder result = new StringBuilder("Timing report (total ");
+        result.append(toMillis(elapsed)).append(" ms)");
+        for (Phase phase : Phase.values())
+        {
+            long time = getTime(phase);
+            result.append("\n  ").append(phase.name().toLowerCase()).append(": ").append(toMillis(time))
+                    .append(" ms, ").append(getCalls(phase)).append(" calls");
+            if (elapsed > 0)
+            {
+                result.append(" (").append(time * 100 / elapsed).append("%)");
+            }
+        }
+        for (Counter counter : Counter.values())
+        {
+            result.append("\n  ").append(counter.name().toLowerCase()).append(": ").append(getCount(counter));
+        }
+        if (trace != null)
+        {
+            result.append("\n  trace events: ").append(getTraceEvents());
+            int dropped = events.get() - getTraceEvents();
+            if (dropped > 0)
+            {
+                result.append(" (").append(dropped).append(" dropped)");
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes the trace.
+     * <p/>
+     * The trace is written as the {@link #TRACE_MAGIC magic number} and the no. of events, followed by each event as
+     * its phase ordinal (int), start time relative to the start of collection (long, nanoseconds) and duration
+     * (long, nanoseconds).
+     *
+     * @param stream the stream to write to. This is not closed
+     * @throws IOException for any I/O error
+     */
+    public void writeTrace(OutputStream stream) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(stream);
+        int count = getTraceEvents();
+        out.writeInt(TRACE_MAGIC);
+        out.writeInt(count);
+        for (int i = 0; i < count; ++i)
+        {
+            int offset = i * EVENT_SIZE;
+            out.writeInt((int) trace[offset]);
+            out.writeLong(trace[offset + 1]);
+            out.writeLong(trace[offset + 2]);
+        }
+        out.flush();
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds.
+     *
+     * @param nanos the time in nanoseconds
+     * @return the time in milliseconds
+     */
+    private static long toMillis(long nanos)
+    {
+        return nanos / 1000000;
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.commons.io.IOUtils;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.zip.ZipEntry;
@@ -42,6 +43,12 @@ public class IoHelper
      */
     private static final String MASKED_SLASH_PLACEHOLDER = "~&_&~";
 
+    /**
+     * System property to force environment variables to be read by running <em>env</em> (or <em>set</em> on
+     * Windows) rather than from the JVM.
+     */
+    public static final String ENV_FORK_PROPERTY = "izpack.env.fork";
+
     private static Properties envVars = null;
 
 
@@ -348,28 +355,48 @@ public class IoHelper
     }
 
     /**
-     * Returns the value of the environment variable given by key. This method is a work around for
-     * VM versions which do not support getenv in an other way. At the first call all environment
-     * variables will be loaded via an exec. On Windows keys are not case sensitive.
+     * Returns the value of the environment variable given by key. At the first call all environment
+     * variables are loaded, and cached for the remainder of the run. On Windows keys are not case sensitive.
+     * <p/>
+     * Variables are read from the JVM, unless the {@link #ENV_FORK_PROPERTY} system property is <tt>true</tt>, in
+     * which case they are read via an exec.
      *
      * @param key variable name for which the value should be resolved
      * @return the value of the environment variable given by key
      */
     public static String getenv(String key)
     {
-        if (envVars == null)
+        Properties vars = getEnvVars();
+        if (OsVersion.IS_WINDOWS)
         {
-            loadEnv();
+            key = key.toUpperCase();
         }
+        return vars.getProperty(key);
+    }
+
+    /**
+     * Returns the environment variables, loading them on first access.
+     *
+     * @return the environment variables
+     */
+    private static synchronized Properties getEnvVars()
+    {
         if (envVars == null)
         {
-            return (null);
-        }
-        if (OsVersion.IS_WINDOWS)
-        {
-            key = key.toUpperCase();
+            if (Boolean.getBoolean(ENV_FORK_PROPERTY))
+            {
+                loadEnv();
+            }
+            if (envVars == null)
+            {
+                envVars = new Properties();
+                for (Map.Entry<String, String> entry : System.getenv().entrySet())
+                {
+                    setEnvVar(entry.getKey(), entry.getValue());
+                }
+            }
         }
-        return (String) (envVars.get(key));
+        return envVars;
     }
 
     /**
@@ -394,7 +421,7 @@ public class IoHelper
         }
         FileExecutor fe = new FileExecutor();
         fe.executeCommand(params, output);
-        if (output[0].length() <= 0)
+        if (output[0] == null || output[0].length() <= 0)
         {
             return;
         }
@@ -442,14 +469,23 @@ public class IoHelper
         {
             return;
         }
-        String key = var.substring(0, index);
+        setEnvVar(var.substring(0, index), var.substring(index + 1));
+    }
+
+    /**
+     * Sets an environment variable. On Windows all chars of the key are translated to upper case.
+     *
+     * @param key   the variable name
+     * @param value the variable value
+     */
+    private static void setEnvVar(String key, String value)
+    {
         // On windows change all key chars to upper.
         if (OsVersion.IS_WINDOWS)
         {
             key = key.toUpperCase();
         }
-        envVars.setProperty(key, var.substring(index + 1));
-
+        envVars.setProperty(key, value);
     }
 
     public static void copyStreamToJar(InputStream zin, java.util.zip.ZipOutputStream out, String currentName,
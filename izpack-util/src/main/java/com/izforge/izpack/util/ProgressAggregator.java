@@ -0,0 +1,357 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import com.izforge.izpack.api.event.ProgressListener;
+import com.izforge.izpack.api.event.ProgressStatus;
+import com.izforge.izpack.api.event.ProgressStatusListener;
+
+
+/**
+ * A {@link ProgressListener} that coalesces per-file progress before passing it on to another listener.
+ * <p/>
+ * Calls to {@link #progress(int, String)} record the latest sub-step, and publish it to the underlying listener at
+ * most once per interval, so that a user interface isn't flooded with an update per file.
+ * All other notifications are passed on immediately, after publishing any pending sub-step, so the listener always
+ * sees the final state of a step.
+ * <p/>
+ * The aggregator also tracks the bytes and files processed. If the underlying listener is a
+ * {@link ProgressStatusListener}, it is sent a {@link ProgressStatus} at the same rate.
+ * <p/>
+ * The underlying listener is only ever invoked from the thread calling the {@link ProgressListener} methods (i.e. the
+ * unpacking thread), and never while the aggregator's lock is held. {@link #addBytes} may be called from other
+ * threads; the bytes are published with the next notification.
+ */
+public class ProgressAggregator implements ProgressListener
+{
+    /**
+     * The default publication interval, in milliseconds (25 updates a second).
+     */
+    public static final long DEFAULT_INTERVAL = 40;
+
+    /**
+     * The listener to publish to.
+     */
+    private final ProgressListener listener;
+
+    /**
+     * The publication interval, in nanoseconds.
+     */
+    private final long interval;
+
+    /**
+     * The time the current action started, from {@link System#nanoTime()}.
+     */
+    private long start = System.nanoTime();
+
+    /**
+     * The time progress was last published, from {@link System#nanoTime()}.
+     */
+    private long published = start;
+
+    /**
+     * The no. of bytes processed.
+     */
+    private long bytes;
+
+    /**
+     * The total no. of bytes to process, or <tt>0</tt> if unknown.
+     */
+    private long totalBytes;
+
+    /**
+     * The no. of files processed.
+     */
+    private long files;
+
+    /**
+     * Determines if there is a sub-step waiting to be published.
+     */
+    private boolean pending;
+
+    /**
+     * The latest sub-step.
+     */
+    private int subStep;
+
+    /**
+     * The latest sub-step message.
+     */
+    private String message;
+
+    /**
+     * Determines if the status has changed since it was last published.
+     */
+    private boolean changed;
+
+
+    /**
+     * Constructs a <tt>ProgressAggregator</tt> that publishes at the {@link #DEFAULT_INTERVAL}.
+     *
+     * @param listener the listener to publish to
+     */
+    public ProgressAggregator(ProgressListener listener)
+    {
+        this(listener, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Constructs a <tt>ProgressAggregator</tt>.
+     *
+     * @param listener the listener to publish to
+     * @param interval the publication interval, in milliseconds
+     */
+    public ProgressAggregator(ProgressListener listener, long interval)
+    {
+        this.listener = listener;
+        this.interval = interval * 1000000;
+    }
+
+    /**
+     * Returns the listener that progress is published to.
+     *
+     * @return the listener
+     */
+    public ProgressListener getListener()
+    {
+        return listener;
+    }
+
+    /**
+     * Sets the total no. of bytes the action will process, used to estimate the time remaining.
+     *
+     * @param totalBytes the total no. of bytes, or <tt>0</tt> if unknown
+     */
+    public synchronized void setTotalBytes(long totalBytes)
+    {
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Adds to the no. of bytes processed.
+     *
+     * @param count the no. of bytes
+     */
+    public synchronized void addBytes(long count)
+    {
+        bytes += count;
+        changed = true;
+    }
+
+    /**
+     * Returns the current progress status.
+     *
+     * @return the progress status
+     */
+    public synchronized ProgressStatus getStatus()
+    {
+        return new ProgressStatus(bytes, totalBytes, files, (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Invoked when an action starts.
+     * <p/>
+     * This resets the counters.
+     *
+     * @param name  the name of the action
+     * @param steps the number of steps the action consists of
+     */
+    @Override
+    public void startAction(String name, int steps)
+    {
+        synchronized (this)
+        {
+            start = System.nanoTime();
+            published = start;
+            bytes = 0;
+            totalBytes = 0;
+            files = 0;
+            pending = false;
+            changed = false;
+        }
+        listener.startAction(name, steps);
+    }
+
+    /**
+     * Invoked when an action finishes.
+     * <p/>
+     * Any pending progress is published before the listener is notified.
+     */
+    @Override
+    public void stopAction()
+    {
+        publish();
+        listener.stopAction();
+    }
+
+    /**
+     * Invoked when an action step starts.
+     *
+     * @param stepName the name of the step
+     * @param step     the step number
+     * @param subSteps the number of sub-steps the step consists of
+     */
+    @Override
+    public void nextStep(String stepName, int step, int subSteps)
+    {
+        publish();
+        listener.nextStep(stepName, step, subSteps);
+    }
+
+    /**
+     * Sets the number of sub-steps.
+     *
+     * @param subSteps the number of sub-steps
+     */
+    @Override
+    public void setSubStepNo(int subSteps)
+    {
+        publish();
+        listener.setSubStepNo(subSteps);
+    }
+
+    /**
+     * Invoked to notify progress.
+     * <p/>
+     * Listeners count these calls, so they are passed on immediately.
+     *
+     * @param message a message describing the step
+     */
+    @Override
+    public void progress(String message)
+    {
+        publish();
+        listener.progress(message);
+    }
+
+    /**
+     * Records progress, publishing it if the interval has elapsed since progress was last published.
+     *
+     * @param subStep the sub-step which will be performed next
+     * @param message an additional message describing the sub-step
+     */
+    @Override
+    public void progress(int subStep, String message)
+    {
+        Update update = null;
+        synchronized (this)
+        {
+            this.subStep = subStep;
+            this.message = message;
+            pending = true;
+            changed = true;
+            ++files;
+            if (System.nanoTime() - published >= interval)
+            {
+                update = take();
+            }
+        }
+        if (update != null)
+        {
+            update.publish();
+        }
+    }
+
+    /**
+     * Invoked when an action restarts.
+     *
+     * @param name           the name of the action
+     * @param overallMessage a message describing the overall progress
+     * @param tip            a tip describing the current progress
+     * @param steps          the number of steps the action consists of
+     */
+    @Override
+    public void restartAction(String name, String overallMessage, String tip, int steps)
+    {
+        publish();
+        listener.restartAction(name, overallMessage, tip, steps);
+    }
+
+    /**
+     * Publishes any pending progress to the listener.
+     */
+    public void publish()
+    {
+        Update update;
+        synchronized (this)
+        {
+            update = take();
+        }
+        update.publish();
+    }
+
+    /**
+     * Takes a snapshot of the unpublished progress, and marks it as published.
+     * <p/>
+     * The caller must hold the lock.
+     *
+     * @return the unpublished progress
+     */
+    private Update take()
+    {
+        Update update = new Update();
+        if (pending)
+        {
+            pending = false;
+            update.pending = true;
+            update.subStep = subStep;
+            update.message = message;
+        }
+        if (changed)
+        {
+            changed = false;
+            if (listener instanceof ProgressStatusListener)
+            {
+                update.status = new ProgressStatus(bytes, totalBytes, files, (System.nanoTime() - start) / 1000000);
+            }
+        }
+        published = System.nanoTime();
+        return update;
+    }
+
+    /**
+     * A snapshot of progress to publish, taken under the lock and published after it is released.
+     */
+    private class Update
+    {
+        private boolean pending;
+
+        private int subStep;
+
+        private String message;
+
+        private ProgressStatus status;
+
+        /**
+         * Publishes the progress to the listener.
+         */
+        public void publish()
+        {
+            if (pending)
+            {
+                listener.progress(subStep, message);
+            }
+            if (status != null)
+            {
+                ((ProgressStatusListener) listener).progress(status);
+            }
+        }
+    }
+}
@@ -87,6 +87,19 @@ import java.util.zip.ZipEntry;
  * thread). In other words, the target is the new "main" method.
  * </ol>
  * <p/>
+ * <b>Fast launch</b>
+ * <p/>
+ * By default, phase 1 copies the jar file into the sandbox rather than extracting its contents, and the copy is
+ * used as the class path of the secondary processes. On Unix, where a file may be deleted while it is open, phase 2
+ * is skipped: phase 1 spawns phase 3 directly, and phase 3 deletes the sandbox when it exits. On other platforms,
+ * phase 2 still waits for phase 3 to exit before deleting the sandbox. As the jar file of a running JVM is locked
+ * there, phase 2 is launched from a second copy placed next to the sandbox, rather than in it. That copy cannot be
+ * deleted until phase 2 exits, so it is scheduled for deletion on exit, and any copy left behind is removed by the
+ * next launch.
+ * <p/>
+ * The original behaviour, where the jar is extracted, may be restored by setting the <tt>self.mod.fast</tt> system
+ * property to <tt>false</tt> when launching phase 1.
+ * <p/>
  * <a name="selfmodsysprops"><b>SelfModifier system properties</b></a> used to pass information
  * between processes. <table border="1">
  * <tr>
@@ -113,6 +126,14 @@ import java.util.zip.ZipEntry;
  * <td><a href="#PHASE_KEY">PHASE_KEY</a>
  * <td>self.mod.base
  * <td>phase of operation to run</tr>
+ * <tr>
+ * <td><a href="#FAST_KEY">FAST_KEY</a>
+ * <td>self.mod.fast
+ * <td>determines if the jar is copied rather than extracted</tr>
+ * <tr>
+ * <td><a href="#CLEANUP_KEY">CLEANUP_KEY</a>
+ * <td>self.mod.cleanup
+ * <td>determines if phase 3 deletes the sandbox on exit</tr>
  * </table>
  *
  * @author Chadwick McHenry
@@ -146,6 +167,16 @@ public class SelfModifier
      */
     private static final String PHASE_KEY = "self.mod.phase";
 
+    /**
+     * System property name of the fast launch indicator.
+     */
+    private static final String FAST_KEY = "self.mod.fast";
+
+    /**
+     * System property name of the indicator that phase 3 owns the sandbox, and must delete it on exit.
+     */
+    private static final String CLEANUP_KEY = "self.mod.cleanup";
+
     /**
      * Target method to be invoked in sandbox.
      */
@@ -171,6 +202,21 @@ public class SelfModifier
      */
     private int phase = 0;
 
+    /**
+     * Determines if the jar file is copied to the sandbox, rather than extracted.
+     */
+    private final boolean fast;
+
+    /**
+     * Determines if a file may be deleted while it is open, so phase 2 can be skipped in fast mode.
+     */
+    private final boolean unix;
+
+    /**
+     * Determines if phase 3 deletes the sandbox on exit.
+     */
+    private final boolean cleanup = Boolean.getBoolean(CLEANUP_KEY);
+
     /**
      * For logging time.
      */
@@ -258,6 +304,8 @@ public class SelfModifier
     private SelfModifier()
     {
         phase = Integer.parseInt(System.getProperty(PHASE_KEY));
+        fast = isFast();
+        unix = OsVersion.IS_UNIX;
 
         String cName = System.getProperty(CLASS_KEY);
         String tName = System.getProperty(METHOD_KEY);
@@ -305,10 +353,41 @@ public class SelfModifier
     public SelfModifier(Method method) throws IOException
     {
         phase = 1;
+        fast = isFast();
+        unix = OsVersion.IS_UNIX;
         ProcessHelper.tryExecJava();
         initMethod(method);
     }
 
+    /**
+     * Creates a SelfModifier for phase 1, launching from the specified jar file.
+     * <p/>
+     * This is only intended for testing purposes.
+     *
+     * @param method  the target method
+     * @param jarFile the jar file containing the target method
+     * @param fast    determines if the jar file is copied to the sandbox, rather than extracted
+     * @param unix    determines if a file may be deleted while it is open
+     */
+    SelfModifier(Method method, File jarFile, boolean fast, boolean unix)
+    {
+        phase = 1;
+        this.fast = fast;
+        this.unix = unix;
+        this.jarFile = jarFile;
+        initMethod(method);
+    }
+
+    /**
+     * Determines if fast launch is enabled.
+     *
+     * @return <tt>false</tt> if the {@link #FAST_KEY} system property is <tt>false</tt>, otherwise <tt>true</tt>
+     */
+    private static boolean isFast()
+    {
+        return !"false".equalsIgnoreCase(System.getProperty(FAST_KEY));
+    }
+
     /**
      * Check the method for the required properties (public, static, params:(String[])).
      *
@@ -362,11 +441,43 @@ public class SelfModifier
      */
     public void invoke(String[] args) throws IOException
     {
-        // Initialize sandbox and log file to be unique, but similarly named
+        createSandbox(null);
+        System.out.println("The uninstaller has put a log file: " + logFile.getAbsolutePath());
+
+        try
+        {
+            jarFile = findJarFile(method.getDeclaringClass()).getCanonicalFile();
+        }
+        catch (Throwable throwable)
+        {
+            throw new IllegalStateException("SelfModifier must be in a jar file");
+        }
+        log("JarFile: " + jarFile);
+
+        if (args == null)
+        {
+            args = new String[0];
+        }
+        spawn(args, prepare());
+
+        // finally, if all went well, the invoking process must exit
+        log("Exit");
+        System.exit(0);
+    }
+
+    /**
+     * Creates the log file and the sandbox, with unique but similar names.
+     * <p/>
+     * Copies of the jar file left behind by earlier launches are removed.
+     *
+     * @param dir the directory to create them in, or {@code null} to use the default temporary directory
+     * @throws IOException if the log file cannot be created
+     */
+    void createSandbox(File dir) throws IOException
+    {
         while (true)
         {
-            logFile = File.createTempFile(prefix, ".log");
-            System.out.println("The uninstaller has put a log file: " + logFile.getAbsolutePath());
+            logFile = File.createTempFile(prefix, ".log", dir);
             String fileName = logFile.toString();
             sandbox = new File(fileName.substring(0, fileName.length() - 4) + ".d");
 
@@ -387,27 +498,34 @@ public class SelfModifier
         sandbox = sandbox.getCanonicalFile();
         logFile = logFile.getCanonicalFile();
 
-        try
-        {
-            jarFile = findJarFile(method.getDeclaringClass()).getCanonicalFile();
-        }
-        catch (Throwable throwable)
+        deleteStaleLaunchers(sandbox.getParentFile());
+    }
+
+    /**
+     * Copies or extracts the jar file so that the original may be modified.
+     *
+     * @return the phase to spawn
+     * @throws IOException if the jar file cannot be copied or extracted
+     */
+    int prepare() throws IOException
+    {
+        if (!fast)
         {
-            throw new IllegalStateException("SelfModifier must be in a jar file");
+            extractJarFile();
+            return 2;
         }
-        log("JarFile: " + jarFile);
-
-        extractJarFile();
-
-        if (args == null)
+        copyJarFile();
+        if (unix)
         {
-            args = new String[0];
+            // a running jar may be deleted, so phase 3 can delete the sandbox it runs from
+            return 3;
         }
-        spawn(args, 2);
 
-        // finally, if all went well, the invoking process must exit
-        log("Exit");
-        System.exit(0);
+        // phase 2 deletes the sandbox, so it must not be run from it
+        File launcher = getLauncherJarFile();
+        FileUtils.copyFile(jarFile, launcher, false);
+        log("Copied " + jarFile.getPath() + " to " + launcher.getPath());
+        return 2;
     }
 
     /**
@@ -419,6 +537,28 @@ public class SelfModifier
      * @throws IOException if there is an error getting the canonical name of a path
      */
     private Process spawn(String[] args, int nextPhase) throws IOException
+    {
+        List<String> command = getCommand(args, nextPhase);
+
+        StringBuilder buffer = new StringBuilder("Spawning phase ");
+        buffer.append(nextPhase).append(": ");
+        for (String anEntireCmd : command)
+        {
+            buffer.append("\n\t").append(anEntireCmd);
+        }
+        log(buffer.toString());
+
+        return ProcessHelper.exec(command);
+    }
+
+    /**
+     * Returns the command to run a new jvm with all the system parameters needed for phases 2 and 3.
+     *
+     * @param args      the command line arguments
+     * @param nextPhase the next phase
+     * @return the command
+     */
+    List<String> getCommand(String[] args, int nextPhase)
     {
         String base = logFile.getAbsolutePath();
         base = base.substring(0, base.length() - 4);
@@ -449,25 +589,37 @@ public class SelfModifier
         }
 
         command.add("-classpath");
-        command.add(sandbox.getAbsolutePath());
+        command.add(getClassPath(nextPhase).getAbsolutePath());
         command.add("-D" + BASE_KEY + "=" + base);
         command.add("-D" + JAR_KEY + "=" + jarFile.getPath() + "");
         command.add("-D" + CLASS_KEY + "=" + method.getDeclaringClass().getName());
         command.add("-D" + METHOD_KEY + "=" + method.getName());
         command.add("-D" + PHASE_KEY + "=" + nextPhase);
+        command.add("-D" + FAST_KEY + "=" + fast);
+        if (phase == 1 && nextPhase == 3)
+        {
+            // there is no phase 2 to delete the sandbox
+            command.add("-D" + CLEANUP_KEY + "=true");
+        }
         command.add(getClass().getName());
 
         Collections.addAll(command, args);
+        return command;
+    }
 
-        StringBuilder buffer = new StringBuilder("Spawning phase ");
-        buffer.append(nextPhase).append(": ");
-        for (String anEntireCmd : command)
+    /**
+     * Returns the class path of a phase.
+     *
+     * @param nextPhase the phase
+     * @return the class path
+     */
+    private File getClassPath(int nextPhase)
+    {
+        if (!fast)
         {
-            buffer.append("\n\t").append(anEntireCmd);
+            return sandbox;
         }
-        log(buffer.toString());
-
-        return ProcessHelper.exec(command);
+        return (nextPhase == 2) ? getLauncherJarFile() : getSandboxJarFile();
     }
 
     /**
@@ -501,6 +653,68 @@ public class SelfModifier
         return file;
     }
 
+    /**
+     * Returns the copy of the jar file in the sandbox, used when launching in fast mode.
+     *
+     * @return the sandbox jar file
+     */
+    private File getSandboxJarFile()
+    {
+        return new File(sandbox, jarFile.getName());
+    }
+
+    /**
+     * Returns the copy of the jar file that phase 2 is launched from on platforms where a running jar cannot be
+     * deleted. It is placed next to the sandbox, as the sandbox is deleted while phase 2 is still running.
+     *
+     * @return the launcher jar file
+     */
+    private File getLauncherJarFile()
+    {
+        String path = sandbox.getPath();
+        return new File(path.substring(0, path.length() - 2) + ".jar");
+    }
+
+    /**
+     * Deletes the copies of the jar file left behind by phase 2 of earlier launches.
+     * <p/>
+     * A copy is only deleted if the log file of its launch exists, and its sandbox doesn't, i.e. phase 3 has
+     * completed.
+     *
+     * @param dir the directory containing the sandboxes
+     */
+    static void deleteStaleLaunchers(File dir)
+    {
+        File[] files = dir.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                String name = file.getName();
+                if (name.startsWith(prefix) && name.endsWith(".jar") && file.isFile())
+                {
+                    String base = name.substring(0, name.length() - 4);
+                    if (new File(dir, base + ".log").exists() && !new File(dir, base + ".d").exists())
+                    {
+                        FileUtils.deleteQuietly(file);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the jar file to the sandbox.
+     *
+     * @throws IOException if the jar file cannot be copied
+     */
+    private void copyJarFile() throws IOException
+    {
+        File copy = getSandboxJarFile();
+        FileUtils.copyFile(jarFile, copy, false);
+        log("Copied " + jarFile.getPath() + " to " + copy.getPath());
+    }
+
     /**
      * @throws IOException if an error occured
      */
@@ -586,7 +800,7 @@ public class SelfModifier
 
             // clean up and go
             log("deleting sandbox");
-            FileUtils.deleteDirectory(sandbox);
+            deleteSandbox();
         }
         catch (Exception e)
         {
@@ -595,11 +809,55 @@ public class SelfModifier
         log("Phase 3 return value = " + retVal);
     }
 
+    /**
+     * Deletes the sandbox.
+     * <p/>
+     * In fast mode, phase 2 runs from a copy of the jar file outside the sandbox. This is still locked, so it is
+     * scheduled for deletion on exit. Where that also fails, it is removed by the next launch.
+     *
+     * @throws IOException if the sandbox cannot be deleted
+     */
+    void deleteSandbox() throws IOException
+    {
+        FileUtils.deleteDirectory(sandbox);
+        if (fast && phase == 2)
+        {
+            getLauncherJarFile().deleteOnExit();
+        }
+    }
+
     /**
      * Invoke the target method and let it run free!
      */
     private void invoke3(String[] args)
     {
+        if (cleanup)
+        {
+            // no parent process reads std io, so redirect it to the log
+            if (checkLog() != null)
+            {
+                System.setOut(log);
+                System.setErr(log);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread("SelfModifier cleanup")
+            {
+                @Override
+                public void run()
+                {
+                    errlog("deleting sandbox");
+                    System.err.flush();
+                    try
+                    {
+                        deleteSandbox();
+                    }
+                    catch (IOException exception)
+                    {
+                        errlog(exception.getMessage());
+                    }
+                }
+            });
+        }
+
         // std io is being redirected to the log
         try
         {
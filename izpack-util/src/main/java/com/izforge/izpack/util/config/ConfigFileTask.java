@@ -23,10 +23,17 @@
 package com.izforge.izpack.util.config;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.logging.Logger;
+
+import com.izforge.izpack.api.config.Config;
+import com.izforge.izpack.api.config.ConfigPatcher;
 
 public abstract class ConfigFileTask extends SingleConfigurableTask
 {
+    private static final Logger logger = Logger.getLogger(ConfigFileTask.class.getName());
+
     protected File oldFile;
 
     protected File newFile;
@@ -35,6 +42,7 @@ public abstract class ConfigFileTask extends SingleConfigurableTask
 
     protected boolean cleanup;
 
+    private boolean streaming;
 
     /**
      * Use this to prepend a comment to the configuration file's header
@@ -50,6 +58,11 @@ public abstract class ConfigFileTask extends SingleConfigurableTask
         this.newFile = file;
     }
 
+    public File getNewFile()
+    {
+        return newFile;
+    }
+
     /**
      * Location of the configuration file to be patched from; optional. If not set, attributes
      * defining preservations of entries and values are ignored.
@@ -59,6 +72,11 @@ public abstract class ConfigFileTask extends SingleConfigurableTask
         this.oldFile = file;
     }
 
+    public File getOldFile()
+    {
+        return oldFile;
+    }
+
     /**
      * Location of the resulting output file; required.
      */
@@ -67,6 +85,11 @@ public abstract class ConfigFileTask extends SingleConfigurableTask
         this.toFile = file;
     }
 
+    public File getToFile()
+    {
+        return toFile;
+    }
+
 
     /**
      * Whether to delete the patchfile after the operation
@@ -90,10 +113,141 @@ public abstract class ConfigFileTask extends SingleConfigurableTask
         return this.comment;
     }
 
+    /**
+     * Whether to patch the file in a single pass with a {@link ConfigPatcher}, rather than loading and rewriting
+     * it, where this gives the same result (default: false). Unchanged lines are kept exactly as they are,
+     * instead of being reformatted.
+     * <p/>
+     * The file is only streamed if there is no file to patch from, no header comment, and the nested entries
+     * don't look up options by value, resolve variables or auto number keys.
+     *
+     * @param streaming - true to stream the file where possible
+     */
+    public void setStreaming(boolean streaming)
+    {
+        this.streaming = streaming;
+    }
+
     @Override
     protected void checkAttributes() throws Exception
     {
         if (this.toFile == null) { throw new Exception("The \"file\" attribute must be set"); }
     }
 
+    @Override
+    public void execute() throws Exception
+    {
+        if (streaming)
+        {
+            Config config = configure();
+            ConfigPatcher patcher = createPatcher(config);
+            if (patcher != null && isStreamable(patcher, config.isAutoNumbering()))
+            {
+                checkAttributes();
+                patch(patcher);
+                return;
+            }
+        }
+        super.execute();
+    }
+
+    /**
+     * Creates a patcher for this type of file.
+     *
+     * @param config the configuration
+     * @return a new patcher, or {@code null} if the file type can't be streamed
+     */
+    protected ConfigPatcher createPatcher(Config config)
+    {
+        return null;
+    }
+
+    /**
+     * Determines if the file can be patched by streaming, and if so, adds the nested entries to the patcher.
+     *
+     * @param patcher       the patcher
+     * @param autoNumbering true if property auto numbering is enabled
+     * @return true if the file can be streamed
+     */
+    private boolean isStreamable(ConfigPatcher patcher, boolean autoNumbering)
+    {
+        if ((oldFile != null && oldFile.exists()) || (comment != null && !comment.isEmpty()))
+        {
+            return false;
+        }
+        boolean options = this instanceof SingleOptionFileTask;
+        for (Entry entry : getEntries())
+        {
+            if (!entry.isStreamable(options, autoNumbering))
+            {
+                return false;
+            }
+        }
+        for (final Entry entry : getEntries())
+        {
+            String section = options ? null : entry.getSection();
+            switch (entry.getOperation())
+            {
+                case KEEP:
+                    break;
+                case REMOVE:
+                    patcher.remove(section, entry.getKey());
+                    break;
+                default:
+                    patcher.put(section, entry.getKey(), new ConfigPatcher.Update()
+                    {
+                        @Override
+                        public String update(String value) throws IOException
+                        {
+                            try
+                            {
+                                return entry.getNewValue(value);
+                            }
+                            catch (IOException exception)
+                            {
+                                throw exception;
+                            }
+                            catch (Exception exception)
+                            {
+                                throw new IOException(exception.getMessage(), exception);
+                            }
+                        }
+                    });
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Patches the target file in a single pass.
+     *
+     * @param patcher the patcher
+     * @throws IOException for any I/O error
+     */
+    private void patch(ConfigPatcher patcher) throws IOException
+    {
+        File source = null;
+        if (newFile != null && newFile.exists())
+        {
+            source = newFile;
+        }
+        else if (toFile.exists())
+        {
+            source = toFile;
+        }
+        else if (!createConfigurable)
+        {
+            logger.warning("Configuration file " + toFile.getAbsolutePath()
+                    + " did not exist and is not allowed to be created");
+            return;
+        }
+        File parent = toFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists())
+        {
+            parent.mkdirs();
+        }
+        logger.fine("Patching configuration file: " + toFile.getAbsolutePath());
+        patcher.patch(source, toFile);
+    }
+
 }
@@ -27,7 +27,18 @@ import com.izforge.izpack.util.file.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 public abstract class ConfigurableFileCopyTask extends FileCopyTask implements ConfigurableTask
@@ -42,6 +53,7 @@ public abstract class ConfigurableFileCopyTask extends FileCopyTask implements C
 
     protected boolean cleanup;
 
+    private int threads = 1;
 
     /**
      * Whether to preserve equal entries but not necessarily their values from an old configuration,
@@ -102,6 +114,16 @@ public abstract class ConfigurableFileCopyTask extends FileCopyTask implements C
             boolean patchPreserveEntries, boolean patchPreserveValues, boolean patchResolveVariables)
             throws Exception;
 
+    /**
+     * The maximum no. of target files to merge/copy concurrently (default: 1).
+     *
+     * @param threads the no. of threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
     @Override
     protected void doFileOperations() throws Exception
     {
@@ -110,6 +132,8 @@ public abstract class ConfigurableFileCopyTask extends FileCopyTask implements C
             logger.fine("Merge/copy " + fileCopyMap.size() + " file"
                     + (fileCopyMap.size() == 1 ? "" : "s") + " in " + destDir.getAbsolutePath());
 
+            // group the source files by target, so that merges into the same target happen in sequence
+            final Map<String, List<String>> targets = new LinkedHashMap<String, List<String>>();
             Enumeration<String> e = fileCopyMap.keys();
             while (e.hasMoreElements())
             {
@@ -123,59 +147,167 @@ public abstract class ConfigurableFileCopyTask extends FileCopyTask implements C
                         logger.warning("Skipping self-merge/copy of " + fromFile);
                         continue;
                     }
-
-                    logger.fine("Merge/copy " + fromFile + " into " + toFile);
-
-                    File to = new File(toFile);
-                    File parent = to.getParentFile();
-                    if (parent != null && !parent.exists())
-                    {
-                        parent.mkdirs();
-                    }
-                    if (!to.exists())
+                    List<String> fromFiles = targets.get(toFile);
+                    if (fromFiles == null)
                     {
-                        to.createNewFile();
+                        fromFiles = new ArrayList<String>();
+                        targets.put(toFile, fromFiles);
                     }
+                    fromFiles.add(fromFile);
+                }
+            }
 
-                    File toTmp = File.createTempFile("tmp-", null, parent);
+            if (threads == 1 || targets.size() < 2)
+            {
+                for (Map.Entry<String, List<String>> entry : targets.entrySet())
+                {
+                    doFileOperations(entry.getValue(), entry.getKey());
+                }
+            }
+            else
+            {
+                doFileOperationsConcurrently(targets);
+            }
+        }
+    }
 
-                    try
+    /**
+     * Merges/copies target files concurrently.
+     * <p/>
+     * If a target fails, no further targets are started, and the first failure is thrown once the targets being
+     * processed complete.
+     *
+     * @param targets the source files, keyed on target file
+     * @throws Exception if a target cannot be merged/copied
+     */
+    private void doFileOperationsConcurrently(Map<String, List<String>> targets) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, targets.size()),
+                                                                new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "IzPack configuration merge");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final AtomicBoolean failed = new AtomicBoolean();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        try
+        {
+            for (final Map.Entry<String, List<String>> entry : targets.entrySet())
+            {
+                futures.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
                     {
-                        // The target file to copy to is the original (old) file to
-                        // take preservations of old entries and values from
-                        // The source file to copy from is the new file which contains
-                        // the reference entries and values which might be patched from
-                        // the original ones
-                        File from = new File(fromFile);
-                        doFileOperation(from, to, toTmp, patchPreserveEntries,
-                                patchPreserveValues, patchResolveVariables);
-
-                        FileUtils.copyFile(toTmp, to, forceOverwrite, preserveLastModified);
-                        if (cleanup && from.exists())
+                        if (!failed.get())
                         {
-                            if (!from.delete())
+                            try
+                            {
+                                doFileOperations(entry.getValue(), entry.getKey());
+                            }
+                            catch (Exception exception)
                             {
-                                logger.warning("File " + from + " could not be cleant up");
+                                failed.set(true);
+                                throw exception;
                             }
                         }
+                        return null;
                     }
-                    catch (IOException be)
+                }));
+            }
+            Exception failure = null;
+            for (Future<?> future : futures)
+            {
+                try
+                {
+                    future.get();
+                }
+                catch (ExecutionException exception)
+                {
+                    if (failure == null)
                     {
-                        String msg = "Failed to merge/copy " + fromFile + " into " + toFile
-                                + " due to " + be.getMessage();
-                        File targetFile = new File(toFile);
-                        if (targetFile.exists() && !targetFile.delete())
-                        {
-                            msg += " and I couldn't delete the corrupt " + toFile;
-                        }
-                        throw new Exception(msg, be);
+                        Throwable cause = exception.getCause();
+                        failure = (cause instanceof Exception) ? (Exception) cause : exception;
                     }
-                    finally
+                }
+            }
+            if (failure != null)
+            {
+                throw failure;
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Merges/copies source files into a target file, in order.
+     *
+     * @param fromFiles the source files
+     * @param toFile    the target file
+     * @throws Exception if a source file cannot be merged/copied
+     */
+    private void doFileOperations(List<String> fromFiles, String toFile) throws Exception
+    {
+        for (String fromFile : fromFiles)
+        {
+            logger.fine("Merge/copy " + fromFile + " into " + toFile);
+
+            File to = new File(toFile);
+            File parent = to.getParentFile();
+            if (parent != null && !parent.exists())
+            {
+                parent.mkdirs();
+            }
+            if (!to.exists())
+            {
+                to.createNewFile();
+            }
+
+            File toTmp = File.createTempFile("tmp-", null, parent);
+
+            try
+            {
+                // The target file to copy to is the original (old) file to
+                // take preservations of old entries and values from
+                // The source file to copy from is the new file which contains
+                // the reference entries and values which might be patched from
+                // the original ones
+                File from = new File(fromFile);
+                doFileOperation(from, to, toTmp, patchPreserveEntries,
+                        patchPreserveValues, patchResolveVariables);
+
+                FileUtils.copyFile(toTmp, to, forceOverwrite, preserveLastModified);
+                if (cleanup && from.exists())
+                {
+                    if (!from.delete())
                     {
-                        toTmp.delete();
+                        logger.warning("File " + from + " could not be cleant up");
                     }
                 }
             }
+            catch (IOException be)
+            {
+                String msg = "Failed to merge/copy " + fromFile + " into " + toFile
+                        + " due to " + be.getMessage();
+                File targetFile = new File(toFile);
+                if (targetFile.exists() && !targetFile.delete())
+                {
+                    msg += " and I couldn't delete the corrupt " + toFile;
+                }
+                throw new Exception(msg, be);
+            }
+            finally
+            {
+                toTmp.delete();
+            }
         }
     }
 
@@ -41,6 +41,7 @@ import java.util.logging.Logger;
 import com.izforge.izpack.util.config.SingleConfigurableTask.Entry.LookupType;
 import com.izforge.izpack.api.config.BasicProfile;
 import com.izforge.izpack.api.config.Config;
+import com.izforge.izpack.api.config.ConfigPatcher;
 import com.izforge.izpack.api.config.Configurable;
 import com.izforge.izpack.api.config.Ini;
 import com.izforge.izpack.api.config.OptionMap;
@@ -79,6 +80,8 @@ public abstract class SingleConfigurableTask implements ConfigurableTask
 
     protected Configurable fromConfigurable;
 
+    private Config config;
+
     private Vector<Entry> entries = new Vector<Entry>();
 
     /**
@@ -202,13 +205,7 @@ public abstract class SingleConfigurableTask implements ConfigurableTask
     @Override
     public void execute() throws Exception
     {
-        Config.getGlobal().setHeaderComment(headerComment);
-        Config.getGlobal().setEmptyLines(emptyLines);
-        Config.getGlobal().setAutoNumbering(autoNumbering);
-        Config.getGlobal().setEscape(escape);
-        Config.getGlobal().setEscapeNewline(escapeNewLine);
-        Config.getGlobal().setOperator(operator);
-        Config.getGlobal().setFileEncoding(encoding);
+        config = configure();
         checkAttributes();
         readConfigurable();
         readSourceConfigurable();
@@ -217,6 +214,40 @@ public abstract class SingleConfigurableTask implements ConfigurableTask
         writeConfigurable();
     }
 
+    /**
+     * Applies the ini4j-like settings of this task to the global configuration, and returns a copy of it.
+     * <p/>
+     * The copy is taken while holding the lock of the global configuration, so that tasks executing concurrently
+     * each get their own settings.
+     *
+     * @return a copy of the configuration
+     */
+    protected Config configure()
+    {
+        Config global = Config.getGlobal();
+        synchronized (global)
+        {
+            global.setHeaderComment(headerComment);
+            global.setEmptyLines(emptyLines);
+            global.setAutoNumbering(autoNumbering);
+            global.setEscape(escape);
+            global.setEscapeNewline(escapeNewLine);
+            global.setOperator(operator);
+            global.setFileEncoding(encoding);
+            return global.clone();
+        }
+    }
+
+    /**
+     * Returns the configuration of the task being executed.
+     *
+     * @return the configuration, or {@code null} if the task isn't executing
+     */
+    protected Config getConfig()
+    {
+        return config;
+    }
+
     private String getValueFromOptionMap(OptionMap map, String key, int index)
     {
         return (patchResolveVariables ?
@@ -653,6 +684,11 @@ public abstract class SingleConfigurableTask implements ConfigurableTask
         entries.addElement(entry);
     }
 
+    protected List<Entry> getEntries()
+    {
+        return entries;
+    }
+
     /**
      * Instance of this class represents nested elements of a task configuration file.
      */
@@ -925,6 +961,48 @@ public abstract class SingleConfigurableTask implements ConfigurableTask
             }
         }
 
+        /**
+         * Determines if this entry gives the same result when applied by a {@link ConfigPatcher} as when applied
+         * to the loaded configuration, given that there is no configuration to patch from.
+         *
+         * @param options       true for an options file, false for an INI file
+         * @param autoNumbering true if property auto numbering is enabled
+         * @return true if the entry can be streamed
+         */
+        boolean isStreamable(boolean options, boolean autoNumbering)
+        {
+            if (resolveVariables)
+            {
+                return false;
+            }
+            switch (operation)
+            {
+                case KEEP:
+                    // only preserves values from the configuration to patch from
+                    return true;
+                case REMOVE:
+                    // options entries may be looked up by value
+                    return !options || value == null;
+                default:
+                    // options entries are looked up by value, and replace rather than modify the existing value
+                    return !options || (operation == Operation.SET && defaultValue == null
+                            && !(autoNumbering && key != null && key.matches("(.+\\.)+[\\d]+(\\.+.*)*")));
+            }
+        }
+
+        /**
+         * Returns the value this entry sets.
+         *
+         * @param oldValue the current value, or <code>null</code> if the key doesn't exist
+         * @return the new value
+         * @throws Exception if the entry is invalid
+         */
+        String getNewValue(String oldValue) throws Exception
+        {
+            checkParameters();
+            return execute(oldValue);
+        }
+
         private void executeOnProfile(BasicProfile profile) throws Exception
         {
             String oldValue = getValueFromProfile(profile);
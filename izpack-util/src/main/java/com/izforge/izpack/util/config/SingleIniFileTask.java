@@ -26,12 +26,20 @@ import java.io.File;
 import java.io.IOException;
 import java.util.logging.Logger;
 
+import com.izforge.izpack.api.config.Config;
+import com.izforge.izpack.api.config.ConfigPatcher;
 import com.izforge.izpack.api.config.Ini;
 
 public class SingleIniFileTask extends ConfigFileTask
 {
     private static final Logger logger = Logger.getLogger(SingleIniFileTask.class.getName());
 
+    @Override
+    protected ConfigPatcher createPatcher(Config config)
+    {
+        return new ConfigPatcher(config, true);
+    }
+
     @Override
     protected void readSourceConfigurable() throws Exception
     {
@@ -47,7 +55,7 @@ public class SingleIniFileTask extends ConfigFileTask
                 }
                 logger.fine("Loading INI file: " + oldFile.getAbsolutePath());
                 // Configuration file type must be the same as the target type
-                fromConfigurable = new Ini(this.oldFile);
+                fromConfigurable = new Ini(this.oldFile, getConfig());
             }
             catch (IOException ioe)
             {
@@ -64,7 +72,7 @@ public class SingleIniFileTask extends ConfigFileTask
             try
             {
                 logger.fine("Loading original configuration file: " + newFile.getAbsolutePath());
-                configurable = new Ini(newFile);
+                configurable = new Ini(newFile, getConfig());
             }
             catch (IOException ioe)
             {
@@ -76,7 +84,7 @@ public class SingleIniFileTask extends ConfigFileTask
             try
             {
                 logger.fine("Loading target configuration file: " + toFile.getAbsolutePath());
-                configurable = new Ini(toFile);
+                configurable = new Ini(toFile, getConfig());
             }
             catch (IOException ioe)
             {
@@ -85,7 +93,7 @@ public class SingleIniFileTask extends ConfigFileTask
         }
         else
         {
-            configurable = new Ini();
+            configurable = new Ini(getConfig());
         }
     }
 
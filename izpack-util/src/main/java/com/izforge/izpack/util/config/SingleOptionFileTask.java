@@ -26,12 +26,20 @@ import java.io.File;
 import java.io.IOException;
 import java.util.logging.Logger;
 
+import com.izforge.izpack.api.config.Config;
+import com.izforge.izpack.api.config.ConfigPatcher;
 import com.izforge.izpack.api.config.Options;
 
 public class SingleOptionFileTask extends ConfigFileTask
 {
     private static final Logger logger = Logger.getLogger(SingleOptionFileTask.class.getName());
 
+    @Override
+    protected ConfigPatcher createPatcher(Config config)
+    {
+        return new ConfigPatcher(config, false);
+    }
+
     @Override
     protected void readSourceConfigurable() throws Exception
     {
@@ -47,7 +55,7 @@ public class SingleOptionFileTask extends ConfigFileTask
                 }
                 logger.fine("Loading options file: " + oldFile.getAbsolutePath());
                 // Configuration file type must be the same as the target type
-                fromConfigurable = new Options(this.oldFile);
+                fromConfigurable = new Options(this.oldFile, getConfig());
             }
             catch (IOException ioe)
             {
@@ -64,7 +72,7 @@ public class SingleOptionFileTask extends ConfigFileTask
             try
             {
                 logger.fine("Loading original configuration file: " + newFile.getAbsolutePath());
-                configurable = new Options(newFile);
+                configurable = new Options(newFile, getConfig());
             }
             catch (IOException ioe)
             {
@@ -76,7 +84,7 @@ public class SingleOptionFileTask extends ConfigFileTask
             try
             {
                 logger.fine("Loading target configuration file: " + toFile.getAbsolutePath());
-                configurable = new Options(toFile);
+                configurable = new Options(toFile, getConfig());
             }
             catch (IOException ioe)
             {
@@ -85,7 +93,7 @@ public class SingleOptionFileTask extends ConfigFileTask
         }
         else
         {
-            configurable = new Options();
+            configurable = new Options(getConfig());
         }
     }
 
@@ -59,23 +59,43 @@ public class SingleXmlFileMergeTask implements ConfigurableTask
         this.origfile = origfile;
     }
 
+    public File getOriginalFile()
+    {
+        return origfile;
+    }
+
 
     public void setPatchFile(File patchfile)
     {
         this.patchfile = patchfile;
     }
 
+    public File getPatchFile()
+    {
+        return patchfile;
+    }
+
 
     public void setToFile(File tofile)
     {
         this.tofile = tofile;
     }
 
+    public File getToFile()
+    {
+        return tofile;
+    }
+
     public void setConfigFile(File confFile)
     {
         this.conffile = confFile;
     }
 
+    public File getConfigFile()
+    {
+        return conffile;
+    }
+
     /**
      * Whether to delete the patchfiles after the operation
      * @param cleanup True, if the patchfiles should be deleted after the operation
@@ -98,6 +118,14 @@ public class SingleXmlFileMergeTask implements ConfigurableTask
         filesets.add(fileset);
     }
 
+    /**
+    * Returns the file sets.
+    * @return the file sets
+    */
+    public List<FileSet> getFileSets() {
+        return filesets;
+    }
+
     /**
      * Adds a XML merge configuration property (XPath)
      * @param key The property key
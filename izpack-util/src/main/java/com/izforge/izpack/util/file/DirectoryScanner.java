@@ -481,7 +481,7 @@ public class DirectoryScanner
      *         contents of the <code>defaultExcludes</code>
      *         <code>Vector</code>.
      */
-    private static String[] getDefaultExcludes()
+    static String[] getDefaultExcludes()
     {
         return defaultExcludes.toArray(new String[defaultExcludes
                 .size()]);
@@ -733,6 +733,31 @@ public class DirectoryScanner
         return everythingIncluded;
     }
 
+    /**
+     * Determines if a path matches at least one include pattern and no
+     * exclude patterns, without scanning the base directory.
+     * <p/>
+     * This allows the patterns to be applied to paths that don't exist in
+     * the file system, such as archive entries. Selectors are not evaluated.
+     *
+     * @param name the path, relative to the base directory. Either '/' or
+     *             '\' may be used as the separator
+     * @return <code>true</code> if the path is included
+     */
+    public synchronized boolean isIncludedPath(String name)
+    {
+        if (includes == null)
+        {
+            includes = new String[]{"**"};
+        }
+        if (excludes == null)
+        {
+            excludes = new String[0];
+        }
+        String path = name.replace('/', File.separatorChar).replace('\\', File.separatorChar);
+        return isIncluded(path) && !isExcluded(path);
+    }
+
     /**
      * Scan the base directory for files which match at least one include
      * pattern and don't match any exclude patterns. If there are selectors
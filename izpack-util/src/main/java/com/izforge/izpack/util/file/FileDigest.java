@@ -0,0 +1,105 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.io.IOUtils;
+
+
+/**
+ * Computes content digests of files, used to detect files with identical content.
+ */
+public class FileDigest
+{
+    /**
+     * The digest algorithm.
+     */
+    public static final String ALGORITHM = "SHA-256";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Creates a new message digest for {@link #ALGORITHM}.
+     *
+     * @return a new message digest
+     */
+    public static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException exception)
+        {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Returns the digest of a file's content.
+     *
+     * @param file the file
+     * @return the hex encoded digest
+     * @throws IOException for any I/O error
+     */
+    public static String getDigest(File file) throws IOException
+    {
+        MessageDigest digest = createDigest();
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, read);
+            }
+        }
+        finally
+        {
+            IOUtils.closeQuietly(in);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Hex encodes a digest.
+     *
+     * @param digest the digest
+     * @return the hex encoded digest
+     */
+    public static String toHex(byte[] digest)
+    {
+        char[] result = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; ++i)
+        {
+            result[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+            result[i * 2 + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(result);
+    }
+}
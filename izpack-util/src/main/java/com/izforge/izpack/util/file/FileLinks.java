@@ -0,0 +1,158 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Materializes additional copies of an existing file, as hard links where possible, otherwise as copies.
+ * <p/>
+ * Copies are made with {@link FileChannel#transferTo}, which lets the JVM and operating system avoid copying the data
+ * through user space. On newer JDKs and file systems that support it, this may also produce a copy-on-write clone
+ * rather than duplicating the data; on others, including Java 6, the data is copied.
+ */
+public class FileLinks
+{
+    /**
+     * The hard link handler, or {@code null} if the platform doesn't support hard links.
+     */
+    private static final NioLinkHandler handler = createHandler();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(FileLinks.class.getName());
+
+
+    /**
+     * Determines if hard links are supported.
+     *
+     * @return <tt>true</tt> if hard links can be created
+     */
+    public static boolean isLinkSupported()
+    {
+        return handler != null;
+    }
+
+    /**
+     * Creates a hard link to an existing file. Any existing <tt>target</tt> is replaced.
+     * <p/>
+     * Note that the link shares the content, timestamp and permissions of the existing file.
+     *
+     * @param source the existing file
+     * @param target the link to create
+     * @return <tt>true</tt> if the link was created, <tt>false</tt> if hard links aren't supported, or the files are
+     *         on different file systems
+     */
+    public static boolean link(File source, File target)
+    {
+        if (handler != null)
+        {
+            try
+            {
+                if (target.exists() && !target.delete())
+                {
+                    return false;
+                }
+                handler.link(source, target);
+                return true;
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.FINE, "Failed to link " + target + " to " + source, exception);
+            }
+            catch (UnsupportedOperationException exception)
+            {
+                logger.log(Level.FINE, "Failed to link " + target + " to " + source, exception);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies a file. Any existing <tt>target</tt> is overwritten.
+     *
+     * @param source the file to copy
+     * @param target the file to copy to
+     * @throws IOException if the file cannot be copied
+     */
+    public static void copy(File source, File target) throws IOException
+    {
+        FileInputStream in = new FileInputStream(source);
+        try
+        {
+            FileOutputStream out = new FileOutputStream(target);
+            try
+            {
+                FileChannel from = in.getChannel();
+                FileChannel to = out.getChannel();
+                long size = from.size();
+                long position = 0;
+                while (position < size)
+                {
+                    long count = from.transferTo(position, size - position, to);
+                    if (count <= 0)
+                    {
+                        throw new IOException("Failed to copy " + source + " to " + target + ": copied " + position
+                                                      + " of " + size + " bytes");
+                    }
+                    position += count;
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Creates the hard link handler, if the platform supports it.
+     *
+     * @return the handler, or {@code null} if hard links are not supported
+     */
+    private static NioLinkHandler createHandler()
+    {
+        try
+        {
+            Class.forName("java.nio.file.Files");
+            return new NioLinkHandler();
+        }
+        catch (ClassNotFoundException exception)
+        {
+            return null;
+        }
+        catch (LinkageError error)
+        {
+            return null;
+        }
+    }
+}
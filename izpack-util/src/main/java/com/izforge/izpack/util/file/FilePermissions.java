@@ -0,0 +1,284 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Sets Unix file modes in-process, without forking <tt>chmod</tt>.
+ * <p/>
+ * Where the JVM provides a POSIX file attribute view the exact mode is set. Otherwise only modes that the
+ * owner/everybody flags of {@link File} can represent are set; other modes are refused rather than widened.
+ * <p/>
+ * Files may also be copied to directories owned by other users, and transferred to them, when running as root.
+ *
+ * @see PosixPermissionHandler
+ */
+public class FilePermissions
+{
+    /**
+     * Mode bits added by <tt>chmod a+x</tt>.
+     */
+    public static final int EXECUTE_ALL = 0111;
+
+    /**
+     * Indicates that no mode has been specified.
+     */
+    public static final int UNSET = -1;
+
+    /**
+     * The POSIX handler, or {@code null} if the platform doesn't support POSIX attributes.
+     */
+    private static final PosixPermissionHandler posix = createPosixHandler();
+
+    /**
+     * The logger.
+     */
+    private static final Logger logger = Logger.getLogger(FilePermissions.class.getName());
+
+
+    /**
+     * Sets the Unix mode of a file.
+     *
+     * @param file the file
+     * @param mode the Unix mode, e.g. <tt>0755</tt>
+     * @return <tt>true</tt> if the mode was set, otherwise <tt>false</tt>
+     */
+    public static boolean setMode(File file, int mode)
+    {
+        if (posix != null)
+        {
+            try
+            {
+                posix.setMode(file, mode);
+                return true;
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.FINE, "Failed to set mode of " + file, exception);
+                return false;
+            }
+        }
+        return setModeWithoutPosix(file, mode);
+    }
+
+    /**
+     * Sets the Unix mode of a file using the owner/everybody flags of {@link File}.
+     * <p/>
+     * These can only grant a permission to the owner, or to everybody. If the group and others permissions differ,
+     * or others are granted a permission the owner lacks, the mode can't be represented and the file is left
+     * unchanged.
+     *
+     * @param file the file
+     * @param mode the Unix mode, e.g. <tt>0755</tt>
+     * @return <tt>true</tt> if the mode was set, otherwise <tt>false</tt>
+     */
+    static boolean setModeWithoutPosix(File file, int mode)
+    {
+        if (!isRepresentable(mode, 04) || !isRepresentable(mode, 02) || !isRepresentable(mode, 01))
+        {
+            logger.fine("Cannot set mode " + Integer.toOctalString(mode) + " of " + file
+                                + " without POSIX file attributes");
+            return false;
+        }
+        boolean result;
+        if ((mode & 0004) != 0)
+        {
+            result = file.setReadable(true, false);
+        }
+        else
+        {
+            result = file.setReadable(false, false) && file.setReadable((mode & 0400) != 0, true);
+        }
+        if ((mode & 0002) != 0)
+        {
+            result &= file.setWritable(true, false);
+        }
+        else
+        {
+            result &= file.setWritable(false, false) && file.setWritable((mode & 0200) != 0, true);
+        }
+        if ((mode & 0001) != 0)
+        {
+            result &= file.setExecutable(true, false);
+        }
+        else
+        {
+            result &= file.setExecutable(false, false) && file.setExecutable((mode & 0100) != 0, true);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Unix mode of a file.
+     *
+     * @param file the file
+     * @return the Unix mode, or {@link #UNSET} if it cannot be determined
+     */
+    public static int getMode(File file)
+    {
+        if (posix != null)
+        {
+            try
+            {
+                return posix.getMode(file);
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.FINE, "Failed to get mode of " + file, exception);
+            }
+        }
+        return UNSET;
+    }
+
+    /**
+     * Returns the owner of a file.
+     * <p/>
+     * Symbolic links aren't followed, so the owner of a link is that of the link itself.
+     *
+     * @param file the file
+     * @return the name of the owner, or {@code null} if it cannot be determined
+     */
+    public static String getOwner(File file)
+    {
+        if (posix != null)
+        {
+            try
+            {
+                return posix.getOwner(file);
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.FINE, "Failed to get owner of " + file, exception);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copies a file into a directory owned by another user, and transfers the copy to that user.
+     * <p/>
+     * This is intended for use by root, when writing into directories that other users control. Symbolic links are
+     * not followed, the directory must be owned by the user, and the copy is only renamed into place once it has been
+     * transferred.
+     *
+     * @param source the file to copy
+     * @param dir    the directory to copy to
+     * @param user   the name of the user
+     * @param mode   the Unix mode of the copy, e.g. <tt>0744</tt>
+     * @return the copy, or {@code null} if it could not be safely written
+     */
+    public static File copyToUser(File source, File dir, String user, int mode)
+    {
+        if (posix != null)
+        {
+            try
+            {
+                return posix.copyToUser(source, dir, user, mode);
+            }
+            catch (IOException exception)
+            {
+                logger.log(Level.FINE, "Failed to copy " + source + " to " + dir + " for " + user, exception);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the execute bits for owner, group and others, as <tt>chmod a+x</tt> does.
+     *
+     * @param file the file
+     * @return <tt>true</tt> if the file was made executable, otherwise <tt>false</tt>
+     */
+    public static boolean makeExecutable(File file)
+    {
+        int mode = getMode(file);
+        if (mode != UNSET)
+        {
+            return setMode(file, mode | EXECUTE_ALL);
+        }
+        return file.setExecutable(true, false);
+    }
+
+    /**
+     * Parses an octal mode string, e.g. <tt>"755"</tt> or <tt>"0644"</tt>.
+     * <p/>
+     * The setuid, setgid and sticky bits can't be set in-process, so modes above <tt>0777</tt> are rejected.
+     *
+     * @param mode the mode string
+     * @return the mode
+     * @throws NumberFormatException if the mode is not a valid octal mode, or sets the setuid, setgid or sticky bits
+     */
+    public static int parseMode(String mode)
+    {
+        int result = Integer.parseInt(mode.trim(), 8);
+        if (result < 0)
+        {
+            throw new NumberFormatException("Invalid file mode: " + mode);
+        }
+        if (result > 0777)
+        {
+            throw new NumberFormatException("Setuid, setgid and sticky bits are not supported: " + mode);
+        }
+        return result;
+    }
+
+    /**
+     * Determines if a permission in a mode can be set with the owner/everybody flags of {@link File}.
+     *
+     * @param mode       the Unix mode
+     * @param permission the permission bit for others, i.e. <tt>04</tt>, <tt>02</tt> or <tt>01</tt>
+     * @return <tt>true</tt> if the permission is granted to nobody, to the owner only, or to everybody
+     */
+    private static boolean isRepresentable(int mode, int permission)
+    {
+        boolean owner = (mode & (permission << 6)) != 0;
+        boolean group = (mode & (permission << 3)) != 0;
+        boolean others = (mode & permission) != 0;
+        return group == others && (owner || !others);
+    }
+
+    /**
+     * Creates the POSIX handler, if the platform supports it.
+     *
+     * @return the handler, or {@code null} if POSIX file attributes are not supported
+     */
+    private static PosixPermissionHandler createPosixHandler()
+    {
+        try
+        {
+            Class.forName("java.nio.file.attribute.PosixFileAttributeView");
+            PosixPermissionHandler handler = new PosixPermissionHandler();
+            return handler.isSupported() ? handler : null;
+        }
+        catch (ClassNotFoundException exception)
+        {
+            return null;
+        }
+        catch (LinkageError error)
+        {
+            return null;
+        }
+    }
+}
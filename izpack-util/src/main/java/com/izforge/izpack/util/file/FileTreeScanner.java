@@ -0,0 +1,901 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import com.izforge.izpack.util.file.types.selectors.FileSelector;
+import com.izforge.izpack.util.file.types.selectors.SelectorScanner;
+import com.izforge.izpack.util.file.types.selectors.SelectorUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * A {@link FileScanner} that applies the same include and exclude patterns as {@link DirectoryScanner}, built for
+ * large trees.
+ * <p/>
+ * Where the JVM provides <tt>java.nio.file</tt>, directories are traversed with <tt>Files.walkFileTree</tt>, so that
+ * the type of each entry is read once with its attributes, rather than by separate <tt>isDirectory()</tt> and
+ * <tt>isFile()</tt> calls, and symbolic links are detected without resolving canonical paths. Directories that
+ * cannot hold an included path are not entered. Results are collected in unsynchronized lists, and a scan may be
+ * fanned out across the subtrees near the base directory by {@link #setThreads(int)}.
+ * <p/>
+ * Unlike {@link DirectoryScanner}, the not-included and excluded results only contain the paths encountered during
+ * the scan; directories that were not entered are never scanned. Also unlike {@link DirectoryScanner}, selectors are
+ * applied: paths that match the patterns but that a selector discards are reported as deselected. Selectors aren't
+ * required to be thread safe, so a scan with selectors is never fanned out.
+ * <p/>
+ * A scanner is not thread safe, and should be configured and scanned by a single thread.
+ */
+public class FileTreeScanner implements FileScanner, SelectorScanner
+{
+    /**
+     * Directories this many levels below the base directory or closer are scanned as separate tasks when the
+     * scan is fanned out.
+     */
+    private static final int FAN_OUT_DEPTH = 2;
+
+    /**
+     * The walker used to traverse directories.
+     */
+    private static final Walker walker = createWalker();
+
+    /**
+     * The base directory.
+     */
+    private File basedir;
+
+    /**
+     * The include patterns, or {@code null} to include everything.
+     */
+    private String[] includes;
+
+    /**
+     * The exclude patterns, or {@code null} to exclude nothing.
+     */
+    private String[] excludes;
+
+    /**
+     * The selectors, or {@code null} to select everything.
+     */
+    private FileSelector[] selectors;
+
+    /**
+     * Determines if patterns are matched case sensitively.
+     */
+    private boolean caseSensitive = true;
+
+    /**
+     * Determines if symbolic links are followed.
+     */
+    private boolean followSymlinks = true;
+
+    /**
+     * The maximum no. of threads to scan with.
+     */
+    private int threads = 1;
+
+    /**
+     * The include and exclude patterns in effect for the current scan.
+     */
+    private Patterns patterns;
+
+    /**
+     * The results of the last scan.
+     */
+    private Result result;
+
+
+    /**
+     * Sets the base directory to be scanned.
+     *
+     * @param basedir the base directory. Either '/' or '\' may be used as the separator
+     */
+    @Override
+    public void setBasedir(String basedir)
+    {
+        setBasedir(new File(basedir.replace('/', File.separatorChar).replace('\\', File.separatorChar)));
+    }
+
+    /**
+     * Sets the base directory to be scanned.
+     *
+     * @param basedir the base directory
+     */
+    @Override
+    public void setBasedir(File basedir)
+    {
+        this.basedir = basedir;
+    }
+
+    /**
+     * Returns the base directory to be scanned.
+     *
+     * @return the base directory
+     */
+    @Override
+    public File getBasedir()
+    {
+        return basedir;
+    }
+
+    /**
+     * Sets the include patterns. When a pattern ends with a '/' or '\', "**" is appended.
+     *
+     * @param includes the include patterns. May be {@code null}, to include all files
+     */
+    @Override
+    public void setIncludes(String[] includes)
+    {
+        this.includes = normalizePatterns(includes);
+    }
+
+    /**
+     * Sets the exclude patterns. When a pattern ends with a '/' or '\', "**" is appended.
+     *
+     * @param excludes the exclude patterns. May be {@code null}, to exclude nothing
+     */
+    @Override
+    public void setExcludes(String[] excludes)
+    {
+        this.excludes = normalizePatterns(excludes);
+    }
+
+    /**
+     * Adds the {@link DirectoryScanner} default exclusions to the exclude patterns.
+     */
+    @Override
+    public void addDefaultExcludes()
+    {
+        String[] defaults = normalizePatterns(DirectoryScanner.getDefaultExcludes());
+        if (excludes == null)
+        {
+            excludes = defaults;
+        }
+        else
+        {
+            String[] merged = new String[excludes.length + defaults.length];
+            System.arraycopy(excludes, 0, merged, 0, excludes.length);
+            System.arraycopy(defaults, 0, merged, excludes.length, defaults.length);
+            excludes = merged;
+        }
+    }
+
+    /**
+     * Sets whether or not patterns are matched case sensitively.
+     *
+     * @param caseSensitive if <tt>true</tt>, match case sensitively
+     */
+    @Override
+    public void setCaseSensitive(boolean caseSensitive)
+    {
+        this.caseSensitive = caseSensitive;
+    }
+
+    /**
+     * Sets whether or not symbolic links should be followed. If not, links are reported as excluded.
+     *
+     * @param followSymlinks if <tt>true</tt>, follow symbolic links
+     */
+    public void setFollowSymlinks(boolean followSymlinks)
+    {
+        this.followSymlinks = followSymlinks;
+    }
+
+    /**
+     * Sets the selectors that paths matching the patterns must also satisfy to be included.
+     *
+     * @param selectors the selectors. May be {@code null}
+     */
+    @Override
+    public void setSelectors(FileSelector[] selectors)
+    {
+        this.selectors = (selectors != null && selectors.length != 0) ? selectors.clone() : null;
+    }
+
+    /**
+     * Sets the maximum no. of threads to scan with.
+     * <p/>
+     * With more than one thread, the subtrees near the base directory are scanned concurrently. This pays off for
+     * large trees, particularly on storage that serves concurrent requests well.
+     *
+     * @param threads the maximum no. of threads. Defaults to <tt>1</tt>
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Scans the base directory.
+     *
+     * @throws Exception if the base directory is invalid, or cannot be read
+     */
+    @Override
+    public void scan() throws Exception
+    {
+        if (basedir == null)
+        {
+            throw new Exception("No basedir set");
+        }
+        if (!basedir.exists())
+        {
+            throw new Exception("basedir " + basedir + " does not exist");
+        }
+        if (!basedir.isDirectory())
+        {
+            throw new Exception("basedir " + basedir + " is not a directory");
+        }
+        patterns = new Patterns(includes != null ? includes : new String[]{"**"},
+                                excludes != null ? excludes : new String[0], caseSensitive);
+        Result scanned = new Result();
+        if (!patterns.isIncluded(""))
+        {
+            scanned.dirsNotIncluded.add("");
+        }
+        else if (patterns.isExcluded(""))
+        {
+            scanned.dirsExcluded.add("");
+        }
+        else if (isSelected("", basedir))
+        {
+            scanned.dirsIncluded.add("");
+        }
+        else
+        {
+            scanned.dirsDeselected.add("");
+        }
+
+        if (threads == 1 || selectors != null)
+        {
+            walker.walk(basedir, "", this, null, scanned);
+        }
+        else
+        {
+            scanConcurrently(scanned);
+        }
+        result = scanned;
+    }
+
+    /**
+     * Returns the names of the files which matched at least one include pattern and no exclude patterns.
+     *
+     * @return the sorted file names, relative to the base directory
+     * @throws Exception if no scan has been performed
+     */
+    @Override
+    public String[] getIncludedFiles() throws Exception
+    {
+        return sort(getResult().filesIncluded);
+    }
+
+    /**
+     * Returns the names of the directories which matched at least one include pattern and no exclude patterns.
+     *
+     * @return the sorted directory names, relative to the base directory. The base directory itself is
+     *         represented by an empty string
+     * @throws Exception if no scan has been performed
+     */
+    @Override
+    public String[] getIncludedDirectories() throws Exception
+    {
+        return sort(getResult().dirsIncluded);
+    }
+
+    /**
+     * Returns the names of the files encountered that matched no include pattern.
+     *
+     * @return the sorted file names, relative to the base directory
+     * @throws Exception if no scan has been performed
+     */
+    @Override
+    public String[] getNotIncludedFiles() throws Exception
+    {
+        return sort(getResult().filesNotIncluded);
+    }
+
+    /**
+     * Returns the names of the directories encountered that matched no include pattern.
+     *
+     * @return the sorted directory names, relative to the base directory
+     * @throws Exception if no scan has been performed
+     */
+    @Override
+    public String[] getNotIncludedDirectories() throws Exception
+    {
+        return sort(getResult().dirsNotIncluded);
+    }
+
+    /**
+     * Returns the names of the files encountered that matched an include pattern and an exclude pattern, or are
+     * symbolic links that weren't followed.
+     *
+     * @return the sorted file names, relative to the base directory
+     * @throws Exception if no scan has been performed
+     */
+    @Override
+    public String[] getExcludedFiles() throws Exception
+    {
+        return sort(getResult().filesExcluded);
+    }
+
+    /**
+     * Returns the names of the directories encountered that matched an include pattern and an exclude pattern, or
+     * are symbolic links that weren't followed.
+     *
+     * @return the sorted directory names, relative to the base directory
+     * @throws Exception if no scan has been performed
+     */
+    @Override
+    public String[] getExcludedDirectories() throws Exception
+    {
+        return sort(getResult().dirsExcluded);
+    }
+
+    /**
+     * Returns the names of the files encountered that matched an include pattern and no exclude pattern, but were
+     * discarded by a selector.
+     *
+     * @return the sorted file names, relative to the base directory
+     * @throws Exception if no scan has been performed
+     */
+    @Override
+    public String[] getDeselectedFiles() throws Exception
+    {
+        return sort(getResult().filesDeselected);
+    }
+
+    /**
+     * Returns the names of the directories encountered that matched an include pattern and no exclude pattern, but
+     * were discarded by a selector.
+     *
+     * @return the sorted directory names, relative to the base directory
+     * @throws Exception if no scan has been performed
+     */
+    @Override
+    public String[] getDeselectedDirectories() throws Exception
+    {
+        return sort(getResult().dirsDeselected);
+    }
+
+    /**
+     * Determines if symbolic links are followed.
+     *
+     * @return <tt>true</tt> if symbolic links are followed
+     */
+    boolean isFollowSymlinks()
+    {
+        return followSymlinks;
+    }
+
+    /**
+     * Invoked by a walker for each directory below the base directory.
+     *
+     * @param name  the directory name, relative to the base directory
+     * @param tasks the queue to submit subtrees to for concurrent scanning. May be {@code null}
+     * @param result the result to add to
+     * @return <tt>true</tt> if the walker should descend into the directory
+     * @throws IOException if a selector fails
+     */
+    boolean visitDirectory(String name, Tasks tasks, Result result) throws IOException
+    {
+        boolean descend;
+        if (patterns.isIncluded(name))
+        {
+            if (patterns.isExcluded(name))
+            {
+                result.dirsExcluded.add(name);
+            }
+            else if (isSelected(name, new File(basedir, name)))
+            {
+                result.dirsIncluded.add(name);
+            }
+            else
+            {
+                result.dirsDeselected.add(name);
+            }
+            descend = patterns.couldHoldIncluded(name) && !patterns.contentsExcluded(name);
+        }
+        else
+        {
+            result.dirsNotIncluded.add(name);
+            descend = patterns.couldHoldIncluded(name);
+        }
+        if (descend && tasks != null && getDepth(name) <= FAN_OUT_DEPTH)
+        {
+            tasks.submit(name);
+            descend = false;
+        }
+        return descend;
+    }
+
+    /**
+     * Invoked by a walker for each regular file.
+     *
+     * @param name   the file name, relative to the base directory
+     * @param result the result to add to
+     * @throws IOException if a selector fails
+     */
+    void visitFile(String name, Result result) throws IOException
+    {
+        if (!patterns.isIncluded(name))
+        {
+            result.filesNotIncluded.add(name);
+        }
+        else if (patterns.isExcluded(name))
+        {
+            result.filesExcluded.add(name);
+        }
+        else if (isSelected(name, new File(basedir, name)))
+        {
+            result.filesIncluded.add(name);
+        }
+        else
+        {
+            result.filesDeselected.add(name);
+        }
+    }
+
+    /**
+     * Determines if a path matching the patterns is selected by all of the selectors.
+     *
+     * @param name the path, relative to the base directory
+     * @param file the file
+     * @return <tt>true</tt> if the path is selected
+     * @throws IOException if a selector fails
+     */
+    private boolean isSelected(String name, File file) throws IOException
+    {
+        if (selectors != null)
+        {
+            for (FileSelector selector : selectors)
+            {
+                try
+                {
+                    if (!selector.isSelected(null, basedir, name, file))
+                    {
+                        return false;
+                    }
+                }
+                catch (IOException exception)
+                {
+                    throw exception;
+                }
+                catch (Exception exception)
+                {
+                    throw new IOException("Failed to select " + file + ": " + exception.getMessage(), exception);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Invoked by a walker for each symbolic link that isn't followed.
+     *
+     * @param name      the link name, relative to the base directory
+     * @param directory <tt>true</tt> if the link refers to a directory
+     * @param result    the result to add to
+     */
+    void visitSymlink(String name, boolean directory, Result result)
+    {
+        (directory ? result.dirsExcluded : result.filesExcluded).add(name);
+    }
+
+    /**
+     * Scans the base directory, fanning out across its subtrees.
+     *
+     * @param scanned the result to add to
+     * @throws Exception if the scan fails
+     */
+    private void scanConcurrently(Result scanned) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "IzPack file tree scanner");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try
+        {
+            Tasks tasks = new Tasks(executor);
+            walker.walk(basedir, "", this, tasks, scanned);
+            Future<Result> future;
+            while ((future = tasks.futures.poll()) != null)
+            {
+                // a task submits the subtrees it finds before completing, so these are queued by the time it is done
+                try
+                {
+                    scanned.addAll(future.get());
+                }
+                catch (ExecutionException exception)
+                {
+                    Throwable cause = exception.getCause();
+                    throw (cause instanceof Exception) ? (Exception) cause : exception;
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private Result getResult() throws Exception
+    {
+        if (result == null)
+        {
+            throw new Exception("Directory has not been scanned");
+        }
+        return result;
+    }
+
+    private static String[] sort(List<String> names)
+    {
+        String[] result = names.toArray(new String[names.size()]);
+        java.util.Arrays.sort(result);
+        return result;
+    }
+
+    private static int getDepth(String name)
+    {
+        int depth = 1;
+        for (int i = 0; i < name.length(); ++i)
+        {
+            if (name.charAt(i) == File.separatorChar)
+            {
+                ++depth;
+            }
+        }
+        return depth;
+    }
+
+    private static String[] normalizePatterns(String[] patterns)
+    {
+        if (patterns == null)
+        {
+            return null;
+        }
+        String[] result = new String[patterns.length];
+        for (int i = 0; i < patterns.length; ++i)
+        {
+            String pattern = patterns[i].replace('/', File.separatorChar).replace('\\', File.separatorChar);
+            if (pattern.endsWith(File.separator))
+            {
+                pattern += "**";
+            }
+            result[i] = pattern;
+        }
+        return result;
+    }
+
+    /**
+     * Creates the walker, using <tt>java.nio.file</tt> if it is available.
+     *
+     * @return a new walker
+     */
+    private static Walker createWalker()
+    {
+        try
+        {
+            Class.forName("java.nio.file.Files");
+            return new NioFileTreeWalker();
+        }
+        catch (ClassNotFoundException exception)
+        {
+            return new IoWalker();
+        }
+        catch (LinkageError error)
+        {
+            return new IoWalker();
+        }
+    }
+
+    /**
+     * Traverses a directory tree, reporting its entries to a scanner.
+     */
+    interface Walker
+    {
+        /**
+         * Walks a directory, reporting entries below it to the scanner.
+         *
+         * @param dir     the directory
+         * @param vpath   the path of the directory relative to the base directory, with a trailing separator, or an
+         *                empty string for the base directory
+         * @param scanner the scanner
+         * @param tasks   the queue to submit subtrees to. May be {@code null}
+         * @param result  the result to add to
+         * @throws IOException if a directory cannot be read
+         */
+        void walk(File dir, String vpath, FileTreeScanner scanner, Tasks tasks, Result result) throws IOException;
+    }
+
+    /**
+     * The queue of subtrees being scanned concurrently.
+     */
+    class Tasks
+    {
+        private final ExecutorService executor;
+
+        private final ConcurrentLinkedQueue<Future<Result>> futures = new ConcurrentLinkedQueue<Future<Result>>();
+
+        public Tasks(ExecutorService executor)
+        {
+            this.executor = executor;
+        }
+
+        /**
+         * Submits a directory to be scanned.
+         *
+         * @param name the directory name, relative to the base directory
+         */
+        public void submit(final String name)
+        {
+            futures.add(executor.submit(new Callable<Result>()
+            {
+                @Override
+                public Result call() throws IOException
+                {
+                    Result result = new Result();
+                    walker.walk(new File(basedir, name), name + File.separator, FileTreeScanner.this, Tasks.this,
+                                result);
+                    return result;
+                }
+            }));
+        }
+    }
+
+    /**
+     * The results of scanning a tree.
+     */
+    static class Result
+    {
+        final List<String> filesIncluded = new ArrayList<String>();
+        final List<String> filesNotIncluded = new ArrayList<String>();
+        final List<String> filesExcluded = new ArrayList<String>();
+        final List<String> dirsIncluded = new ArrayList<String>();
+        final List<String> dirsNotIncluded = new ArrayList<String>();
+        final List<String> dirsExcluded = new ArrayList<String>();
+        final List<String> filesDeselected = new ArrayList<String>();
+        final List<String> dirsDeselected = new ArrayList<String>();
+
+        void addAll(Result other)
+        {
+            filesIncluded.addAll(other.filesIncluded);
+            filesNotIncluded.addAll(other.filesNotIncluded);
+            filesExcluded.addAll(other.filesExcluded);
+            dirsIncluded.addAll(other.dirsIncluded);
+            dirsNotIncluded.addAll(other.dirsNotIncluded);
+            dirsExcluded.addAll(other.dirsExcluded);
+            filesDeselected.addAll(other.filesDeselected);
+            dirsDeselected.addAll(other.dirsDeselected);
+        }
+    }
+
+    /**
+     * The include and exclude patterns of a scan, split into literal paths and wildcard patterns as
+     * {@link DirectoryScanner} does. Immutable, so it may be shared by concurrent tasks.
+     */
+    private static class Patterns
+    {
+        private final boolean caseSensitive;
+
+        private final String[] includes;
+
+        private final String[] excludes;
+
+        private final Set<String> includeLiterals = new HashSet<String>();
+
+        private final Set<String> excludeLiterals = new HashSet<String>();
+
+        private final String[] includePatterns;
+
+        private final String[] excludePatterns;
+
+        /**
+         * For each include pattern, the no. of path segments, or <tt>-1</tt> if it contains "**".
+         */
+        private final int[] includeDepths;
+
+        /**
+         * The directory prefixes whose entire contents are excluded, i.e. exclude patterns ending in "**", with
+         * that suffix removed.
+         */
+        private final List<String> contentExcludes = new ArrayList<String>();
+
+        /**
+         * The exclude patterns, for fast equality tests by {@link #couldHoldIncluded(String)}.
+         */
+        private final Set<String> excludeSet;
+
+        public Patterns(String[] includes, String[] excludes, boolean caseSensitive)
+        {
+            this.caseSensitive = caseSensitive;
+            this.includes = includes;
+            this.excludes = excludes;
+            includePatterns = split(includes, includeLiterals);
+            excludePatterns = split(excludes, excludeLiterals);
+            includeDepths = new int[includes.length];
+            for (int i = 0; i < includes.length; ++i)
+            {
+                List<String> tokens = SelectorUtils.tokenizePath(includes[i]);
+                includeDepths[i] = tokens.contains("**") ? -1 : tokens.size();
+            }
+            for (String exclude : excludes)
+            {
+                if (exclude.endsWith("**"))
+                {
+                    contentExcludes.add(exclude.substring(0, exclude.length() - 2));
+                }
+            }
+            excludeSet = new HashSet<String>();
+            Collections.addAll(excludeSet, excludes);
+        }
+
+        public boolean isIncluded(String name)
+        {
+            return matches(name, includeLiterals, includePatterns);
+        }
+
+        public boolean isExcluded(String name)
+        {
+            return matches(name, excludeLiterals, excludePatterns);
+        }
+
+        /**
+         * Determines if a directory could hold included paths, as per {@link DirectoryScanner}.
+         *
+         * @param name the directory name
+         * @return <tt>true</tt> if the directory could hold included paths
+         */
+        public boolean couldHoldIncluded(String name)
+        {
+            if (excludeSet.contains(name + File.separator + "**"))
+            {
+                return false;
+            }
+            int depth = -1;
+            for (int i = 0; i < includes.length; ++i)
+            {
+                if (includeDepths[i] != -1)
+                {
+                    if (depth == -1)
+                    {
+                        depth = getDepth(name);
+                    }
+                    if (includeDepths[i] <= depth)
+                    {
+                        continue;
+                    }
+                }
+                if (SelectorUtils.matchPatternStart(includes[i], name, caseSensitive))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Determines if all contents of a directory are excluded.
+         *
+         * @param name the directory name
+         * @return <tt>true</tt> if all of the directory's contents are excluded
+         */
+        public boolean contentsExcluded(String name)
+        {
+            String dir = name + File.separator;
+            for (String exclude : contentExcludes)
+            {
+                if (SelectorUtils.matchPath(exclude, dir, caseSensitive))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matches(String name, Set<String> literals, String[] patterns)
+        {
+            if (!literals.isEmpty() && literals.contains(caseSensitive ? name : name.toUpperCase()))
+            {
+                return true;
+            }
+            for (String pattern : patterns)
+            {
+                if (SelectorUtils.matchPath(pattern, name, caseSensitive))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String[] split(String[] patterns, Set<String> literals)
+        {
+            List<String> result = new ArrayList<String>();
+            for (String pattern : patterns)
+            {
+                if (!SelectorUtils.hasWildcards(pattern))
+                {
+                    literals.add(caseSensitive ? pattern : pattern.toUpperCase());
+                }
+                else
+                {
+                    result.add(pattern);
+                }
+            }
+            return result.toArray(new String[result.size()]);
+        }
+    }
+
+    /**
+     * Walks directories using <tt>java.io.File</tt>, for JVMs without <tt>java.nio.file</tt>.
+     */
+    private static class IoWalker implements Walker
+    {
+        @Override
+        public void walk(File dir, String vpath, FileTreeScanner scanner, Tasks tasks, Result result)
+                throws IOException
+        {
+            String[] names = dir.list();
+            if (names == null)
+            {
+                throw new IOException("IO error scanning directory " + dir.getAbsolutePath());
+            }
+            for (String name : names)
+            {
+                File file = new File(dir, name);
+                String path = vpath + name;
+                if (!scanner.isFollowSymlinks() && FileUtils.isSymbolicLink(dir, name))
+                {
+                    scanner.visitSymlink(path, file.isDirectory(), result);
+                }
+                else if (file.isDirectory())
+                {
+                    if (scanner.visitDirectory(path, tasks, result))
+                    {
+                        walk(file, path + File.separator, scanner, tasks, result);
+                    }
+                }
+                else if (file.isFile())
+                {
+                    scanner.visitFile(path, result);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+
+/**
+ * Walks directories for {@link FileTreeScanner} with <tt>Files.walkFileTree</tt>.
+ * <p/>
+ * This class references <tt>java.nio.file</tt>, so it must only be loaded by {@link FileTreeScanner} once it has
+ * established that those classes are present.
+ */
+class NioFileTreeWalker implements FileTreeScanner.Walker
+{
+    /**
+     * The options used when following symbolic links.
+     */
+    private static final Set<FileVisitOption> FOLLOW_LINKS = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
+
+    /**
+     * The options used when not following symbolic links.
+     */
+    private static final Set<FileVisitOption> NO_FOLLOW_LINKS = Collections.emptySet();
+
+
+    @Override
+    public void walk(File dir, final String vpath, final FileTreeScanner scanner, final FileTreeScanner.Tasks tasks,
+                     final FileTreeScanner.Result result) throws IOException
+    {
+        final Path root = dir.toPath();
+        String rootName = root.toString();
+        final int rootLength = rootName.endsWith(File.separator) ? rootName.length() : rootName.length() + 1;
+        Set<FileVisitOption> options = scanner.isFollowSymlinks() ? FOLLOW_LINKS : NO_FOLLOW_LINKS;
+        Files.walkFileTree(root, options, Integer.MAX_VALUE, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) throws IOException
+            {
+                if (path.equals(root))
+                {
+                    return FileVisitResult.CONTINUE;
+                }
+                return scanner.visitDirectory(getName(path), tasks, result)
+                        ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) throws IOException
+            {
+                if (attributes.isRegularFile())
+                {
+                    scanner.visitFile(getName(path), result);
+                }
+                else if (attributes.isSymbolicLink() && !scanner.isFollowSymlinks())
+                {
+                    scanner.visitSymlink(getName(path), Files.isDirectory(path), result);
+                }
+                // broken links and special files are ignored, as DirectoryScanner does
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path path, IOException exception) throws IOException
+            {
+                if (exception instanceof FileSystemLoopException)
+                {
+                    return FileVisitResult.CONTINUE;
+                }
+                throw exception;
+            }
+
+            private String getName(Path path)
+            {
+                return vpath + path.toString().substring(rootLength);
+            }
+        });
+    }
+}
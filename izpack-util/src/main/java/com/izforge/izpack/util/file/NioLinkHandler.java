@@ -0,0 +1,47 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+
+/**
+ * Creates hard links through {@link Files#createLink}.
+ * <p/>
+ * This class references <tt>java.nio.file</tt>, so it must only be loaded by {@link FileLinks} once it has
+ * established that those classes are present.
+ */
+class NioLinkHandler
+{
+    /**
+     * Creates a hard link to an existing file.
+     *
+     * @param source the existing file
+     * @param target the link to create. Must not exist
+     * @throws IOException                   if the link cannot be created
+     * @throws UnsupportedOperationException if the file system doesn't support hard links
+     */
+    public void link(File source, File target) throws IOException
+    {
+        Files.createLink(target.toPath(), source.toPath());
+    }
+}
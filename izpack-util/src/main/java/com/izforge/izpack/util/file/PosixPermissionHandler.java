@@ -0,0 +1,242 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+
+/**
+ * Reads and writes Unix file modes through {@link PosixFileAttributeView}.
+ * <p/>
+ * This class references <tt>java.nio.file</tt>, so it must only be loaded by {@link FilePermissions} once it
+ * has established that those classes are present.
+ */
+class PosixPermissionHandler
+{
+    /**
+     * The permissions, ordered from the most significant mode bit (owner read) to the least (others execute).
+     */
+    private static final PosixFilePermission[] PERMISSIONS = {
+            PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE,
+            PosixFilePermission.GROUP_READ, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_EXECUTE,
+            PosixFilePermission.OTHERS_READ, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_EXECUTE};
+
+    /**
+     * Determines if the default file system supports POSIX attributes.
+     *
+     * @return <tt>true</tt> if POSIX attributes are supported
+     */
+    public boolean isSupported()
+    {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    /**
+     * Sets the mode of a file.
+     * <p/>
+     * Only the permission bits are applied; setuid, setgid and sticky bits are ignored.
+     *
+     * @param file the file
+     * @param mode the Unix mode
+     * @throws IOException if the mode cannot be set
+     */
+    public void setMode(File file, int mode) throws IOException
+    {
+        PosixFileAttributeView view = getView(file);
+        view.setPermissions(toPermissions(mode));
+    }
+
+    /**
+     * Returns the mode of a file.
+     *
+     * @param file the file
+     * @return the Unix mode
+     * @throws IOException if the mode cannot be read
+     */
+    public int getMode(File file) throws IOException
+    {
+        PosixFileAttributeView view = getView(file);
+        return toMode(view.readAttributes().permissions());
+    }
+
+    /**
+     * Returns the owner of a file.
+     * <p/>
+     * Symbolic links aren't followed, so the owner of a link is that of the link itself.
+     *
+     * @param file the file
+     * @return the name of the owner
+     * @throws IOException if the owner cannot be read
+     */
+    public String getOwner(File file) throws IOException
+    {
+        return Files.getOwner(file.toPath(), LinkOption.NOFOLLOW_LINKS).getName();
+    }
+
+    /**
+     * Copies a file into a directory owned by another user, and transfers the copy to that user.
+     * <p/>
+     * The directory is opened once, and the remaining operations are made relative to it, without following symbolic
+     * links. The directory must be owned by the user. The copy is written to a new file with a random name, which is
+     * transferred to the user and then renamed to the target name, replacing any existing file.
+     *
+     * @param source the file to copy
+     * @param dir    the directory to copy to
+     * @param user   the name of the user
+     * @param mode   the Unix mode of the copy
+     * @return the copy, or {@code null} if the platform doesn't support operations relative to a directory
+     * @throws IOException if the directory isn't owned by the user, or the file cannot be copied
+     */
+    public File copyToUser(File source, File dir, String user, int mode) throws IOException
+    {
+        UserPrincipal owner = FileSystems.getDefault().getUserPrincipalLookupService().lookupPrincipalByName(user);
+        byte[] content = Files.readAllBytes(source.toPath());
+        DirectoryStream<Path> stream = Files.newDirectoryStream(dir.toPath());
+        try
+        {
+            if (!(stream instanceof SecureDirectoryStream))
+            {
+                return null;
+            }
+            SecureDirectoryStream<Path> secure = (SecureDirectoryStream<Path>) stream;
+            PosixFileAttributes attributes = secure.getFileAttributeView(PosixFileAttributeView.class)
+                    .readAttributes();
+            if (!owner.equals(attributes.owner()))
+            {
+                throw new IOException(dir + " is owned by " + attributes.owner().getName() + ", not " + user);
+            }
+
+            Path target = source.toPath().getFileName();
+            Path temp = target.resolveSibling("." + target + "." + UUID.randomUUID() + ".tmp");
+            Set<OpenOption> options = new HashSet<OpenOption>();
+            options.add(StandardOpenOption.CREATE_NEW);
+            options.add(StandardOpenOption.WRITE);
+            options.add(LinkOption.NOFOLLOW_LINKS);
+            SeekableByteChannel channel = secure.newByteChannel(
+                    temp, options, PosixFilePermissions.asFileAttribute(toPermissions(0600)));
+            try
+            {
+                try
+                {
+                    ByteBuffer buffer = ByteBuffer.wrap(content);
+                    while (buffer.hasRemaining())
+                    {
+                        channel.write(buffer);
+                    }
+                }
+                finally
+                {
+                    channel.close();
+                }
+                PosixFileAttributeView view = secure.getFileAttributeView(temp, PosixFileAttributeView.class,
+                                                                          LinkOption.NOFOLLOW_LINKS);
+                view.setPermissions(toPermissions(mode));
+                view.setGroup(attributes.group());
+                view.setOwner(owner);
+                secure.move(temp, secure, target);
+            }
+            catch (IOException exception)
+            {
+                try
+                {
+                    secure.deleteFile(temp);
+                }
+                catch (IOException ignore)
+                {
+                    // already moved or removed
+                }
+                throw exception;
+            }
+            return new File(dir, target.toString());
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * Converts a Unix mode to a set of permissions.
+     *
+     * @param mode the mode
+     * @return the corresponding permissions
+     */
+    static Set<PosixFilePermission> toPermissions(int mode)
+    {
+        Set<PosixFilePermission> result = EnumSet.noneOf(PosixFilePermission.class);
+        for (int i = 0; i < PERMISSIONS.length; ++i)
+        {
+            if ((mode & (0400 >> i)) != 0)
+            {
+                result.add(PERMISSIONS[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts a set of permissions to a Unix mode.
+     *
+     * @param permissions the permissions
+     * @return the corresponding mode
+     */
+    static int toMode(Set<PosixFilePermission> permissions)
+    {
+        int result = 0;
+        for (int i = 0; i < PERMISSIONS.length; ++i)
+        {
+            if (permissions.contains(PERMISSIONS[i]))
+            {
+                result |= (0400 >> i);
+            }
+        }
+        return result;
+    }
+
+    private PosixFileAttributeView getView(File file) throws IOException
+    {
+        PosixFileAttributeView view = Files.getFileAttributeView(file.toPath(), PosixFileAttributeView.class);
+        if (view == null)
+        {
+            throw new IOException("POSIX file attributes not supported for: " + file);
+        }
+        return view;
+    }
+}
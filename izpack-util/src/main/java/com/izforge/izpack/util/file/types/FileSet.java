@@ -25,6 +25,7 @@ import java.util.logging.Logger;
 
 import com.izforge.izpack.util.file.DirectoryScanner;
 import com.izforge.izpack.util.file.FileScanner;
+import com.izforge.izpack.util.file.FileTreeScanner;
 import com.izforge.izpack.util.file.types.selectors.*;
 
 /**
@@ -191,6 +192,40 @@ public class FileSet extends DataType
      * @return a <code>DirectoryScanner</code> instance.
      */
     public DirectoryScanner getDirectoryScanner() throws Exception
+    {
+        checkDir();
+        DirectoryScanner ds = new DirectoryScanner();
+        setupDirectoryScanner(ds);
+        ds.setFollowSymlinks(followSymlinks);
+        ds.scan();
+        return ds;
+    }
+
+    /**
+     * Returns a scanner that has scanned the files to process, using {@link FileTreeScanner}.
+     * <p/>
+     * This yields the same included files and directories as {@link #getDirectoryScanner()}, and is faster on large
+     * trees. Unlike {@link DirectoryScanner}, the fileset's selectors are also applied.
+     *
+     * @return a <code>FileTreeScanner</code> instance.
+     * @throws Exception if the directory is invalid or cannot be scanned
+     */
+    public FileTreeScanner getFileTreeScanner() throws Exception
+    {
+        checkDir();
+        FileTreeScanner scanner = new FileTreeScanner();
+        setupDirectoryScanner(scanner);
+        scanner.setFollowSymlinks(followSymlinks);
+        scanner.scan();
+        return scanner;
+    }
+
+    /**
+     * Verifies that the directory exists.
+     *
+     * @throws Exception if the directory is not specified, or is not an existing directory
+     */
+    private void checkDir() throws Exception
     {
         if (dir == null)
         {
@@ -205,11 +240,6 @@ public class FileSet extends DataType
             throw new Exception(dir.getAbsolutePath()
                     + " is not a directory.");
         }
-        DirectoryScanner ds = new DirectoryScanner();
-        setupDirectoryScanner(ds);
-        ds.setFollowSymlinks(followSymlinks);
-        ds.scan();
-        return ds;
     }
 
     /**
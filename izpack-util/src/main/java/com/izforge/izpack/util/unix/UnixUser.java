@@ -22,6 +22,7 @@
 package com.izforge.izpack.util.unix;
 
 import com.izforge.izpack.util.FileExecutor;
+import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
@@ -73,6 +74,11 @@ public class UnixUser
      */
     private String itsShell;
 
+    /**
+     * The cached XDG desktop folder
+     */
+    private String itsXdgDesktopfolder;
+
     /**
      * internal name
      */
@@ -250,26 +256,97 @@ public class UnixUser
      */
     public String getXdgDesktopfolder()
     {
-        File configFile = new File(getHome() + File.separator + ".config" + File.separator + "user-dirs.dirs");
-        if (configFile.exists())
+        if (itsXdgDesktopfolder == null)
         {
-            if (XDGDesktopFolderNameScript == null)
-            /** TODO: can be optimized with a shared script **/
+            File configFile = new File(getHome() + File.separator + ".config" + File.separator + "user-dirs.dirs");
+            if (configFile.exists())
             {
-                XDGDesktopFolderNameScriptFilename = getCreatedXDGDesktopFolderNameScriptFilename();
+                String xdgDesktopfolder = readXdgDesktopfolder(configFile);
+                if (xdgDesktopfolder == null)
+                {
+                    // not a plain $HOME relative or absolute path, so let the shell evaluate it
+                    xdgDesktopfolder = execXdgDesktopfolderScript();
+                }
+                itsXdgDesktopfolder = xdgDesktopfolder;
             }
+            else
+            {
+                itsXdgDesktopfolder = getHome() + File.separator + "Desktop";
+            }
+        }
+        return itsXdgDesktopfolder;
+    }
 
-            FileExecutor.getExecOutput(new String[]{UnixHelper.getCustomCommand("chmod"), "+x", XDGDesktopFolderNameScriptFilename}, true);
-            String xdgDesktopfolder = FileExecutor.getExecOutput(new String[]{XDGDesktopFolderNameScriptFilename}, true).trim();
-            new File(XDGDesktopFolderNameScriptFilename).delete();
-
-            return xdgDesktopfolder;
-
+    /**
+     * Reads the XDG_DESKTOP_DIR from a user-dirs.dirs file, without starting a shell.
+     * <p/>
+     * Per the XDG user directories specification, the value is either a path relative to $HOME or an absolute
+     * path.
+     *
+     * @param configFile the user-dirs.dirs file
+     * @return the absolute desktop folder, or {@code null} if it isn't defined or can't be evaluated without a shell
+     */
+    String readXdgDesktopfolder(File configFile)
+    {
+        String value = null;
+        try
+        {
+            for (String line : FileUtils.readLines(configFile))
+            {
+                line = line.trim();
+                if (line.startsWith("XDG_DESKTOP_DIR="))
+                {
+                    // a later definition overrides an earlier one, as it would in the shell
+                    value = line.substring("XDG_DESKTOP_DIR=".length()).trim();
+                }
+            }
         }
-        else
+        catch (IOException e)
         {
-            return getHome() + File.separator + "Desktop";
+            return null;
         }
+        if (value == null)
+        {
+            return null;
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\""))
+        {
+            value = value.substring(1, value.length() - 1);
+        }
+        if (value.equals("$HOME"))
+        {
+            value = getHome();
+        }
+        else if (value.startsWith("$HOME/"))
+        {
+            value = getHome() + value.substring("$HOME".length());
+        }
+        if (value.indexOf('$') != -1 || value.indexOf('`') != -1 || value.indexOf('\\') != -1
+                || value.indexOf('"') != -1 || !value.startsWith("/"))
+        {
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * Determines the XDG desktop folder by sourcing the user-dirs.dirs file in a shell.
+     *
+     * @return the absolute desktop folder
+     */
+    private String execXdgDesktopfolderScript()
+    {
+        if (XDGDesktopFolderNameScript == null)
+        /** TODO: can be optimized with a shared script **/
+        {
+            XDGDesktopFolderNameScriptFilename = getCreatedXDGDesktopFolderNameScriptFilename();
+        }
+
+        FileExecutor.getExecOutput(new String[]{UnixHelper.getCustomCommand("chmod"), "+x", XDGDesktopFolderNameScriptFilename}, true);
+        String xdgDesktopfolder = FileExecutor.getExecOutput(new String[]{XDGDesktopFolderNameScriptFilename}, true).trim();
+        new File(XDGDesktopFolderNameScriptFilename).delete();
+
+        return xdgDesktopfolder;
     }
 
     /**
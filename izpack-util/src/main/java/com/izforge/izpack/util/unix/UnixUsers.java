@@ -41,6 +41,11 @@ public class UnixUsers extends ArrayList<UnixUser>
      */
     private static final long serialVersionUID = -4804842346742194981L;
 
+    /**
+     * The users, read on first use by {@link #getCachedUsers()}.
+     */
+    private static UnixUsers cachedUsers;
+
     // ~ Constructors ***********************************************************************
 
     /**
@@ -157,9 +162,23 @@ public class UnixUsers extends ArrayList<UnixUser>
      */
     public static ArrayList<UnixUser> getUsersWithValidShellsExistingHomesAndDesktops()
     {
-        UnixUsers users = new UnixUsers();
+        return getCachedUsers()._getUsersWithValidShellsExistingHomesAndDesktops();
+    }
 
-        return users._getUsersWithValidShellsExistingHomesAndDesktops();
+    /**
+     * Returns the known users, reading /etc/passwd and the yp passwd map only the first time it is called.
+     * <p/>
+     * As the users cache their desktop folders, subsequent queries don't need to start any processes.
+     *
+     * @return the users
+     */
+    public static synchronized UnixUsers getCachedUsers()
+    {
+        if (cachedUsers == null)
+        {
+            cachedUsers = new UnixUsers();
+        }
+        return cachedUsers;
     }
 
     /**
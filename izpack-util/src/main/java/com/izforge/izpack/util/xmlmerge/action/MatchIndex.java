@@ -0,0 +1,312 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.xmlmerge.action;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jdom2.Comment;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.jdom2.Text;
+
+import com.izforge.izpack.util.xmlmerge.AbstractXmlMergeException;
+import com.izforge.izpack.util.xmlmerge.Matcher;
+import com.izforge.izpack.util.xmlmerge.OperationFactory;
+import com.izforge.izpack.util.xmlmerge.factory.StaticOperationFactory;
+import com.izforge.izpack.util.xmlmerge.factory.XPathOperationFactory;
+import com.izforge.izpack.util.xmlmerge.matcher.KeyedMatcher;
+
+/**
+ * Finds the first patch element matching an original element, for {@link OrderedMergeAction}.
+ * <p/>
+ * This gives the same result as comparing the original element with each patch element in turn, using the matcher
+ * the factory returns for each pair, but avoids comparing every pair:
+ * <ul>
+ * <li>the matcher for a pair is resolved from the XPath expressions each element matches, which are determined once
+ * per element</li>
+ * <li>patch elements are indexed on the key of each {@link KeyedMatcher} used, so only those with the same key as
+ * the original element are compared</li>
+ * </ul>
+ */
+class MatchIndex
+{
+
+    /**
+     * The patch content.
+     */
+    private final Content[] patch;
+
+    /**
+     * The XPath matcher factory, or {@code null} if the matcher is the same for all pairs.
+     */
+    private final XPathOperationFactory xPathFactory;
+
+    /**
+     * The matcher for all pairs, or {@code null} if it is resolved using XPath expressions.
+     */
+    private final Matcher staticMatcher;
+
+    /**
+     * The positions of patch elements, grouped on the index of the first XPath expression they match.
+     */
+    private final Map<Integer, List<Integer>> groups = new TreeMap<Integer, List<Integer>>();
+
+    /**
+     * The keyed positions of patch elements, per group and matcher. Built on demand.
+     */
+    private final Map<Integer, Map<Matcher, Buckets>> buckets = new HashMap<Integer, Map<Matcher, Buckets>>();
+
+    /**
+     * Constructs a {@code MatchIndex}.
+     *
+     * @param patch the patch content
+     * @param xPathFactory the XPath matcher factory. May be {@code null}
+     * @param staticMatcher the matcher for all pairs. May be {@code null}
+     */
+    private MatchIndex(Content[] patch, XPathOperationFactory xPathFactory, Matcher staticMatcher)
+    {
+        this.patch = patch;
+        this.xPathFactory = xPathFactory;
+        this.staticMatcher = staticMatcher;
+    }
+
+    /**
+     * Creates an index of patch content.
+     *
+     * @param factory the matcher factory
+     * @param patch the patch content
+     * @return the index, or {@code null} if the factory or content isn't supported, and pairs must be compared
+     *         individually
+     * @throws AbstractXmlMergeException If an error occurred resolving matchers
+     */
+    static MatchIndex create(OperationFactory factory, Content[] patch) throws AbstractXmlMergeException
+    {
+        MatchIndex result;
+        if (factory instanceof XPathOperationFactory)
+        {
+            result = new MatchIndex(patch, (XPathOperationFactory) factory, null);
+        }
+        else if (factory instanceof StaticOperationFactory)
+        {
+            result = new MatchIndex(patch, null, (Matcher) factory.getOperation(null, null));
+        }
+        else
+        {
+            return null;
+        }
+
+        for (int i = 0; i < patch.length; i++)
+        {
+            if (patch[i] instanceof Element)
+            {
+                int group = (result.xPathFactory != null) ? result.xPathFactory.getIndex((Element) patch[i]) : -1;
+                List<Integer> positions = result.groups.get(group);
+                if (positions == null)
+                {
+                    positions = new ArrayList<Integer>();
+                    result.groups.put(group, positions);
+                }
+                positions.add(i);
+            }
+            else if (!(patch[i] instanceof Comment || patch[i] instanceof Text))
+            {
+                // leave the caller to report unsupported content
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position of the first patch element at or after an offset that matches an original element.
+     *
+     * @param original the original element
+     * @param offset the position to start from
+     * @return the position of the matching element, or <tt>-1</tt> if there is no match
+     * @throws AbstractXmlMergeException If an error occurred resolving matchers
+     */
+    int find(Element original, int offset) throws AbstractXmlMergeException
+    {
+        int originalGroup = (xPathFactory != null) ? xPathFactory.getIndex(original) : -1;
+        int result = -1;
+        for (Map.Entry<Integer, List<Integer>> entry : groups.entrySet())
+        {
+            int group = entry.getKey();
+            Matcher matcher = getMatcher(originalGroup, group);
+            int position = find(original, matcher, group, entry.getValue(), offset);
+            result = min(result, position);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the matcher for a pair of elements.
+     *
+     * @param originalGroup the index of the first expression matching the original element, or <tt>-1</tt>
+     * @param patchGroup the index of the first expression matching the patch element, or <tt>-1</tt>
+     * @return the matcher
+     * @throws AbstractXmlMergeException If an error occurred resolving the matcher
+     */
+    private Matcher getMatcher(int originalGroup, int patchGroup) throws AbstractXmlMergeException
+    {
+        if (xPathFactory == null)
+        {
+            return staticMatcher;
+        }
+        // the factory returns the operation of the first expression matching either element
+        int index = (originalGroup == -1) ? patchGroup
+                : (patchGroup == -1) ? originalGroup : Math.min(originalGroup, patchGroup);
+        return (Matcher) xPathFactory.getOperation(index);
+    }
+
+    /**
+     * Returns the position of the first patch element in a group at or after an offset that matches an original
+     * element.
+     *
+     * @param original the original element
+     * @param matcher the matcher
+     * @param group the group
+     * @param positions the positions of the patch elements in the group
+     * @param offset the position to start from
+     * @return the position of the matching element, or <tt>-1</tt> if there is no match
+     */
+    private int find(Element original, Matcher matcher, int group, List<Integer> positions, int offset)
+    {
+        if (matcher instanceof KeyedMatcher)
+        {
+            Object key = ((KeyedMatcher) matcher).getKey(original);
+            if (key != null)
+            {
+                Buckets groupBuckets = getBuckets(group, (KeyedMatcher) matcher, positions);
+                List<Integer> keyed = groupBuckets.keyed.get(key);
+                int result = (keyed != null) ? first(original, matcher, keyed, offset) : -1;
+                return min(result, first(original, matcher, groupBuckets.unkeyed, offset));
+            }
+        }
+        return first(original, matcher, positions, offset);
+    }
+
+    /**
+     * Returns the patch element positions of a group, keyed on a matcher.
+     *
+     * @param group the group
+     * @param matcher the matcher
+     * @param positions the positions of the patch elements in the group
+     * @return the keyed positions
+     */
+    private Buckets getBuckets(int group, KeyedMatcher matcher, List<Integer> positions)
+    {
+        Map<Matcher, Buckets> byMatcher = buckets.get(group);
+        if (byMatcher == null)
+        {
+            byMatcher = new HashMap<Matcher, Buckets>();
+            buckets.put(group, byMatcher);
+        }
+        Buckets result = byMatcher.get(matcher);
+        if (result == null)
+        {
+            result = new Buckets();
+            for (Integer position : positions)
+            {
+                Object key = matcher.getKey((Element) patch[position]);
+                if (key == null)
+                {
+                    result.unkeyed.add(position);
+                }
+                else
+                {
+                    List<Integer> list = result.keyed.get(key);
+                    if (list == null)
+                    {
+                        list = new ArrayList<Integer>(1);
+                        result.keyed.put(key, list);
+                    }
+                    list.add(position);
+                }
+            }
+            byMatcher.put(matcher, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first of a list of positions at or after an offset whose patch element matches an original element.
+     *
+     * @param original the original element
+     * @param matcher the matcher
+     * @param positions the positions, in ascending order
+     * @param offset the position to start from
+     * @return the position of the matching element, or <tt>-1</tt> if there is no match
+     */
+    private int first(Element original, Matcher matcher, List<Integer> positions, int offset)
+    {
+        int start = Collections.binarySearch(positions, offset);
+        if (start < 0)
+        {
+            start = -start - 1;
+        }
+        for (int i = start; i < positions.size(); i++)
+        {
+            int position = positions.get(i);
+            if (matcher.matches(original, (Element) patch[position]))
+            {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the lower of two positions.
+     *
+     * @param position1 the first position, or <tt>-1</tt> if there is none
+     * @param position2 the second position, or <tt>-1</tt> if there is none
+     * @return the lower position, or <tt>-1</tt> if there is none
+     */
+    private static int min(int position1, int position2)
+    {
+        if (position1 == -1)
+        {
+            return position2;
+        }
+        return (position2 == -1) ? position1 : Math.min(position1, position2);
+    }
+
+    /**
+     * The positions of patch elements keyed on a matcher.
+     */
+    private static class Buckets
+    {
+        /**
+         * The positions of the patch elements, keyed on match key.
+         */
+        private final Map<Object, List<Integer>> keyed = new HashMap<Object, List<Integer>>();
+
+        /**
+         * The positions of the patch elements that have no key.
+         */
+        private final List<Integer> unkeyed = new ArrayList<Integer>();
+    }
+}
@@ -102,6 +102,9 @@ public class OrderedMergeAction extends AbstractMergeAction
         int offsetTreated1 = 0;
         int offsetTreated2 = 0;
 
+        // index the second list, to avoid comparing every pair of elements where the matchers support it
+        MatchIndex index = MatchIndex.create(m_matcherFactory, list2);
+
         for (Content content1 : list1)
         {
 
@@ -123,7 +126,15 @@ public class OrderedMergeAction extends AbstractMergeAction
 
                 // does e1 exist on list2 and has not yet been treated
                 int posInList2 = -1;
-                for (int j = offsetTreated2; j < list2.length; j++)
+                if (index != null)
+                {
+                    posInList2 = index.find(e1, offsetTreated2);
+                    if (posInList2 != -1)
+                    {
+                        logger.fine("Match found: " + e1 + " and " + list2[posInList2]);
+                    }
+                }
+                for (int j = offsetTreated2; index == null && j < list2.length; j++)
                 {
 
                     logger.fine("List 2: " + list2[j]);
@@ -22,8 +22,13 @@
 
 package com.izforge.izpack.util.xmlmerge.factory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.jdom2.Element;
 import org.jdom2.filter.Filters;
@@ -39,6 +44,10 @@ import com.izforge.izpack.util.xmlmerge.OperationFactory;
 /**
  * An operation factory that resolves operations given a map { xpath (as String), Operation }. The
  * order in the map is relevant if several XPath matches.
+ * <p/>
+ * The XPath expressions are compiled once, on first use. Absolute expressions select the same elements whatever
+ * element they are evaluated from, so these are evaluated once per source tree and the selected elements cached.
+ * Source trees must not be modified while they are being merged.
  *
  * @author Laurent Bovet (LBO)
  * @author Alex Mathey (AMA)
@@ -56,14 +65,41 @@ public class XPathOperationFactory implements OperationFactory
      */
     Operation m_defaultOperation;
 
+    /**
+     * The compiled XPath expressions, in the order of the map, or {@code null} if they haven't been compiled.
+     */
+    private List<XPathExpression<Element>> m_expressions;
+
+    /**
+     * The operations, in the order of the compiled expressions.
+     */
+    private List<Operation> m_operations;
+
+    /**
+     * Determines if each compiled expression is absolute.
+     */
+    private boolean[] m_absolute;
+
+    /**
+     * The elements selected by each absolute expression, keyed on the root element of the source tree. Each list
+     * holds a set per expression, or {@code null} if the expression hasn't been evaluated against the tree.
+     * <p/>
+     * JDOM elements use identity equality, so this is keyed on root element identity. Elements refer to their
+     * parents, so the selected elements are held weakly too; otherwise the values would keep each root, and so each
+     * entry, alive.
+     */
+    private final Map<Element, List<Set<Element>>> m_selected = new WeakHashMap<Element, List<Set<Element>>>();
+
     /**
      * Sets the factory's map containing configuration properties.
      *
      * @param map A map containing configuration properties.
      */
-    public void setOperationMap(Map<String, Operation> map)
+    public synchronized void setOperationMap(Map<String, Operation> map)
     {
         this.m_map = map;
+        m_expressions = null;
+        m_selected.clear();
     }
 
     /**
@@ -77,43 +113,113 @@ public class XPathOperationFactory implements OperationFactory
     }
 
     @Override
-    public Operation getOperation(Element originalElement, Element patchElement)
+    public synchronized Operation getOperation(Element originalElement, Element patchElement)
             throws AbstractXmlMergeException
     {
-        for (String xPath : m_map.keySet())
+        compile();
+        for (int i = 0; i < m_expressions.size(); i++)
         {
-            XPathExpression<Element> compiledExpression;
-            try
+            if (matches(originalElement, i) || matches(patchElement, i))
             {
-                compiledExpression = XPathFactory.instance().compile(xPath, Filters.element());
+                return m_operations.get(i);
             }
-            catch (IllegalArgumentException e)
+        }
+        return m_defaultOperation;
+    }
+
+    /**
+     * Returns the index of the first XPath expression matching an element.
+     * <p/>
+     * The operation for a pair of elements is that of the lower of their indexes, so this enables callers comparing
+     * one element against many to resolve operations without evaluating every pair.
+     *
+     * @param element the element. May be {@code null}
+     * @return the index of the first matching expression, or <tt>-1</tt> if none match
+     * @throws AbstractXmlMergeException If an expression is invalid, or an error occurred during the matching process
+     * @see #getOperation(int)
+     */
+    public synchronized int getIndex(Element element) throws AbstractXmlMergeException
+    {
+        compile();
+        for (int i = 0; i < m_expressions.size(); i++)
+        {
+            if (matches(element, i))
             {
-                throw new ConfigurationException(e.getMessage(), e);
+                return i;
             }
-            if (matches(originalElement, compiledExpression) || matches(patchElement, compiledExpression))
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the operation for an XPath expression index.
+     *
+     * @param index the expression index, or <tt>-1</tt> for the default operation
+     * @return the corresponding operation
+     * @throws AbstractXmlMergeException If an expression is invalid
+     * @see #getIndex(Element)
+     */
+    public synchronized Operation getOperation(int index) throws AbstractXmlMergeException
+    {
+        compile();
+        return (index == -1) ? m_defaultOperation : m_operations.get(index);
+    }
+
+    /**
+     * Compiles the XPath expressions, if they haven't already been compiled.
+     *
+     * @throws ConfigurationException If an expression is invalid
+     */
+    private void compile() throws ConfigurationException
+    {
+        if (m_expressions == null)
+        {
+            List<XPathExpression<Element>> expressions = new ArrayList<XPathExpression<Element>>();
+            List<Operation> operations = new ArrayList<Operation>();
+            boolean[] absolute = new boolean[m_map.size()];
+            XPathFactory factory = XPathFactory.instance();
+            for (Map.Entry<String, Operation> entry : m_map.entrySet())
             {
-                return m_map.get(xPath);
+                String xPath = entry.getKey();
+                try
+                {
+                    expressions.add(factory.compile(xPath, Filters.element()));
+                }
+                catch (IllegalArgumentException e)
+                {
+                    throw new ConfigurationException(e.getMessage(), e);
+                }
+                operations.add(entry.getValue());
+                // unions may contain relative paths, so aren't treated as absolute
+                String trimmed = xPath.trim();
+                absolute[expressions.size() - 1] = trimmed.startsWith("/") && trimmed.indexOf('|') == -1;
             }
+            m_operations = operations;
+            m_absolute = absolute;
+            m_expressions = expressions;
         }
-        return m_defaultOperation;
     }
 
     /**
-     * Detects whether the given element matches the given XPath string.
+     * Detects whether the given element matches an XPath expression.
      *
      * @param element The element which will be checked
-     * @param xPathString The XPath expression the element will be checked against
-     * @return True if the given element matches the given XPath string
+     * @param index The index of the compiled expression the element will be checked against
+     * @return True if the given element matches the XPath expression
      * @throws AbstractXmlMergeException If an error occurred during the matching process
      */
-    private boolean matches(Element element, XPathExpression<Element> compiledExpression) throws AbstractXmlMergeException
+    private boolean matches(Element element, int index) throws AbstractXmlMergeException
     {
 
         try
         {
             if (element == null) { return false; }
-            return compiledExpression.evaluate(element).contains(element);
+            XPathExpression<Element> compiledExpression = m_expressions.get(index);
+            if (!m_absolute[index])
+            {
+                return compiledExpression.evaluate(element).contains(element);
+            }
+            return getSelected(element, index).contains(element);
         }
         catch (IllegalStateException e)
         {
@@ -121,4 +227,35 @@ public class XPathOperationFactory implements OperationFactory
         }
     }
 
+    /**
+     * Returns the elements selected by an absolute expression in the tree containing an element.
+     *
+     * @param element The element
+     * @param index The index of the compiled expression
+     * @return The selected elements
+     */
+    private Set<Element> getSelected(Element element, int index)
+    {
+        Element root = element;
+        while (root.getParentElement() != null)
+        {
+            root = root.getParentElement();
+        }
+        List<Set<Element>> selected = m_selected.get(root);
+        if (selected == null)
+        {
+            selected = new ArrayList<Set<Element>>(Collections.<Set<Element>>nCopies(m_expressions.size(), null));
+            m_selected.put(root, selected);
+        }
+        Set<Element> result = selected.get(index);
+        if (result == null)
+        {
+            // JDOM elements use identity equality, so this is an identity set that doesn't keep the tree alive
+            result = Collections.newSetFromMap(new WeakHashMap<Element, Boolean>());
+            result.addAll(m_expressions.get(index).evaluate(root));
+            selected.set(index, result);
+        }
+        return result;
+    }
+
 }
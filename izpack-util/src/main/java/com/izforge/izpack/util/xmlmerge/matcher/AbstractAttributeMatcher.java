@@ -83,4 +83,41 @@ public abstract class AbstractAttributeMatcher extends AbstractTagMatcher
         }
         return false;
     }
+
+    /**
+     * Returns a key for an element, such that elements that match have equal keys.
+     * <p/>
+     * The key is made up of the qualified name of the element, its no. of attributes and, if the matcher compares
+     * a single attribute, the value of that attribute.
+     *
+     * @param element the element
+     * @return the key
+     */
+    protected String getAttributeKey(Element element)
+    {
+        List<Attribute> attributes = element.getAttributes();
+        StringBuilder key = new StringBuilder(getTagKey(element)).append('\u0000').append(attributes.size());
+        String name = getAttributeName();
+        if (name != null)
+        {
+            String value = null;
+            for (Attribute attribute : attributes)
+            {
+                if (equalsString(attribute.getQualifiedName(), name, ignoreCaseAttributeName()))
+                {
+                    value = attribute.getValue();
+                    break;
+                }
+            }
+            if (value == null)
+            {
+                key.append('\u0000');
+            }
+            else
+            {
+                key.append('\u0001').append(ignoreCaseAttributeValue() ? fold(value) : value);
+            }
+        }
+        return key.toString();
+    }
 }
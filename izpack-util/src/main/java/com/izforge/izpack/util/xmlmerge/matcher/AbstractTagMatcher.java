@@ -41,6 +41,36 @@ public abstract class AbstractTagMatcher implements Matcher
                 ignoreCaseElementName());
     }
 
+    /**
+     * Returns a key for the qualified name of an element, such that elements that match have equal keys.
+     *
+     * @param element the element
+     * @return the key
+     */
+    protected String getTagKey(Element element)
+    {
+        return ignoreCaseElementName() ? fold(element.getQualifiedName()) : element.getQualifiedName();
+    }
+
+    /**
+     * Case folds a string, such that strings that are equal ignoring case fold to the same value.
+     * <p/>
+     * This folds each character in the same way as {@link String#equalsIgnoreCase(String)} compares them, which
+     * {@link String#toLowerCase()} does not, as it is locale sensitive.
+     *
+     * @param value the value to fold
+     * @return the folded value
+     */
+    protected static String fold(String value)
+    {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++)
+        {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
     protected static boolean equalsString(String s1, String s2, boolean ignoreCase)
     {
         if (ignoreCase)
@@ -22,10 +22,12 @@
 
 package com.izforge.izpack.util.xmlmerge.matcher;
 
+import org.jdom2.Element;
+
 /**
  * Compares the qualified name of elements, their attributes and their attribute values.
  */
-public class AttributeMatcher extends AbstractAttributeMatcher
+public class AttributeMatcher extends AbstractAttributeMatcher implements KeyedMatcher
 {
     @Override
     protected boolean ignoreCaseAttributeName()
@@ -51,4 +53,10 @@ public class AttributeMatcher extends AbstractAttributeMatcher
     {
         return true;
     }
+
+    @Override
+    public Object getKey(Element element)
+    {
+        return getAttributeKey(element);
+    }
 }
@@ -22,10 +22,12 @@
 
 package com.izforge.izpack.util.xmlmerge.matcher;
 
+import org.jdom2.Element;
+
 /**
  * Elements match if their name and 'id' attribute are the same.
  */
-public class IdAttributeMatcher extends AbstractAttributeMatcher
+public class IdAttributeMatcher extends AbstractAttributeMatcher implements KeyedMatcher
 {
 
     @Override
@@ -51,4 +53,10 @@ public class IdAttributeMatcher extends AbstractAttributeMatcher
     {
         return true;
     }
+
+    @Override
+    public Object getKey(Element element)
+    {
+        return getAttributeKey(element);
+    }
 }
@@ -0,0 +1,44 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.xmlmerge.matcher;
+
+import org.jdom2.Element;
+
+import com.izforge.izpack.util.xmlmerge.Matcher;
+
+/**
+ * A matcher that can derive a key from an element, so that candidate matches can be found by hash lookup rather
+ * than by comparing every pair of elements.
+ * <p/>
+ * Elements that match must have equal keys. Elements with equal keys need not match; candidates are always confirmed
+ * with {@link #matches(Element, Element)}.
+ */
+public interface KeyedMatcher extends Matcher
+{
+
+    /**
+     * Returns the match key of an element.
+     *
+     * @param element the element
+     * @return the key of the element, or {@code null} if the element cannot be keyed, and must be compared with
+     *         every candidate
+     */
+    Object getKey(Element element);
+}
@@ -22,10 +22,12 @@
 
 package com.izforge.izpack.util.xmlmerge.matcher;
 
+import org.jdom2.Element;
+
 /**
  * Elements match if their name and 'name' attribute are the same.
  */
-public class NameAttributeMatcher extends AbstractAttributeMatcher
+public class NameAttributeMatcher extends AbstractAttributeMatcher implements KeyedMatcher
 {
     @Override
     protected final String getAttributeName()
@@ -50,4 +52,10 @@ public class NameAttributeMatcher extends AbstractAttributeMatcher
     {
         return true;
     }
+
+    @Override
+    public Object getKey(Element element)
+    {
+        return getAttributeKey(element);
+    }
 }
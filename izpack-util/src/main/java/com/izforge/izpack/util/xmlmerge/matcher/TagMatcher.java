@@ -22,14 +22,22 @@
 
 package com.izforge.izpack.util.xmlmerge.matcher;
 
+import org.jdom2.Element;
+
 /**
  * Compares the qualified name of elements.
  */
-public class TagMatcher extends AbstractTagMatcher
+public class TagMatcher extends AbstractTagMatcher implements KeyedMatcher
 {
     @Override
     protected boolean ignoreCaseElementName()
     {
         return true;
     }
+
+    @Override
+    public Object getKey(Element element)
+    {
+        return getTagKey(element);
+    }
 }
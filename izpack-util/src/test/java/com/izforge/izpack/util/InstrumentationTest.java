@@ -0,0 +1,126 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+
+import org.junit.Test;
+
+import com.izforge.izpack.util.Instrumentation.Counter;
+import com.izforge.izpack.util.Instrumentation.Phase;
+
+/**
+ * Tests {@link Instrumentation}.
+ */
+public class InstrumentationTest
+{
+
+    /**
+     * Verifies that nothing is recorded when instrumentation is disabled.
+     */
+    @Test
+    public void testDisabled()
+    {
+        Instrumentation instrumentation = new Instrumentation(false, 10);
+        assertFalse(instrumentation.isEnabled());
+        assertFalse(instrumentation.isTracing());
+
+        long start = instrumentation.start();
+        assertEquals(0, start);
+        instrumentation.stop(Phase.IO, start);
+        instrumentation.increment(Counter.FILES);
+        instrumentation.add(Counter.BYTES, 100);
+
+        assertEquals(0, instrumentation.getCalls(Phase.IO));
+        assertEquals(0, instrumentation.getCount(Counter.FILES));
+        assertEquals(0, instrumentation.getCount(Counter.BYTES));
+        assertEquals(0, instrumentation.getTraceEvents());
+    }
+
+    /**
+     * Verifies that counters and timings are collected, and cleared by {@link Instrumentation#reset()}.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCollect() throws Exception
+    {
+        Instrumentation instrumentation = new Instrumentation(true, 0);
+        long start = instrumentation.start();
+        Thread.sleep(5);
+        instrumentation.stop(Phase.LISTENERS, start);
+        instrumentation.stop(Phase.LISTENERS, instrumentation.start());
+        instrumentation.increment(Counter.FILES);
+        instrumentation.add(Counter.BYTES, 100);
+
+        assertEquals(2, instrumentation.getCalls(Phase.LISTENERS));
+        assertTrue(instrumentation.getTime(Phase.LISTENERS) >= 5000000);
+        assertEquals(0, instrumentation.getCalls(Phase.IO));
+        assertEquals(1, instrumentation.getCount(Counter.FILES));
+        assertEquals(100, instrumentation.getCount(Counter.BYTES));
+
+        String report = instrumentation.getReport();
+        assertTrue(report, report.contains("listeners: "));
+        assertTrue(report, report.contains("bytes: 100"));
+
+        instrumentation.reset();
+        assertEquals(0, instrumentation.getCalls(Phase.LISTENERS));
+        assertEquals(0, instrumentation.getTime(Phase.LISTENERS));
+        assertEquals(0, instrumentation.getCount(Counter.BYTES));
+    }
+
+    /**
+     * Verifies that events are traced up to the trace capacity, and written in the documented format.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testTrace() throws Exception
+    {
+        Instrumentation instrumentation = new Instrumentation(true, 2);
+        assertTrue(instrumentation.isTracing());
+        instrumentation.stop(Phase.IO, instrumentation.start());
+        instrumentation.stop(Phase.CONDITIONS, instrumentation.start());
+        instrumentation.stop(Phase.CLEANUP, instrumentation.start());
+
+        assertEquals(2, instrumentation.getTraceEvents());
+        assertEquals(1, instrumentation.getCalls(Phase.CLEANUP));
+        assertTrue(instrumentation.getReport().contains("(1 dropped)"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        instrumentation.writeTrace(bytes);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(Instrumentation.TRACE_MAGIC, in.readInt());
+        assertEquals(2, in.readInt());
+        assertEquals(Phase.IO.ordinal(), in.readInt());
+        assertTrue(in.readLong() >= 0);
+        assertTrue(in.readLong() >= 0);
+        assertEquals(Phase.CONDITIONS.ordinal(), in.readInt());
+        in.readLong();
+        in.readLong();
+        assertEquals(-1, in.read());
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link IoHelper}.
+ */
+public class IoHelperTest
+{
+
+    /**
+     * Verifies that {@link IoHelper#getenv(String)} returns the environment of the JVM.
+     */
+    @Test
+    public void testGetenv()
+    {
+        for (Map.Entry<String, String> entry : System.getenv().entrySet())
+        {
+            assertEquals(entry.getKey(), entry.getValue(), IoHelper.getenv(entry.getKey()));
+        }
+        assertNull(IoHelper.getenv("IZPACK_UNDEFINED_ENVIRONMENT_VARIABLE"));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.izforge.izpack.api.event.ProgressStatus;
+import com.izforge.izpack.api.event.ProgressStatusListener;
+
+/**
+ * Tests {@link ProgressAggregator}.
+ */
+public class ProgressAggregatorTest
+{
+    /**
+     * Verifies that per-file progress is coalesced, and that the latest progress is published before the next step.
+     */
+    @Test
+    public void testCoalesce()
+    {
+        RecordingListener listener = new RecordingListener();
+        // use an interval that won't elapse during the test, so only explicit publication occurs
+        ProgressAggregator aggregator = new ProgressAggregator(listener, 60000);
+
+        aggregator.startAction("Unpacking", 2);
+        aggregator.setTotalBytes(2000);
+        aggregator.nextStep("pack1", 1, 1000);
+        for (int i = 1; i <= 1000; ++i)
+        {
+            aggregator.progress(i, "file" + i);
+            aggregator.addBytes(1);
+        }
+        aggregator.nextStep("pack2", 2, 1000);
+        aggregator.stopAction();
+
+        List<String> expected = new ArrayList<String>();
+        expected.add("startAction Unpacking");
+        expected.add("nextStep pack1");
+        expected.add("progress 1000 file1000");
+        expected.add("status 1000/2000 files=1000");
+        expected.add("nextStep pack2");
+        expected.add("stopAction");
+        assertEquals(expected, listener.events);
+    }
+
+    /**
+     * Verifies that progress is published once the interval elapses, on the thread reporting it.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testInterval() throws Exception
+    {
+        RecordingListener listener = new RecordingListener();
+        ProgressAggregator aggregator = new ProgressAggregator(listener, 10);
+        aggregator.startAction("Unpacking", 1);
+        Thread.sleep(20);
+        aggregator.progress(1, "file1");
+        assertTrue(listener.contains("progress 1 file1"));
+        assertEquals(Thread.currentThread(), listener.thread);
+        aggregator.stopAction();
+    }
+
+    /**
+     * Tests the {@link ProgressStatus} estimates.
+     */
+    @Test
+    public void testStatus()
+    {
+        ProgressStatus status = new ProgressStatus(250, 1000, 50, 2000);
+        assertEquals(25.0, status.getFilesPerSecond(), 0.001);
+        assertEquals(125.0, status.getBytesPerSecond(), 0.001);
+        assertEquals(6000, status.getRemaining());
+        assertEquals(-1, new ProgressStatus(0, 1000, 0, 10).getRemaining());
+        assertEquals("1:05", ProgressStatus.formatTime(65000));
+        assertEquals("1:01:05", ProgressStatus.formatTime(3665000));
+    }
+
+    private static class RecordingListener implements ProgressStatusListener
+    {
+        private final List<String> events = new ArrayList<String>();
+
+        private Thread thread;
+
+        public synchronized boolean contains(String event)
+        {
+            return events.contains(event);
+        }
+
+        @Override
+        public synchronized void progress(ProgressStatus status)
+        {
+            events.add("status " + status.getBytes() + "/" + status.getTotalBytes() + " files=" + status.getFiles());
+        }
+
+        @Override
+        public synchronized void startAction(String name, int steps)
+        {
+            events.add("startAction " + name);
+        }
+
+        @Override
+        public synchronized void stopAction()
+        {
+            events.add("stopAction");
+        }
+
+        @Override
+        public synchronized void nextStep(String stepName, int step, int subSteps)
+        {
+            events.add("nextStep " + stepName);
+        }
+
+        @Override
+        public synchronized void setSubStepNo(int subSteps)
+        {
+            events.add("setSubStepNo " + subSteps);
+        }
+
+        @Override
+        public synchronized void progress(String message)
+        {
+            events.add("progress " + message);
+        }
+
+        @Override
+        public synchronized void progress(int subStep, String message)
+        {
+            events.add("progress " + subStep + " " + message);
+            thread = Thread.currentThread();
+        }
+
+        @Override
+        public synchronized void restartAction(String name, String overallMessage, String tip, int steps)
+        {
+            events.add("restartAction " + name);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.izforge.izpack.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link SelfModifier}.
+ */
+public class SelfModifierTest
+{
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The jar file to launch from.
+     */
+    private File jar;
+
+    /**
+     * The directory to create the sandbox in.
+     */
+    private File tmpDir;
+
+    /**
+     * The target method.
+     */
+    private Method method;
+
+    /**
+     * Target method for the tests. This is never invoked.
+     *
+     * @param args the arguments
+     */
+    public static void target(String[] args)
+    {
+    }
+
+    /**
+     * Sets up the test case.
+     *
+     * @throws Exception for any error
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        jar = temporaryFolder.newFile("uninstaller.jar");
+        FileUtils.writeStringToFile(jar, "jar contents", "UTF-8");
+        tmpDir = temporaryFolder.newFolder("tmp");
+        method = getClass().getMethod("target", String[].class);
+    }
+
+    /**
+     * Verifies that on Unix, phase 1 spawns phase 3 directly, from the copy of the jar in the sandbox, and that
+     * phase 3 is told to delete the sandbox.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testUnixLaunchesPhase3() throws IOException
+    {
+        SelfModifier modifier = new SelfModifier(method, jar, true, true);
+        modifier.createSandbox(tmpDir);
+
+        assertEquals(3, modifier.prepare());
+        File sandbox = getSandbox();
+        File copy = new File(sandbox, jar.getName());
+        assertEquals("jar contents", FileUtils.readFileToString(copy, "UTF-8"));
+
+        List<String> command = modifier.getCommand(new String[]{"-c"}, 3);
+        assertEquals(copy.getAbsolutePath(), getClassPath(command));
+        assertTrue(command.contains("-Dself.mod.phase=3"));
+        assertTrue(command.contains("-Dself.mod.cleanup=true"));
+        assertEquals("-c", command.get(command.size() - 1));
+
+        // only the sandbox and log are created
+        assertEquals(2, tmpDir.list().length);
+    }
+
+    /**
+     * Verifies that on other platforms, phase 1 spawns phase 2 from a copy of the jar outside the sandbox, and that
+     * phase 3 runs from the copy in the sandbox.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testOtherPlatformsLaunchPhase2OutsideSandbox() throws IOException
+    {
+        SelfModifier modifier = new SelfModifier(method, jar, true, false);
+        modifier.createSandbox(tmpDir);
+
+        assertEquals(2, modifier.prepare());
+        File sandbox = getSandbox();
+
+        List<String> command = modifier.getCommand(new String[0], 2);
+        File launcher = new File(getClassPath(command));
+        assertEquals(tmpDir.getCanonicalFile(), launcher.getParentFile());
+        assertEquals("jar contents", FileUtils.readFileToString(launcher, "UTF-8"));
+        assertTrue(command.contains("-Dself.mod.phase=2"));
+        assertFalse(command.contains("-Dself.mod.cleanup=true"));
+
+        command = modifier.getCommand(new String[0], 3);
+        assertEquals(new File(sandbox, jar.getName()).getAbsolutePath(), getClassPath(command));
+    }
+
+    /**
+     * Verifies that without fast launch, the jar is extracted into the sandbox, and phase 2 is spawned from it.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testExtract() throws IOException
+    {
+        jar = temporaryFolder.newFile("extract.jar");
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest);
+        try
+        {
+            out.putNextEntry(new JarEntry("a/b.txt"));
+            out.write("b".getBytes("UTF-8"));
+            out.closeEntry();
+        }
+        finally
+        {
+            out.close();
+        }
+
+        SelfModifier modifier = new SelfModifier(method, jar, false, true);
+        modifier.createSandbox(tmpDir);
+
+        assertEquals(2, modifier.prepare());
+        File sandbox = getSandbox();
+        assertEquals("b", FileUtils.readFileToString(new File(sandbox, "a/b.txt"), "UTF-8"));
+        assertFalse(new File(sandbox, "META-INF/MANIFEST.MF").exists());
+        assertEquals(sandbox.getAbsolutePath(), getClassPath(modifier.getCommand(new String[0], 2)));
+    }
+
+    /**
+     * Verifies that the sandbox is deleted.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testDeleteSandbox() throws IOException
+    {
+        SelfModifier modifier = new SelfModifier(method, jar, true, true);
+        modifier.createSandbox(tmpDir);
+        modifier.prepare();
+        File sandbox = getSandbox();
+
+        modifier.deleteSandbox();
+        assertFalse(sandbox.exists());
+        assertTrue(jar.exists());
+    }
+
+    /**
+     * Verifies that copies of the jar left behind by phase 2 are deleted by the next launch, once their sandbox
+     * has been deleted.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testDeleteStaleLaunchers() throws IOException
+    {
+        // phase 3 has completed
+        File stale = createLauncher("izpack1");
+
+        // phase 3 is still running
+        File running = createLauncher("izpack2");
+        assertTrue(new File(tmpDir, "izpack2.d").mkdir());
+
+        // not created by SelfModifier
+        File other = new File(tmpDir, "izpack3.jar");
+        FileUtils.writeStringToFile(other, "other", "UTF-8");
+        File unrelated = new File(tmpDir, "other.jar");
+        FileUtils.writeStringToFile(unrelated, "other", "UTF-8");
+        assertTrue(new File(tmpDir, "other.log").createNewFile());
+
+        SelfModifier modifier = new SelfModifier(method, jar, true, false);
+        modifier.createSandbox(tmpDir);
+
+        assertFalse(stale.exists());
+        assertTrue(running.exists());
+        assertTrue(other.exists());
+        assertTrue(unrelated.exists());
+    }
+
+    /**
+     * Returns the sandbox created in the temporary directory.
+     *
+     * @return the sandbox
+     */
+    private File getSandbox()
+    {
+        File[] dirs = tmpDir.listFiles();
+        File result = null;
+        for (File dir : dirs)
+        {
+            if (dir.isDirectory())
+            {
+                assertNull(result);
+                result = dir;
+            }
+        }
+        assertTrue(result != null && result.getName().startsWith("izpack") && result.getName().endsWith(".d"));
+        return result;
+    }
+
+    /**
+     * Returns the class path argument of a command.
+     *
+     * @param command the command
+     * @return the class path
+     */
+    private String getClassPath(List<String> command)
+    {
+        int index = command.indexOf("-classpath");
+        assertTrue(index != -1);
+        return command.get(index + 1);
+    }
+
+    /**
+     * Creates a copy of the jar left behind by phase 2, and its log.
+     *
+     * @param base the base name
+     * @return the jar
+     * @throws IOException for any I/O error
+     */
+    private File createLauncher(String base) throws IOException
+    {
+        File launcher = new File(tmpDir, base + ".jar");
+        FileUtils.copyFile(jar, launcher);
+        assertTrue(new File(tmpDir, base + ".log").createNewFile());
+        return launcher;
+    }
+}
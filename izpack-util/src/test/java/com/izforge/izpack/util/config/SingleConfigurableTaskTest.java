@@ -1,6 +1,7 @@
 package com.izforge.izpack.util.config;
 
 import com.izforge.izpack.api.config.Config;
+import com.izforge.izpack.api.config.Ini;
 import com.izforge.izpack.api.config.Options;
 import com.izforge.izpack.api.config.spi.OptionsBuilder;
 import com.izforge.izpack.util.config.SingleConfigurableTask.Entry;
@@ -509,6 +510,74 @@ public class SingleConfigurableTaskTest
         assertEquals(FileUtils.contentEqualsIgnoreEOL(expectedFile, toFile, "ISO-8859-1"), true);
     }
 
+    @Test
+    public void testStreamingIniFile() throws Exception
+    {
+        String content = "; settings\n[db]\nhost = localhost\nport = 5432\n\n; web\n[web]\nport = 80\n";
+        File streamed = tmpDir.newFile("streamed.ini");
+        File loaded = tmpDir.newFile("loaded.ini");
+        FileUtils.writeStringToFile(streamed, content, "UTF-8");
+        FileUtils.writeStringToFile(loaded, content, "UTF-8");
+
+        executeIniTask(streamed, true);
+        executeIniTask(loaded, false);
+
+        // the streamed file keeps its comments and layout
+        assertEquals("; settings\n[db]\nhost = localhost\nport = 5433\nuser = admin\n\n; web\n[web]\n",
+                     FileUtils.readFileToString(streamed, "UTF-8"));
+        Ini expected = new Ini(loaded);
+        Ini actual = new Ini(streamed);
+        assertEquals(expected.get("db").keySet(), actual.get("db").keySet());
+        assertEquals(expected.get("db", "port"), actual.get("db", "port"));
+        assertEquals(expected.get("db", "user"), actual.get("db", "user"));
+        assertNull(actual.get("web", "port"));
+    }
+
+    @Test
+    public void testStreamingFallsBackForValueLookups() throws Exception
+    {
+        File toFile = tmpDir.newFile("to.properties");
+        FileUtils.writeStringToFile(toFile, "# comment\na=1\n", "UTF-8");
+
+        SingleOptionFileTask task = new SingleOptionFileTask();
+        task.setToFile(toFile);
+        task.setStreaming(true);
+        Entry entry = new Entry();
+        entry.setKey("a");
+        entry.setValue("1");
+        entry.setOperation(Entry.Operation.REMOVE);
+        task.addEntry(entry);
+        task.execute();
+
+        Options result = new Options(toFile);
+        assertNull(result.get("a"));
+    }
+
+    private void executeIniTask(File file, boolean streaming) throws Exception
+    {
+        SingleIniFileTask task = new SingleIniFileTask();
+        task.setToFile(file);
+        task.setStreaming(streaming);
+        task.setOperator(" = ");
+        Entry port = createEntry("db", "port", "1", Entry.Operation.INCREMENT, Entry.Type.INTEGER);
+        port.setPattern("0");
+        task.addEntry(port);
+        task.addEntry(createEntry("db", "user", "admin", Entry.Operation.SET, Entry.Type.STRING));
+        task.addEntry(createEntry("web", "port", null, Entry.Operation.REMOVE, Entry.Type.STRING));
+        task.execute();
+    }
+
+    private Entry createEntry(String section, String key, String value, Entry.Operation operation, Entry.Type type)
+    {
+        Entry entry = new Entry();
+        entry.setSection(section);
+        entry.setKey(key);
+        entry.setValue(value);
+        entry.setOperation(operation);
+        entry.setType(type);
+        return entry;
+    }
+
     private void printFileContent(File file)
     {
         BufferedReader br;
@@ -0,0 +1,90 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link FileLinks}.
+ */
+public class FileLinksTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that a hard link replaces an existing file and shares the content of the source.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testLink() throws IOException
+    {
+        assumeTrue(FileLinks.isLinkSupported());
+        File source = createFile("source", 1000);
+        File target = createFile("target", 10);
+
+        assertTrue(FileLinks.link(source, target));
+        assertArrayEquals(FileUtils.readFileToByteArray(source), FileUtils.readFileToByteArray(target));
+
+        // the link refers to the same content
+        FileUtils.writeStringToFile(source, "changed", "UTF-8");
+        assertEquals("changed", FileUtils.readFileToString(target, "UTF-8"));
+    }
+
+    /**
+     * Verifies that a copy replaces an existing, larger file.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testCopy() throws IOException
+    {
+        File source = createFile("source", 3 * 1024 * 1024 + 17);
+        File target = createFile("target", 4 * 1024 * 1024);
+
+        FileLinks.copy(source, target);
+        assertArrayEquals(FileUtils.readFileToByteArray(source), FileUtils.readFileToByteArray(target));
+
+        // the copy is independent of the source
+        FileUtils.writeStringToFile(source, "changed", "UTF-8");
+        assertEquals(3 * 1024 * 1024 + 17, target.length());
+    }
+
+    private File createFile(String name, int size) throws IOException
+    {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        File file = new File(temporaryFolder.getRoot(), name);
+        FileUtils.writeByteArrayToFile(file, content);
+        return file;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link FilePermissions}.
+ */
+public class FilePermissionsTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Tests {@link FilePermissions#parseMode(String)}.
+     */
+    @Test
+    public void testParseMode()
+    {
+        assertEquals(0755, FilePermissions.parseMode("755"));
+        assertEquals(0644, FilePermissions.parseMode(" 0644 "));
+    }
+
+    /**
+     * Verifies that non-octal modes are rejected.
+     */
+    @Test(expected = NumberFormatException.class)
+    public void testParseInvalidMode()
+    {
+        FilePermissions.parseMode("789");
+    }
+
+    /**
+     * Verifies that modes with the setuid, setgid or sticky bits are rejected, as they can't be set.
+     */
+    @Test(expected = NumberFormatException.class)
+    public void testParseSetuidMode()
+    {
+        FilePermissions.parseMode("4755");
+    }
+
+    /**
+     * Verifies that the exact mode is set where POSIX attributes are supported, and that
+     * {@link FilePermissions#makeExecutable(File)} only adds the execute bits.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testSetMode() throws IOException
+    {
+        File script = temporaryFolder.newFile("script.sh");
+        File config = temporaryFolder.newFile("config.properties");
+        assumeTrue(FilePermissions.setMode(script, 0644));
+
+        assertTrue(FilePermissions.makeExecutable(script));
+        assertTrue(FilePermissions.setMode(config, 0600));
+
+        assertTrue(script.canExecute());
+        if (FilePermissions.getMode(script) != FilePermissions.UNSET)
+        {
+            assertEquals(0755, FilePermissions.getMode(script));
+            assertEquals(0600, FilePermissions.getMode(config));
+        }
+    }
+
+    /**
+     * Verifies that setting the mode of a missing file fails.
+     */
+    @Test
+    public void testSetModeMissingFile()
+    {
+        File missing = new File(temporaryFolder.getRoot(), "missing");
+        assertFalse(FilePermissions.setMode(missing, 0644));
+        assertFalse(FilePermissions.makeExecutable(missing));
+    }
+
+    /**
+     * Verifies that without POSIX attributes, modes that the owner/everybody flags of {@link File} can't represent
+     * are refused and leave the file unchanged, rather than being widened.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testSetModeWithoutPosix() throws IOException
+    {
+        File file = temporaryFolder.newFile("file");
+        assertTrue(FilePermissions.setModeWithoutPosix(file, 0600));
+        int mode = FilePermissions.getMode(file);
+        if (mode != FilePermissions.UNSET)
+        {
+            assertEquals(0600, mode);
+        }
+
+        assertFalse(FilePermissions.setModeWithoutPosix(file, 0640));
+        assertFalse(FilePermissions.setModeWithoutPosix(file, 0660));
+        assertFalse(FilePermissions.setModeWithoutPosix(file, 0604));
+        assertEquals(mode, FilePermissions.getMode(file));
+
+        assertTrue(FilePermissions.setModeWithoutPosix(file, 0755));
+        if (mode != FilePermissions.UNSET)
+        {
+            assertEquals(0755, FilePermissions.getMode(file));
+        }
+    }
+
+    /**
+     * Verifies that the owner of a file created by the current user is the current user, where it can be determined.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testGetOwner() throws IOException
+    {
+        File file = temporaryFolder.newFile("owned");
+        String owner = FilePermissions.getOwner(file);
+        assumeTrue(owner != null);
+        assertEquals(System.getProperty("user.name"), owner);
+        assertNull(FilePermissions.getOwner(new File(temporaryFolder.getRoot(), "missing")));
+    }
+
+    /**
+     * Verifies that {@link FilePermissions#copyToUser} copies a file into a directory owned by the user, replacing
+     * any existing file or symbolic link rather than writing through it.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testCopyToUser() throws Exception
+    {
+        String user = System.getProperty("user.name");
+        File source = temporaryFolder.newFile("app.desktop");
+        FileUtils.writeStringToFile(source, "[Desktop Entry]", "UTF-8");
+        File dir = temporaryFolder.newFolder("Desktop");
+        assumeTrue(user.equals(FilePermissions.getOwner(dir)));
+
+        File copy = FilePermissions.copyToUser(source, dir, user, 0744);
+        assumeTrue(copy != null);
+        assertEquals(new File(dir, "app.desktop"), copy);
+        assertEquals("[Desktop Entry]", FileUtils.readFileToString(copy, "UTF-8"));
+        assertEquals(0744, FilePermissions.getMode(copy));
+        assertEquals(user, FilePermissions.getOwner(copy));
+
+        // an existing link is replaced, and its target is left unchanged
+        File outside = temporaryFolder.newFile("outside");
+        assertTrue(copy.delete());
+        Process ln = new ProcessBuilder("ln", "-s", outside.getPath(), copy.getPath()).start();
+        assumeTrue(ln.waitFor() == 0 && FileUtils.isSymlink(copy));
+        assertEquals(copy, FilePermissions.copyToUser(source, dir, user, 0644));
+        assertFalse(FileUtils.isSymlink(copy));
+        assertEquals("[Desktop Entry]", FileUtils.readFileToString(copy, "UTF-8"));
+        assertEquals(0L, outside.length());
+
+        // no temporary files are left behind
+        assertEquals(1, dir.list().length);
+    }
+
+    /**
+     * Verifies that {@link FilePermissions#copyToUser} refuses to copy into a directory that isn't owned by the user,
+     * or through a symbolic link to one.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testCopyToUserNotOwner() throws IOException
+    {
+        String user = System.getProperty("user.name");
+        assumeTrue(!"nobody".equals(user));
+        File source = temporaryFolder.newFile("app.desktop");
+        File dir = temporaryFolder.newFolder("Desktop");
+
+        assertNull(FilePermissions.copyToUser(source, dir, "nobody", 0744));
+        assertEquals(0, dir.list().length);
+
+        assertNull(FilePermissions.copyToUser(source, new File(temporaryFolder.getRoot(), "missing"), user, 0744));
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.izforge.izpack.util.file.types.FileSet;
+import com.izforge.izpack.util.file.types.selectors.SizeSelector;
+
+/**
+ * Tests {@link FileTreeScanner}.
+ */
+public class FileTreeScannerTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The include and exclude patterns to compare, in pairs. A {@code null} pattern array means none were set.
+     */
+    private static final String[][] PATTERNS = {
+            null, null,
+            {"**"}, null,
+            {"**/*.jar"}, null,
+            {"lib/"}, {"lib/ext/**"},
+            {"lib/*.jar", "bin/run.sh"}, null,
+            {"**/*.txt", "conf/**"}, {"**/CVS/**", "conf/*.bak"},
+            {"doc/a?c/**"}, null,
+            {"DOC/**"}, null,
+            {"bin"}, null,
+            {"conf/app.properties"}, {"conf/app.properties"},
+            null, {"lib/**", "doc/"}};
+
+    /**
+     * The base directory.
+     */
+    private File base;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        base = temporaryFolder.newFolder("base");
+        for (String path : new String[]{"bin/run.sh", "bin/run.bat", "lib/a.jar", "lib/b.jar", "lib/ext/c.jar",
+                "lib/ext/deep/d.jar", "lib/readme.txt", "conf/app.properties", "conf/app.bak", "conf/CVS/Entries",
+                "doc/abc/index.txt", "doc/axc/x/y.txt", "doc/abd/z.txt", "doc/#temp#", "doc/notes.txt~",
+                "empty/.keep", "README"})
+        {
+            File file = new File(base, path);
+            assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+            assertTrue(file.createNewFile());
+        }
+        assertTrue(new File(base, "empty/sub").mkdirs());
+    }
+
+    /**
+     * Verifies that the included files and directories are the same as those of {@link DirectoryScanner}, for
+     * sequential and concurrent scans.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testMatchesDirectoryScanner() throws Exception
+    {
+        for (int i = 0; i < PATTERNS.length; i += 2)
+        {
+            for (boolean caseSensitive : new boolean[]{true, false})
+            {
+                for (boolean defaultExcludes : new boolean[]{false, true})
+                {
+                    DirectoryScanner expected = new DirectoryScanner();
+                    configure(expected, base, PATTERNS[i], PATTERNS[i + 1], caseSensitive, defaultExcludes);
+                    expected.scan();
+
+                    for (int threads : new int[]{1, 3})
+                    {
+                        FileTreeScanner scanner = new FileTreeScanner();
+                        configure(scanner, base, PATTERNS[i], PATTERNS[i + 1], caseSensitive, defaultExcludes);
+                        scanner.setThreads(threads);
+                        scanner.scan();
+                        String message = Arrays.toString(PATTERNS[i]) + " " + Arrays.toString(PATTERNS[i + 1])
+                                + " caseSensitive=" + caseSensitive + " defaultExcludes=" + defaultExcludes
+                                + " threads=" + threads;
+                        assertArrayEquals(message, expected.getIncludedFiles(), scanner.getIncludedFiles());
+                        assertArrayEquals(message, expected.getIncludedDirectories(),
+                                          scanner.getIncludedDirectories());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that excluded and not included paths are reported.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testExcluded() throws Exception
+    {
+        FileTreeScanner scanner = new FileTreeScanner();
+        configure(scanner, base, new String[]{"conf/**", "lib/*.jar"}, new String[]{"conf/*.bak"}, true, false);
+        scanner.scan();
+        assertArrayEquals(new String[]{path("conf/app.bak")}, scanner.getExcludedFiles());
+        assertTrue(Arrays.asList(scanner.getNotIncludedFiles()).contains(path("lib/readme.txt")));
+        assertTrue(Arrays.asList(scanner.getNotIncludedDirectories()).contains(path("lib/ext")));
+
+        // lib/ext can't hold included files, so it isn't entered
+        assertTrue(!Arrays.asList(scanner.getNotIncludedFiles()).contains(path("lib/ext/c.jar")));
+    }
+
+    /**
+     * Verifies that {@link FileSet#getFileTreeScanner()} applies the fileset's selectors, as well as its patterns.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testFileSetSelectors() throws Exception
+    {
+        FileUtils.writeStringToFile(new File(base, "lib/a.jar"), "a", "UTF-8");
+        FileUtils.writeStringToFile(new File(base, "lib/ext/c.jar"), "c", "UTF-8");
+        FileUtils.writeStringToFile(new File(base, "README"), "readme", "UTF-8");
+
+        FileSet fileSet = new FileSet();
+        fileSet.setDir(base);
+        fileSet.createInclude().setName("lib/**");
+        SizeSelector selector = new SizeSelector();
+        selector.setValue(0);
+        selector.setWhen(SizeSelector.SizeComparisons.MORE);
+        fileSet.addSize(selector);
+
+        FileTreeScanner scanner = fileSet.getFileTreeScanner();
+        assertArrayEquals(new String[]{path("lib/a.jar"), path("lib/ext/c.jar")}, scanner.getIncludedFiles());
+        assertArrayEquals(new String[]{path("lib"), path("lib/ext"), path("lib/ext/deep")},
+                          scanner.getIncludedDirectories());
+        assertArrayEquals(new String[]{path("lib/b.jar"), path("lib/ext/deep/d.jar"), path("lib/readme.txt")},
+                          scanner.getDeselectedFiles());
+        assertEquals(0, scanner.getDeselectedDirectories().length);
+        assertTrue(Arrays.asList(scanner.getNotIncludedFiles()).contains("README"));
+    }
+
+    /**
+     * Verifies that symbolic links are reported as excluded when they aren't followed.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    public void testSymlinks() throws Exception
+    {
+        assumeTrue(link("lib", "liblink") && link("README", "readmelink"));
+
+        FileTreeScanner scanner = new FileTreeScanner();
+        scanner.setBasedir(base);
+        scanner.scan();
+        assertTrue(Arrays.asList(scanner.getIncludedFiles()).contains(path("liblink/a.jar")));
+
+        scanner.setFollowSymlinks(false);
+        scanner.scan();
+        assertTrue(!Arrays.asList(scanner.getIncludedFiles()).contains(path("liblink/a.jar")));
+        assertArrayEquals(new String[]{"liblink"}, scanner.getExcludedDirectories());
+        assertArrayEquals(new String[]{"readmelink"}, scanner.getExcludedFiles());
+    }
+
+    /**
+     * Verifies that scanning a missing directory fails.
+     *
+     * @throws Exception expected
+     */
+    @Test(expected = Exception.class)
+    public void testMissingBasedir() throws Exception
+    {
+        FileTreeScanner scanner = new FileTreeScanner();
+        scanner.setBasedir(new File(base, "missing"));
+        scanner.scan();
+    }
+
+    /**
+     * Compares the time taken by {@link DirectoryScanner} and {@link FileTreeScanner} to scan a generated tree of
+     * 200,000 files.
+     *
+     * @throws Exception for any error
+     */
+    @Test
+    @Ignore("Benchmark. Run manually when changing FileTreeScanner or DirectoryScanner")
+    public void benchmarkLargeTree() throws Exception
+    {
+        File root = temporaryFolder.newFolder("large");
+        // 20 modules x 20 packages x 500 files
+        for (int i = 0; i < 20; ++i)
+        {
+            for (int j = 0; j < 20; ++j)
+            {
+                File dir = new File(root, "module" + i + "/src/package" + j);
+                assertTrue(dir.mkdirs());
+                for (int k = 0; k < 500; ++k)
+                {
+                    String extension = (k % 10 == 0) ? ".xml" : (k % 10 == 1) ? ".java~" : ".java";
+                    assertTrue(new File(dir, "File" + k + extension).createNewFile());
+                }
+            }
+        }
+
+        String[][] includes = {null, {"**/*.xml"}, {"module1*/**"}};
+        for (String[] include : includes)
+        {
+            int count = 0;
+            for (int run = 0; run < 2; ++run)
+            {
+                // the first run warms up the file system cache and the JIT
+                long start = System.nanoTime();
+                DirectoryScanner directoryScanner = new DirectoryScanner();
+                configure(directoryScanner, root, include, null, true, true);
+                directoryScanner.scan();
+                count = directoryScanner.getIncludedFiles().length;
+                long legacy = System.nanoTime() - start;
+
+                long[] times = new long[2];
+                int[] threads = {1, 4};
+                for (int t = 0; t < threads.length; ++t)
+                {
+                    start = System.nanoTime();
+                    FileTreeScanner scanner = new FileTreeScanner();
+                    configure(scanner, root, include, null, true, true);
+                    scanner.setThreads(threads[t]);
+                    scanner.scan();
+                    assertEquals(count, scanner.getIncludedFiles().length);
+                    times[t] = System.nanoTime() - start;
+                }
+                if (run == 1)
+                {
+                    System.out.println(Arrays.toString(include) + ", " + count + " files: DirectoryScanner "
+                                               + legacy / 1000000 + "ms, FileTreeScanner " + times[0] / 1000000
+                                               + "ms, FileTreeScanner (4 threads) " + times[1] / 1000000 + "ms");
+                }
+            }
+        }
+    }
+
+    private void configure(FileScanner scanner, File dir, String[] includes, String[] excludes,
+                           boolean caseSensitive, boolean defaultExcludes)
+    {
+        scanner.setBasedir(dir);
+        scanner.setIncludes(includes);
+        scanner.setExcludes(excludes);
+        scanner.setCaseSensitive(caseSensitive);
+        if (defaultExcludes)
+        {
+            scanner.addDefaultExcludes();
+        }
+    }
+
+    private String path(String path)
+    {
+        return path.replace('/', File.separatorChar);
+    }
+
+    private boolean link(String target, String link) throws Exception
+    {
+        if (File.separatorChar != '/')
+        {
+            return false;
+        }
+        Process process = new ProcessBuilder("ln", "-s", target, link).directory(base).start();
+        return process.waitFor() == 0;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.unix;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link UnixUser}.
+ */
+public class UnixUserTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Verifies that the desktop folder is read from user-dirs.dirs without starting a shell.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testReadXdgDesktopfolder() throws IOException
+    {
+        File home = temporaryFolder.getRoot();
+        UnixUser user = new UnixUser().fromEtcPasswdLine("test:x:1000:1000:Test:" + home + ":/bin/bash");
+        File config = new File(home, ".config/user-dirs.dirs");
+
+        write(config, "# comment\nXDG_DOCUMENTS_DIR=\"$HOME/Documents\"\nXDG_DESKTOP_DIR=\"$HOME/Schreibtisch\"\n");
+        assertEquals(home + "/Schreibtisch", user.readXdgDesktopfolder(config));
+
+        write(config, "XDG_DESKTOP_DIR=\"$HOME/Desktop\"\nXDG_DESKTOP_DIR=\"/srv/desktop\"\n");
+        assertEquals("/srv/desktop", user.readXdgDesktopfolder(config));
+
+        write(config, "XDG_DESKTOP_DIR=\"$HOME\"\n");
+        assertEquals(home.getPath(), user.readXdgDesktopfolder(config));
+
+        // values that need a shell to evaluate
+        write(config, "XDG_DESKTOP_DIR=\"$XDG_ROOT/Desktop\"\n");
+        assertNull(user.readXdgDesktopfolder(config));
+        write(config, "XDG_DOCUMENTS_DIR=\"$HOME/Documents\"\n");
+        assertNull(user.readXdgDesktopfolder(config));
+    }
+
+    /**
+     * Verifies that the desktop folder defaults to $HOME/Desktop, and is cached.
+     *
+     * @throws IOException for any I/O error
+     */
+    @Test
+    public void testGetXdgDesktopfolder() throws IOException
+    {
+        File home = temporaryFolder.getRoot();
+        UnixUser user = new UnixUser().fromEtcPasswdLine("test:x:1000:1000:Test:" + home + ":/bin/bash");
+        assertEquals(home + File.separator + "Desktop", user.getXdgDesktopfolder());
+
+        write(new File(home, ".config/user-dirs.dirs"), "XDG_DESKTOP_DIR=\"$HOME/Bureau\"\n");
+        assertEquals(home + File.separator + "Desktop", user.getXdgDesktopfolder());
+
+        user = new UnixUser().fromEtcPasswdLine("test:x:1000:1000:Test:" + home + ":/bin/bash");
+        assertEquals(home + "/Bureau", user.getXdgDesktopfolder());
+    }
+
+    private void write(File file, String content) throws IOException
+    {
+        FileUtils.writeStringToFile(file, content);
+    }
+}
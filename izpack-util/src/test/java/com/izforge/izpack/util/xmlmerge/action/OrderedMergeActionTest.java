@@ -0,0 +1,238 @@
+/*
+ * IzPack - Copyright 2001-2013 Julien Ponge, All Rights Reserved.
+ *
+ * http://izpack.org/
+ * http://izpack.codehaus.org/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.izforge.izpack.util.xmlmerge.action;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.jdom2.Comment;
+import org.jdom2.Element;
+import org.jdom2.Text;
+import org.jdom2.output.XMLOutputter;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.izforge.izpack.util.xmlmerge.AbstractXmlMergeException;
+import com.izforge.izpack.util.xmlmerge.Matcher;
+import com.izforge.izpack.util.xmlmerge.Operation;
+import com.izforge.izpack.util.xmlmerge.OperationFactory;
+import com.izforge.izpack.util.xmlmerge.factory.StaticOperationFactory;
+import com.izforge.izpack.util.xmlmerge.factory.XPathOperationFactory;
+import com.izforge.izpack.util.xmlmerge.matcher.AttributeMatcher;
+import com.izforge.izpack.util.xmlmerge.matcher.IdAttributeMatcher;
+import com.izforge.izpack.util.xmlmerge.matcher.NameAttributeMatcher;
+import com.izforge.izpack.util.xmlmerge.matcher.TagMatcher;
+
+/**
+ * Tests the {@link OrderedMergeAction}.
+ */
+public class OrderedMergeActionTest
+{
+
+    /**
+     * Verifies that indexed matching produces the same result as comparing every pair of elements, for each of the
+     * keyed matchers.
+     *
+     * @throws AbstractXmlMergeException for any merge error
+     */
+    @Test
+    public void testKeyedMatching() throws AbstractXmlMergeException
+    {
+        Random random = new Random(42);
+        Element original = createDocument(random, 300);
+        Element patch = createDocument(random, 300);
+        Matcher[] matchers = {new TagMatcher(), new IdAttributeMatcher(), new NameAttributeMatcher(),
+                new AttributeMatcher()};
+        for (Matcher matcher : matchers)
+        {
+            String expected = merge(original, patch, new PairFactory(new StaticOperationFactory(matcher)));
+            String actual = merge(original, patch, new StaticOperationFactory(matcher));
+            assertEquals(matcher.getClass().getSimpleName(), expected, actual);
+        }
+    }
+
+    /**
+     * Verifies that indexed matching produces the same result as comparing every pair of elements, when matchers
+     * are selected by XPath expression.
+     *
+     * @throws AbstractXmlMergeException for any merge error
+     */
+    @Test
+    public void testXPathKeyedMatching() throws AbstractXmlMergeException
+    {
+        Random random = new Random(7);
+        Element original = createDocument(random, 200);
+        Element patch = createDocument(random, 200);
+
+        Map<String, Operation> map = new LinkedHashMap<String, Operation>();
+        map.put("//item[@id='3']", new TagMatcher());
+        map.put("//ITEM", new NameAttributeMatcher());
+        XPathOperationFactory factory = new XPathOperationFactory();
+        factory.setOperationMap(map);
+        factory.setDefaultOperation(new IdAttributeMatcher());
+
+        String expected = merge(original, patch, new PairFactory(factory));
+        String actual = merge(original, patch, factory);
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Compares the time taken to merge wide documents with and without indexed matching.
+     *
+     * @throws AbstractXmlMergeException for any merge error
+     */
+    @Test
+    @Ignore("Benchmark. Run manually when changing OrderedMergeAction or the matchers")
+    public void benchmarkWideDocuments() throws AbstractXmlMergeException
+    {
+        for (int width : new int[]{1000, 5000, 20000})
+        {
+            // half of the original elements have no counterpart in the patch
+            Element original = createWideDocument(0, width);
+            Element patch = createWideDocument(width / 2, width);
+            OperationFactory factory = new StaticOperationFactory(new IdAttributeMatcher());
+
+            long start = System.nanoTime();
+            merge(original, patch, new PairFactory(factory));
+            long pairs = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            merge(original, patch, factory);
+            long indexed = System.nanoTime() - start;
+
+            System.out.println(width + " siblings: pairwise " + pairs / 1000000 + "ms, indexed "
+                                       + indexed / 1000000 + "ms");
+        }
+    }
+
+    /**
+     * Merges two elements.
+     *
+     * @param original the original element
+     * @param patch the patch element
+     * @param matcherFactory the matcher factory
+     * @return the merged element, as a string
+     * @throws AbstractXmlMergeException for any merge error
+     */
+    private String merge(Element original, Element patch, OperationFactory matcherFactory)
+            throws AbstractXmlMergeException
+    {
+        OrderedMergeAction action = new OrderedMergeAction();
+        action.setMatcherFactory(matcherFactory);
+        Element output = new Element("output");
+        action.perform((Element) original.clone(), (Element) patch.clone(), output);
+        return new XMLOutputter().outputString(output);
+    }
+
+    /**
+     * Creates a wide document, with elements with distinct identifiers.
+     *
+     * @param first the identifier of the first element
+     * @param width the no. of children of the root element
+     * @return the root element
+     */
+    private Element createWideDocument(int first, int width)
+    {
+        Element root = new Element("root");
+        for (int i = first; i < first + width; i++)
+        {
+            root.addContent(new Element("item").setAttribute("id", "a" + i));
+        }
+        return root;
+    }
+
+    /**
+     * Creates a wide document, with repeated and differently cased tags and attributes.
+     *
+     * @param random the random number generator
+     * @param width the no. of children of the root element
+     * @return the root element
+     */
+    private Element createDocument(Random random, int width)
+    {
+        Element root = new Element("root");
+        int range = width / 2 + 1;
+        for (int i = 0; i < width; i++)
+        {
+            int value = random.nextInt(range);
+            Element item = new Element(random.nextInt(10) == 0 ? "ITEM" : "item");
+            switch (random.nextInt(6))
+            {
+                case 0:
+                    // no attributes
+                    break;
+                case 1:
+                    item.setAttribute("ID", "A" + value);
+                    break;
+                case 2:
+                    item.setAttribute("name", "n" + value);
+                    item.setAttribute("id", Integer.toString(value % 7));
+                    break;
+                case 3:
+                    item.setAttribute("value", Integer.toString(value));
+                    break;
+                default:
+                    item.setAttribute("id", "a" + value);
+            }
+            item.addContent(new Element("child").setAttribute("id", Integer.toString(random.nextInt(3))));
+            root.addContent(item);
+            if (random.nextInt(20) == 0)
+            {
+                root.addContent(new Comment("comment " + i));
+            }
+            if (random.nextInt(20) == 0)
+            {
+                root.addContent(new Text("text " + i));
+            }
+        }
+        return root;
+    }
+
+    /**
+     * A factory that delegates to another, so that matchers are resolved and compared for every pair of elements.
+     */
+    private static class PairFactory implements OperationFactory
+    {
+        /**
+         * The factory to delegate to.
+         */
+        private final OperationFactory factory;
+
+        /**
+         * Constructs a {@code PairFactory}.
+         *
+         * @param factory the factory to delegate to
+         */
+        public PairFactory(OperationFactory factory)
+        {
+            this.factory = factory;
+        }
+
+        @Override
+        public Operation getOperation(Element originalElement, Element patchElement)
+                throws AbstractXmlMergeException
+        {
+            return factory.getOperation(originalElement, patchElement);
+        }
+    }
+}